@@ -0,0 +1,85 @@
+   import java.io.*;
+   import java.util.*;
+   import mars.*;
+
+/**
+ * Assembler benchmark: generates a MIPS source file of 50,000 statements and assembles
+ * it several times in one JVM, printing the tokenizing and assembly time of each run and
+ * the best total.  The source has 2,000 .word lines and 48,000 instruction lines drawn
+ * from a fixed mix of basic instructions, pseudo-instructions, branches to labels and
+ * data references, with a label line before every tenth.  The generator is seeded, so
+ * every run and every tree assembles the same file.
+ * <p>
+ * Compile it against the MARS classes and run it from the MARS directory:
+ * <pre>
+ *   javac -cp &lt;classes&gt; -d &lt;classes&gt; bench/AssemblerBench.java
+ *   java -cp &lt;classes&gt;:. AssemblerBench [runs [source.asm]]
+ * </pre>
+ * The source is written to the given file, or to a temporary file that is deleted
+ * afterwards.
+ *
+ * @version October 2026
+ **/
+
+    public class AssemblerBench {
+
+      private static final int DATA_LINES = 2000;
+      private static final int TEXT_LINES = 48000;
+      private static final String[] OPERATIONS = {
+         "add $t0, $t1, $t2", "addi $t0, $t1, 100", "lw $t3, w%1$d", "sw $t4, w%1$d",
+         "li $t5, 0x12345678", "la $a0, w%1$d", "beq $t0, $t1, L%2$d", "bne $t2, $zero, L%2$d",
+         "mul $t6, $t7, $t8", "sll $s0, $s1, 3", "move $a1, $a2", "blt $t0, $t1, L%2$d",
+         "ori $t1, $t1, 0xff", "xor $s2, $s3, $s4", "lui $t9, 0x1001", "subu $v0, $v1, $a3",
+         "nop", "jal L%2$d", "srl $t0, $t0, 2", "sltu $t1, $t2, $t3" };
+
+       public static void main(String[] args) throws Exception {
+         int runs = (args.length > 0) ? Integer.parseInt(args[0]) : 6;
+         File source = (args.length > 1) ? new File(args[1]) : File.createTempFile("bench", ".asm");
+         if (args.length <= 1) {
+            source.deleteOnExit();
+         }
+         generate(source);
+         String file = source.getPath();
+         Globals.initialize(false);
+         long best = Long.MAX_VALUE;
+         for (int run = 1; run <= runs; run++) {
+            MIPSprogram program = new MIPSprogram();
+            Globals.program = program;
+            ArrayList files = new ArrayList();
+            files.add(file);
+            long start = System.nanoTime();
+            ArrayList programs = program.prepareFilesForAssembly(files, file, null);
+            long tokenized = System.nanoTime();
+            program.assemble(programs, true, false);
+            long end = System.nanoTime();
+            best = Math.min(best, end - start);
+            System.out.println("run " + run + ": tokenize " + (tokenized - start) / 1000000
+               + " ms, assemble " + (end - tokenized) / 1000000 + " ms, total "
+               + (end - start) / 1000000 + " ms, " + program.getMachineList().size() + " statements");
+         }
+         System.out.println("best total " + best / 1000000 + " ms");
+      }
+
+      // Write the generated source.
+       private static void generate(File file) throws IOException {
+         Random random = new Random(1);
+         PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+         out.println(".data");
+         for (int i = 0; i < DATA_LINES; i++) {
+            out.println("w" + i + ": .word " + i + ", " + (i * 3) + ", " + (i * 7));
+         }
+         out.println(".text");
+         out.println("main:");
+         for (int i = 0; i < TEXT_LINES; i++) {
+            if (i % 10 == 0) {
+               out.println("L" + (i / 10) + ":");
+            }
+            String operation = OPERATIONS[random.nextInt(OPERATIONS.length)];
+            out.println("\t" + String.format(operation, random.nextInt(DATA_LINES),
+               random.nextInt(TEXT_LINES / 10)));
+         }
+         out.println("\tli $v0, 10");
+         out.println("\tsyscall");
+         out.close();
+      }
+   }
@@ -0,0 +1,121 @@
+   import java.io.*;
+   import java.util.*;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.util.*;
+
+/**
+ * SimulationContext check: runs two different programs (context1.asm and context2.asm
+ * by default) in two contexts, switching from one to the other every few hundred
+ * instructions, with the fast engine and then with tiered simulation.  Both programs
+ * start at the same text address, so a context that used the statements decoded or
+ * the blocks compiled for the other would go wrong.  A third context is created at every
+ * tenth switch, which must leave the active one alone.  Each program's output must be what
+ * it prints when run by itself with both settings off.  Exits with status 1 otherwise.
+ * <p>
+ * Compile it against the MARS classes and run it from the MARS directory:
+ * <pre>
+ *   javac -cp &lt;classes&gt; -d &lt;classes&gt; bench/ContextCheck.java
+ *   java -cp &lt;classes&gt;:. ContextCheck [program1.asm program2.asm [steps]]
+ * </pre>
+ *
+ * @version October 2026
+ **/
+
+    public class ContextCheck {
+
+       public static void main(String[] args) throws Exception {
+         String[] files = (args.length > 1) ? new String[] { args[0], args[1] }
+                                            : new String[] { "bench/context1.asm", "bench/context2.asm" };
+         int steps = (args.length > 2) ? Integer.parseInt(args[2]) : 500;
+         Globals.initialize(false);
+         String[] expected = new String[files.length];
+         for (int i = 0; i < files.length; i++) {
+            expected[i] = runAlone(files[i]);
+         }
+         boolean passed = true;
+         passed &= runAlternating("fast engine", files, expected, steps, true, false);
+         passed &= runAlternating("tiered simulation", files, expected, steps, true, true);
+         System.exit(passed ? 0 : 1);
+      }
+
+      // Output of the program run to completion in a context of its own, interpreted.
+       private static String runAlone(String file) throws ProcessingException {
+         setEngines(false, false);
+         ByteArrayOutputStream output = new ByteArrayOutputStream();
+         new SimulationContext().activate();
+         load(file, output).simulate(-1);
+         SystemIO.flushOutput();
+         return output.toString();
+      }
+
+      // Run the programs in contexts of their own, a number of steps at a time in turn,
+      // and compare their outputs with the expected ones.
+       private static boolean runAlternating(String name, String[] files, String[] expected, int steps,
+                                            boolean fastEngine, boolean blockCompiler) throws ProcessingException {
+         setEngines(fastEngine, blockCompiler);
+         SimulationContext[] contexts = new SimulationContext[files.length];
+         MIPSprogram[] programs = new MIPSprogram[files.length];
+         ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[files.length];
+         for (int i = 0; i < files.length; i++) {
+            contexts[i] = new SimulationContext();
+            contexts[i].activate();
+            outputs[i] = new ByteArrayOutputStream();
+            programs[i] = load(files[i], outputs[i]);
+         }
+         boolean[] done = new boolean[files.length];
+         int switches = 0;
+         for (int remaining = files.length; remaining > 0; ) {
+            for (int i = 0; i < files.length; i++) {
+               if (done[i]) {
+                  continue;
+               }
+               contexts[i].activate();
+               if (++switches % 10 == 0) {
+                  new SimulationContext();
+               }
+               boolean finished;
+               try {
+                  finished = programs[i].simulate(steps);
+               } 
+                   catch (ProcessingException e) {
+                     outputs[i].write('?');
+                     finished = true;
+                  }
+               if (finished) {
+                  SystemIO.flushOutput();
+                  done[i] = true;
+                  remaining--;
+               }
+            }
+         }
+         boolean passed = true;
+         for (int i = 0; i < files.length; i++) {
+            String output = outputs[i].toString();
+            boolean same = output.equals(expected[i]);
+            System.out.println(name + ": " + files[i] + " printed \"" + output + "\""
+               + (same ? "" : " instead of \"" + expected[i] + "\""));
+            passed &= same;
+         }
+         System.out.println(name + ": " + (passed ? "passed" : "FAILED") + " after " + switches + " context switches");
+         return passed;
+      }
+
+      // Assemble the program in the active context, with program output to the given stream.
+       private static MIPSprogram load(String file, OutputStream output) throws ProcessingException {
+         SystemIO.setStandardStreams(System.in, new PrintStream(output, true), System.err);
+         MIPSprogram program = new MIPSprogram();
+         ArrayList files = new ArrayList();
+         files.add(file);
+         program.assemble(program.prepareFilesForAssembly(files, file, null), true);
+         RegisterFile.resetRegisters();
+         RegisterFile.initializeProgramCounter(false);
+         Globals.program = program;
+         return program;
+      }
+
+       private static void setEngines(boolean fastEngine, boolean blockCompiler) {
+         Globals.getSettings().setBooleanSettingNonPersistent(Settings.FAST_ENGINE_ENABLED, fastEngine);
+         Globals.getSettings().setBooleanSettingNonPersistent(Settings.BLOCK_COMPILER_ENABLED, blockCompiler);
+      }
+   }
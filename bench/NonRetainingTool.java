@@ -0,0 +1,10 @@
+   import mars.mips.hardware.*;
+
+/**
+ * ObserverBench observer that declares it does not keep the notices it is given.
+ *
+ * @version October 2026
+ **/
+
+    public class NonRetainingTool extends ObserverBench implements NonRetainingObserver {
+   }
@@ -0,0 +1,81 @@
+   import java.util.*;
+   import mars.*;
+   import mars.mips.hardware.*;
+
+/**
+ * Memory observer benchmark: simulates a load/store loop (loadstore.asm by default)
+ * with 0, 1, 5 and 20 observers attached, standing in for tools such as the Cache
+ * Simulator or Bitmap Display, and prints the time of each run.  The observers are
+ * spread over the data segment, heap, stack, memory-mapped I/O and the whole address
+ * space, and each one reads every notice it gets.  With "nonretaining" the observers
+ * are NonRetainingTools, which may share one pooled notice (see NonRetainingObserver).
+ * <p>
+ * Compile it against the MARS classes and run it from the MARS directory:
+ * <pre>
+ *   javac -cp &lt;classes&gt; -d &lt;classes&gt; bench/ObserverBench.java bench/NonRetainingTool.java
+ *   java -cp &lt;classes&gt;:. ObserverBench [nonretaining] [program.asm [observers...]]
+ * </pre>
+ * Each count is run three times in the same JVM; the last run is the one to compare.
+ * ObserverBench alone compiles against trees that predate NonRetainingObserver.
+ *
+ * @version October 2026
+ **/
+
+    public class ObserverBench implements Observer {
+
+      private static final int RUNS = 3;
+      // Observed ranges, used in turn.  Every fifth observer watches all of memory instead.
+      private static final int[][] RANGES = {
+         {0x10010000, 0x10010ffc}, {0x10000000, 0x1003fffc}, {0xffff0000, 0xffff00fc},
+         {0x10040000, 0x1007fffc}, {0x7fffe000, 0x7ffffffc} };
+      private static volatile long sink;
+
+       public void update(Observable observable, Object notice) {
+         MemoryAccessNotice access = (MemoryAccessNotice) notice;
+         sink += access.getAddress() + access.getValue();
+      }
+
+       public static void main(String[] args) throws Exception {
+         int next = 0;
+         boolean nonRetaining = (args.length > 0 && args[0].equals("nonretaining"));
+         if (nonRetaining) {
+            next++;
+         }
+         String file = (args.length > next) ? args[next++] : "bench/loadstore.asm";
+         int[] counts = {0, 1, 5, 20};
+         if (args.length > next) {
+            counts = new int[args.length - next];
+            for (int i = 0; i < counts.length; i++) {
+               counts[i] = Integer.parseInt(args[next + i]);
+            }
+         }
+         Class toolClass = nonRetaining ? Class.forName("NonRetainingTool") : ObserverBench.class;
+         Globals.initialize(false);
+         for (int c = 0; c < counts.length; c++) {
+            for (int run = 1; run <= RUNS; run++) {
+               MIPSprogram program = new MIPSprogram();
+               ArrayList files = new ArrayList();
+               files.add(file);
+               program.assemble(program.prepareFilesForAssembly(files, file, null), true);
+               RegisterFile.resetRegisters();
+               RegisterFile.initializeProgramCounter(false);
+               for (int i = 0; i < counts[c]; i++) {
+                  Observer tool = (Observer) toolClass.newInstance();
+                  if (i % 5 == 1) {
+                     Globals.memory.addObserver(tool);
+                  } 
+                  else {
+                     int[] range = RANGES[i % 5];
+                     Globals.memory.addObserver(tool, range[0] + (i / 5) * 16, range[1]);
+                  }
+               }
+               long start = System.nanoTime();
+               program.simulate(-1);
+               double seconds = (System.nanoTime() - start) / 1e9;
+               Globals.memory.deleteObservers();
+               System.out.printf("observers %d%s, run %d: %.2f s%n", counts[c],
+                  nonRetaining ? " (non-retaining)" : "", run, seconds);
+            }
+         }
+      }
+   }
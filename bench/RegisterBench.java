@@ -0,0 +1,69 @@
+   import java.util.*;
+   import mars.*;
+   import mars.mips.hardware.*;
+
+/**
+ * Register file benchmark: simulates a register-only loop (arith.asm by default) with
+ * no observers attached and prints simulated instructions per second for each run.
+ * The instruction count comes from one extra run with a counting observer on the text
+ * segment, which is not timed.
+ * <p>
+ * Compile it against the MARS classes and run it from the MARS directory:
+ * <pre>
+ *   javac -cp &lt;classes&gt; -d &lt;classes&gt; bench/RegisterBench.java
+ *   java -cp &lt;classes&gt;:. RegisterBench [program.asm [runs]]
+ * </pre>
+ *
+ * @version October 2026
+ **/
+
+    public class RegisterBench {
+
+       public static void main(String[] args) throws Exception {
+         String file = (args.length > 0) ? args[0] : "bench/arith.asm";
+         int runs = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+         Globals.initialize(false);
+         long count = countInstructions(file);
+         for (int run = 1; run <= runs; run++) {
+            MIPSprogram program = load(file);
+            long start = System.nanoTime();
+            program.simulate(-1);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("run %d: %d instructions in %.2f s, %.2fM instructions/sec%n",
+               run, count, seconds, count / seconds / 1e6);
+         }
+      }
+
+      // Assemble the program and set the registers up for simulating it.
+       private static MIPSprogram load(String file) throws ProcessingException {
+         MIPSprogram program = new MIPSprogram();
+         ArrayList files = new ArrayList();
+         files.add(file);
+         program.assemble(program.prepareFilesForAssembly(files, file, null), true);
+         RegisterFile.resetRegisters();
+         RegisterFile.initializeProgramCounter(false);
+         return program;
+      }
+
+      // Simulate the program once, counting the instructions fetched as the "ic" option does.
+       private static long countInstructions(String file) throws Exception {
+         MIPSprogram program = load(file);
+         final long[] count = new long[1];
+         Observer counter =
+            new Observer() {
+               private int lastAddress = 0;
+               public void update(Observable o, Object obj) {
+                  MemoryAccessNotice notice = (MemoryAccessNotice) obj;
+                  if (notice.accessIsFromMIPS() && notice.getAccessType() == AccessNotice.READ
+                         && notice.getAddress() != lastAddress) {
+                     lastAddress = notice.getAddress();
+                     count[0]++;
+                  }
+               }
+            };
+         Globals.memory.addObserver(counter, Memory.textBaseAddress, Memory.textLimitAddress);
+         program.simulate(-1);
+         Globals.memory.deleteObservers();
+         return count[0];
+      }
+   }
@@ -0,0 +1,73 @@
+   import javax.swing.*;
+   import javax.swing.event.*;
+   import mars.venus.*;
+
+/**
+ * Run I/O pane benchmark: posts program output to a MessagesPane from a thread other
+ * than the event thread, as the simulator does, and prints how long it took to post it
+ * all and until all of it was in the Run I/O text area.  The pane is not shown, so it
+ * runs headless.
+ * <p>
+ * Compile it against the MARS classes and run it from the MARS directory:
+ * <pre>
+ *   javac -cp &lt;classes&gt; -d &lt;classes&gt; bench/RunOutputBench.java
+ *   java -cp &lt;classes&gt;:. RunOutputBench [characters [message length]]
+ * </pre>
+ * The defaults are 10,000,000 characters in 100-character messages.
+ * print4.asm and print11.asm measure the same output through the simulator.
+ *
+ * @version October 2026
+ **/
+
+    public class RunOutputBench {
+
+      private static volatile long inserted = 0;
+
+       public static void main(String[] args) throws Exception {
+         final int characters = (args.length > 0) ? Integer.parseInt(args[0]) : 10000000;
+         int length = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+         final MessagesPane[] pane = new MessagesPane[1];
+         SwingUtilities.invokeAndWait(
+               new Runnable() {
+                  public void run() {
+                     pane[0] = new MessagesPane();
+                     pane[0].getRunTextArea().getDocument().addDocumentListener(
+                           new DocumentListener() {
+                              public void insertUpdate(DocumentEvent e) {
+                                 inserted += e.getLength();
+                              }
+                              public void removeUpdate(DocumentEvent e) {
+                              }
+                              public void changedUpdate(DocumentEvent e) {
+                              }
+                           });
+                  }
+               });
+         StringBuilder buffer = new StringBuilder();
+         for (int i = 0; i < length; i++) {
+            buffer.append((char) ('a' + i % 26));
+         }
+         final String message = buffer.toString();
+         final int messages = characters / length;
+         long start = System.nanoTime();
+         Thread poster =
+            new Thread() {
+               public void run() {
+                  for (int i = 0; i < messages; i++) {
+                     pane[0].postRunMessage(message);
+                  }
+               }
+            };
+         poster.start();
+         poster.join();
+         long posted = System.nanoTime();
+         while (inserted < (long) messages * length) {
+            Thread.sleep(2);
+         }
+         long displayed = System.nanoTime();
+         System.out.println((long) messages * length + " characters in " + length
+            + "-character messages: posted in " + (posted - start) / 1000000
+            + " ms, displayed in " + (displayed - start) / 1000000 + " ms");
+         System.exit(0);
+      }
+   }
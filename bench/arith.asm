@@ -0,0 +1,16 @@
+# Tight arithmetic loop for RegisterBench: 5,000,000 iterations of six
+# register-only instructions, about 30M instructions in all.  No memory
+# access and no output.
+.text
+main:
+  li $t0, 5000000
+  li $t1, 0
+loop:
+  addu $t1, $t1, $t0
+  xor $t2, $t1, $t0
+  sll $t3, $t2, 3
+  subu $t1, $t1, $t3
+  addiu $t0, $t0, -1
+  bne $t0, $zero, loop
+  li $v0, 10
+  syscall
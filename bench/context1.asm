@@ -0,0 +1,15 @@
+# Program for ContextCheck: sums (i*i) xor i for i = 1..20000, keeping the low
+# 32 bits, and prints the sum.
+        .text
+main:   li $t0, 1
+        li $t1, 0
+loop:   mul $t2, $t0, $t0
+        xor $t2, $t2, $t0
+        addu $t1, $t1, $t2
+        addiu $t0, $t0, 1
+        ble $t0, 20000, loop
+        move $a0, $t1
+        li $v0, 1
+        syscall
+        li $v0, 10
+        syscall
@@ -0,0 +1,33 @@
+# Program for ContextCheck: fills a 1000-word array with 7i+3, then adds it up
+# 20 times, shifting the running total each pass, and prints the total.
+        .data
+arr:    .space 4000
+        .text
+main:   la $s0, arr
+        li $t0, 0
+fill:   sll $t1, $t0, 3
+        subu $t1, $t1, $t0
+        addiu $t1, $t1, 3
+        sll $t2, $t0, 2
+        addu $t2, $s0, $t2
+        sw $t1, 0($t2)
+        addiu $t0, $t0, 1
+        blt $t0, 1000, fill
+        li $s1, 0
+        li $s2, 0
+pass:   move $t2, $s0
+        li $t0, 0
+sum:    lw $t1, 0($t2)
+        addu $s1, $s1, $t1
+        addiu $t2, $t2, 4
+        addiu $t0, $t0, 1
+        blt $t0, 1000, sum
+        sll $t3, $s1, 1
+        xor $s1, $s1, $t3
+        addiu $s2, $s2, 1
+        blt $s2, 20, pass
+        move $a0, $s1
+        li $v0, 1
+        syscall
+        li $v0, 10
+        syscall
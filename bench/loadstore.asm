@@ -0,0 +1,27 @@
+# Load/store loop for ObserverBench: 140 passes over a 10,000-word array,
+# each word stored and loaded as word, byte and halfword, with a push and
+# pop on the stack.  About 20M instructions, 8 memory accesses in 14.
+        .data
+arr:    .space 40000
+        .text
+main:   li $s2, 0
+outer:  la $s0, arr
+        li $t1, 0
+inner:  sw $t1, 0($s0)
+        lw $t2, 0($s0)
+        sb $t2, 1($s0)
+        lbu $t3, 1($s0)
+        sh $t3, 2($s0)
+        lh $t4, 2($s0)
+        addu $s1, $s1, $t4
+        addiu $sp, $sp, -4
+        sw $s1, 0($sp)
+        lw $s1, 0($sp)
+        addiu $sp, $sp, 4
+        addiu $s0, $s0, 4
+        addiu $t1, $t1, 1
+        blt $t1, 10000, inner
+        addiu $s2, $s2, 1
+        blt $s2, 140, outer
+        li $v0, 10
+        syscall
@@ -0,0 +1,14 @@
+# Output benchmark: prints 10M characters one at a time with Print Char
+# (syscall 11).  Time it from the command line, e.g.
+#   time java -cp <classes>:. Mars nc bench/print11.asm > /dev/null
+# or run it in the IDE to exercise the Run I/O pane.
+.text
+ li $t0, 10000000
+l: andi $a0,$t0,63
+ addi $a0,$a0,48
+ li $v0, 11
+ syscall
+ addi $t0,$t0,-1
+ bnez $t0, l
+ li $v0,10
+ syscall
@@ -0,0 +1,15 @@
+# Output benchmark: prints 10M characters with Print String (syscall 4),
+# a 100-character line 100,000 times.  Time it from the command line, e.g.
+#   time java -cp <classes>:. Mars nc bench/print4.asm > /dev/null
+# or run it in the IDE to exercise the Run I/O pane.
+.data
+s: .asciiz "abcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstu\n"
+.text
+ li $t0, 100000
+l: la $a0, s
+ li $v0, 4
+ syscall
+ addi $t0,$t0,-1
+ bnez $t0, l
+ li $v0,10
+ syscall
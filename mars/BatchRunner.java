@@ -0,0 +1,362 @@
+   package mars;
+   import java.io.*;
+   import java.lang.reflect.*;
+   import java.util.*;
+   import java.util.concurrent.*;
+
+/**
+ * Headless batch mode: assembles and simulates many MIPS programs on a pool of worker
+ * threads inside one JVM, and writes one result line per program.  Invoked by
+ * <tt>java Mars batch &lt;directory|manifest&gt; [w&lt;n&gt;] [options]</tt>.
+ * <p>
+ * The programs are either every <tt>.asm</tt> file in the directory, with standard input
+ * taken from <tt>name.in</tt> and expected output from <tt>name.out</tt> when those
+ * files exist, or the entries of a manifest file.  Each manifest line has the form
+ * <tt>program [input [expected]]</tt>, paths relative to the manifest, with "-" for
+ * none; blank lines and lines starting with # are ignored.  <tt>w&lt;n&gt;</tt> sets
+ * the number of workers (default: one per processor).  All other options are passed to
+ * every program's run, as for a normal command line run.
+ * <p>
+ * Each result is a JSON object on its own line, in the order the programs were listed:
+ * program name, status ("pass" or "fail" when there is expected output, "done" when
+ * there is not, "error" if MARS itself failed), MARS exit code, elapsed milliseconds and,
+ * unless the program passed, its output.  The batch exit code is 1 if any program
+ * failed or had an error, 0 otherwise.
+ * <p>
+ * Each program runs in its own SimulationContext, which holds its memory, registers,
+ * I/O and back-stepping state.  Settings, the memory configuration and other MARS
+ * statics are still shared by everything using one copy of the MARS classes, so each
+ * worker loads its own copy through a WorkerClassLoader.  A worker pays for class
+ * loading, instruction set population and syscall and language loading once, then runs
+ * its programs one after another through MarsLaunch.runBatchJob().
+ *
+ * @version October 2026
+ **/
+
+    public class BatchRunner {
+
+      private static final String PROGRAM_EXTENSION = ".asm";
+      private static final String INPUT_EXTENSION = ".in";
+      private static final String EXPECTED_EXTENSION = ".out";
+      private static final String NONE = "-";
+
+      private PrintStream out;
+      private ArrayList jobs = new ArrayList();
+      private ArrayList options = new ArrayList();
+      private int workers = Runtime.getRuntime().availableProcessors();
+      private ClassLoader marsClassLoader = BatchRunner.class.getClassLoader();
+
+   	/**
+   	 * @param out stream to write the result lines and any batch error messages to
+   	 */
+       public BatchRunner(PrintStream out) {
+         this.out = out;
+      }
+
+   	/**
+   	 * Run the batch described by the command arguments.
+   	 * @param args command arguments; args[0] is "batch", args[1] the directory or manifest
+   	 * @return exit code for MARS: 0 if every program passed or completed, 1 otherwise
+   	 */
+       public int run(String[] args) {
+         if (!parseArgs(args)) {
+            return 1;
+         }
+         ExecutorService pool = Executors.newFixedThreadPool(workers);
+         final ThreadLocal worker = new ThreadLocal(); // each pool thread's runBatchJob method
+         ArrayList results = new ArrayList();
+         for (int i = 0; i < jobs.size(); i++) {
+            final Job job = (Job) jobs.get(i);
+            results.add(pool.submit(
+                  new Callable() {
+                     public Object call() {
+                        return job.run(worker);
+                     }
+                  }));
+         }
+         boolean allPassed = true;
+         for (int i = 0; i < results.size(); i++) {
+            String result;
+            try {
+               result = (String) ((Future) results.get(i)).get();
+            }
+                catch (Exception e) { // Job.run() catches everything itself, so should not occur
+                  result = ((Job) jobs.get(i)).result("error", -1, 0, e.toString());
+               }
+            allPassed &= ((Job) jobs.get(i)).passed;
+            out.println(result);
+            out.flush();
+         }
+         pool.shutdown();
+         return (allPassed) ? 0 : 1;
+      }
+
+      // Collect the jobs, worker count and options to pass on.  Returns false after
+      // displaying a message if the arguments are not usable.
+       private boolean parseArgs(String[] args) {
+         if (args.length < 2) {
+            out.println("Batch mode requires a directory or manifest file name.");
+            return false;
+         }
+         for (int i = 2; i < args.length; i++) {
+            if (args[i].length() > 1 && args[i].toLowerCase().startsWith("w")
+                   && isDigits(args[i].substring(1))) {
+               workers = Math.max(1, Integer.parseInt(args[i].substring(1)));
+            }
+            else {
+               options.add(args[i]);
+            }
+         }
+         File source = new File(args[1]);
+         try {
+            if (source.isDirectory()) {
+               addDirectoryJobs(source);
+            }
+            else {
+               addManifestJobs(source);
+            }
+         }
+             catch (IOException e) {
+               out.println("Error reading batch manifest " + source + ": " + e.getMessage());
+               return false;
+            }
+         return true;
+      }
+
+       private void addDirectoryJobs(File directory) {
+         String[] names = directory.list();
+         Arrays.sort(names);
+         for (int i = 0; i < names.length; i++) {
+            if (names[i].toLowerCase().endsWith(PROGRAM_EXTENSION)) {
+               String base = names[i].substring(0, names[i].length() - PROGRAM_EXTENSION.length());
+               File input = new File(directory, base + INPUT_EXTENSION);
+               File expected = new File(directory, base + EXPECTED_EXTENSION);
+               jobs.add(new Job(new File(directory, names[i]),
+                                (input.isFile()) ? input : null,
+                                (expected.isFile()) ? expected : null));
+            }
+         }
+      }
+
+       private void addManifestJobs(File manifest) throws IOException {
+         File directory = manifest.getAbsoluteFile().getParentFile();
+         BufferedReader in = new BufferedReader(new FileReader(manifest));
+         try {
+            String line;
+            while ((line = in.readLine()) != null) {
+               line = line.trim();
+               if (line.length() == 0 || line.startsWith("#")) {
+                  continue;
+               }
+               String[] fields = line.split("\\s+");
+               jobs.add(new Job(resolve(directory, fields[0]),
+                                (fields.length > 1) ? resolve(directory, fields[1]) : null,
+                                (fields.length > 2) ? resolve(directory, fields[2]) : null));
+            }
+         }
+         finally {
+            in.close();
+         }
+      }
+
+       private static File resolve(File directory, String name) {
+         if (name.equals(NONE)) {
+            return null;
+         }
+         File file = new File(name);
+         return (file.isAbsolute()) ? file : new File(directory, name);
+      }
+
+       private static boolean isDigits(String s) {
+         for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+               return false;
+            }
+         }
+         return s.length() > 0;
+      }
+
+      // Create a fresh copy of MARS for the calling worker thread and return its
+      // MarsLaunch.runBatchJob() method.
+       private Method loadWorker() throws Exception {
+         ClassLoader loader = new WorkerClassLoader(marsClassLoader);
+         Class launch = Class.forName("mars.MarsLaunch", true, loader);
+         return launch.getMethod("runBatchJob", new Class[] {String[].class, InputStream.class, PrintStream.class});
+      }
+
+      ///////////////////////////////////////////////////////////////////////
+      // One program to assemble and run, with its optional input and expected output.
+
+       private class Job {
+         private File program;
+         private File input;
+         private File expected;
+         private boolean passed = false;
+
+          Job(File program, File input, File expected) {
+            this.program = program;
+            this.input = input;
+            this.expected = expected;
+         }
+
+         // Run the program on the calling worker (loading the worker's copy of MARS first
+         // if need be) and return its result line.
+          String run(ThreadLocal worker) {
+            long start = System.currentTimeMillis();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try {
+               Method runBatchJob = (Method) worker.get();
+               if (runBatchJob == null) {
+                  runBatchJob = loadWorker();
+                  worker.set(runBatchJob);
+               }
+               ArrayList args = new ArrayList();
+               args.add("nc");
+               args.add(program.getPath());
+               args.addAll(options);
+               InputStream in = (input == null) ? (InputStream) new ByteArrayInputStream(new byte[0])
+                                                : new FileInputStream(input);
+               int exitCode;
+               try {
+                  exitCode = ((Integer) runBatchJob.invoke(null, new Object[] {
+                        args.toArray(new String[args.size()]), in, new PrintStream(output, true)})).intValue();
+               }
+               finally {
+                  in.close();
+               }
+               long elapsed = System.currentTimeMillis() - start;
+               String actual = output.toString();
+               if (expected == null) {
+                  passed = (exitCode == 0);
+                  return result("done", exitCode, elapsed, actual);
+               }
+               passed = (exitCode == 0) && normalize(actual).equals(normalize(readFile(expected)));
+               return result((passed) ? "pass" : "fail", exitCode, elapsed, (passed) ? null : actual);
+            }
+                catch (InvocationTargetException e) {
+                  return result("error", -1, System.currentTimeMillis() - start,
+                                output.toString() + e.getTargetException());
+               }
+                catch (Exception e) {
+                  return result("error", -1, System.currentTimeMillis() - start, e.toString());
+               }
+         }
+
+          String result(String status, int exitCode, long elapsed, String output) {
+            StringBuffer result = new StringBuffer("{\"program\":");
+            appendJsonString(result, program.getPath());
+            result.append(",\"status\":\"").append(status).append('"');
+            result.append(",\"exitCode\":").append(exitCode);
+            result.append(",\"millis\":").append(elapsed);
+            if (output != null) {
+               result.append(",\"output\":");
+               appendJsonString(result, output);
+            }
+            return result.append('}').toString();
+         }
+      }
+
+      // Ignore line terminator differences and trailing line terminators when comparing output.
+       private static String normalize(String text) {
+         text = text.replaceAll("\r\n?", "\n");
+         int end = text.length();
+         while (end > 0 && text.charAt(end - 1) == '\n') {
+            end--;
+         }
+         return text.substring(0, end);
+      }
+
+       private static String readFile(File file) throws IOException {
+         InputStream in = new FileInputStream(file);
+         try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+               bytes.write(buffer, 0, count);
+            }
+            return bytes.toString();
+         }
+         finally {
+            in.close();
+         }
+      }
+
+       private static void appendJsonString(StringBuffer buffer, String value) {
+         buffer.append('"');
+         for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+               case '"':  buffer.append("\\\"");
+                  break;
+               case '\\': buffer.append("\\\\");
+                  break;
+               case '\n': buffer.append("\\n");
+                  break;
+               case '\r': buffer.append("\\r");
+                  break;
+               case '\t': buffer.append("\\t");
+                  break;
+               default:
+                  if (c < 0x20) {
+                     String hex = Integer.toHexString(c);
+                     buffer.append("\\u0000".substring(0, 6 - hex.length())).append(hex);
+                  }
+                  else {
+                     buffer.append(c);
+                  }
+            }
+         }
+         buffer.append('"');
+      }
+
+      ///////////////////////////////////////////////////////////////////////
+      // Loads the MARS classes (the mars package and the Mars main class) itself
+      // rather than delegating to its parent, so that each worker gets its own
+      // copy of them and of their static state.  Everything else, including the
+      // class files and resources themselves, comes from the parent.
+
+       private static class WorkerClassLoader extends ClassLoader {
+          WorkerClassLoader(ClassLoader parent) {
+            super(parent);
+         }
+
+          protected synchronized Class loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith("mars.") && !name.equals("Mars")) {
+               return super.loadClass(name, resolve);
+            }
+            Class c = findLoadedClass(name);
+            if (c == null) {
+               byte[] classBytes = readClass(name);
+               if (classBytes == null) {
+                  return super.loadClass(name, resolve);
+               }
+               c = defineClass(name, classBytes, 0, classBytes.length);
+            }
+            if (resolve) {
+               resolveClass(c);
+            }
+            return c;
+         }
+
+          private byte[] readClass(String name) throws ClassNotFoundException {
+            InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+            if (in == null) {
+               return null;
+            }
+            try {
+               ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+               byte[] buffer = new byte[8192];
+               int count;
+               while ((count = in.read(buffer)) > 0) {
+                  bytes.write(buffer, 0, count);
+               }
+               in.close();
+               return bytes.toByteArray();
+            }
+                catch (IOException e) {
+                  throw new ClassNotFoundException(name, e);
+               }
+         }
+      }
+   }
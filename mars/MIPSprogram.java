@@ -6,6 +6,7 @@
    import mars.mips.hardware.*;
 	
    import java.util.*;
+   import java.util.concurrent.*;
    import java.io.*;
    import java.awt.event.*;
    import javax.swing.*;
@@ -58,6 +59,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private ArrayList parsedList;
       private ArrayList machineList;
       private BackStepper backStepper;
+      private ReverseStepper reverseStepper;
       private SymbolTable localSymbolTable;
       private MacroPool macroPool;
       private ArrayList<SourceLine> sourceLineList;
@@ -169,6 +171,31 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return backStepper;
       }
    
+   /**
+    * Returns ReverseStepper associated with this program.  It is created upon successful
+    * assembly if reverse execution is enabled, and self-modifying code is not.  It is
+    * discarded if reverse execution is disabled afterward.
+    * @return ReverseStepper object, null if there is none.
+    **/
+    
+       public ReverseStepper getReverseStepper() {
+         return reverseStepper;
+      }
+   
+   /**
+    * Discards the ReverseStepper of this program, if any, so that it no longer records
+    * device input or takes checkpoints; the BackStepper steps back instead from now on.
+    * Called when reverse execution is disabled.  The program must not be running.
+    **/
+    
+       public void discardReverseStepper() {
+         if (this.reverseStepper != null) {
+            this.reverseStepper.dispose();
+            this.reverseStepper = null;
+            this.backStepper.setEnabled(true);
+         }
+      }
+   
    /**
     * Returns SymbolTable associated with this program.  It is created at assembly time,
     * and stores local labels (those not declared using .globl directive).
@@ -259,6 +286,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     * @return ArrayList containing one MIPSprogram object for each file to assemble.
     * objects for any additional files (send ArrayList to assembler)
     * @throws ProcessingException Will throw exception if errors occured while reading or tokenizing.
+    * If several files have errors, the exception is that of the first in the list.
     **/
    
        public ArrayList prepareFilesForAssembly(ArrayList filenames, String leadFilename, String exceptionHandler) throws ProcessingException {
@@ -268,11 +296,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             filenames.add(0, exceptionHandler);
             leadFilePosition = 1;
          }
+         MIPSprogram[] preparees = new MIPSprogram[filenames.size()];
          for (int i=0; i<filenames.size(); i++) {
-            String filename = (String) filenames.get(i);  
-            MIPSprogram preparee = (filename.equals(leadFilename)) ? this : new MIPSprogram();
-            preparee.readSource(filename);
-            preparee.tokenize();
+            preparees[i] = (filenames.get(i).equals(leadFilename)) ? this : new MIPSprogram();
+         }
+         readAndTokenize(preparees, filenames);
+         for (int i=0; i<filenames.size(); i++) {
+            MIPSprogram preparee = preparees[i];
          	// I want "this" MIPSprogram to be the first in the list...except for exception handler
             if (preparee == this && MIPSprogramsToAssemble.size()>0) {
                MIPSprogramsToAssemble.add(leadFilePosition,preparee);
@@ -284,6 +314,61 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return MIPSprogramsToAssemble;
       }
    
+   // Reads and tokenizes each file into its MIPSprogram.  Files are independent of each
+   // other until the assembler's first pass, so when there are several and more than
+   // one processor, they are read and tokenized concurrently, one task per file.
+   // Either way the result is the same, and so is the exception thrown: the first
+   // file in the list that fails determines it.
+       private static void readAndTokenize(final MIPSprogram[] preparees, final ArrayList filenames)
+              throws ProcessingException {
+         int workers = Math.min(preparees.length, Runtime.getRuntime().availableProcessors());
+         if (workers <= 1) {
+            for (int i=0; i<preparees.length; i++) {
+               preparees[i].readSource((String) filenames.get(i));
+               preparees[i].tokenize();
+            }
+            return;
+         }
+         ExecutorService pool = Executors.newFixedThreadPool(workers);
+         try {
+            Future[] results = new Future[preparees.length];
+            for (int i=0; i<preparees.length; i++) {
+               final int file = i;
+               results[i] = pool.submit(
+                     new Callable() {
+                        public Object call() throws ProcessingException {
+                           preparees[file].readSource((String) filenames.get(file));
+                           preparees[file].tokenize();
+                           return null;
+                        }
+                     });
+            }
+            for (int i=0; i<results.length; i++) {
+               try {
+                  results[i].get();
+               } 
+                   catch (ExecutionException e) {
+                     if (e.getCause() instanceof ProcessingException) {
+                        throw (ProcessingException) e.getCause();
+                     }
+                     if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                     }
+                     throw (Error) e.getCause();
+                  }
+                   catch (InterruptedException e) {
+                     Thread.currentThread().interrupt();
+                     ErrorList errors = new ErrorList();
+                     errors.add(new ErrorMessage((MIPSprogram)null,0,0,"Interrupted while reading "+filenames.get(i)));
+                     throw new ProcessingException(errors);
+                  }
+            }
+         }
+         finally {
+            pool.shutdownNow();
+         }
+      }
+   
    /**
     * Assembles the MIPS source program. All files comprising the program must have 
     * already been tokenized.  Assembler warnings are not considered errors.
@@ -313,13 +398,66 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     
        public ErrorList assemble(ArrayList MIPSprogramsToAssemble, boolean extendedAssemblerEnabled,
               boolean warningsAreErrors) throws ProcessingException {
-         this.backStepper = null;
+         discardSteppers();
          Assembler asm = new Assembler();
          this.machineList = asm.assemble(MIPSprogramsToAssemble, extendedAssemblerEnabled, warningsAreErrors);
-         this.backStepper = new BackStepper();
+         createSteppers();
          return asm.getErrorList();
       }
    
+   /**
+    * Writes the assembled program to an object file, from which loadObjectFile() can later
+    * load it without assembling.  Program must have just been assembled, with nothing
+    * since changing memory.
+    * @param file the object file to write
+    * @throws IOException if the file cannot be written
+    * @see ObjectFile
+    **/
+    
+       public void saveObjectFile(File file) throws IOException {
+         ObjectFile.save(file, this);
+      }
+   
+   /**
+    * Loads a program from an object file written by saveObjectFile(), in place of reading,
+    * tokenizing and assembling its source.  Leaves memory and the symbol table as they were
+    * after the original assembly.  The program's source is not available afterwards.
+    * @param file the object file to read
+    * @throws IOException if the file cannot be read, is not an object file, or was written
+    * for a different instruction set, memory configuration or delayed branching setting
+    * @see ObjectFile
+    **/
+    
+       public void loadObjectFile(File file) throws IOException {
+         discardSteppers();
+         ObjectFile.load(file, this);
+         createSteppers();
+      }
+   
+      // Used by ObjectFile to set up a program (or one of its files) read from an object file.
+       void setLoadedContents(String filename, SymbolTable localSymbolTable, ArrayList machineList) {
+         this.filename = filename;
+         this.localSymbolTable = localSymbolTable;
+         this.machineList = machineList;
+      }
+   
+       private void discardSteppers() {
+         this.backStepper = null;
+         if (this.reverseStepper != null) {
+            this.reverseStepper.dispose();
+            this.reverseStepper = null;
+         }
+      }
+   
+       private void createSteppers() {
+         this.backStepper = new BackStepper();
+         if (Globals.getSettings().getBooleanSetting(Settings.REVERSE_EXECUTION_ENABLED)
+                && !Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED)) {
+            this.reverseStepper = new ReverseStepper(this);
+            this.backStepper.setEnabled(false); // the ReverseStepper steps back instead
+         }
+      }
+   
    
    /**
     * Simulates execution of the MIPS program. Program must have already been assembled.
@@ -56,6 +56,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  ae<n>  -- terminate MARS with integer exit code <n> if an assemble error occurs.<br>
    	  ascii  -- display memory or register contents interpreted as ASCII
    		   b  -- brief - do not display register/memory address along with contents<br>
+        batch  -- batch mode: run many programs on a pool of workers. Must be the first<br>
+                  option, followed by a directory or manifest file and an optional<br>
+                  worker count <tt>w&lt;n&gt;</tt>; other options apply to every program.<br>
+                  See BatchRunner.<br>
    		   d  -- print debugging statements<br>
            da  -- both a and d<br>
            db  -- MIPS delayed branching is enabled.<br>
@@ -65,9 +69,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   an address range (see <i>m-n</i> below).  Current supported <br>
                   segments are <tt>.text</tt> and <tt>.data</tt>.  Current supported dump formats <br>
                   are <tt>Binary</tt>, <tt>HexText</tt>, <tt>BinaryText</tt>.<br>
+           fe  -- Fast Engine - simulate from a pre-decoded copy of the text segment<br>
             h  -- display help.  Use by itself and with no filename</br>
           hex  -- display memory or register contents in hexadecimal (default)<br>
            ic  -- display count of MIPS basic instructions 'executed'");
+          jit  -- compile frequently executed basic blocks to JVM classes (tiered simulation)<br>
+           mb  -- set memory backend.  Option has 1 argument, e.g.<br>
+                  <tt>mb &lt;backend&gt;</tt>, where &lt;backend&gt; is <tt>Tables</tt> (default),<br>
+                  <tt>PageTable</tt> for direct aligned access to whole data pages, <tt>OffHeap</tt><br>
+                  to store the data segment outside the Java heap, or <tt>MappedFile</tt> to<br>
+                  store it in a memory-mapped temporary file.  With the last two the data<br>
+                  segment (and heap) may extend up to the stack instead of 4 MB.<br>
            mc  -- set memory configuration.  Option has 1 argument, e.g.<br>
                   <tt>mc &lt;config$gt;</tt>, where &lt;config$gt; is <tt>Default</tt><br>
                   for the MARS default 32-bit address space, <tt>CompactDataAtZero</tt> for<br>
@@ -80,6 +92,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  se<n>  -- terminate MARS with integer exit code <n> if a simulation (run) error occurs.<br>
            sm  -- Start execution at Main - Execution will start at program statement globally labeled main.<br>
           smc  -- Self Modifying Code - Program can write and branch to either text or data segment<br>
+           rs  -- restore machine state from a snapshot file before simulating.  Option has<br>
+                  1 argument, e.g. <tt>rs &lt;file&gt;</tt>.  The same program must be assembled.<br>
+           ss  -- save machine state to a snapshot file if the simulation stops at the<br>
+                  maximum step count.  Option has 1 argument, e.g. <tt>ss &lt;file&gt;</tt>.<br>
+           so  -- save the assembled program to an object file, to be run later with "lo"<br>
+                  without assembling it again.  Option has 1 argument, e.g. <tt>so &lt;file&gt;</tt>.<br>
+           lo  -- load the program from an object file saved with "so" instead of assembling.<br>
+                  Option has 1 argument, e.g. <tt>lo &lt;file&gt;</tt>.  No file names are needed.<br>
            we  -- assembler Warnings will be considered Errors<br>
           <n>  -- where <n> is an integer maximum count of steps to simulate.<br>
                   If 0, negative or not specified, there is no maximum.<br>
@@ -108,6 +128,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private boolean startAtMain; // Whether to start execution at statement labeled 'main' 
       private boolean countInstructions; // Whether to count and report number of instructions executed 
       private boolean selfModifyingCode; // Whether to allow self-modifying code (e.g. write to text segment)
+      private boolean fastEngine; // Whether to simulate from pre-decoded text segment
+      private boolean blockCompiler; // Whether to compile hot basic blocks
+      private String memoryBackend; // Name of memory backend, one of Memory.BACKENDS
+      private String snapshotRestoreFile; // Snapshot to restore before simulating, or null
+      private String snapshotSaveFile; // Snapshot to save if step limit is reached, or null
+      private String objectSaveFile; // Object file to save the assembled program to, or null
+      private String objectLoadFile; // Object file to load instead of assembling, or null
       private static final String rangeSeparator = "-";
       private static final int splashDuration = 2000; // time in MS to show splash screen
       private static final int memoryWordsPerLine = 4; // display 4 memory words, tab separated, per line
@@ -128,6 +155,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		
       public MarsLaunch(String[] args) {
          boolean gui = (args.length == 0);
+         if (!gui && args[0].toLowerCase().equals("batch")) {
+            // assure command mode works in headless environment (generates exception if not)
+            System.setProperty("java.awt.headless", "true"); 
+            System.exit(new BatchRunner(System.out).run(args));
+         }
          Globals.initialize(gui);  
          if (gui) {
             launchIDE();  
@@ -135,38 +167,75 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          else { // running from command line.
             // assure command mode works in headless environment (generates exception if not)
             System.setProperty("java.awt.headless", "true"); 
-            simulate = true;
-            displayFormat = HEXADECIMAL;
-            verbose = true;  
-            assembleProject = false;
-            pseudo = true;
-            delayedBranching = false;
-            warningsAreErrors = false;
-            startAtMain = false;
-            countInstructions = false;
-				selfModifyingCode = false;
-            instructionCount = 0;
-            assembleErrorExitCode = 0;
-            simulateErrorExitCode = 0;
-            registerDisplayList = new ArrayList();
-            memoryDisplayList = new ArrayList();
-            filenameList = new ArrayList();
-            MemoryConfigurations.setCurrentConfiguration(MemoryConfigurations.getDefaultConfiguration());
-         	// do NOT use Globals.program for command line MARS -- it triggers 'backstep' log.
-            code = new MIPSprogram();  
-            maxSteps = -1;
-            out = System.out;  
-            if (parseCommandArgs(args)) {
-               if (runCommand()) {
-                  displayMiscellaneousPostMortem();
-                  displayRegistersPostMortem();
-                  displayMemoryPostMortem();
-               }
-               dumpSegments();
-            }
+            runCommandLine(args, System.out);
             System.exit(Globals.exitCode);
          }
       }   		
+   
+      // Used only by runBatchJob().
+      private MarsLaunch() {
+      }
+   
+   /**
+    * Carry out one command-line MARS command, given the same arguments as on the command
+    * line, without exiting the JVM.  Called reflectively by BatchRunner, once per program,
+    * on each worker's own copy of the MARS classes.  Each call runs in a new
+    * SimulationContext, so it starts from empty memory, fresh registers and no open
+    * files, whatever the calls before it left behind.
+    * @param args command arguments, including the name of the file to assemble
+    * @param in standard input for the MIPS program
+    * @param out stream for MARS messages and MIPS program output alike
+    * @return the exit code MARS would have terminated with
+    */
+      public static int runBatchJob(String[] args, InputStream in, PrintStream out) {
+         Globals.initialize(false);
+         Globals.exitCode = 0;
+         new SimulationContext().activate();
+         SystemIO.setStandardStreams(in, out, out);
+         new MarsLaunch().runCommandLine(args, out);
+         out.flush();
+         return Globals.exitCode;
+      }
+   
+   	/////////////////////////////////////////////////////////////
+   	// Running from the command line: establish defaults, parse the
+   	// command arguments and carry out the command.  MARS messages
+   	// go to messageStream unless the "me" option says otherwise.
+   
+      private void runCommandLine(String[] args, PrintStream messageStream) {
+         simulate = true;
+         displayFormat = HEXADECIMAL;
+         verbose = true;  
+         assembleProject = false;
+         pseudo = true;
+         delayedBranching = false;
+         warningsAreErrors = false;
+         startAtMain = false;
+         countInstructions = false;
+				selfModifyingCode = false;
+         fastEngine = false;
+         blockCompiler = false;
+         memoryBackend = Memory.TABLE_BACKEND;
+         instructionCount = 0;
+         assembleErrorExitCode = 0;
+         simulateErrorExitCode = 0;
+         registerDisplayList = new ArrayList();
+         memoryDisplayList = new ArrayList();
+         filenameList = new ArrayList();
+         MemoryConfigurations.setCurrentConfiguration(MemoryConfigurations.getDefaultConfiguration());
+      	// do NOT use Globals.program for command line MARS -- it triggers 'backstep' log.
+         code = new MIPSprogram();  
+         maxSteps = -1;
+         out = messageStream;  
+         if (parseCommandArgs(args)) {
+            if (runCommand()) {
+               displayMiscellaneousPostMortem();
+               displayRegistersPostMortem();
+               displayMemoryPostMortem();
+            }
+            dumpSegments();
+         }
+      }
    	
       /////////////////////////////////////////////////////////////
    	// Perform any specified dump operations.  See "dump" option.
@@ -311,6 +380,43 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
                continue;
             } 
+            if (args[i].toLowerCase().equals("mb")) {
+               String backendName = args[++i];
+               if (!Arrays.asList(Memory.BACKENDS).contains(backendName)) {
+                  out.println("Invalid memory backend: "+backendName);
+                  argsOK = false;
+               } 
+               else {
+                  memoryBackend = backendName;
+               }
+               continue;
+            }
+            if (args[i].toLowerCase().equals("rs") || args[i].toLowerCase().equals("ss")) {
+               if (args.length <= (i+1)) {
+                  out.println("Snapshot command line argument requires a file name.");
+                  argsOK = false;
+               } 
+               else if (args[i].toLowerCase().equals("rs")) {
+                  snapshotRestoreFile = args[++i];
+               } 
+               else {
+                  snapshotSaveFile = args[++i];
+               }
+               continue;
+            }
+            if (args[i].toLowerCase().equals("so") || args[i].toLowerCase().equals("lo")) {
+               if (args.length <= (i+1)) {
+                  out.println("Object file command line argument requires a file name.");
+                  argsOK = false;
+               } 
+               else if (args[i].toLowerCase().equals("so")) {
+                  objectSaveFile = args[++i];
+               } 
+               else {
+                  objectLoadFile = args[++i];
+               }
+               continue;
+            }
             if (args[i].toLowerCase().equals("mc")) {
                String configName = args[++i];
                MemoryConfiguration config = MemoryConfigurations.getConfigurationByName(configName);
@@ -399,10 +505,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                selfModifyingCode = true;
                continue;
             }
+            if (args[i].toLowerCase().equals("fe")) {
+               fastEngine = true;
+               continue;
+            }
             if (args[i].toLowerCase().equals("ic")) { // added 19-Jul-2012 DPS
                countInstructions = true;
                continue;
             }
+            if (args[i].toLowerCase().equals("jit")) {
+               blockCompiler = true;
+               continue;
+            }
          
          
             if (args[i].indexOf("$") == 0) {
@@ -461,49 +575,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	
       private boolean runCommand() {
          boolean programRan = false;
-         if (filenameList.size()==0) {
+         if (filenameList.size()==0 && objectLoadFile == null) {
             return programRan;
          }
          try {
             Globals.getSettings().setBooleanSettingNonPersistent(Settings.DELAYED_BRANCHING_ENABLED, delayedBranching);
             Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, selfModifyingCode);
-            File mainFile = new File((String) filenameList.get(0)).getAbsoluteFile();// First file is "main" file
-            ArrayList filesToAssemble;
-            if (assembleProject) { 
-               filesToAssemble = FilenameFinder.getFilenameList(mainFile.getParent(), Globals.fileExtensions);
-               if (filenameList.size() > 1) {
-                  // Using "p" project option PLUS listing more than one filename on command line.
-                  // Add the additional files, avoiding duplicates.
-                  filenameList.remove(0); // first one has already been processed
-                  ArrayList moreFilesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
-                  // Remove any duplicates then merge the two lists.
-                  for (int index2 = 0; index2<moreFilesToAssemble.size(); index2++) {
-                     for (int index1 = 0; index1<filesToAssemble.size(); index1++) {
-                        if (filesToAssemble.get(index1).equals(moreFilesToAssemble.get(index2))) {
-                           moreFilesToAssemble.remove(index2);
-                           index2--; // adjust for left shift in moreFilesToAssemble...
-                           break;    // break out of inner loop...
-                        }
-                     }
-                  }
-                  filesToAssemble.addAll(moreFilesToAssemble);
+            Globals.getSettings().setBooleanSettingNonPersistent(Settings.FAST_ENGINE_ENABLED, fastEngine);
+            Globals.getSettings().setBooleanSettingNonPersistent(Settings.BLOCK_COMPILER_ENABLED, blockCompiler);
+            Globals.getSettings().setStringSettingNonPersistent(Settings.MEMORY_BACKEND, memoryBackend);
+            Globals.getSettings().setBooleanSettingNonPersistent(Settings.REVERSE_EXECUTION_ENABLED, false); // nothing steps back
+            if (objectLoadFile != null) {
+               if (!loadObjectFile()) {
+                  Globals.exitCode = assembleErrorExitCode;
+                  return programRan;
                }
             } 
             else {
-               filesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
-            }
-            if (Globals.debug) {
-               out.println("--------  TOKENIZING BEGINS  -----------");
-            }
-            ArrayList MIPSprogramsToAssemble = 
-                      code.prepareFilesForAssembly(filesToAssemble, mainFile.getAbsolutePath(), null);		
-            if (Globals.debug) {
-               out.println("--------  ASSEMBLY BEGINS  -----------");
-            }
-         	// Added logic to check for warnings and print if any. DPS 11/28/06
-            ErrorList warnings = code.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
-            if (warnings != null && warnings.warningsOccurred()) {
-               out.println(warnings.generateWarningReport());
+               assembleFiles();
+               if (objectSaveFile != null && !saveObjectFile()) {
+                  Globals.exitCode = assembleErrorExitCode;
+                  return programRan;
+               }
             }
             RegisterFile.initializeProgramCounter(startAtMain); // DPS 3/9/09
             if (simulate) {
@@ -514,10 +607,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                if (Globals.debug) {
                   out.println("--------  SIMULATION BEGINS  -----------");
                }
+               if (snapshotRestoreFile != null && !restoreSnapshot()) {
+                  return programRan;
+               }
                programRan = true;
                boolean done = code.simulate(maxSteps);
                if (!done) {
                   out.println("\nProgram terminated when maximum step limit "+maxSteps+" reached.");
+                  if (snapshotSaveFile != null) {
+                     saveSnapshot();
+                  }
                }
             }
             if (Globals.debug) {
@@ -533,6 +632,111 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+   	//////////////////////////////////////////////////////////////////////
+   	// Assemble the files given on the command line into "code".
+   	
+      private void assembleFiles() throws ProcessingException {
+         File mainFile = new File((String) filenameList.get(0)).getAbsoluteFile();// First file is "main" file
+         ArrayList filesToAssemble;
+         if (assembleProject) { 
+            filesToAssemble = FilenameFinder.getFilenameList(mainFile.getParent(), Globals.fileExtensions);
+            if (filenameList.size() > 1) {
+               // Using "p" project option PLUS listing more than one filename on command line.
+               // Add the additional files, avoiding duplicates.
+               filenameList.remove(0); // first one has already been processed
+               ArrayList moreFilesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
+               // Remove any duplicates then merge the two lists.
+               for (int index2 = 0; index2<moreFilesToAssemble.size(); index2++) {
+                  for (int index1 = 0; index1<filesToAssemble.size(); index1++) {
+                     if (filesToAssemble.get(index1).equals(moreFilesToAssemble.get(index2))) {
+                        moreFilesToAssemble.remove(index2);
+                        index2--; // adjust for left shift in moreFilesToAssemble...
+                        break;    // break out of inner loop...
+                     }
+                  }
+               }
+               filesToAssemble.addAll(moreFilesToAssemble);
+            }
+         } 
+         else {
+            filesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
+         }
+         if (Globals.debug) {
+            out.println("--------  TOKENIZING BEGINS  -----------");
+         }
+         ArrayList MIPSprogramsToAssemble = 
+                   code.prepareFilesForAssembly(filesToAssemble, mainFile.getAbsolutePath(), null);		
+         if (Globals.debug) {
+            out.println("--------  ASSEMBLY BEGINS  -----------");
+         }
+         	// Added logic to check for warnings and print if any. DPS 11/28/06
+         ErrorList warnings = code.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
+         if (warnings != null && warnings.warningsOccurred()) {
+            out.println(warnings.generateWarningReport());
+         }
+      }
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Load "code" from the object file given by the "lo" option.
+   	// Returns false, after reporting why, if it cannot be loaded.
+   	
+      private boolean loadObjectFile() {
+         try {
+            code.loadObjectFile(new File(objectLoadFile));
+            return true;
+         }
+            catch (IOException e) {
+               out.println("Error loading object file: "+e.getMessage());
+            } 
+         return false;
+      }
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Save "code", just assembled, to the object file given by the "so" option.
+   	// Returns false, after reporting why, if it cannot be saved.
+   	
+      private boolean saveObjectFile() {
+         try {
+            code.saveObjectFile(new File(objectSaveFile));
+            return true;
+         }
+            catch (IOException e) {
+               out.println("Error saving object file: "+e.getMessage());
+            } 
+         return false;
+      }
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Restore machine state from the snapshot file given by the "rs" option.
+   	// Returns false, after reporting why, if it cannot be restored.
+   	
+      private boolean restoreSnapshot() {
+         try {
+            Snapshot.load(new File(snapshotRestoreFile)).restore();
+            return true;
+         }
+            catch (IOException e) {
+               out.println("Error restoring snapshot: "+e.getMessage());
+            } 
+            catch (IllegalArgumentException e) {
+               out.println("Error restoring snapshot: "+e.getMessage());
+            }
+         return false;
+      }
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Save machine state to the snapshot file given by the "ss" option.
+   	
+      private void saveSnapshot() {
+         try {
+            Snapshot.take().save(new File(snapshotSaveFile));
+            out.println("Machine state saved to "+snapshotSaveFile);
+         }
+            catch (IOException e) {
+               out.println("Error saving snapshot: "+e.getMessage());
+            } 
+      }
+   
    	//////////////////////////////////////////////////////////////////////
       // Check for memory address subrange.  Has to be two integers separated
       // by "-"; no embedded spaces.  e.g. 0x00400000-0x00400010
@@ -564,7 +768,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private void establishObserver() { 
          if (countInstructions) {
             Observer instructionCounter = 
-               new Observer() {
+               new NonRetainingObserver() {
                   private int lastAddress = 0;
                   public void update(Observable o, Object obj) { 
                      if (obj instanceof AccessNotice) {
@@ -740,13 +944,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
       ///////////////////////////////////////////////////////////////////////
-   	//  If option to display MARS messages to standard err (System.err) is
-   	//  present, it must be processed before all others.  Since messages may
-   	//  be output as early as during the command parse.  
+   	//  If option to display MARS messages to standard err (System.err, or the
+   	//  batch job's own stream) is present, it must be processed before all others.
+   	//  Since messages may be output as early as during the command parse.  
       private void processDisplayMessagesToErrSwitch(String[] args, String displayMessagesToErrSwitch) {
          for (int i=0; i<args.length; i++) {
             if (args[i].toLowerCase().equals(displayMessagesToErrSwitch)) {
-               out = System.err;
+               out = SystemIO.getStandardError();
                return;
             }
          }
@@ -792,6 +996,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("  ae<n>  -- terminate MARS with integer exit code <n> if an assemble error occurs.");
          out.println("  ascii  -- display memory or register contents interpreted as ASCII codes.");
          out.println("      b  -- brief - do not display register/memory address along with contents");
+         out.println("  batch <dir|manifest> [w<n>] -- batch mode, must be the first option.  Assemble and");
+         out.println("            run every .asm file in the directory (input from name.in, expected output");
+         out.println("            in name.out) or listed in the manifest (lines: program [input [expected]]),");
+         out.println("            on <n> worker threads.  Other options apply to every program.  Writes one");
+         out.println("            JSON result line per program.");
          out.println("      d  -- display MARS debugging statements");
          out.println("     db  -- MIPS delayed branching is enabled");
          out.println("    dec  -- display memory or register contents in decimal.");
@@ -801,9 +1010,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("            Segment and format are case-sensitive and possible values are:");
          out.println("            <segment> = "+segments);
          out.println("            <format> = "+formats);
+         out.println("     fe  -- Fast Engine - simulate from a pre-decoded copy of the text segment");
          out.println("      h  -- display this help.  Use by itself with no filename.");
          out.println("    hex  -- display memory or register contents in hexadecimal (default)");
          out.println("     ic  -- display count of MIPS basic instructions 'executed'");
+         out.println("    jit  -- compile frequently executed basic blocks to JVM classes (tiered simulation)");
+         out.println("     mb <backend> -- set memory backend.  Argument <backend> is case-sensitive");
+         out.println("            and possible values are: Tables for the default block tables,");
+         out.println("            PageTable to add a page table giving aligned accesses to whole");
+         out.println("            data pages a direct path, OffHeap to store the data segment outside");
+         out.println("            the Java heap, or MappedFile to store it in a memory-mapped");
+         out.println("            temporary file.  With OffHeap or MappedFile, the data segment");
+         out.println("            (and heap) may extend up to the stack instead of 4 MB.");
          out.println("     mc <config>  -- set memory configuration.  Argument <config> is");
          out.println("            case-sensitive and possible values are: Default for the default");
          out.println("            32-bit address space, CompactDataAtZero for a 32KB memory with");
@@ -817,6 +1035,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("  se<n>  -- terminate MARS with integer exit code <n> if a simulation (run) error occurs.");
          out.println("     sm  -- start execution at statement with global label main, if defined");
          out.println("    smc  -- Self Modifying Code - Program can write and branch to either text or data segment");
+         out.println("  rs <file> -- restore machine state from snapshot file <file> before simulating.");
+         out.println("            The same program must be assembled, with the same memory configuration.");
+         out.println("  ss <file> -- save machine state to snapshot file <file> if the simulation stops");
+         out.println("            at the maximum step count, so that it can be resumed with rs.");
+         out.println("  so <file> -- save the assembled program to object file <file>, so that it can");
+         out.println("            be run again with lo without assembling it.");
+         out.println("  lo <file> -- load the program from object file <file> instead of assembling.");
+         out.println("            No file names are needed.  The same memory configuration and");
+         out.println("            delayed branching setting must be used.");
          out.println("    <n>  -- where <n> is an integer maximum count of steps to simulate.");
          out.println("            If 0, negative or not specified, there is no maximum.");
          out.println(" $<reg>  -- where <reg> is number or name (e.g. 5, t3, f10) of register whose ");
@@ -0,0 +1,303 @@
+   package mars;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import mars.util.*;
+   import java.io.*;
+   import java.nio.charset.StandardCharsets;
+   import java.util.*;
+   import java.util.zip.*;
+
+/**
+ * Object file holding an assembled program, so a program run many times need only be
+ * assembled once.  Written by MIPSprogram.saveObjectFile() just after assembling, and
+ * read by MIPSprogram.loadObjectFile() in place of reading, tokenizing and assembling.
+ * <p>
+ * An object file holds the statements of the text segments (address, binary code,
+ * instruction, operands and the source line each came from), the global symbol table,
+ * the local symbol table of each file that contains code, and the rest of memory as it
+ * was after assembly (see Memory.captureImage()).  The entry point is not stored: it is
+ * found in the restored symbol table, as after assembling.
+ * <p>
+ * Statements keep their operands as assembled, since operands decoded again from binary
+ * code can differ (immediates are unsigned and branch offsets truncated to 16 bits), along
+ * with which operands are addresses.  Their basic statement, binary string and token list
+ * are rebuilt only when asked for, so a statement the source spelled in some other way
+ * (e.g. "ADDI") is shown spelled the default way.
+ * Each instruction the statements use is recorded with its position in the instruction
+ * set, mnemonic, example and operation mask, so that a changed instruction set is noticed
+ * even where the same languages give the same number of instructions.
+ * An object file can only be loaded with the instruction set, memory configuration and
+ * delayed branching setting it was written with.
+ *
+ * @version October 2026
+ **/
+
+    class ObjectFile {
+
+      private static final int MAGIC = 0x4D4F424A; // "MOBJ"
+      private static final int VERSION = 3;
+
+       private ObjectFile() {
+      }
+
+   	/**
+   	 * Write the given program, which must have just been assembled, to a file in a
+   	 * compressed binary format.
+   	 * @param file file to write
+   	 * @param program the assembled program
+   	 * @throws IOException if the file cannot be written
+   	 */
+       static void save(File file, MIPSprogram program) throws IOException {
+         ArrayList statements = program.getMachineList();
+         ArrayList instructions = Globals.instructionSet.getInstructionList();
+         IdentityHashMap<Instruction,Integer> instructionIndex = new IdentityHashMap<Instruction,Integer>();
+         for (int i = 0; i < instructions.size(); i++) {
+            instructionIndex.put((Instruction) instructions.get(i), i);
+         }
+         ArrayList<BasicInstruction> used = new ArrayList<BasicInstruction>();
+         IdentityHashMap<Instruction,Integer> usedIndex = new IdentityHashMap<Instruction,Integer>();
+         for (int i = 0; i < statements.size(); i++) {
+            ProgramStatement statement = (ProgramStatement) statements.get(i);
+            Instruction instruction = statement.getInstruction();
+            if (!instructionIndex.containsKey(instruction) || !(instruction instanceof BasicInstruction)) {
+               throw new IOException("statement at " + Binary.intToHexString(statement.getAddress())
+                                     + " is not a basic instruction");
+            }
+            if (!usedIndex.containsKey(instruction)) {
+               usedIndex.put(instruction, used.size());
+               used.add((BasicInstruction) instruction);
+            }
+         }
+         ArrayList<MIPSprogram> files = new ArrayList<MIPSprogram>();
+         IdentityHashMap<MIPSprogram,Integer> fileIndex = new IdentityHashMap<MIPSprogram,Integer>();
+         files.add(program);
+         fileIndex.put(program, 0);
+         for (int i = 0; i < statements.size(); i++) {
+            MIPSprogram source = ((ProgramStatement) statements.get(i)).getSourceMIPSprogram();
+            if (source != null && !fileIndex.containsKey(source)) {
+               fileIndex.put(source, files.size());
+               files.add(source);
+            }
+         }
+         DeflaterOutputStream compressed = new DeflaterOutputStream(
+                  new BufferedOutputStream(new FileOutputStream(file)), new Deflater(Deflater.BEST_SPEED));
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(compressed, 65536));
+         try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(Globals.instructionSet.getSignature());
+            out.writeUTF(MemoryConfigurations.getCurrentConfiguration().getConfigurationIdentifier());
+            out.writeBoolean(Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED));
+            writeSymbols(out, Globals.symbolTable);
+            out.writeInt(files.size());
+            for (int i = 0; i < files.size(); i++) {
+               MIPSprogram source = files.get(i);
+               writeString(out, source.getFilename());
+               out.writeBoolean(source.getLocalSymbolTable() != null);
+               if (source.getLocalSymbolTable() != null) {
+                  writeSymbols(out, source.getLocalSymbolTable());
+               }
+            }
+            out.writeInt(used.size());
+            for (int i = 0; i < used.size(); i++) {
+               BasicInstruction instruction = used.get(i);
+               out.writeInt(instructionIndex.get(instruction).intValue());
+               writeString(out, instruction.getName());
+               writeString(out, instruction.getExampleFormat());
+               writeString(out, instruction.getOperationMask());
+            }
+            out.writeInt(statements.size());
+            for (int i = 0; i < statements.size(); i++) {
+               ProgramStatement statement = (ProgramStatement) statements.get(i);
+               out.writeInt(statement.getAddress());
+               out.writeInt(statement.getBinaryStatement());
+               out.writeInt(usedIndex.get(statement.getInstruction()).intValue());
+               int[] operands = statement.getOperands();
+               out.writeInt(operands.length);
+               out.writeInt(statement.getNumOperands());
+               for (int op = 0; op < operands.length; op++) {
+                  out.writeInt(operands[op]);
+               }
+               MIPSprogram source = statement.getSourceMIPSprogram();
+               out.writeInt((source == null) ? -1 : fileIndex.get(source).intValue());
+               out.writeInt(statement.getSourceLine());
+               writeString(out, statement.getSource());
+               out.writeInt(statement.getAddressOperands());
+               out.writeBoolean(statement.isExpanded());
+            }
+            Globals.memory.captureImage().write(out);
+         }
+         finally {
+            out.close();
+         }
+      }
+
+   	/**
+   	 * Load a program written by save(): memory, the global symbol table and the given
+   	 * program are left as they were after the original assembly.
+   	 * @param file file to read
+   	 * @param program the program to load into
+   	 * @throws IOException if the file cannot be read, does not hold an object file, or
+   	 * was written for a different instruction set (including one whose instructions
+   	 * differ from those recorded), memory configuration or delayed branching setting.  Memory and the symbol table may have been cleared.
+   	 */
+       static void load(File file, MIPSprogram program) throws IOException {
+         DataInputStream in = new DataInputStream(new BufferedInputStream(
+                  new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))), 65536));
+         try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+               throw new IOException(file + " is not a MARS object file");
+            }
+            if (!in.readUTF().equals(Globals.instructionSet.getSignature())) {
+               throw new IOException(file + " was assembled for a different instruction set");
+            }
+            String configuration = in.readUTF();
+            if (!configuration.equals(MemoryConfigurations.getCurrentConfiguration().getConfigurationIdentifier())) {
+               throw new IOException(file + " was assembled for memory configuration " + configuration);
+            }
+            boolean delayedBranching = in.readBoolean();
+            if (delayedBranching != Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED)) {
+               throw new IOException(file + " was assembled with delayed branching "
+                                     + (delayedBranching ? "enabled" : "disabled"));
+            }
+            Globals.symbolTable.clear();
+            Globals.memory.clear();
+            readSymbols(in, Globals.symbolTable, program);
+            MIPSprogram[] files = new MIPSprogram[in.readInt()];
+            for (int i = 0; i < files.length; i++) {
+               files[i] = (i == 0) ? program : new MIPSprogram();
+               String filename = readString(in);
+               SymbolTable localSymbolTable = null;
+               if (in.readBoolean()) {
+                  localSymbolTable = new SymbolTable(filename);
+                  readSymbols(in, localSymbolTable, files[i]);
+               }
+               files[i].setLoadedContents(filename, localSymbolTable, null);
+            }
+            BasicInstruction[] used = readInstructions(in, file);
+            int count = in.readInt();
+            ArrayList statements = new ArrayList(count);
+            for (int i = 0; i < count; i++) {
+               int address = in.readInt();
+               int binary = in.readInt();
+               int instruction = in.readInt();
+               int[] operands = new int[in.readInt()];
+               int numOperands = in.readInt();
+               for (int op = 0; op < operands.length; op++) {
+                  operands[op] = in.readInt();
+               }
+               int source = in.readInt();
+               int sourceLine = in.readInt();
+               String sourceText = readString(in);
+               int addressOperands = in.readInt();
+               boolean expanded = in.readBoolean();
+               if (instruction < 0 || instruction >= used.length
+                   || (binary & used[instruction].getOpcodeMask()) != used[instruction].getOpcodeMatch()
+                   || numOperands > operands.length || source < -1 || source >= files.length) {
+                  throw new IOException(file + " is not a valid MARS object file");
+               }
+               ProgramStatement statement = new ProgramStatement((source < 0) ? null : files[source],
+                        sourceText, sourceLine, addressOperands, expanded, used[instruction],
+                        binary, operands, numOperands, address);
+               try {
+                  Globals.memory.setStatement(address, statement);
+               }
+                   catch (AddressErrorException e) {
+                     throw new IOException(file + " has a statement at invalid text address "
+                                           + Binary.intToHexString(address));
+                  }
+               statements.add(statement);
+            }
+            try {
+               Globals.memory.restoreImage(Memory.Image.read(in));
+            }
+                catch (IllegalArgumentException e) {
+                  throw new IOException(e.getMessage());
+               }
+            program.setLoadedContents(program.getFilename(), program.getLocalSymbolTable(), statements);
+         }
+             catch (ZipException e) {
+               throw new IOException(file + " is not a MARS object file");
+            }
+             catch (EOFException e) {
+               throw new IOException(file + " is incomplete");
+            }
+         finally {
+            in.close();
+         }
+         SystemIO.resetFiles();
+      }
+
+      // Read the instructions the statements use, each of which must be in the instruction
+      // set at the position it was saved from, with the same mnemonic, example and mask.
+       private static BasicInstruction[] readInstructions(DataInputStream in, File file) throws IOException {
+         ArrayList instructions = Globals.instructionSet.getInstructionList();
+         BasicInstruction[] used = new BasicInstruction[in.readInt()];
+         for (int i = 0; i < used.length; i++) {
+            int index = in.readInt();
+            String name = readString(in);
+            String example = readString(in);
+            String mask = readString(in);
+            if (index < 0 || index >= instructions.size()
+                || !(instructions.get(index) instanceof BasicInstruction)) {
+               throw new IOException(file + " was assembled for a different instruction set");
+            }
+            used[i] = (BasicInstruction) instructions.get(index);
+            if (!used[i].getName().equals(name) || !used[i].getExampleFormat().equals(example)
+                || !used[i].getOperationMask().equals(mask)) {
+               throw new IOException(file + " was assembled for a different instruction set ("
+                                     + example + " has changed)");
+            }
+         }
+         return used;
+      }
+
+       private static void writeSymbols(DataOutputStream out, SymbolTable table) throws IOException {
+         ArrayList symbols = table.getAllSymbols();
+         out.writeInt(symbols.size());
+         for (int i = 0; i < symbols.size(); i++) {
+            Symbol symbol = (Symbol) symbols.get(i);
+            writeString(out, symbol.getName());
+            out.writeInt(symbol.getAddress());
+            out.writeBoolean(symbol.getType());
+         }
+      }
+
+       private static void readSymbols(DataInputStream in, SymbolTable table, MIPSprogram program)
+              throws IOException {
+         ErrorList errors = new ErrorList();
+         int count = in.readInt();
+         for (int i = 0; i < count; i++) {
+            String name = readString(in);
+            int address = in.readInt();
+            boolean data = in.readBoolean();
+            table.addSymbol(new Token(TokenTypes.IDENTIFIER, name, program, 0, 0), address, data, errors);
+         }
+      }
+
+      // Strings are written as length and UTF-8 bytes, since writeUTF() is limited to 64K
+      // bytes; a length of -1 stands for null.
+       private static void writeString(DataOutputStream out, String s) throws IOException {
+         if (s == null) {
+            out.writeInt(-1);
+            return;
+         }
+         byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+
+       private static String readString(DataInputStream in) throws IOException {
+         int length = in.readInt();
+         if (length < 0) {
+            return null;
+         }
+         if (length == 0) {
+            return ""; // the literal, since some callers compare with ==
+         }
+         byte[] bytes = new byte[length];
+         in.readFully(bytes);
+         return new String(bytes, StandardCharsets.UTF_8);
+      }
+   }
@@ -37,6 +37,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  * Represents one assembly/machine statement.  This represents the "bare machine" level.
  * Pseudo-instructions have already been processed at this point and each assembly 
  * statement generated by them is one of these.
+ * <p>
+ * A program can have hundreds of thousands of statements, so once assembled a statement
+ * keeps little more than its instruction, operands and binary code.  Its basic statement
+ * and binary string are built from those when asked for, and are kept only when they
+ * cannot be: when the source spells the statement in some other way (e.g. "ADDI" or
+ * "$08"), or when the mask leaves bits unfilled.
  * 
  * @author Pete Sanderson and Jason Bumgarner 
  * @version August 2003
@@ -55,6 +61,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private int sourceLine;
       private int binaryStatement;
       private boolean altered;
+      private boolean loaded; // read from an object file; original token list built when needed
+      private boolean expanded; // generated by a pseudo-instruction, not in source
+      private boolean encoded; // binary code built; binary string built from it when needed
+      private int addressOperands; // bit i set if operand i is shown as an address
       private static final String invalidOperator = "<INVALID>";
     
     //////////////////////////////////////////////////////////////////////////////////
@@ -143,7 +153,50 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             this.numOperands = numOps;
          }
          this.altered = false;
-         this.basicStatementList = buildBasicStatementListFromBinaryCode(binaryStatement, instr, operands, numOperands);
+         this.basicStatementList = buildBasicStatementListFromBinaryCode(binaryStatement, instr, operands, numOperands, 0, false);
+      }
+   
+   
+    //////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Constructor for ProgramStatement read from an object file (see ObjectFile).  Instruction
+     * and operands are given as assembled.  The basic statement, the binary string and the
+     * original token list are not stored in the object file; they are rebuilt from the
+     * instruction, operands and source when asked for.  The basic statement is always
+     * spelled the default way (e.g. "addi", not "ADDI").  The original token list of a
+     * statement generated by a pseudo-instruction is rebuilt from its basic statement, so
+     * registers and labels in it are numbers.
+     * @param sourceMIPSprogram The MIPSprogram object that contains this statement
+     * @param source The corresponding MIPS source statement.
+     * @param sourceLine The MIPS source statement line number.
+     * @param addressOperands Bit i set if operand i is shown as an address.
+     * @param expanded true if the statement was generated by a pseudo-instruction.
+     * @param inst The BasicInstruction object for this statement's operator.
+     * @param binaryStatement The 32-bit machine code.
+     * @param operands The assembled operand values.
+     * @param numOperands The number of operand values.
+     * @param textAddress The Text Segment address in memory where the binary machine code for this statement
+     * is stored.
+     **/
+       ProgramStatement(MIPSprogram sourceMIPSprogram, String source, int sourceLine, int addressOperands,
+                     boolean expanded, BasicInstruction inst, int binaryStatement, int[] operands, int numOperands, int textAddress) {
+         this.sourceMIPSprogram = sourceMIPSprogram;
+         this.source = source;
+         this.sourceLine = sourceLine;
+         this.basicAssemblyStatement = null;
+         this.addressOperands = addressOperands;
+         this.instruction = inst;
+         this.binaryStatement = binaryStatement;
+         this.operands = operands;
+         this.numOperands = numOperands;
+         this.textAddress = textAddress;
+         this.originalTokenList = this.strippedTokenList = null;
+         this.basicStatementList = null;
+         this.machineStatement = null;
+         this.altered = false;
+         this.loaded = true;
+         this.expanded = expanded;
+         this.encoded = true;
       }
    	
    
@@ -152,24 +205,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * Given specification of BasicInstruction for this operator, build the
      * corresponding assembly statement in basic assembly format (e.g. substituting
      * register numbers for register names, replacing labels by values).
+     * If the statement is spelled the default way, the basic statement is not kept but
+     * built again from the instruction and operands when asked for.
      * @param errors The list of assembly errors encountered so far.  May add to it here.
      **/
        public void buildBasicStatementFromBasicInstruction(ErrorList errors) {
          Token token = strippedTokenList.get(0);
          String basicStatementElement = token.getValue()+" ";;
-         String basic = basicStatementElement;
          basicStatementList.addString(basicStatementElement); // the operator
          TokenTypes tokenType, nextTokenType;
          String tokenValue;
          int registerNumber;
+         boolean label = false;
          this.numOperands = 0;
+         this.addressOperands = 0;
          for (int i=1; i<strippedTokenList.size(); i++) {
             token = strippedTokenList.get(i);
             tokenType = token.getType();
             tokenValue = token.getValue();
             if (tokenType == TokenTypes.REGISTER_NUMBER) {
                basicStatementElement = tokenValue;
-               basic += basicStatementElement;
                basicStatementList.addString(basicStatementElement);
                try {
                   registerNumber = RegisterFile.getUserRegister(tokenValue).getNumber();
@@ -184,7 +239,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             else if (tokenType == TokenTypes.REGISTER_NAME) {
                registerNumber = RegisterFile.getNumber(tokenValue);
                basicStatementElement = "$" + registerNumber;
-               basic += basicStatementElement;
                basicStatementList.addString(basicStatementElement);
                if (registerNumber < 0) {
                     // should never happen; should be caught before now...
@@ -196,7 +250,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             else if (tokenType == TokenTypes.FP_REGISTER_NAME) {
                registerNumber = Coprocessor1.getRegisterNumber(tokenValue);
                basicStatementElement = "$f" + registerNumber;
-               basic += basicStatementElement;
                basicStatementList.addString(basicStatementElement);
                if (registerNumber < 0) {
                     // should never happen; should be caught before now...
@@ -206,6 +259,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                this.operands[this.numOperands++] = registerNumber;
             } 
             else if (tokenType == TokenTypes.IDENTIFIER) {
+               label = true;
                int address = this.sourceMIPSprogram.getLocalSymbolTable().getAddressLocalOrGlobal(tokenValue);
                if (address == SymbolTable.NOT_FOUND) { // symbol used without being defined
                   errors.add(new ErrorMessage(this.sourceMIPSprogram, token.getSourceLine(), token.getStartPos(),
@@ -240,9 +294,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   }
                }
             	 //////////////////////////////////////////////////////////////////////
-               basic += address;
                if (absoluteAddress) { // record as address if absolute, value if relative
                   basicStatementList.addAddress(address);
+                  this.addressOperands |= 1 << this.numOperands;
                } 
                else {
                   basicStatementList.addValue(address);
@@ -295,14 +349,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             *        }
             **************************  END DPS 3-July-2008 COMMENTS *******************************/
             
-               basic += tempNumeric;
                basicStatementList.addValue(tempNumeric);  
                this.operands[this.numOperands++] = tempNumeric;
                 ///// End modification 1/7/05 KENV   ///////////////////////////////////////////
             } 
             else {
                basicStatementElement = tokenValue;
-               basic += basicStatementElement;
                basicStatementList.addString(basicStatementElement);
             }
             // add separator if not at end of token list AND neither current nor 
@@ -313,12 +365,23 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                    nextTokenType != TokenTypes.LEFT_PAREN && nextTokenType != TokenTypes.RIGHT_PAREN)
                {
                   basicStatementElement = ",";
-                  basic += basicStatementElement;
                   basicStatementList.addString(basicStatementElement);
                }
             }
          }
-         this.basicAssemblyStatement = basic;
+         // Statements generated by a pseudo-instruction are given one token list for both.
+         this.expanded = (originalTokenList == strippedTokenList);
+         if (hasDefaultSpelling()) {
+            this.basicStatementList = null;
+            // A label in the token list would be rebuilt as a number, so then it is kept.
+            if (this.expanded && !label) {
+               this.originalTokenList = this.strippedTokenList = null;
+            }
+         } 
+         else {
+            this.basicAssemblyStatement = basicStatementList.toString(mars.venus.NumberDisplayBaseChooser.DECIMAL,
+                                                                     mars.venus.NumberDisplayBaseChooser.DECIMAL);
+         }
       } //buildBasicStatementFromBasicInstruction()
     
     
@@ -326,14 +389,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     /////////////////////////////////////////////////////////////////////////////
     /**
      * Given the current statement in Basic Assembly format (see above), build the
-     * 32-bit binary machine code statement.
+     * 32-bit binary machine code statement.  The binary string is built from it when
+     * asked for.
      * @param errors The list of assembly errors encountered so far.  May add to it here.
      **/
        public void buildMachineStatementFromBasicStatement(ErrorList errors) {
-      
+         String mask;
          try {
                //mask indicates bit positions for 'f'irst, 's'econd, 't'hird operand
-            this.machineStatement = ((BasicInstruction)instruction).getOperationMask();
+            mask = ((BasicInstruction)instruction).getOperationMask();
          }   // This means the pseudo-instruction expansion generated another
              // pseudo-instruction (expansion must be to all basic instructions).
          	 // This is an error on the part of the pseudo-instruction author.
@@ -343,6 +407,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                return;            
             }        
          BasicInstructionFormat format = ((BasicInstruction)instruction).getInstructionFormat();
+         int filled = 0; // bits of binaryStatement filled by operands
+         this.binaryStatement = 0;
       
          if (format == BasicInstructionFormat.J_FORMAT) {
             if ((this.textAddress & 0xF0000000) != (this.operands[0] & 0xF0000000)) {
@@ -354,19 +420,45 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             }
             // Note the  bit shift to make this a word address.
             this.operands[0] = this.operands[0] >>> 2;
-            this.insertBinaryCode(this.operands[0], Instruction.operandMask[0], errors);          
+            filled |= this.insertBinaryCode(this.operands[0], Instruction.operandMask[0], mask, errors);          
          } 
          else if (format == BasicInstructionFormat.I_BRANCH_FORMAT) { 
             for (int i=0; i<this.numOperands-1; i++) {
-               this.insertBinaryCode(this.operands[i], Instruction.operandMask[i], errors);
+               filled |= this.insertBinaryCode(this.operands[i], Instruction.operandMask[i], mask, errors);
             }
-            this.insertBinaryCode(operands[this.numOperands-1], Instruction.operandMask[this.numOperands-1], errors);         
+            filled |= this.insertBinaryCode(operands[this.numOperands-1], Instruction.operandMask[this.numOperands-1], mask, errors);         
          } 
          else {  // R_FORMAT or I_FORMAT
             for (int i=0; i<this.numOperands; i++)
-               this.insertBinaryCode(this.operands[i], Instruction.operandMask[i], errors);
+               filled |= this.insertBinaryCode(this.operands[i], Instruction.operandMask[i], mask, errors);
+         }
+         // Bits not filled by an operand come from the mask.  Normally they are all 0 or 1,
+         // but a letter left in the mask is kept in the binary string and added into the
+         // binary code as Binary.binaryStringToInt() does.
+         int binary = 0;
+         boolean unfilled = false;
+         for (int i=0; i<mask.length(); i++) {
+            int bit = 1 << (31 - i);
+            if ((filled & bit) != 0) {
+               binary = (binary << 1) | (((this.binaryStatement & bit) != 0) ? 1 : 0);
+            } 
+            else {
+               char c = mask.charAt(i);
+               binary = (binary << 1) | (c - '0');
+               unfilled |= (c != '0' && c != '1');
+            }
          }
-         this.binaryStatement = Binary.binaryStringToInt(this.machineStatement);
+         if (unfilled) {
+            StringBuffer machine = new StringBuffer(mask);
+            for (int i=0; i<mask.length(); i++) {
+               if ((filled & (1 << (31 - i))) != 0) {
+                  machine.setCharAt(i, ((this.binaryStatement & (1 << (31 - i))) != 0) ? '1' : '0');
+               }
+            }
+            this.machineStatement = machine.toString();
+         }
+         this.binaryStatement = binary;
+         this.encoded = true;
          return;
       } // buildMachineStatementFromBasicStatement(
         
@@ -382,10 +474,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
         // a crude attempt at string formatting.  Where's C when you need it?
          String blanks = "                               ";
          String result = "["+this.textAddress+"]";
-         if (this.basicAssemblyStatement != null) {
-            int firstSpace = this.basicAssemblyStatement.indexOf(" ");
-            result += blanks.substring(0, 16-result.length()) + this.basicAssemblyStatement.substring(0,firstSpace);
-            result += blanks.substring(0, 24-result.length()) + this.basicAssemblyStatement.substring(firstSpace+1);;
+         String basicAssemblyStatement = getBasicAssemblyStatement();
+         if (basicAssemblyStatement != null) {
+            int firstSpace = basicAssemblyStatement.indexOf(" ");
+            result += blanks.substring(0, 16-result.length()) + basicAssemblyStatement.substring(0,firstSpace);
+            result += blanks.substring(0, 24-result.length()) + basicAssemblyStatement.substring(firstSpace+1);;
          } 
          else {
             result += blanks.substring(0, 16 - result.length()) + "0x" + Integer.toString(this.binaryStatement, 16);
@@ -396,11 +489,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             // result += operands[i] + " ";
                result += Integer.toString(operands[i], 16) + " ";
          }
-         if (this.machineStatement != null) {
-            result += "["+Binary.binaryStringToHexString(this.machineStatement)+"]";
-            result += "  "+this.machineStatement.substring(0,6)+"|" + this.machineStatement.substring(6,11)+"|"+
-               this.machineStatement.substring(11,16)+"|" + this.machineStatement.substring(16,21)+"|"+
-               this.machineStatement.substring(21,26)+"|" + this.machineStatement.substring(26,32);
+         String machineStatement = getMachineStatement();
+         if (machineStatement != null) {
+            result += "["+Binary.binaryStringToHexString(machineStatement)+"]";
+            result += "  "+machineStatement.substring(0,6)+"|" + machineStatement.substring(6,11)+"|"+
+               machineStatement.substring(11,16)+"|" + machineStatement.substring(16,21)+"|"+
+               machineStatement.substring(21,26)+"|" + machineStatement.substring(26,32);
          }
          return result;
       } // toString()
@@ -488,6 +582,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      **/
      
        public String getBasicAssemblyStatement() {
+         if (basicAssemblyStatement == null && basicStatementList == null) {
+            return buildBasicStatementList().toString(mars.venus.NumberDisplayBaseChooser.DECIMAL,
+                                                      mars.venus.NumberDisplayBaseChooser.DECIMAL);
+         }
          return basicAssemblyStatement;
       }
     
@@ -499,7 +597,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @return The Basic Assembly statement.
      **/   
        public String getPrintableBasicAssemblyStatement() {
-         return basicStatementList.toString();
+         return (basicStatementList == null) ? buildBasicStatementList().toString() : basicStatementList.toString();
       }
    	 
     /**
@@ -508,6 +606,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      **/
      
        public String getMachineStatement() {
+         if (machineStatement == null && encoded) {
+            return Binary.intToBinaryString(binaryStatement);
+         }
          return machineStatement;
       }
     
@@ -523,6 +624,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @return The TokenList of Token objects generated from original source.
      **/
        public TokenList getOriginalTokenList() {
+         if (originalTokenList == null && (expanded || loaded)) {
+            originalTokenList = new Tokenizer(sourceMIPSprogram).tokenizeLine(sourceLine,
+                                       (expanded) ? getBasicAssemblyStatement() : source, new ErrorList(), false);
+         }
          return originalTokenList;
       }
     /**
@@ -531,6 +636,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * except operator and operand tokens.
      **/
        public TokenList getStrippedTokenList() {
+         if (strippedTokenList == null && expanded) {
+            return getOriginalTokenList(); // one token list for both, as when generated
+         }
          return strippedTokenList;
       }
     /**
@@ -568,36 +676,109 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             return -1;
          }
       }
-   
-    
+    /**
+     * Produces the number of operand values for this statement.
+     * @return number of operand values in the operand array.
+     **/
+       int getNumOperands() {
+         return numOperands;
+      }
+    /**
+     * Produces the operands shown as addresses rather than values in the basic statement.
+     * @return bit i set if operand i is an address.
+     **/
+       int getAddressOperands() {
+         return addressOperands;
+      }
+    /**
+     * Tells whether this statement was generated by a pseudo-instruction.
+     * @return true if generated by a pseudo-instruction, false if from source.
+     **/
+       boolean isExpanded() {
+         return expanded;
+      }
+
+
     //////////////////////////////////////////////////////////////////////////////
     //  Given operand (register or integer) and mask character ('f', 's', or 't'),
-    //  generate the correct sequence of bits and replace the mask with them.
-       private void insertBinaryCode(int value, char mask, ErrorList errors) {
-         int startPos = this.machineStatement.indexOf(mask);
-         int endPos = this.machineStatement.lastIndexOf(mask);
+    //  put the correct sequence of bits into binaryStatement where the mask has that
+    //  character.  Returns the bits filled, or 0 if the mask does not have it.
+       private int insertBinaryCode(int value, char maskChar, String mask, ErrorList errors) {
+         int startPos = mask.indexOf(maskChar);
+         int endPos = mask.lastIndexOf(maskChar);
          if (startPos == -1 || endPos == -1) { // should NEVER occur
             errors.add(new ErrorMessage(this.sourceMIPSprogram,this.sourceLine,0,
                    "INTERNAL ERROR: mismatch in number of operands in statement vs mask"));
-            return;
+            return 0;
          }
-         String bitString = Binary.intToBinaryString(value, endPos-startPos+1);
-         String state = this.machineStatement.substring(0, startPos) + bitString;
-         if (endPos < this.machineStatement.length()-1)
-            state = state + this.machineStatement.substring(endPos+1);
-         this.machineStatement = state;
-         return;
+         int length = endPos-startPos+1;
+         int shift = mask.length()-1-endPos;
+         int field = ((length >= 32) ? -1 : (1 << length) - 1) << shift;
+         this.binaryStatement = (this.binaryStatement & ~field) | ((value << shift) & field);
+         return field;
       } // insertBinaryCode()
    
    
+    //////////////////////////////////////////////////////////////////////////////
+    //  True if the statement is spelled the way buildBasicStatementList() rebuilds it:
+    //  the operator as the instruction's name, register numbers without leading zeros,
+    //  and the operands where the instruction's example format has them.
+       private boolean hasDefaultSpelling() {
+         TokenList example = instruction.getTokenList();
+         if (strippedTokenList.size() != example.size() ||
+             !strippedTokenList.get(0).getValue().equals(instruction.getName())) {
+            return false;
+         }
+         for (int i=1; i<strippedTokenList.size(); i++) {
+            Token token = strippedTokenList.get(i);
+            TokenTypes tokenType = token.getType();
+            TokenTypes exampleType = example.get(i).getType();
+            if (tokenType == TokenTypes.LEFT_PAREN || tokenType == TokenTypes.RIGHT_PAREN) {
+               if (tokenType != exampleType) 
+                  return false;
+            } 
+            else if (exampleType.toString().contains("FP_REGISTER")) {
+               if (tokenType != TokenTypes.FP_REGISTER_NAME) 
+                  return false;
+            } 
+            else if (exampleType.toString().contains("REGISTER")) {
+               if (tokenType == TokenTypes.REGISTER_NUMBER) { // e.g. $8, but not $08
+                  String value = token.getValue();
+                  if (value.length() > 3 || (value.length() == 3 && value.charAt(1) == '0')) 
+                     return false;
+               } 
+               else if (tokenType != TokenTypes.REGISTER_NAME) 
+                  return false;
+            } 
+            else if (tokenType != TokenTypes.IDENTIFIER && !TokenTypes.isIntegerTokenType(tokenType) ||
+                     exampleType != TokenTypes.IDENTIFIER && !TokenTypes.isIntegerTokenType(exampleType)) {
+               return false;
+            }
+         }
+         return true;
+      }
+   
+   
+    //////////////////////////////////////////////////////////////////////////////
+    //  Build the basic statement list of an assembled statement (or one read from an
+    //  object file) from its instruction and operands.
+       private BasicStatementList buildBasicStatementList() {
+         return buildBasicStatementListFromBinaryCode(binaryStatement, instruction, operands, numOperands, 
+                                                      addressOperands, encoded);
+      }
+   
+   
     //////////////////////////////////////////////////////////////////////////////
    /*
     *   Given a model BasicInstruction and the assembled (not source) operand array for a statement, 
     *   this method will construct the corresponding basic instruction list.  This method is
     *   used by the constructor that is given only the int address and binary code.  It is not
     *   intended to be used when source code is available.  DPS 11-July-2013
+    *   Also used for assembled statements, given the operands to show as addresses; once
+    *   encoded, the jump target (a word address) is shown as a byte address again.
     */
-       private BasicStatementList buildBasicStatementListFromBinaryCode(int binary, BasicInstruction instr, int[] operands, int numOperands) {      
+       private BasicStatementList buildBasicStatementListFromBinaryCode(int binary, Instruction instr, int[] operands, int numOperands,
+                                                                        int addressOperands, boolean encoded) {      
          BasicStatementList statementList = new BasicStatementList();
          int tokenListCounter = 1;  // index 0 is operator; operands start at index 1
          if (instr == null) {
@@ -630,6 +811,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   statementList.addString(marker+operands[i]);
                   notOperand = false;
                }
+               else if ((addressOperands & (1 << i)) != 0) {
+                  boolean jumpTarget = encoded && i == 0 && instr instanceof BasicInstruction &&
+                     ((BasicInstruction) instr).getInstructionFormat() == BasicInstructionFormat.J_FORMAT;
+                  statementList.addAddress((jumpTarget) ? operands[i] << 2 : operands[i]);
+                  notOperand = false;
+               }
                else {
                   statementList.addValue(operands[i]);
                   notOperand = false;
@@ -690,7 +877,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           public String toString() {
             int addressBase =  (Globals.getSettings().getBooleanSetting(Settings.DISPLAY_ADDRESSES_IN_HEX)) ? mars.venus.NumberDisplayBaseChooser.HEXADECIMAL : mars.venus.NumberDisplayBaseChooser.DECIMAL;
             int valueBase =  (Globals.getSettings().getBooleanSetting(Settings.DISPLAY_VALUES_IN_HEX)) ? mars.venus.NumberDisplayBaseChooser.HEXADECIMAL : mars.venus.NumberDisplayBaseChooser.DECIMAL;
-         	
+            return toString(addressBase, valueBase);
+         }
+      
+          String toString(int addressBase, int valueBase) {
             StringBuffer result = new StringBuffer();
             for (int i=0; i<list.size(); i++) {
                ListElement e = (ListElement) list.get(i);
@@ -112,6 +112,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     /** Flag to determine whether a program can write binary code to the text or data segment and
         execute that code.  */
       public static final int SELF_MODIFYING_CODE_ENABLED = 20;	
+    /** Flag to determine whether the simulator executes from a pre-decoded copy of the text
+        segment (fast engine) instead of fetching and decoding through Memory at every step. */
+      public static final int FAST_ENGINE_ENABLED = 21;
+    /** Flag to determine whether the simulator compiles frequently executed basic blocks
+        into JVM classes (tiered simulation).  See mars.simulator.BlockCompiler. */
+      public static final int BLOCK_COMPILER_ENABLED = 22;
+    /** Flag to determine whether the simulator takes periodic checkpoints and records program
+        input so that execution can be reversed.  See mars.simulator.ReverseStepper. */
+      public static final int REVERSE_EXECUTION_ENABLED = 23;
    
       // NOTE: key sequence must match up with labels above which are used for array indexes!
       private static String[] booleanSettingsKeys = {"ExtendedAssembler", "BareMachine", "AssembleOnOpen", "AssembleAll",
@@ -120,7 +129,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          												"WarningsAreErrors", "ProgramArguments", "DataSegmentHighlighting",
          												"RegistersHighlighting", "StartAtMain", "EditorCurrentLineHighlighting",
          												"PopupInstructionGuidance", "PopupSyscallInput", "GenericTextEditor", 
-         												"AutoIndent", "SelfModifyingCode" };
+         												"AutoIndent", "SelfModifyingCode", "FastEngine",
+         												"BlockCompiler", "ReverseExecution" };
    
       /** Last resort default values for boolean settings; will use only  if neither
    	 *  the Preferences nor the properties file work. If you wish to change them, 
@@ -129,7 +139,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
       public static boolean[] defaultBooleanSettingsValues = { // match the above list by position
                                               true, false, false, false, false, true, true, false, false, 
-         												 true, false, false, true, true, false, true, true, false, false, true, false };
+         												 true, false, false, true, true, false, true, true, false, false, true, false, false, false, false };
    
       // STRING SETTINGS.  Each array position has associated name.
    	/** Current specified exception handler file (a MIPS assembly source file) */
@@ -146,15 +156,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int EDITOR_TAB_SIZE = 5;
    	/** Number of letters to be matched by editor's instruction guide before popup generated (if popup enabled) */
       public static final int EDITOR_POPUP_PREFIX_LENGTH = 6;
+   	/** Name of the memory backend used to store simulated memory (see Memory.BACKENDS). */
+      public static final int MEMORY_BACKEND = 7;
    	// Match the above by position.
-      private static final String[] stringSettingsKeys = { "ExceptionHandler", "TextColumnOrder", "LabelSortState", "MemoryConfiguration", "CaretBlinkRate", "EditorTabSize", "EditorPopupPrefixLength" };
+      private static final String[] stringSettingsKeys = { "ExceptionHandler", "TextColumnOrder", "LabelSortState", "MemoryConfiguration", "CaretBlinkRate", "EditorTabSize", "EditorPopupPrefixLength", "MemoryBackend" };
    
       /** Last resort default values for String settings; 
    	 *  will use only if neither the Preferences nor the properties file work.
    	 *  If you wish to change, do so before instantiating the Settings object.
    	 *  Must match key by list position.
    	 */
-      private static String[] defaultStringSettingsValues = { "", "0 1 2 3 4", "0", "", "500", "8", "2" }; 
+      private static String[] defaultStringSettingsValues = { "", "0 1 2 3 4", "0", "", "500", "8", "2", "Tables" }; 
    
    
       // FONT SETTINGS.  Each array position has associated name.
@@ -626,6 +638,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public String getMemoryConfiguration() {
          return stringSettingsValues[MEMORY_CONFIGURATION];
       }
+   
+   	/**
+   	 * Returns name of the memory backend, one of Memory.BACKENDS.
+   	 * @return String name of memory backend used to store simulated memory.
+   	 */
+       public String getMemoryBackend() {
+         return stringSettingsValues[MEMORY_BACKEND];
+      }
    		
    	/**
    	 * Current editor font.  Retained for compatibility but replaced  
@@ -1029,6 +1049,29 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void setMemoryConfiguration(String config) {
          setStringSetting(MEMORY_CONFIGURATION, config);
       }
+   
+   	 /**
+   	  * Store the name of the memory backend.  Takes effect when memory is next cleared.
+   	  * @param backend name of the memory backend, one of Memory.BACKENDS
+   	  */
+       public void setMemoryBackend(String backend) {
+         setStringSetting(MEMORY_BACKEND, backend);
+      }
+   
+      /**
+   	 * Temporarily establish string setting.  This setting will NOT be written to persisent
+   	 * store!  Currently this is used only when running MARS from the command line 
+   	 * @param id setting identifier.  These are defined for this class as static final int.
+   	 * @param value new value of the setting
+   	 */		
+       public void setStringSettingNonPersistent(int id, String value) {
+         if (id >=0 && id < stringSettingsValues.length) {
+            stringSettingsValues[id] = value;
+         } 
+         else {
+            throw new IllegalArgumentException("Invalid string setting ID");
+         } 
+      }
       
    	/**
    	 * Set the caret blinking rate in milliseconds.  Rate of 0 means no blinking.
@@ -0,0 +1,106 @@
+   package mars;
+   import mars.mips.hardware.*;
+   import mars.simulator.*;
+   import mars.util.*;
+
+/**
+ * The machine state of one simulation: memory with the statements decoded and the
+ * blocks compiled from it, the register files of the CPU and coprocessors 0 and 1,
+ * program I/O and open files, the simulator with its pending delayed branch and its
+ * ReverseStepper, and the program being worked with, whose BackStepper records the
+ * simulation's undo history.
+ * <p>
+ * MARS code reaches that state through static accessors (Globals.memory,
+ * Memory.getInstance(), RegisterFile, Coprocessor0, Coprocessor1, SystemIO,
+ * Simulator.getInstance(), Globals.program) that resolve to the active context.
+ * Activating a context points all of them at its state and saves the state of the
+ * context that was active before, so that it can be activated again later.  The
+ * accessors keep no reference to the context itself, so simulating an instruction
+ * costs nothing extra.
+ * <p>
+ * Only one context is active at a time in a given copy of the MARS classes, and a
+ * context may only be switched while no simulation is running.  Settings and the
+ * memory configuration are not part of a context, and neither is the TokenCache: it
+ * holds tokenized source files, and checks each one against the file's contents and
+ * the instruction set before using it.
+ *
+ * @version October 2026
+ **/
+
+    public class SimulationContext {
+
+      private static SimulationContext active = null;
+
+      private Memory.State memory;
+      private RegisterFile.State registers;
+      private Coprocessor0.State coprocessor0;
+      private Coprocessor1.State coprocessor1;
+      private SystemIO.State io;
+      private Simulator.State simulator;
+      private MIPSprogram program;
+
+   /**
+    * Creates a context for a new simulation: empty memory, registers at their initial
+    * values, the process's standard streams and no files open, no program.
+    */
+       public SimulationContext() {
+         memory = new Memory.State();
+         registers = new RegisterFile.State();
+         coprocessor0 = new Coprocessor0.State();
+         coprocessor1 = new Coprocessor1.State();
+         io = new SystemIO.State();
+         simulator = new Simulator.State();
+         program = null;
+      }
+
+      // The context holding whatever state is in use when none has been activated yet.
+       private SimulationContext(boolean current) {
+         save();
+      }
+
+   /**
+    * Returns the active context.  Before any context has been activated this is the
+    * one MARS starts with.
+    * @return the active context
+    */
+       public static synchronized SimulationContext getActive() {
+         if (active == null) {
+            active = new SimulationContext(true);
+         }
+         return active;
+      }
+
+   /**
+    * Makes this the active context: the state of the previously active context is saved
+    * in it, and all MARS static accessors are pointed at this context's state.
+    * No simulation may be running.
+    */
+       public void activate() {
+         synchronized (SimulationContext.class) {
+            SimulationContext previous = getActive();
+            if (previous == this) {
+               return;
+            }
+            previous.save();
+            Memory.restoreState(memory);
+            RegisterFile.restoreState(registers);
+            Coprocessor0.restoreState(coprocessor0);
+            Coprocessor1.restoreState(coprocessor1);
+            SystemIO.restoreState(io);
+            Simulator.restoreState(simulator);
+            Globals.program = program;
+            active = this;
+         }
+      }
+
+      // Take the state in use into this context.
+       private void save() {
+         memory = Memory.saveState();
+         registers = RegisterFile.saveState();
+         coprocessor0 = Coprocessor0.saveState();
+         coprocessor1 = Coprocessor1.saveState();
+         io = SystemIO.saveState();
+         simulator = Simulator.saveState();
+         program = Globals.program;
+      }
+   }
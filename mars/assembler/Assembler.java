@@ -13,6 +13,7 @@
    import mars.mips.hardware.AddressErrorException;
    import mars.mips.hardware.Memory;
    import mars.mips.instructions.BasicInstruction;
+   import mars.mips.instructions.CompiledTemplate;
    import mars.mips.instructions.ExtendedInstruction;
    import mars.mips.instructions.Instruction;
    import mars.util.Binary;
@@ -299,8 +300,8 @@
                // It is a pseudo-instruction:
                // 1. Fetch its basic instruction template list
                // 2. For each template in the list,
-               // 2a. substitute operands from source statement
-               // 2b. tokenize the statement generated by 2a.
+               // 2a. substitute operands from source statement, generating
+               //     its tokens (see CompiledTemplate)
                // 2d. call parseLine() to generate basic instrction
                // 2e. add returned programStatement to the list
                // The templates, and the instructions generated by filling
@@ -327,35 +328,41 @@
                // If we are using compact memory config and there is a compact expansion, use it
                   ArrayList templateList;
                   if (compactTranslationCanBeApplied(statement)) {
-                     templateList = inst.getCompactBasicIntructionTemplateList();
+                     templateList = inst.getCompactCompiledTemplateList();
                   } 
                   else {
-                     templateList = inst.getBasicIntructionTemplateList();
+                     templateList = inst.getCompiledTemplateList();
                   }
                
                // subsequent ProgramStatement constructor needs the correct text segment address.
                   textAddress.set(statement.getAddress());
                // Will generate one basic instruction for each template in the list.
                   for (int instrNumber = 0; instrNumber < templateList.size(); instrNumber++) {
-                     String instruction = ExtendedInstruction.makeTemplateSubstitutions(
-                        this.fileCurrentlyBeingAssembled,
-                        (String) templateList.get(instrNumber), theTokenList);
+                     CompiledTemplate template = (CompiledTemplate) templateList.get(instrNumber);
+                  // The compiled template generates the tokens of the basic instruction
+                  // directly.  Otherwise, substitute into the template String and tokenize.
+                     TokenList newTokenList = template.expand(this.fileCurrentlyBeingAssembled,
+                        theTokenList, sourceLine);
+                     if (newTokenList == null) {
+                        String instruction = ExtendedInstruction.makeTemplateSubstitutions(
+                           this.fileCurrentlyBeingAssembled, template.getTemplate(), theTokenList);
+                        newTokenList = (instruction == null) ? new TokenList() 
+                           : new Tokenizer().tokenizeLine(sourceLine, instruction, errors, false);
+                     }
                   // 23 Jan 2008 by DPS. Template substitution may result in no instruction.
                   // If this is the case, skip remainder of loop iteration. This should only
                   // happen if template substitution was for "nop" instruction but delayed branching
                   // is disabled so the "nop" is not generated.
-                     if (instruction == null || instruction == "") {
+                     if (newTokenList.isEmpty()) {
                         continue;
                      }
                   
                   // All substitutions have been made so we have generated
                   // a valid basic instruction!
                      if (Globals.debug)
-                        System.out.println("PSEUDO generated: " + instruction);
-                  // For generated instruction: tokenize, build program
+                        System.out.println("PSEUDO generated: " + newTokenList);
+                  // For generated instruction: build program
                   // statement, add to list.
-                     TokenList newTokenList = new Tokenizer().tokenizeLine(sourceLine,
-                        instruction, errors,false);
                      ArrayList instrMatches = this.matchInstruction(newTokenList.get(0));
                      Instruction instr = OperandFormat.bestOperandMatch(newTokenList,
                         instrMatches);
@@ -517,14 +524,13 @@
             //                }
                for (int i = macro.getFromLine() + 1; i < macro.getToLine(); i++) {
                  
-                  String substituted = macro.getSubstitutedLine(i, tokens, counter, errors);
-                  TokenList tokenList2 = fileCurrentlyBeingAssembled.getTokenizer().tokenizeLine(
-                     i, substituted, errors);
+                  // Substitutes arguments and tokenizes, reusing the work of earlier expansions
+                  TokenList tokenList2 = macro.getExpandedLine(i, tokens, counter,
+                     fileCurrentlyBeingAssembled.getTokenizer(), errors);
                
-                  // If token list getProcessedLine() is not empty, then .eqv was performed and it contains the modified source.
+                  // Token list getProcessedLine() contains the line after substitution, and .eqv if performed.
                	// Put it into the line to be parsed, so it will be displayed properly in text segment display. DPS 23 Jan 2013
-                  if (tokenList2.getProcessedLine().length() > 0)
-                     substituted = tokenList2.getProcessedLine();
+                  String substituted = tokenList2.getProcessedLine();
                
                   // recursively parse lines of expanded macro
                   ArrayList<ProgramStatement> statements = parseLine(tokenList2, "<" + (i-macro.getFromLine()+macro.getOriginalFromLine()) + "> "
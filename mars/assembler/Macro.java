@@ -3,6 +3,7 @@ package mars.assembler;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 
 import mars.ErrorList;
 import mars.ErrorMessage;
@@ -56,6 +57,15 @@ public class Macro {
  * arguments like <code>%arg</code> will be substituted by macro expansion
  */
    private ArrayList<String> args;
+/**
+ * body lines prepared for expansion, indexed by line number - fromLine - 1.
+ * Each is prepared the first time it is expanded.
+ */
+   private ExpansionLine[] expansionLines;
+/**
+ * token type of each argument and label put in a slot so far
+ */
+   private HashMap<String,TokenTypes> fillTypes;
 
    public Macro() {
       name = "";
@@ -144,7 +154,8 @@ public class Macro {
  * Substitutes macro arguments in a line of source code inside macro
  * definition to be parsed after macro expansion. <br>
  * Also appends "_M#" to all labels defined inside macro body where # is value of <code>counter</code>
- * 
+ *
+ *
  * @param line
  *            source line number in macro definition to be substituted
  * @param args
@@ -156,6 +167,18 @@ public class Macro {
  */
 
    public String getSubstitutedLine(int line, TokenList args, long counter, ErrorList errors) {
+      ExpansionLine expansion = getExpansionLine(line);
+      if (expansion.texts != null && expansion.inPlace) {
+         return fillText(expansion, fillSlots(expansion, args, counter));
+      }
+      return replaceTokens(line, args, counter, errors);
+   }
+
+/**
+ * Substitutes arguments and labels in a body line token by token, from the last
+ * token to the first, each at the first occurrence of its text in the line.
+ */
+   private String replaceTokens(int line, TokenList args, long counter, ErrorList errors) {
       TokenList tokens = (TokenList) program.getTokenList().get(line - 1);
       String s = program.getSourceLine(line);
    
@@ -187,6 +210,261 @@ public class Macro {
    }
 
 
+/**
+ * Expands a line of source code inside macro definition: substitutes arguments
+ * and labels as {@link #getSubstitutedLine} does, then tokenizes the result as
+ * <code>tokenizer.tokenizeLine(line, substituted, errors)</code> does.
+ * The first expansion of a line splits it into the text and tokens around the
+ * arguments and labels (slots), so later expansions only fill in the slots.
+ * A line that does not split cleanly (e.g. an argument next to a '+' or '-') is
+ * tokenized again each time, as is a line whose .eqv symbols must be substituted,
+ * and one where getSubstitutedLine() would not put each value in its slot.
+ * 
+ * @param line
+ *            source line number in macro definition to be expanded
+ * @param args
+ *            tokens of the macro expansion call
+ * @param counter
+ *            unique macro expansion id
+ * @param tokenizer
+ *            Tokenizer of the program containing the expansion call
+ * @param errors
+ * @return tokens of the expanded line.  Its processed line is the line after
+ *         substitution, as tokenizeLine() leaves it.
+ */
+   public TokenList getExpandedLine(int line, TokenList args, long counter, Tokenizer tokenizer, ErrorList errors) {
+      ExpansionLine expansion = getExpansionLine(line);
+      if (expansion.texts == null) {
+         return tokenizer.tokenizeLine(line, replaceTokens(line, args, counter, errors), errors);
+      }
+      String[] fills = fillSlots(expansion, args, counter);
+      String substituted = fillText(expansion, fills);
+      if (!expansion.inPlace) {
+         // Substituting at first occurrences may put a value elsewhere, depending on the values
+         String replaced = replaceTokens(line, args, counter, errors);
+         if (!replaced.equals(substituted)) {
+            return tokenizer.tokenizeLine(line, replaced, errors);
+         }
+      }
+      TokenList result = (expansion.tokens == null) ? null : fillTokens(expansion, fills, line, tokenizer);
+      if (result == null) {
+         return tokenizer.tokenizeLine(line, substituted, errors);
+      }
+      result.setProcessedLine(substituted);
+      return result;
+   }
+
+/**
+ * Returns the given body line prepared for expansion, preparing it if this is
+ * its first expansion.
+ */
+   private ExpansionLine getExpansionLine(int line) {
+      if (expansionLines == null) {
+         expansionLines = new ExpansionLine[Math.max(toLine - fromLine - 1, 0)];
+         fillTypes = new HashMap<String,TokenTypes>();
+      }
+      int index = line - fromLine - 1;
+      if (index < 0 || index >= expansionLines.length) {
+         return prepareExpansionLine(line); // not in the body; not kept
+      }
+      if (expansionLines[index] == null) {
+         expansionLines[index] = prepareExpansionLine(line);
+      }
+      return expansionLines[index];
+   }
+
+/**
+ * Splits a body line at the arguments and labels in it.  The texts are left null
+ * if the line must be substituted token by token, and the tokens null if the
+ * substituted line must be tokenized again.
+ */
+   private ExpansionLine prepareExpansionLine(int line) {
+      ExpansionLine expansion = new ExpansionLine();
+      TokenList tokens = (TokenList) program.getTokenList().get(line - 1);
+      String s = program.getSourceLine(line);
+      ArrayList<Integer> slotArgs = new ArrayList<Integer>();
+      ArrayList<Integer> slotPositions = new ArrayList<Integer>();
+      ArrayList<String> slotValues = new ArrayList<String>();
+      for (int i = 0; i < tokens.size(); i++) {
+         Token token = tokens.get(i);
+         String value = token.getValue();
+         int arg = -1;
+         if (tokenIsMacroParameter(value, true)) {
+            arg = this.args.indexOf(value);
+            if (arg < 0) {
+               return expansion; // unknown parameter, reported each time
+            }
+         } 
+         else if (!tokenIsMacroLabel(value)) {
+            continue;
+         }
+         // Token positions are in the line after .eqv substitutions, which may differ
+         int pos = token.getStartPos() - 1;
+         int previousEnd = slotPositions.isEmpty() ? 0 
+            : slotPositions.get(slotPositions.size() - 1) + slotValues.get(slotValues.size() - 1).length();
+         if (s == null || pos < previousEnd || !s.startsWith(value, pos)) {
+            return expansion;
+         }
+         slotArgs.add(arg);
+         slotPositions.add(pos);
+         slotValues.add(value);
+      }
+      int slots = slotArgs.size();
+      // If each slot is the first occurrence of its text, substituting from the last slot
+      // to the first at first occurrences puts every value in its slot, whatever the values
+      expansion.inPlace = true;
+      for (int i = 0; i < slots; i++) {
+         if (s.indexOf(slotValues.get(i)) != slotPositions.get(i)) {
+            expansion.inPlace = false;
+         }
+      }
+      expansion.texts = new String[slots + 1];
+      expansion.slotArgs = new int[slots];
+      expansion.slotValues = slotValues.toArray(new String[slots]);
+      int textStart = 0;
+      for (int i = 0; i < slots; i++) {
+         expansion.slotArgs[i] = slotArgs.get(i);
+         expansion.texts[i] = s.substring(textStart, slotPositions.get(i));
+         textStart = slotPositions.get(i) + expansion.slotValues[i].length();
+      }
+      expansion.texts[slots] = s.substring(textStart);
+   
+      // The tokens of the line with its slots as written stand for those of any
+      // expansion, if every slot is a token on its own between delimiters and no
+      // token after a slot starts with a sign (whether it is unary depends on the
+      // token before).  Character constants are left to the tokenizer.
+      Tokenizer tokenizer = new Tokenizer(program);
+      TokenList lineTokens = tokenizer.tokenizeLine(program, line, s, false);
+      if (tokenizer.getErrors().errorsOccurred() || s.indexOf('\'') >= 0) {
+         return expansion;
+      }
+      expansion.tokens = new Token[lineTokens.size()];
+      expansion.tokenSlots = new int[lineTokens.size()];
+      int slot = 0;
+      for (int i = 0; i < lineTokens.size(); i++) {
+         Token token = lineTokens.get(i);
+         expansion.tokens[i] = token;
+         expansion.tokenSlots[i] = -1;
+         if (slot < slots && token.getStartPos() - 1 == slotPositions.get(slot)) {
+            int pos = slotPositions.get(slot);
+            int end = pos + expansion.slotValues[slot].length();
+            if (!token.getValue().equals(expansion.slotValues[slot])
+               || pos > 0 && SLOT_BEFORE.indexOf(s.charAt(pos - 1)) < 0
+               || end < s.length() && SLOT_AFTER.indexOf(s.charAt(end)) < 0
+               || i + 1 < lineTokens.size() && SIGNS.indexOf(lineTokens.get(i + 1).getValue().charAt(0)) >= 0) {
+               expansion.tokens = null;
+               return expansion;
+            }
+            expansion.tokenSlots[i] = slot++;
+         }
+      }
+      if (slot < slots) {
+         expansion.tokens = null;
+      }
+      return expansion;
+   }
+
+/**
+ * Returns what goes in each slot of a line for the given expansion call.
+ */
+   private String[] fillSlots(ExpansionLine expansion, TokenList args, long counter) {
+      String[] fills = new String[expansion.slotArgs.length];
+      for (int i = 0; i < fills.length; i++) {
+         fills[i] = (expansion.slotArgs[i] >= 0) ? args.get(expansion.slotArgs[i] + 1).toString()
+            : expansion.slotValues[i] + "_M" + counter;
+      }
+      return fills;
+   }
+
+   private String fillText(ExpansionLine expansion, String[] fills) {
+      if (fills.length == 0) {
+         return expansion.texts[0];
+      }
+      StringBuilder result = new StringBuilder();
+      for (int i = 0; i < fills.length; i++) {
+         result.append(expansion.texts[i]).append(fills[i]);
+      }
+      return result.append(expansion.texts[fills.length]).toString();
+   }
+
+/**
+ * Builds the tokens of an expanded line from those of the body line, as the
+ * tokenizer would.  Returns null if the tokenizer must be used instead: a slot
+ * filled with something that is not one token, or an .eqv symbol to substitute.
+ */
+   private TokenList fillTokens(ExpansionLine expansion, String[] fills, int line, Tokenizer tokenizer) {
+      TokenList result = new TokenList();
+      MIPSprogram tokenProgram = tokenizer.getProgram();
+      int shift = 0; // characters added to the line by slots so far
+      for (int i = 0; i < expansion.tokens.length; i++) {
+         Token token = expansion.tokens[i];
+         int slot = expansion.tokenSlots[i];
+         TokenTypes type = token.getType();
+         String value = token.getValue();
+         int startPos = token.getStartPos() + shift;
+         if (slot >= 0) {
+            value = fills[slot];
+            if (!isSingleToken(value)) {
+               return null;
+            }
+            // A sign is taken as unary unless the token before is an identifier
+            if (SIGNS.indexOf(value.charAt(0)) >= 0 && !result.isEmpty()
+               && result.get(result.size() - 1).getType() == TokenTypes.IDENTIFIER) {
+               return null;
+            }
+            type = fillTypes.get(value);
+            if (type == null) {
+               type = TokenTypes.matchTokenType(value);
+               fillTypes.put(value, type);
+            }
+            if (type == TokenTypes.ERROR) {
+               return null;
+            }
+            shift += value.length() - expansion.slotValues[slot].length();
+         }
+         if (type == TokenTypes.IDENTIFIER && tokenizer.isEquivalent(value)) {
+            return null;
+         }
+         result.add(new Token(type, value, tokenProgram, line, startPos));
+      }
+      // A .eqv directive must be recorded by the tokenizer
+      for (int i = 0; i < result.size() && i <= 2; i += 2) {
+         if (result.get(i).getType() == TokenTypes.DIRECTIVE
+            && Directives.matchDirective(result.get(i).getValue()) == Directives.EQV) {
+            return null;
+         }
+      }
+      return result;
+   }
+
+/**
+ * returns true if the tokenizer makes exactly one token of <code>value</code>
+ * wherever it is between delimiters, apart from a leading sign (see fillTokens).
+ */
+   private static boolean isSingleToken(String value) {
+      if (value.length() == 0) {
+         return false;
+      }
+      if (value.charAt(0) == '"') { // quoted string ends at the first quote not escaped
+         for (int i = 1; i < value.length(); i++) {
+            if (value.charAt(i) == '"' && value.charAt(i - 1) != '\\') {
+               return i == value.length() - 1;
+            }
+         }
+         return false;
+      }
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         if (SLOT_AFTER.indexOf(c) >= 0 || c == '"' || c == '\'') {
+            return false;
+         }
+         if (SIGNS.indexOf(c) >= 0 && (i > 0 || value.length() < 2 || !Character.isDigit(value.charAt(1)))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
 /**
  * returns true if <code>value</code> is name of a label defined in this macro's body.
  * @param value
@@ -249,6 +527,26 @@ public class Macro {
       Collections.sort(labels);
    }
 
+/**
+ * characters that can come before and after a slot, so it is a token on its own
+ */
+   private static final String SLOT_BEFORE = " \t,():";
+   private static final String SLOT_AFTER = " \t,():#";
+   private static final String SIGNS = "+-";
+
+/**
+ * A body line ready for expansion: the text around its slots (the arguments and
+ * labels to substitute), and its tokens with the slots as written.
+ */
+   private static class ExpansionLine {
+      String[] texts;       // text before each slot and after the last; null if not split
+      int[] slotArgs;       // argument number of each slot, or -1 for a label
+      String[] slotValues;  // each slot as written in the body
+      Token[] tokens;       // null if expansions must be tokenized
+      int[] tokenSlots;     // slot of each token, or -1
+      boolean inPlace;      // true if getSubstitutedLine() always fills the slots
+   }
+
 
 
 }
@@ -1,6 +1,7 @@
    package mars.assembler;
 
    import java.util.ArrayList;
+   import java.util.HashMap;
    import java.util.Stack;
 
    import mars.ErrorList;
@@ -52,6 +53,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     * List of macros defined by now
     */
       private ArrayList<Macro> macroList;
+   /**
+    * Macros by name: for each argument count, the one defined last in source
+    * code.  Used to find the macro for an expansion call.
+    */
+      private HashMap<String,ArrayList<Macro>> macroIndex;
    /**
     * @see #BeginMacro(String, int)
     */
@@ -71,6 +77,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public MacroPool(MIPSprogram mipsProgram) {
          this.program = mipsProgram;
          macroList = new ArrayList<Macro>();
+         macroIndex = new HashMap<String,ArrayList<Macro>>();
          callStack=new ArrayList<Integer>();
          callStackOrigLines=new ArrayList<Integer>();
          current = null;
@@ -110,6 +117,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          current.setOriginalToLine(endToken.getOriginalSourceLine());
          current.readyForCommit();
          macroList.add(current);
+         ArrayList<Macro> named = macroIndex.get(current.getName());
+         if (named == null) {
+            named = new ArrayList<Macro>(1);
+            macroIndex.put(current.getName(), named);
+         }
+         int i = 0;
+         while (i < named.size() && named.get(i).getArgs().size() != current.getArgs().size())
+            i++;
+         if (i == named.size())
+            named.add(current);
+         else if (named.get(i).getFromLine() < current.getFromLine())
+            named.set(i, current);
          current = null;
       }
    	   		
@@ -124,16 +143,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public Macro getMatchingMacro(TokenList tokens, int callerLine) {
          if (tokens.size() < 1)
             return null;
-         Macro ret = null;
-         Token firstToken = tokens.get(0);
-         for (Macro macro : macroList) {
-            if (macro.getName().equals(firstToken.getValue())
-            	&& macro.getArgs().size() + 1 == tokens.size()
-            	//&& macro.getToLine() < callerLine  // condition removed; doesn't work nicely in conjunction with .include, and does not seem necessary.  DPS 8-MAR-2013
-            	&& (ret == null || ret.getFromLine() < macro.getFromLine()))
-               ret = macro;
+         // Of the macros with this name and argument count, the one defined last.
+         // Condition macro.getToLine() < callerLine removed; doesn't work nicely in conjunction
+         // with .include, and does not seem necessary.  DPS 8-MAR-2013
+         ArrayList<Macro> named = macroIndex.get(tokens.get(0).getValue());
+         if (named == null)
+            return null;
+         for (Macro macro : named) {
+            if (macro.getArgs().size() + 1 == tokens.size())
+               return macro;
          }
-         return ret;
+         return null;
       }
    
    /**
@@ -142,10 +162,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     *         by now, not concerning arguments count.
     */
        public boolean matchesAnyMacroName(String value) {
-         for (Macro macro : macroList)
-            if (macro.getName().equals(value))
-               return true;
-         return false;
+         return macroIndex.containsKey(value);
       }
    
    
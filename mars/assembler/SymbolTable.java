@@ -31,7 +31,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
   /**
-    *  Creats a table of Symbol objects.
+    *  Creats a table of Symbol objects.  Symbols are found by name through a hash map
+    *  and by address through a sorted index, and listed in the order they were added.
 	*   @author Jason Bumgarner, Jason Shrewsbury
 	*   @version June 2003
 	**/
@@ -39,7 +40,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class SymbolTable {
       private static String startLabel = "main";
       private String filename;
-      private ArrayList table;
+      // Symbols by name, in the order they were added (the order they are displayed in).
+      private LinkedHashMap<String,Symbol> table;
+      // Symbols by address, ordered as unsigned addresses.  Symbols sharing an address
+      // are listed in the order they were added.
+      private TreeMap<Long,ArrayList<Symbol>> addressIndex;
    	// Note -1 is legal 32 bit address (0xFFFFFFFF) but it is the high address in 
    	// kernel address space so highly unlikely that any symbol will have this as 
    	// its associated address!
@@ -52,7 +57,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
        public SymbolTable(String filename) {
          this.filename = filename;
-         this.table = new ArrayList();
+         this.table = new LinkedHashMap<String,Symbol>();
+         this.addressIndex = new TreeMap<Long,ArrayList<Symbol>>();
       }    
    	/**
    	  *  Adds a Symbol object into the array of Symbols.
@@ -69,7 +75,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          } 
          else {
             Symbol s= new Symbol(label, address, b);
-            table.add(s);
+            table.put(label, s);
+            addToAddressIndex(s);
             if (Globals.debug) System.out.println("The symbol " + label + " with address " + address + " has been added to the "+this.filename+" symbol table.");
          }
       }
@@ -84,12 +91,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public void removeSymbol(Token token) {
          String label = token.getValue();
-         for (int i=0; i < table.size(); i++) {
-            if (((Symbol)(table.get(i))).getName().equals(label)){
-               table.remove(i);
-               if (Globals.debug) System.out.println("The symbol " + label + " has been removed from the "+this.filename+" symbol table.");
-               break;
-            }
+         Symbol s = table.remove(label);
+         if (s != null) {
+            removeFromAddressIndex(s);
+            if (Globals.debug) System.out.println("The symbol " + label + " has been removed from the "+this.filename+" symbol table.");
          }
          return; 
       }
@@ -101,12 +106,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return The memory address of the label given, or NOT_FOUND if not found in symbol table.
    	  **/
        public int getAddress(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return((Symbol) table.get(i)).getAddress();
-            }
-         }
-         return NOT_FOUND;
+         Symbol symbol = table.get(s);
+         return (symbol == null) ? NOT_FOUND : symbol.getAddress();
       }
       
    	/**
@@ -129,12 +130,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        **/
        
        public Symbol getSymbol(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return (Symbol) table.get(i);
-            }
-         }
-         return null;
+         return table.get(s);
       }
    
       /**
@@ -151,14 +147,35 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
              catch (NumberFormatException e) {
                return null;
             }
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getAddress() == address){
-               return (Symbol) table.get(i);
-            }
-         }
-         return null;
+         return getSymbolGivenAddress(address);
       }      
    
+      /**
+       * Produce Symbol object from symbol table that has the given address.  If more than
+       * one does, produces the one added first.
+       * @param address the address
+       * @return Symbol object having requested address, null if address not found in symbol table.
+       **/
+       
+       public Symbol getSymbolGivenAddress(int address){
+         ArrayList<Symbol> symbols = addressIndex.get(unsigned(address));
+         return (symbols == null) ? null : symbols.get(0);
+      }
+   
+      /**
+       * Produce Symbol object from symbol table that has the highest address not above
+       * the given address, comparing addresses as unsigned.  Useful for labeling an address
+       * with the nearest preceding symbol.  If more than one has that address, produces the
+       * one added first.
+       * @param address the address
+       * @return Symbol object nearest at or below requested address, null if there is none.
+       **/
+       
+       public Symbol getSymbolAtOrBelowAddress(int address){
+         Map.Entry<Long,ArrayList<Symbol>> entry = addressIndex.floorEntry(unsigned(address));
+         return (entry == null) ? null : entry.getValue().get(0);
+      }
+   
       /**
        * Produce Symbol object from either local or global symbol table that has the 
    	 * given address.
@@ -179,9 +196,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
        public ArrayList getDataSymbols(){
          ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            if(((Symbol)table.get(i)).getType()){
-               list.add(table.get(i));
+         for (Symbol symbol : table.values()) {
+            if(symbol.getType()){
+               list.add(symbol);
             }	
          }
          return list;
@@ -195,9 +212,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
        public ArrayList getTextSymbols(){
          ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            if(!((Symbol)table.get(i)).getType()){
-               list.add(table.get(i));
+         for (Symbol symbol : table.values()) {
+            if(!symbol.getType()){
+               list.add(symbol);
             }	
          }
          return list;
@@ -209,11 +226,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
       
        public ArrayList getAllSymbols(){
-         ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            list.add(table.get(i));
-         }
-         return list;
+         return new ArrayList(table.values());
       }	
    
    	 /**
@@ -230,7 +243,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		**/
    	 
        public void clear(){
-         table= new ArrayList();
+         table= new LinkedHashMap<String,Symbol>();
+         addressIndex = new TreeMap<Long,ArrayList<Symbol>>();
       }
    	
    /**
@@ -243,14 +257,56 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     */
    
        public void fixSymbolTableAddress(int originalAddress, int replacementAddress) {
-         Symbol label = getSymbolGivenAddress(Integer.toString(originalAddress));
-         while (label != null) {
+         ArrayList<Symbol> labels = addressIndex.remove(unsigned(originalAddress));
+         if (labels == null) {
+            return;
+         }
+         for (Symbol label : labels) {
             label.setAddress(replacementAddress);
-            label = getSymbolGivenAddress(Integer.toString(originalAddress));
+         }
+         ArrayList<Symbol> existing = addressIndex.get(unsigned(replacementAddress));
+         if (existing == null) {
+            addressIndex.put(unsigned(replacementAddress), labels);
+         } 
+         else {
+            // Rare: keep the symbols at the replacement address in the order they were added.
+            existing.clear();
+            for (Symbol symbol : table.values()) {
+               if (symbol.getAddress() == replacementAddress) {
+                  existing.add(symbol);
+               }
+            }
          }
          return;
       }
    
+   	// Symbol addresses are kept in the address index as unsigned values so that
+   	// kernel addresses sort above user addresses.
+       private static Long unsigned(int address) {
+         return Long.valueOf(address & 0xFFFFFFFFL);
+      }
+   
+       private void addToAddressIndex(Symbol symbol) {
+         Long key = unsigned(symbol.getAddress());
+         ArrayList<Symbol> symbols = addressIndex.get(key);
+         if (symbols == null) {
+            symbols = new ArrayList<Symbol>(1);
+            addressIndex.put(key, symbols);
+         }
+         symbols.add(symbol);
+      }
+   
+       private void removeFromAddressIndex(Symbol symbol) {
+         Long key = unsigned(symbol.getAddress());
+         ArrayList<Symbol> symbols = addressIndex.get(key);
+         if (symbols != null) {
+            symbols.remove(symbol);
+            if (symbols.isEmpty()) {
+               addressIndex.remove(key);
+            }
+         }
+      }
+   
      /**
       *  Fetches the text segment label (symbol) which, if declared global, indicates
    	*  the starting address for execution.
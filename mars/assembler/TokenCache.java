@@ -0,0 +1,200 @@
+   package mars.assembler;
+   import mars.*;
+   import java.io.*;
+   import java.util.*;
+
+/**
+ * Cache of tokenized source files, so a file that has not changed since it was last
+ * assembled is not tokenized again.  Used by Tokenizer.tokenize().
+ * <p>
+ * An entry holds what tokenizing a file produced: its token lists, its source lines after
+ * .include and .eqv processing, and the Tokenizer's .eqv definitions at the end of the
+ * file (needed to tokenize macro expansions).  It is used for a file only if the file's
+ * source, the source of every file it included and the instruction set are all the same
+ * as when it was tokenized.  An included file is read again and compared only if its
+ * modification time or length differs from when it was read, or it was modified so
+ * close to that time that a change might not show; otherwise it is taken to be
+ * unchanged.  Tokens are copied in and out, because the assembler changes tokens and
+ * every token refers to the MIPSprogram it belongs to.
+ * <p>
+ * Only tokenizing is cached.  Parsing (the assembler's first pass) depends on the address
+ * each statement is given, on files assembled before it and on the global symbol table,
+ * so it is always done again.
+ *
+ * @version October 2026
+ **/
+
+    class TokenCache {
+
+      // Total source lines, over all entries, beyond which least recently used entries
+      // are dropped.  Roughly 250 bytes per line.
+      private static final int MAX_CACHED_LINES = 200000;
+      // A file modified this close to (or after) the time it was read may have changed
+      // without its modification time showing it, so it is always read again to compare.
+      private static final long MODIFICATION_MARGIN = 2000; // milliseconds
+      private static final long MODIFIED_UNKNOWN = Long.MIN_VALUE;
+
+      private static LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true); // filename -> Entry
+      private static int cachedLines = 0;
+
+       private TokenCache() {
+      }
+
+   	/**
+   	 * Get the result of tokenizing the given program's file, if it has not changed.
+   	 * @param program MIPSprogram whose source has been read but not tokenized
+   	 * @return the cached entry, or null if there is none or it is out of date
+   	 */
+       static Entry lookup(MIPSprogram program) {
+         Entry entry;
+         synchronized (TokenCache.class) {
+            entry = (Entry) entries.get(program.getFilename());
+         }
+         return (entry != null && entry.isCurrent(program)) ? entry : null;
+      }
+
+   	/**
+   	 * Record the result of tokenizing a program's file.  Copies everything given.
+   	 * @param program MIPSprogram just tokenized
+   	 * @param tokenList its token lists, one per source line
+   	 * @param sourceLines its source lines after .include and .eqv processing
+   	 * @param includes MIPSprogram for each file it included
+   	 * @param equivalents .eqv definitions at the end of the file
+   	 * @param readTime time (as System.currentTimeMillis()) before the included files were read
+   	 */
+       static void store(MIPSprogram program, ArrayList tokenList, ArrayList<SourceLine> sourceLines,
+                         Collection<MIPSprogram> includes, HashMap<String,String> equivalents, long readTime) {
+         Entry entry = new Entry(program, tokenList, sourceLines, includes, equivalents, readTime);
+         synchronized (TokenCache.class) {
+            Entry replaced = (Entry) entries.put(program.getFilename(), entry);
+            cachedLines += entry.lines.length - ((replaced == null) ? 0 : replaced.lines.length);
+            Iterator eldest = entries.values().iterator();
+            while (cachedLines > MAX_CACHED_LINES && eldest.hasNext()) {
+               cachedLines -= ((Entry) eldest.next()).lines.length;
+               eldest.remove();
+            }
+         }
+      }
+
+   	/////////////////////////////////////////////////////////////////////////
+   	// The result of tokenizing one file.  Immutable once built.
+
+       static final class Entry {
+         private final ArrayList source;           // source as read, to compare with
+         private final String[] includeNames;
+         private final ArrayList[] includeSources;
+         private final long[] includeModified;     // modification time, or MODIFIED_UNKNOWN
+         private final long[] includeLengths;
+         private final String signature;
+         private final String[] lines;             // source lines after processing
+         private final MIPSprogram[] lineFiles;    // file of each line, null if the program's own
+         private final int[] lineNumbers;
+         private final String[] processedLines;
+         private final Token[][] tokens;
+         private final HashMap<String,String> equivalents;
+
+          private Entry(MIPSprogram program, ArrayList tokenList, ArrayList<SourceLine> sourceLines,
+                        Collection<MIPSprogram> includes, HashMap<String,String> equivalents, long readTime) {
+            source = new ArrayList(program.getSourceList());
+            includeNames = new String[includes.size()];
+            includeSources = new ArrayList[includes.size()];
+            includeModified = new long[includes.size()];
+            includeLengths = new long[includes.size()];
+            int i = 0;
+            for (Iterator it = includes.iterator(); it.hasNext(); i++) {
+               MIPSprogram include = (MIPSprogram) it.next();
+               includeNames[i] = include.getFilename();
+               includeSources[i] = include.getSourceList();
+               File file = new File(includeNames[i]);
+               long modified = file.lastModified();
+               includeModified[i] = (modified >= readTime - MODIFICATION_MARGIN) ? MODIFIED_UNKNOWN : modified;
+               includeLengths[i] = file.length();
+            }
+            signature = Globals.instructionSet.getSignature();
+            int count = sourceLines.size();
+            lines = new String[count];
+            lineFiles = new MIPSprogram[count];
+            lineNumbers = new int[count];
+            processedLines = new String[count];
+            tokens = new Token[count][];
+            for (i = 0; i < count; i++) {
+               SourceLine line = sourceLines.get(i);
+               lines[i] = line.getSource();
+               lineFiles[i] = (line.getMIPSprogram() == program) ? null : line.getMIPSprogram();
+               lineNumbers[i] = line.getLineNumber();
+               TokenList list = (TokenList) tokenList.get(i);
+               processedLines[i] = list.getProcessedLine();
+               tokens[i] = new Token[list.size()];
+               for (int t = 0; t < list.size(); t++) {
+                  Token token = list.get(t);
+                  tokens[i][t] = new Token(token.getType(), token.getValue(), null,
+                                           token.getSourceLine(), token.getStartPos());
+               }
+            }
+            this.equivalents = new HashMap<String,String>(equivalents);
+         }
+
+         // True if the program's source, the included files and the instruction set
+         // are as they were.  Reads again any included file that may have been modified.
+          private boolean isCurrent(MIPSprogram program) {
+            if (!source.equals(program.getSourceList()) || !signature.equals(Globals.instructionSet.getSignature())) {
+               return false;
+            }
+            for (int i = 0; i < includeNames.length; i++) {
+               File file = new File(includeNames[i]);
+               if (includeModified[i] != MODIFIED_UNKNOWN && file.lastModified() == includeModified[i]
+                   && file.length() == includeLengths[i]) {
+                  continue;
+               }
+               MIPSprogram include = new MIPSprogram();
+               try {
+                  include.readSource(includeNames[i]);
+               }
+                   catch (ProcessingException e) {
+                     return false;
+                  }
+               if (!includeSources[i].equals(include.getSourceList())) {
+                  return false;
+               }
+            }
+            return true;
+         }
+
+      	/**
+      	 * Copy of the token lists, for the given program.
+      	 */
+          ArrayList getTokenList(MIPSprogram program) {
+            ArrayList tokenList = new ArrayList(tokens.length);
+            for (int i = 0; i < tokens.length; i++) {
+               TokenList list = new TokenList();
+               for (int t = 0; t < tokens[i].length; t++) {
+                  Token token = tokens[i][t];
+                  list.add(new Token(token.getType(), token.getValue(), program,
+                                     token.getSourceLine(), token.getStartPos()));
+               }
+               list.setProcessedLine(processedLines[i]);
+               tokenList.add(list);
+            }
+            return tokenList;
+         }
+
+      	/**
+      	 * Copy of the processed source lines, for the given program.
+      	 */
+          ArrayList<SourceLine> getSourceLines(MIPSprogram program) {
+            ArrayList<SourceLine> sourceLines = new ArrayList<SourceLine>(lines.length);
+            for (int i = 0; i < lines.length; i++) {
+               sourceLines.add(new SourceLine(lines[i], (lineFiles[i] == null) ? program : lineFiles[i],
+                                              lineNumbers[i]));
+            }
+            return sourceLines;
+         }
+
+      	/**
+      	 * Copy of the .eqv definitions at the end of the file.
+      	 */
+          HashMap<String,String> getEquivalents() {
+            return new HashMap<String,String>(equivalents);
+         }
+      }
+   }
@@ -150,9 +150,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        // Classify based on # bits needed to represent in binary
        // This is needed because most immediate operands limited to 16 bits
        // others limited to 5 bits unsigned (shift amounts) others 32 bits.
-         try {
+       // Only attempted if the value could be one; failed attempts are costly.
+         if (Binary.mayBeSignedInteger(value, 0)) {
+            try {
 
-            int i = Binary.stringToInt(value);   // KENV 1/6/05
+               int i = Binary.stringToInt(value);   // KENV 1/6/05
 				
 		/***************************************************************************
 		 *  MODIFICATION AND COMMENT, DPS 3-July-2008
@@ -193,33 +195,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        *    // ------------- END    KENV 1/4/05   MODIFICATIONS --------------
        *  
 		 **************************  END DPS 3-July-2008 COMMENTS *******************************/
-           // shift operands must be in range 0-31
-            if (i>=0 && i<=31) {
-               return TokenTypes.INTEGER_5;
+               return matchIntegerTokenType(i);
             }
-            if (i>=DataTypes.MIN_UHALF_VALUE && i<=DataTypes.MAX_UHALF_VALUE) {
-                return TokenTypes.INTEGER_16U;
-             }
-            if (i>=DataTypes.MIN_HALF_VALUE && i<=DataTypes.MAX_HALF_VALUE) {
-               return TokenTypes.INTEGER_16;
-            }			  
-            return TokenTypes.INTEGER_32;  // default when no other type is applicable
+                catch(NumberFormatException e)
+               {
+               // NO ACTION -- exception suppressed
+               }
          }
-             catch(NumberFormatException e)
-            {
-            // NO ACTION -- exception suppressed
-            }
       
        // See if it is a real (fixed or floating point) number.  Note that parseDouble()
        // accepts integer values but if it were an integer literal we wouldn't get this far.
-         try {
-            Double.parseDouble(value);
-            return TokenTypes.REAL_NUMBER;
-         }
-             catch (NumberFormatException e)
-            {
-            // NO ACTION -- exception suppressed
+         if (mayBeRealNumber(value)) {
+            try {
+               Double.parseDouble(value);
+               return TokenTypes.REAL_NUMBER;
             }
+                catch (NumberFormatException e)
+               {
+               // NO ACTION -- exception suppressed
+               }
+         }
       	 
        // See if it is an instruction operator
          if (Globals.instructionSet.matchOperator(value) != null)
@@ -245,6 +240,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return TokenTypes.ERROR;
       }
    
+      // Quick test of whether Double.parseDouble() could accept the value: after optional
+      // leading white space and sign, it must begin with a digit, a point and a digit,
+      // "Infinity" or "NaN".  False means certainly not.
+       private static boolean mayBeRealNumber(String value) {
+         int i = 0;
+         while (i < value.length() && value.charAt(i) <= ' ') {
+            i++;
+         }
+         if (i < value.length() && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+         }
+         if (i >= value.length()) {
+            return false;
+         }
+         char c = value.charAt(i);
+         return Character.isDigit(c) || c == 'I' || c == 'N'
+                || (c == '.' && i+1 < value.length() && Character.isDigit(value.charAt(i+1)));
+      }
+   
 	   /**
 		 *
 		 *  Lets you know if given tokentype is for integers (INTGER_5, INTEGER_16, INTEGER_32).
@@ -258,6 +272,29 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
 
 
+	   /**
+		 *
+		 *  Classifies an integer value by the number of bits needed to represent it, as
+		 *  matchTokenType() classifies an integer literal.
+		 *
+		 *  @param i the integer value
+		 *  @return INTEGER_5, INTEGER_16U, INTEGER_16 or INTEGER_32, the first that holds it.
+		 **/
+       public static TokenTypes matchIntegerTokenType(int i) {
+         // shift operands must be in range 0-31
+         if (i>=0 && i<=31) {
+            return TokenTypes.INTEGER_5;
+         }
+         if (i>=DataTypes.MIN_UHALF_VALUE && i<=DataTypes.MAX_UHALF_VALUE) {
+            return TokenTypes.INTEGER_16U;
+         }
+         if (i>=DataTypes.MIN_HALF_VALUE && i<=DataTypes.MAX_HALF_VALUE) {
+            return TokenTypes.INTEGER_16;
+         }			  
+         return TokenTypes.INTEGER_32;  // default when no other type is applicable
+      }
+
+
 	   /**
 		 *
 		 *  Lets you know if given tokentype is for floating point numbers (REAL_NUMBER).
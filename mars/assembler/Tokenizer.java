@@ -52,6 +52,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private ErrorList errors;
       private MIPSprogram sourceMIPSprogram;
       private HashMap<String,String> equivalents; // DPS 11-July-2012
+      private char[] tokenBuffer = new char[128]; // reused by tokenizeLine for each line
    	// The 8 escaped characters are: single quote, double quote, backslash, newline (linefeed),
    	// tab, backspace, return, form feed.  The characters and their corresponding decimal codes:
       private static final String escapedCharacters = "'\"\\ntbrf0";
@@ -85,10 +86,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
        public ArrayList tokenize(MIPSprogram p) throws ProcessingException {
          sourceMIPSprogram = p;
+         // If neither the file nor any file it includes has changed since it was last
+         // tokenized, use the result from then (see TokenCache).
+         TokenCache.Entry cached = TokenCache.lookup(p);
+         if (cached != null) {
+            equivalents = cached.getEquivalents();
+            p.setSourceLineList(cached.getSourceLines(p));
+            return cached.getTokenList(p);
+         }
+         long readTime = System.currentTimeMillis();
          equivalents = new HashMap<String,String>(); // DPS 11-July-2012
          ArrayList tokenList = new ArrayList();
          //ArrayList source = p.getSourceList();
-         ArrayList<SourceLine> source = processIncludes(p, new HashMap<String,String>()); // DPS 9-Jan-2013
+         HashMap<String,MIPSprogram> includes = new HashMap<String,MIPSprogram>();
+         ArrayList<SourceLine> source = processIncludes(p, includes); // DPS 9-Jan-2013
          p.setSourceLineList(source);
          TokenList currentLineTokens;
          String sourceLine;
@@ -108,6 +119,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (errors.errorsOccurred()) {
             throw new ProcessingException(errors);
          }
+         TokenCache.store(p, tokenList, source, includes.values(), equivalents, readTime);
          return tokenList;
       }
    
@@ -118,14 +130,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    // point.  If no .include statements, the return value is a new array list but
    // with the same lines of source code.  Uses recursion to correctly process included
    // files that themselves have .include.  Plus it will detect and report recursive
-   // includes both direct and indirect.
+   // includes both direct and indirect.  inclFiles maps the name of each file included
+   // to its MIPSprogram.
    // DPS 11-Jan-2013
-       private ArrayList<SourceLine> processIncludes(MIPSprogram program, Map<String,String> inclFiles) throws ProcessingException {
+       private ArrayList<SourceLine> processIncludes(MIPSprogram program, Map<String,MIPSprogram> inclFiles) throws ProcessingException {
          ArrayList source = program.getSourceList();
          ArrayList<SourceLine> result = new ArrayList<SourceLine>(source.size());
          for (int i=0; i<source.size(); i++) {
             String line = (String) source.get(i);
+            // Only a line with ".include" in it needs tokenizing here.  Its lexical errors
+            // are recorded only if the line is replaced by the included file, since otherwise
+            // they are when the line is tokenized for the assembler.
+            if (!containsIgnoreCase(line, Directives.INCLUDE.getName())) {
+               result.add(new SourceLine(line, program, i+1));
+               continue;
+            }
+            ErrorList saveList = this.errors;
+            ErrorList lineErrors = new ErrorList();
+            this.errors = lineErrors;
             TokenList tl = tokenizeLine(program, i+1, line, false);
+            this.errors = saveList;
             boolean hasInclude = false;
             for (int ii=0; ii<tl.size(); ii++) {
                if (tl.get(ii).getValue().equalsIgnoreCase(Directives.INCLUDE.getName()) 
@@ -133,6 +157,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                       && tl.get(ii+1).getType() == TokenTypes.QUOTED_STRING) {
                   String filename = tl.get(ii+1).getValue();
                   filename = filename.substring(1, filename.length()-1); // get rid of quotes
+                  ArrayList lineMessages = lineErrors.getErrorMessages();
+                  for (int m=0; m<lineMessages.size(); m++) {
+                     errors.add((ErrorMessage) lineMessages.get(m));
+                  }
                   // Handle either absolute or relative pathname for .include file
                   if (!new File(filename).isAbsolute()) {
                      filename = new File(program.getFilename()).getParent()+File.separator+filename;
@@ -144,8 +172,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                         "Recursive include of file "+filename));
                      throw new ProcessingException(errors);
                   }
-                  inclFiles.put(filename, filename);
                   MIPSprogram incl = new MIPSprogram();
+                  inclFiles.put(filename, incl);
                   try {
                      incl.readSource(filename);
                   }
@@ -167,6 +195,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          return result;
       }
+   
+      // True if line contains target, ignoring case as String.equalsIgnoreCase() does.
+       private static boolean containsIgnoreCase(String line, String target) {
+         for (int i = 0; i <= line.length() - target.length(); i++) {
+            if (line.regionMatches(true, i, target, 0, target.length())) {
+               return true;
+            }
+         }
+         return false;
+      }
    	
    /**
     * Used only to create a token list for the example provided with each instruction
@@ -284,7 +322,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          char c;
          char[] line = theLine.toCharArray();
          int linePos = 0;
-         char[] token = new char[line.length];
+         if (tokenBuffer.length < line.length) {
+            tokenBuffer = new char[Math.max(line.length, 2*tokenBuffer.length)];
+         }
+         char[] token = tokenBuffer;
          int tokenPos = 0;
          int tokenStartPos = 1;
          boolean insideQuotedString = false;  
@@ -526,6 +567,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ErrorList getErrors() {
          return errors;
       }
+   
+   /**
+    * Fetch the MIPSprogram given to the tokens this Tokenizer makes.  Used by Macro.
+    */
+       MIPSprogram getProgram() {
+         return sourceMIPSprogram;
+      }
+   
+   /**
+    * Tell whether the symbol has been defined by a .eqv directive, so tokenizeLine()
+    * would substitute for it.  Used by Macro.
+    */
+       boolean isEquivalent(String symbol) {
+         return equivalents != null && equivalents.containsKey(symbol);
+      }
    	 
    
    // Given candidate token and its position, will classify and record it.
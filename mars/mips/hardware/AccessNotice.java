@@ -54,6 +54,19 @@ public abstract class AccessNotice {
 		accessType = type;
 		thread = Thread.currentThread();
 	}
+	
+	/** Constructor for a notice of an access made by the given thread, e.g. a copy
+	 *  delivered later on another thread.
+	 */
+	protected AccessNotice(int type, Thread thread) {
+	   this(type);
+		this.thread = thread;
+	}
+	// Lets Memory refill a notice for observers that do not retain it.  See NonRetainingObserver.
+	void setAccessType(int type) {
+	   accessType = type;
+	}
+	
 	/** Get the access type: READ or WRITE.  
 	 * @return Access type, either AccessNotice.READ or AccessNotice.WRITE
 	 */
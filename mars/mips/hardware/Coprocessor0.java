@@ -49,12 +49,43 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 		// bit 1 (exception level) not set, bit 0 (interrupt enable) set.
 		public static final int DEFAULT_STATUS_VALUE = 0x0000FF11;
 		
-      private static Register [] registers = 
-          { new Register("$8 (vaddr)", 8, 0),  
-            new Register("$12 (status)", 12, DEFAULT_STATUS_VALUE),
-         	new Register("$13 (cause)", 13, 0),  
-         	new Register("$14 (epc)", 14, 0)
-           };
+      // The registers of the State installed last (see mars.SimulationContext).
+      private static State installedState = new State();
+      private static Register [] registers = installedState.registers;
+   
+   	/**
+   	  *  The Coprocessor 0 registers of one simulation.  A new State holds registers
+   	  *  at their initial values; installing it with restoreState() makes the static
+   	  *  methods of this class operate on it.
+   	  **/
+   	
+       public static final class State {
+         private final Register [] registers = 
+             { new Register("$8 (vaddr)", 8, 0),  
+               new Register("$12 (status)", 12, DEFAULT_STATUS_VALUE),
+            	new Register("$13 (cause)", 13, 0),  
+            	new Register("$14 (epc)", 14, 0)
+              };
+      }
+   
+   	/**
+   	  *  Returns the registers the static methods of this class currently operate on.
+   	  *  @return the installed register state
+   	  **/
+   	
+       public static State saveState() {
+         return installedState;
+      }
+   
+   	/**
+   	  *  Makes the static methods of this class operate on the given registers.
+   	  *  @param state register state from saveState() or a new State
+   	  **/
+   	
+       public static void restoreState(State state) {
+         installedState = state;
+         registers = state.registers;
+      }
         												  
    	 
    	/**
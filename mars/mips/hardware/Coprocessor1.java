@@ -48,27 +48,61 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 // storing into registers, and reassembled upon retrieval.
 
     public  class Coprocessor1 {
-      private static Register [] registers = 
-          { new Register("$f0", 0, 0),  new Register("$f1", 1, 0),
-         	new Register("$f2", 2, 0),  new Register("$f3", 3, 0),
-         	new Register("$f4", 4, 0),  new Register("$f5", 5, 0),
-         	new Register("$f6", 6, 0),  new Register("$f7", 7, 0),
-         	new Register("$f8", 8, 0),  new Register("$f9", 9, 0),
-         	new Register("$f10", 10, 0),new Register("$f11", 11, 0), 
-         	new Register("$f12", 12, 0),new Register("$f13", 13, 0),
-         	new Register("$f14", 14, 0),new Register("$f15", 15, 0),
-         	new Register("$f16", 16, 0),new Register("$f17", 17, 0),
-         	new Register("$f18", 18, 0),new Register("$f19", 19, 0),
-         	new Register("$f20", 20, 0),new Register("$f21", 21, 0),
-         	new Register("$f22", 22, 0),new Register("$f23", 23, 0),
-         	new Register("$f24", 24, 0),new Register("$f25", 25, 0),
-         	new Register("$f26", 26, 0),new Register("$f27", 27, 0),
-         	new Register("$f28", 28, 0),new Register("$f29", 29, 0),
-         	new Register("$f30", 30, 0),new Register("$f31", 31, 0)
-           };
+      // The registers of the State installed last (see mars.SimulationContext).
+      private static State installedState = new State();
+      private static Register [] registers = installedState.registers;
    	// The 8 condition flags will be stored in bits 0-7 for flags 0-7.
-      private static Register condition = new Register("cf",32, 0);	 
+      private static Register condition = installedState.condition;
       private static int numConditionFlags = 8;
+   
+   	/**
+   	  *  The Coprocessor 1 registers and condition flags of one simulation.  A new State
+   	  *  holds them at their initial values; installing it with restoreState() makes the
+   	  *  static methods of this class operate on it.
+   	  **/
+   	
+       public static final class State {
+         private final Register [] registers = 
+             { new Register("$f0", 0, 0),  new Register("$f1", 1, 0),
+            	new Register("$f2", 2, 0),  new Register("$f3", 3, 0),
+            	new Register("$f4", 4, 0),  new Register("$f5", 5, 0),
+            	new Register("$f6", 6, 0),  new Register("$f7", 7, 0),
+            	new Register("$f8", 8, 0),  new Register("$f9", 9, 0),
+            	new Register("$f10", 10, 0),new Register("$f11", 11, 0), 
+            	new Register("$f12", 12, 0),new Register("$f13", 13, 0),
+            	new Register("$f14", 14, 0),new Register("$f15", 15, 0),
+            	new Register("$f16", 16, 0),new Register("$f17", 17, 0),
+            	new Register("$f18", 18, 0),new Register("$f19", 19, 0),
+            	new Register("$f20", 20, 0),new Register("$f21", 21, 0),
+            	new Register("$f22", 22, 0),new Register("$f23", 23, 0),
+            	new Register("$f24", 24, 0),new Register("$f25", 25, 0),
+            	new Register("$f26", 26, 0),new Register("$f27", 27, 0),
+            	new Register("$f28", 28, 0),new Register("$f29", 29, 0),
+            	new Register("$f30", 30, 0),new Register("$f31", 31, 0)
+              };
+      	// The 8 condition flags will be stored in bits 0-7 for flags 0-7.
+         private final Register condition = new Register("cf",32, 0);	 
+      }
+   
+   	/**
+   	  *  Returns the registers the static methods of this class currently operate on.
+   	  *  @return the installed register state
+   	  **/
+   	
+       public static State saveState() {
+         return installedState;
+      }
+   
+   	/**
+   	  *  Makes the static methods of this class operate on the given registers.
+   	  *  @param state register state from saveState() or a new State
+   	  **/
+   	
+       public static void restoreState(State state) {
+         installedState = state;
+         registers = state.registers;
+         condition = state.condition;
+      }
    	
    	/**
    	  *  Method for displaying the register values for debugging.
@@ -387,7 +421,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (rName.charAt(0) == '$' && rName.length() > 1 && rName.charAt(1) == 'f') {
             try {
                    // check for register number 0-31.
-               reg = registers[Binary.stringToInt(rName.substring(2))];    // KENV 1/6/05
+               if (Binary.mayBeSignedInteger(rName, 2)) {
+                  reg = registers[Binary.stringToInt(rName.substring(2))];    // KENV 1/6/05
+               }
             }
                 catch (Exception e) {
                    // handles both NumberFormat and ArrayIndexOutOfBounds
@@ -514,6 +550,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          condition.setValue(-1);  // sets all 32 bits to 1.
       }	
    	
+      /**
+   	 *  Set all condition flags (0-7) at once.  Does not record a backstep.
+   	 *
+   	 *  @param flags condition flag bits, as returned by getConditionFlags()
+   	 */
+       public static void setConditionFlags(int flags) {
+         condition.setValue(flags);
+      }	
+   	
       /**
    	 *  Get count of condition flags.
    	 *
@@ -4,6 +4,7 @@
    import mars.simulator.*;
    import mars.mips.instructions.*;
    import java.util.*;
+   import java.io.*;
 	
 	/*
 Copyright (c) 2003-2009,  Pete Sanderson and Kenneth Vollmar
@@ -90,6 +91,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static boolean byteOrder = LITTLE_ENDIAN;
    	
       public static int heapAddress;
+   	/** Name of the memory backend that stores all segments in the block tables described below (the default). */
+      public static final String TABLE_BACKEND = "Tables";
+   	/** Name of the memory backend that adds a page table over the block tables, giving aligned
+   	    loads and stores in whole data pages a direct path (see MemoryPageTable). */
+      public static final String PAGE_TABLE_BACKEND = "PageTable";
+   	/** Name of the memory backend that stores the data segment in direct buffers outside the
+   	    Java heap, spilling to a temporary file if those run out (see OffHeapStore).  The data
+   	    segment is then not limited to 4 MB but may extend up to the stack. */
+      public static final String OFF_HEAP_BACKEND = "OffHeap";
+   	/** Name of the memory backend that stores the data segment in a memory-mapped temporary
+   	    file (see OffHeapStore).  As for OFF_HEAP_BACKEND, the data segment may extend up to the stack. */
+      public static final String MAPPED_FILE_BACKEND = "MappedFile";
+   	/** Names of the available memory backends, selected by the MemoryBackend setting. */
+      public static final String[] BACKENDS = { TABLE_BACKEND, PAGE_TABLE_BACKEND, OFF_HEAP_BACKEND, MAPPED_FILE_BACKEND };
    
     // Memory will maintain a collection of observables.  Each one is associated
     // with a specific memory address or address range, and each will have at least
@@ -98,12 +113,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     // This assures that observers are not bombarded with notices from memory
     // addresses they do not care about.
     //
-    // Would like a tree-like implementation, but that is complicated by this fact:
-    // key for insertion into the tree would be based on Comparable using both low 
-    // and high end of address range, but retrieval from the tree has to be based
-    // on target address being ANYWHERE IN THE RANGE (not an exact key match).
+    // The observables are indexed by address: their ranges cut the address space into
+    // disjoint segments, each of which lists the observables covering all of it, so the
+    // observables for an address are found by binary search on the segment starts
+    // (see ObserverIndex).  The index is rebuilt, never modified, when observers come and
+    // go, so the memory access that looks it up needs no lock.
       
-      Collection observables = getNewMemoryObserversCollection();
+      private volatile ObserverIndex observerIndex = new ObserverIndex(new MemoryObservable[0]);
+    // Notice reused for observers that do not retain notices.  See notifyAnyObservers().
+      private MemoryAccessNotice pooledNotice = null;
    
     // The data segment is allocated in blocks of 1024 ints (4096 bytes).  Each block is
     // referenced by a "block table" entry, and the table has 1024 entries.  The capacity
@@ -163,6 +181,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
       private static final int MMIO_TABLE_LENGTH = 16; // Each entry of table points to a 4K block.
       private int[][] memoryMapBlockTable;
+   
+    // Page table over the block tables above, present only for the PageTable backend.
+      private MemoryPageTable pageTable;
+    // Data segment storage for the OffHeap and MappedFile backends, which use it
+    // instead of dataBlockTable.
+      private OffHeapStore dataStore;
+   
+    // Blocks shared with an Image (see captureImage() and restoreImage()) are copied
+    // before they are next written, so that the image is never changed.  Each block
+    // table has a parallel array of flags marking its shared blocks.
+      private boolean[] dataBlockShared;
+      private boolean[] kernelDataBlockShared;
+      private boolean[] stackBlockShared;
+      private boolean[] memoryMapBlockShared;
+      private int sharedBlockCount;
    	    
     // I use a similar scheme for storing instructions.  MIPS text segment ranges from
     // 0x00400000 all the way to data segment (0x10000000) a range of about 250 MB!  So
@@ -213,6 +246,57 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public static Memory getInstance() {
          return uniqueMemoryInstance;
       }
+
+     /**
+      * The memory of one simulation with its heap allocation pointer, and the statements
+      * decoded and blocks compiled from its text segment.  A new State holds empty memory.
+      * Creating one leaves the memory in use alone.  See mars.SimulationContext.
+   	*/
+       public static final class State {
+         private final Memory memory;
+         private int heapAddress;
+         private DecodedTextSegment.State decoded;
+         private BlockCompiler.State compiled;
+      
+          public State() {
+            int currentHeapAddress = Memory.heapAddress;
+            memory = new Memory();
+            heapAddress = Memory.heapAddress;
+            Memory.heapAddress = currentHeapAddress;
+            decoded = new DecodedTextSegment.State();
+            compiled = new BlockCompiler.State();
+         }
+      
+          private State(Memory memory, int heapAddress) {
+            this.memory = memory;
+            this.heapAddress = heapAddress;
+            decoded = DecodedTextSegment.saveState();
+            compiled = BlockCompiler.saveState();
+         }
+      }
+   
+     /**
+      * Returns the memory now in use, its heap allocation pointer and the statements
+      * decoded and blocks compiled from it.
+      * @return the current memory state
+   	*/
+       public static State saveState() {
+         return new State(uniqueMemoryInstance, heapAddress);
+      }
+   
+     /**
+      * Makes the memory in the given state the one returned by getInstance() and
+      * Globals.memory, and puts back its heap allocation pointer, decoded statements
+      * and compiled blocks.
+      * @param state memory state from saveState() or a new State
+   	*/
+       public static void restoreState(State state) {
+         uniqueMemoryInstance = state.memory;
+         heapAddress = state.heapAddress;
+         Globals.memory = state.memory;
+         DecodedTextSegment.restoreState(state.decoded);
+         BlockCompiler.restoreState(state.compiled);
+      }
    	
    	/**
    	 * Explicitly clear the contents of memory.  Typically done at start of assembly.
@@ -221,6 +305,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void clear() {
          setConfiguration();
          initialize(); 		
+         DecodedTextSegment.clear();
+         BlockCompiler.clear();
       }
    
      /**
@@ -263,6 +349,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          memoryMapLimitAddress   = Math.min(MemoryConfigurations.getCurrentConfiguration().getMemoryMapLimitAddress(),
                                       memoryMapBaseAddress + 
                                  	  BLOCK_LENGTH_WORDS * MMIO_TABLE_LENGTH * WORD_LENGTH_BYTES);
+         if (usingOffHeapBackend() && stackLimitAddress > dataSegmentLimitAddress) {
+            // Off-heap data segment is not limited to a block table: it may extend up to the stack.
+            dataSegmentLimitAddress = (int) Math.min(MemoryConfigurations.getCurrentConfiguration().getDataSegmentLimitAddress(),
+                                         Math.min(stackLimitAddress + 1L, dataSegmentBaseAddress + (long) Integer.MAX_VALUE));
+         }
       /*	System.out.println("dataSegmentLimitAddress "+Binary.intToHexString(dataSegmentLimitAddress));
       	System.out.println("textLimitAddress "+Binary.intToHexString(textLimitAddress));
       	System.out.println("kernelDataSegmentLimitAddress "+Binary.intToHexString(kernelDataSegmentLimitAddress));
@@ -273,6 +364,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+    // True if the MemoryBackend setting calls for an off-heap data segment.
+       private static boolean usingOffHeapBackend() {
+         return Globals.getSettings() != null 
+                && (OFF_HEAP_BACKEND.equals(Globals.getSettings().getMemoryBackend())
+                   || MAPPED_FILE_BACKEND.equals(Globals.getSettings().getMemoryBackend()));
+      }
+   
     /**
      *  Determine whether the current memory configuration has a maximum address that can be stored
      *  in 16 bits.  
@@ -292,9 +390,38 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          kernelDataBlockTable  = new int[BLOCK_TABLE_LENGTH][];      
          stackBlockTable = new int[BLOCK_TABLE_LENGTH][];
          memoryMapBlockTable = new int[MMIO_TABLE_LENGTH][];
+         dataBlockShared = new boolean[BLOCK_TABLE_LENGTH];
+         kernelDataBlockShared = new boolean[BLOCK_TABLE_LENGTH];
+         stackBlockShared = new boolean[BLOCK_TABLE_LENGTH];
+         memoryMapBlockShared = new boolean[MMIO_TABLE_LENGTH];
+         sharedBlockCount = 0;
+         pageTable = (Globals.getSettings() != null 
+                      && PAGE_TABLE_BACKEND.equals(Globals.getSettings().getMemoryBackend())) 
+                      ? createPageTable() : null;
+         if (dataStore != null) {
+            dataStore.close();
+         }
+         dataStore = (usingOffHeapBackend())
+                      ? new OffHeapStore(dataSegmentLimitAddress - dataSegmentBaseAddress, 
+                                         MAPPED_FILE_BACKEND.equals(Globals.getSettings().getMemoryBackend()), byteOrder) 
+                      : null;
          System.gc(); // call garbage collector on any Table memory just deallocated. 	  
       }  
      
+    // Page table mapping the data, stack, MMIO and kernel data blocks.  The text segments
+    // are listed only so that pages they share with another segment are left unmapped.
+       private MemoryPageTable createPageTable() {
+         MemoryPageTable table = new MemoryPageTable(this);
+         table.addSegment(dataSegmentBaseAddress, dataSegmentLimitAddress, dataBlockTable, dataBlockShared, dataSegmentBaseAddress, false);
+         table.addSegment(stackLimitAddress + 1L, stackBaseAddress + 1L, stackBlockTable, stackBlockShared, stackBaseAddress, true);
+         table.addSegment(textBaseAddress, textLimitAddress, null, null, 0, false);
+         table.addSegment(memoryMapBaseAddress, memoryMapLimitAddress, memoryMapBlockTable, memoryMapBlockShared, memoryMapBaseAddress, false);
+         table.addSegment(kernelDataBaseAddress, kernelDataSegmentLimitAddress, kernelDataBlockTable, kernelDataBlockShared, kernelDataBaseAddress, false);
+         table.addSegment(kernelTextBaseAddress, kernelTextLimitAddress, null, null, 0, false);
+         table.mapSegments();
+         return table;
+      }
+   
    	/**
    	 * Returns the next available word-aligned heap address.  There is no recycling and
    	 * no heap management!  There is however nearly 4MB of heap space available in Mars.
@@ -327,6 +454,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*/
        public void setByteOrder(boolean order) {
          byteOrder = order;
+         if (dataStore != null) {
+            dataStore.setByteOrder(order);
+         }
       }
    	
      /**
@@ -359,10 +489,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          int oldValue = 0;
          if (Globals.debug) System.out.println("memory["+address+"] set to "+value+"("+length+" bytes)");
          int relativeByteAddress;
-         if (inDataSegment(address)) {
+         MemoryPageTable.Page page = (pageTable == null) ? null : pageTable.getPage(address, length);
+         if (page != null) {
+           // PageTable backend, aligned access to a data page.  No range checks needed.
+            oldValue = page.store(address, value, length, byteOrder == LITTLE_ENDIAN);
+         }
+         else if (inDataSegment(address)) {
            // in data segment.  Will write one byte at a time, w/o regard to boundaries.
             relativeByteAddress = address - dataSegmentBaseAddress; // relative to data segment start, in bytes
-            oldValue = storeBytesInTable(dataBlockTable, relativeByteAddress, length, value);
+            oldValue = (dataStore != null) 
+                       ? dataStore.store(relativeByteAddress, value, length)
+                       : storeBytesInTable(dataBlockTable, relativeByteAddress, length, value);
          } 
          else if (address > stackLimitAddress && address <= stackBaseAddress) {
            // in stack.  Handle similarly to data segment write, except relative byte
@@ -429,10 +566,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("store address not aligned on word boundary ",
                Exceptions.ADDRESS_EXCEPTION_STORE, address);
          }
-         if (inDataSegment(address)) {
+         MemoryPageTable.Page page = (pageTable == null) ? null : pageTable.getPage(address, WORD_LENGTH_BYTES);
+         if (page != null) {
+           // PageTable backend, data page
+            oldValue = page.storeRaw(address, value);
+         }
+         else if (inDataSegment(address)) {
            // in data segment
             relative = (address - dataSegmentBaseAddress) >> 2; // convert byte address to words
-            oldValue = storeWordInTable(dataBlockTable, relative, value);
+            oldValue = (dataStore != null) 
+                       ? dataStore.storeRaw(address - dataSegmentBaseAddress, value)
+                       : storeWordInTable(dataBlockTable, relative, value);
          } 
          else if (address > stackLimitAddress && address <= stackBaseAddress) {
            // in stack.  Handle similarly to data segment write, except relative 
@@ -579,6 +723,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (Globals.debug) System.out.println("memory["+address+"] set to "+statement.getBinaryStatement());
          if (inTextSegment(address)) {
             storeProgramStatement(address, statement, textBaseAddress, textBlockTable);
+            DecodedTextSegment.invalidate(address);
+            BlockCompiler.clear();
          } 
          else {
             storeProgramStatement(address, statement, kernelTextBaseAddress, kernelTextBlockTable);
@@ -607,10 +753,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        private int get(int address, int length, boolean notify) throws AddressErrorException {
          int value = 0;
          int relativeByteAddress;
-         if (inDataSegment(address)) {
+         MemoryPageTable.Page page = (pageTable == null) ? null : pageTable.getPage(address, length);
+         if (page != null) {
+           // PageTable backend, aligned access to a data page.  No range checks needed.
+            value = page.load(address, length, byteOrder == LITTLE_ENDIAN);
+         }
+         else if (inDataSegment(address)) {
            // in data segment.  Will read one byte at a time, w/o regard to boundaries.
             relativeByteAddress = address - dataSegmentBaseAddress; // relative to data segment start, in bytes
-            value = fetchBytesFromTable(dataBlockTable, relativeByteAddress, length);
+            value = (dataStore != null) 
+                    ? dataStore.fetch(relativeByteAddress, length)
+                    : fetchBytesFromTable(dataBlockTable, relativeByteAddress, length);
          } 
          else if (address > stackLimitAddress && address <= stackBaseAddress) {
            // in stack. Similar to data, except relative address computed "backward"
@@ -680,10 +833,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("address for fetch not aligned on word boundary",
                Exceptions.ADDRESS_EXCEPTION_LOAD, address);
          }
-         if (inDataSegment(address)) {
+         MemoryPageTable.Page page = (pageTable == null) ? null : pageTable.getPage(address, WORD_LENGTH_BYTES);
+         if (page != null) {
+           // PageTable backend, data page
+            value = page.loadRaw(address);
+         }
+         else if (inDataSegment(address)) {
            // in data segment
             relative = (address - dataSegmentBaseAddress) >> 2; // convert byte address to words
-            value = fetchWordFromTable(dataBlockTable, relative);
+            value = (dataStore != null) 
+                    ? dataStore.fetchRaw(address - dataSegmentBaseAddress)
+                    : fetchWordFromTable(dataBlockTable, relative);
          } 
          else if (address > stackLimitAddress && address <= stackBaseAddress) {
            // in stack. Similar to data, except relative address computed "backward"
@@ -760,7 +920,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (inDataSegment(address)) {
               // in data segment
             relative = (address - dataSegmentBaseAddress) >> 2; // convert byte address to words
-            value = fetchWordOrNullFromTable(dataBlockTable, relative);
+            value = (dataStore != null) 
+                    ? dataStore.fetchRawOrNull(address - dataSegmentBaseAddress)
+                    : fetchWordOrNullFromTable(dataBlockTable, relative);
          } 
          else if (address > stackLimitAddress && address <= stackBaseAddress) {
               // in stack. Similar to data, except relative address computed "backward"
@@ -1118,33 +1280,44 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("end address of range < start address of range ",
                Exceptions.ADDRESS_EXCEPTION_LOAD, startAddr);
          }
-         observables.add(new MemoryObservable(obs, startAddr, endAddr));
+         synchronized (this) {
+            MemoryObservable[] observables = observerIndex.observables;
+            MemoryObservable[] newObservables = new MemoryObservable[observables.length + 1];
+            System.arraycopy(observables, 0, newObservables, 0, observables.length);
+            newObservables[observables.length] = new MemoryObservable(obs, startAddr, endAddr);
+            observerIndex = new ObserverIndex(newObservables);
+         }
       }
    
       /**
    	 *  Return number of observers
    	 */
        public int countObservers() {
-         return observables.size();
+         return observerIndex.observables.length;
       }
    
    	/**
    	 *  Remove specified memory observers
    	 *  @param obs  Observer to be removed
    	 */   		
-       public void deleteObserver(Observer obs) {
-         Iterator it = observables.iterator();
-         while (it.hasNext()) {
-            ((MemoryObservable)it.next()).deleteObserver(obs);
-         }	
+       public synchronized void deleteObserver(Observer obs) {
+         MemoryObservable[] observables = observerIndex.observables;
+         ArrayList remaining = new ArrayList();
+         for (int i = 0; i < observables.length; i++) {
+            observables[i].deleteObserver(obs);
+            if (observables[i].countObservers() > 0) {
+               remaining.add(observables[i]);
+            }
+         }
+         observerIndex = new ObserverIndex((MemoryObservable[]) remaining.toArray(new MemoryObservable[remaining.size()]));
       }
    	
    	/**
    	 *  Remove all memory observers
    	 */
-       public void deleteObservers() {
-         // just drop the collection
-         observables = getNewMemoryObserversCollection();
+       public synchronized void deleteObservers() {
+         // just drop the index
+         observerIndex = new ObserverIndex(new MemoryObservable[0]);
       }
    	
    	/**
@@ -1168,29 +1341,244 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    		
    		
-       private Collection getNewMemoryObserversCollection() {
-         return new Vector();  // Vectors are thread-safe
+   /********************************  IMAGES  ******************************/
+   
+   /**
+    * Capture the contents of memory: the allocated blocks of the data, stack, kernel data
+    * and memory-mapped I/O segments, the heap address and the byte order.  Capturing is
+    * cheap: the image shares its blocks with memory, and memory copies a shared block
+    * before it next writes to it.  The text segments are not captured, since they do not
+    * change as the program runs unless it modifies itself, but the image records a
+    * checksum of them.
+    * 
+    * @return Image of memory, to be put back by restoreImage()
+    */
+       public synchronized Image captureImage() {
+         Image image = new Image();
+         image.tables = new int[][][] {
+               (dataStore != null) ? dataStore.copyBlocks() : shareBlocks(dataBlockTable, dataBlockShared),
+               shareBlocks(stackBlockTable, stackBlockShared),
+               shareBlocks(kernelDataBlockTable, kernelDataBlockShared),
+               shareBlocks(memoryMapBlockTable, memoryMapBlockShared) };
+         image.heapAddress = heapAddress;
+         image.byteOrder = byteOrder;
+         image.segmentAddresses = getSegmentAddresses();
+         image.textChecksum = getTextChecksum();
+         return image;
       }
-   		
+   
+   /**
+    * Put back the contents of memory captured by captureImage(), possibly in an earlier run
+    * of MARS.  The same program must have been assembled, with the same memory configuration.
+    * The image's blocks are shared, not copied, so restoring is cheap and may be repeated;
+    * the image itself is never changed.  Observers are not notified.
+    * 
+    * @param image Image of memory, from captureImage() or Image.read()
+    * @throws IllegalArgumentException if the image was not captured with the same memory
+    * configuration and program, or does not fit in memory.  Memory is unchanged.
+    */
+       public synchronized void restoreImage(Image image) throws IllegalArgumentException {
+         if (!Arrays.equals(image.segmentAddresses, getSegmentAddresses())) {
+            throw new IllegalArgumentException("memory image was captured with a different memory configuration");
+         }
+         int[][][] tables = getImageTables();
+         if (image.tables.length != tables.length) {
+            throw new IllegalArgumentException("memory image does not match current memory segments");
+         }
+         if (image.textChecksum != getTextChecksum()) {
+            throw new IllegalArgumentException("memory image was captured of a different program");
+         }
+         for (int i = 0; i < tables.length; i++) {
+            int capacity = (i == 0 && dataStore != null) ? dataStore.getBlockCount() : tables[i].length;
+            for (int block = capacity; block < image.tables[i].length; block++) {
+               if (image.tables[i][block] != null) {
+                  throw new IllegalArgumentException("memory image does not fit in current memory segments");
+               }
+            }
+         }
+         boolean[][] sharedFlags = { dataBlockShared, stackBlockShared, kernelDataBlockShared, memoryMapBlockShared };
+         for (int i = 0; i < tables.length; i++) {
+            if (i == 0 && dataStore != null) {
+               dataStore.restoreBlocks(image.tables[0]);
+               continue;
+            }
+            for (int block = 0; block < tables[i].length; block++) {
+               int[] words = (block < image.tables[i].length) ? image.tables[i][block] : null;
+               tables[i][block] = words;
+               if (sharedFlags[i][block] != (words != null)) {
+                  sharedFlags[i][block] = (words != null);
+                  sharedBlockCount += (words != null) ? 1 : -1;
+               }
+            }
+         }
+         heapAddress = image.heapAddress;
+         setByteOrder(image.byteOrder);
+      }
+   
+    // Block tables in the order they are kept in an Image.
+       private int[][][] getImageTables() {
+         return new int[][][] { dataBlockTable, stackBlockTable, kernelDataBlockTable, memoryMapBlockTable };
+      }
+   
+    // Copy of a block table whose blocks are now shared with it.
+       private int[][] shareBlocks(int[][] blockTable, boolean[] shared) {
+         int[][] blocks = new int[blockTable.length][];
+         for (int block = 0; block < blockTable.length; block++) {
+            if (blockTable[block] != null) {
+               blocks[block] = blockTable[block];
+               if (!shared[block]) {
+                  shared[block] = true;
+                  sharedBlockCount++;
+               }
+            }
+         }
+         return blocks;
+      }
+   
+       private static int[] getSegmentAddresses() {
+         return new int[] { textBaseAddress, dataSegmentBaseAddress, stackBaseAddress,
+                            kernelTextBaseAddress, kernelDataBaseAddress, memoryMapBaseAddress };
+      }
+   
+    // Checksum of the addresses and binary code of the statements in the text segments.
+       private int getTextChecksum() {
+         int checksum = 0;
+         ProgramStatement[][][] tables = { textBlockTable, kernelTextBlockTable };
+         for (int i = 0; i < tables.length; i++) {
+            for (int block = 0; block < tables[i].length; block++) {
+               if (tables[i][block] != null) {
+                  for (int offset = 0; offset < tables[i][block].length; offset++) {
+                     if (tables[i][block][offset] != null) {
+                        checksum = 31 * (31 * checksum + block * BLOCK_LENGTH_WORDS + offset)
+                                   + tables[i][block][offset].getBinaryStatement();
+                     }
+                  }
+               }
+            }
+         }
+         return checksum;
+      }
+   
+   /**
+    * Contents of memory captured by Memory.captureImage().  Its blocks must not be changed.
+    */
+       public static final class Image {
+         private int[][][] tables; // data, stack, kernel data and MMIO blocks, null if not allocated
+         private int heapAddress;
+         private boolean byteOrder;
+         private int[] segmentAddresses;
+         private int textChecksum;
+      
+          private Image() {
+         }
+      
+      /**
+       * Write the image in binary: only the allocated blocks of each segment are written.
+       * @param out stream to write to
+       * @throws IOException if the stream cannot be written
+       */
+          public void write(DataOutputStream out) throws IOException {
+            out.writeInt(segmentAddresses.length);
+            for (int i = 0; i < segmentAddresses.length; i++) {
+               out.writeInt(segmentAddresses[i]);
+            }
+            out.writeInt(textChecksum);
+            out.writeInt(heapAddress);
+            out.writeBoolean(byteOrder);
+            out.writeInt(tables.length);
+            for (int i = 0; i < tables.length; i++) {
+               int allocated = 0;
+               for (int block = 0; block < tables[i].length; block++) {
+                  if (tables[i][block] != null) {
+                     allocated++;
+                  }
+               }
+               out.writeInt(tables[i].length);
+               out.writeInt(allocated);
+               for (int block = 0; block < tables[i].length; block++) {
+                  if (tables[i][block] != null) {
+                     out.writeInt(block);
+                     for (int offset = 0; offset < BLOCK_LENGTH_WORDS; offset++) {
+                        out.writeInt(tables[i][block][offset]);
+                     }
+                  }
+               }
+            }
+         }
+      
+      /**
+       * Read an image written by write().
+       * @param in stream to read from
+       * @return the image
+       * @throws IOException if the stream cannot be read or does not hold an image
+       */
+          public static Image read(DataInputStream in) throws IOException {
+            Image image = new Image();
+            image.segmentAddresses = new int[in.readInt()];
+            for (int i = 0; i < image.segmentAddresses.length; i++) {
+               image.segmentAddresses[i] = in.readInt();
+            }
+            image.textChecksum = in.readInt();
+            image.heapAddress = in.readInt();
+            image.byteOrder = in.readBoolean();
+            image.tables = new int[in.readInt()][][];
+            for (int i = 0; i < image.tables.length; i++) {
+               image.tables[i] = new int[in.readInt()][];
+               int allocated = in.readInt();
+               for (int count = 0; count < allocated; count++) {
+                  int block = in.readInt();
+                  if (block < 0 || block >= image.tables[i].length) {
+                     throw new IOException("invalid memory block number " + block);
+                  }
+                  image.tables[i][block] = new int[BLOCK_LENGTH_WORDS];
+                  for (int offset = 0; offset < BLOCK_LENGTH_WORDS; offset++) {
+                     image.tables[i][block][offset] = in.readInt();
+                  }
+               }
+            }
+            return image;
+         }
+      }
+   
        /////////////////////////////////////////////////////////////////////////
        // Private class whose objects will represent an observable-observer pair 
    	 // for a given memory address or range.
        private class MemoryObservable extends Observable implements Comparable {
          private int lowAddress, highAddress; 
+         private boolean nonRetaining; // observer does not keep notices; see NonRetainingObserver
+         private volatile Observer observer; // the one observer, until it is deleted
       	
           public MemoryObservable(Observer obs, int startAddr, int endAddr) {
             lowAddress = startAddr;
             highAddress = endAddr;
+            nonRetaining = obs instanceof NonRetainingObserver;
+            observer = obs;
             this.addObserver(obs);
          }
+      
+          public void deleteObserver(Observer obs) {
+            super.deleteObserver(obs);
+            if (obs == observer) {
+               observer = null;
+            }
+         }
+      
+          public void deleteObservers() {
+            super.deleteObservers();
+            observer = null;
+         }
       	
           public boolean match(int address) {
             return (address >= lowAddress && address <= highAddress-1+WORD_LENGTH_BYTES);
          }
       	
+         // Calls the observer directly: Observable.notifyObservers() would copy the
+      	// observer list for every notice.
           public void notifyObserver(MemoryAccessNotice notice) {
-            this.setChanged();
-            this.notifyObservers(notice);
+            Observer obs = observer;
+            if (obs != null) {
+               obs.update(this, notice);
+            }
          }
          
       	// Useful to have for future refactoring, if it actually becomes worthwhile to sort
@@ -1209,6 +1597,51 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             return 0;  // they have to be equal at this point.
          }
       }
+   
+       /////////////////////////////////////////////////////////////////////////
+       // Immutable index of the memory observables by address.  The low end of each
+   	 // range and the address just past its high end are segment boundaries; each
+   	 // segment lists, in registration order, the observables whose range covers it.
+   	 // Boundaries are longs because the address past 0x7ffffffc+3 does not fit in an int.
+       private class ObserverIndex {
+         private final MemoryObservable[] observables; // all of them, in registration order
+         private final long[] segmentStarts;           // ascending
+         private final MemoryObservable[][] segments;  // observables covering each segment
+         private final boolean[] segmentNonRetaining;  // true if all of them are non-retaining
+         private final MemoryObservable[] none = new MemoryObservable[0];
+      	
+          public ObserverIndex(MemoryObservable[] observables) {
+            this.observables = observables;
+            TreeSet boundaries = new TreeSet();
+            for (int i = 0; i < observables.length; i++) {
+               boundaries.add(Long.valueOf(observables[i].lowAddress));
+               boundaries.add(Long.valueOf((long) observables[i].highAddress + WORD_LENGTH_BYTES));
+            }
+            segmentStarts = new long[boundaries.size()];
+            segments = new MemoryObservable[segmentStarts.length][];
+            segmentNonRetaining = new boolean[segmentStarts.length];
+            Iterator it = boundaries.iterator();
+            for (int k = 0; k < segmentStarts.length; k++) {
+               segmentStarts[k] = ((Long) it.next()).longValue();
+               ArrayList covering = new ArrayList();
+               boolean nonRetaining = true;
+               for (int i = 0; i < observables.length; i++) {
+                  if (segmentStarts[k] <= Integer.MAX_VALUE && observables[i].match((int) segmentStarts[k])) {
+                     covering.add(observables[i]);
+                     nonRetaining &= observables[i].nonRetaining;
+                  }
+               }
+               segments[k] = (MemoryObservable[]) covering.toArray(none);
+               segmentNonRetaining[k] = nonRetaining;
+            }
+         }
+      	
+         // Index of the segment containing address, or -1 if it is below all of them.
+          public int findSegment(int address) {
+            int k = Arrays.binarySearch(segmentStarts, address);
+            return (k >= 0) ? k : -k - 2;
+         }
+      }
       
    
    /*********************************  THE HELPERS  *************************************/
@@ -1220,15 +1653,38 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    //
    // The "|| Globals.getGui()==null" is a hack added 19 July 2012 DPS.  IF MIPS simulation
    // is from command mode, Globals.program is null but still want ability to observe.
+   //
+   // All observables for the address get the same notice.  If they are all non-retaining,
+   // that is the pooled notice, provided it belongs to this thread (notices record the
+   // thread that made the access) and is not already being dispatched further up the
+   // stack (an observer whose update accesses memory).
        private void notifyAnyObservers(int type, int address, int length, int value) {
-         if ((Globals.program != null || Globals.getGui()==null) && this.observables.size() > 0) {
-            Iterator it = this.observables.iterator();
-            MemoryObservable mo;
-            while (it.hasNext()) {
-               mo = (MemoryObservable)it.next();
-               if (mo.match(address)) {
-                  mo.notifyObserver(new MemoryAccessNotice(type, address, length, value));
+         ObserverIndex index = this.observerIndex;
+         if (index.observables.length > 0 && (Globals.program != null || Globals.getGui()==null)) {
+            int k = index.findSegment(address);
+            if (k < 0 || index.segments[k].length == 0) {
+               return;
+            }
+            MemoryObservable[] matches = index.segments[k];
+            MemoryAccessNotice notice = pooledNotice;
+            if (!index.segmentNonRetaining[k]) {
+               notice = new MemoryAccessNotice(type, address, length, value);
+            } 
+            else if (notice == null || notice.inUse || notice.getThread() != Thread.currentThread()) {
+               notice = new MemoryAccessNotice(type, address, length, value);
+               pooledNotice = notice;
+            } 
+            else {
+               notice.set(type, address, length, value);
+            }
+            notice.inUse = true;
+            try {
+               for (int i = 0; i < matches.length; i++) {
+                  matches[i].notifyObserver(notice);
                }
+            } 
+            finally {
+               notice.inUse = false;
             }
          } 		
       }
@@ -1292,12 +1748,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             relativeWordAddress = relativeByteAddress >> 2;
             block = relativeWordAddress / BLOCK_LENGTH_WORDS;  // Block number
             offset = relativeWordAddress % BLOCK_LENGTH_WORDS; // Word within that block
-            if (blockTable[block] == null) {
-               if (op==STORE) 
-                  blockTable[block] = new int[BLOCK_LENGTH_WORDS];
-               else 
-                  return 0;
-            }
+            if (op == STORE) 
+               getWritableBlock(blockTable, block);
+            else if (blockTable[block] == null) 
+               return 0;
             if (byteOrder == LITTLE_ENDIAN) bytePositionInMemory = 3 - bytePositionInMemory;
             if (op == STORE) {
                oldValue = replaceByte(blockTable[block][offset], bytePositionInMemory,
@@ -1326,13 +1780,45 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          int  block, offset, oldValue;
          block = relative / BLOCK_LENGTH_WORDS;
          offset = relative % BLOCK_LENGTH_WORDS; 
-         if (blockTable[block] == null) {
+         int[] words = getWritableBlock(blockTable, block);
+         oldValue = words[offset];
+         words[offset] = value;
+         return oldValue;
+      }
+   
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method to get a block of a block table that is about to be written.
+   // Allocates the block the first time it is written, and copies it the first time
+   // it is written after being shared with an Image.  Also used by MemoryPageTable.
+   
+       synchronized int[] getWritableBlock(int[][] blockTable, int block) {
+         int[] words = blockTable[block];
+         if (words == null) {
                // First time writing to this block, so allocate the space.
-            blockTable[block] = new int[BLOCK_LENGTH_WORDS];
+            words = new int[BLOCK_LENGTH_WORDS];
+            blockTable[block] = words;
+         } 
+         else if (sharedBlockCount > 0) {
+            boolean[] shared = getSharedFlags(blockTable);
+            if (shared[block]) {
+               words = words.clone();
+               blockTable[block] = words;
+               shared[block] = false;
+               sharedBlockCount--;
+            }
          }
-         oldValue = blockTable[block][offset];
-         blockTable[block][offset] = value;
-         return oldValue;
+         return words;
+      }
+   
+       private boolean[] getSharedFlags(int[][] blockTable) {
+         if (blockTable == dataBlockTable) 
+            return dataBlockShared;
+         if (blockTable == stackBlockTable) 
+            return stackBlockShared;
+         if (blockTable == kernelDataBlockTable) 
+            return kernelDataBlockShared;
+         return memoryMapBlockShared;
       }
       
    ////////////////////////////////////////////////////////////////////////////////
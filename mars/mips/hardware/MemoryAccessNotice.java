@@ -40,6 +40,7 @@ public class MemoryAccessNotice extends AccessNotice {
    private int address;
 	private int length;
 	private int value;
+	boolean inUse; // true while Memory is dispatching a reused notice; see Memory.notifyAnyObservers
 
   /** Constructor will be called only within this package, so assume
    *  address and length are in valid ranges.
@@ -59,6 +60,24 @@ public class MemoryAccessNotice extends AccessNotice {
 	  this.length = Memory.WORD_LENGTH_BYTES;
 	  this.value = value;
   }
+  /** Constructor for a notice of an access made by the given thread.  Used to deliver
+   *  a copy of a notice later, on another thread.
+	*/
+ public  MemoryAccessNotice(int type, int address, int length, int value, Thread thread) {
+     super(type, thread);
+	  this.address = address;
+	  this.length = length;
+	  this.value = value;
+  }
+  /** Refill this notice for another access.  Used only by Memory, and only for
+   *  observers that do not retain notices (see NonRetainingObserver).
+	*/
+   void set(int type, int address, int length, int value) {
+     setAccessType(type);
+	  this.address = address;
+	  this.length = length;
+	  this.value = value;
+  }
   /** Fetch the memory address that was accessed. */
   public int getAddress() {
      return address;
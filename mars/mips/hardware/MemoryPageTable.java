@@ -0,0 +1,216 @@
+   package mars.mips.hardware;
+   import java.util.*;
+
+/**
+ * Page table over the whole 32-bit address space, used by the "PageTable" memory
+ * backend (see Memory.PAGE_TABLE_BACKEND).  The table has two levels of 1024 entries
+ * indexed by the upper 20 bits of the address, and each entry describes one 4 KB page.
+ * <p>
+ * A page is mapped only if it lies entirely within the data, stack, memory-mapped I/O
+ * or kernel data segment and shares no byte with any other segment.  It then refers
+ * to the block of Memory's block table that holds it, so an aligned byte, halfword or
+ * word access to it can go straight to the block, with no segment range checks and no
+ * lock (unless the block must first be allocated, or copied because it is shared with
+ * a Memory.Image).  Every other access, including every access to an unmapped page, is
+ * left to Memory's segment checks; those detect text segment and out of range
+ * addresses exactly as before.  Because the blocks are shared with the block tables, both paths
+ * see the same memory contents.
+ *
+ * @version October 2026
+ **/
+
+    class MemoryPageTable {
+
+      private static final int PAGE_BYTES = 4096;
+      private static final int ENTRIES = 1024;
+      private static final int WORDS_PER_PAGE = 1024;
+
+      private Page[][] directory = new Page[ENTRIES][];
+      private ArrayList segments = new ArrayList();
+      private Memory memory;
+
+   	/**
+   	 * @param memory the Memory whose block tables are mapped
+   	 */
+       MemoryPageTable(Memory memory) {
+         this.memory = memory;
+      }
+
+   	/**
+   	 * Describe a segment of the address space.  Must be called for every segment, including
+   	 * those that are not to be mapped, before mapSegments().
+   	 * @param first lowest address in the segment
+   	 * @param end address following the highest address in the segment
+   	 * @param blockTable block table holding the segment, null if it is not to be mapped
+   	 * @param shared flags marking the block table's blocks that are shared with an image
+   	 * @param origin address at relative offset 0 in the block table
+   	 * @param descending true if the block table is filled from the origin downward, as the stack is
+   	 */
+       void addSegment(long first, long end, int[][] blockTable, boolean[] shared, int origin, boolean descending) {
+         segments.add(new Segment(first, end, blockTable, shared, origin, descending));
+      }
+
+   	/**
+   	 * Map the pages of the segments added so far that can be mapped.  A segment whose
+   	 * blocks do not line up with pages is not mapped at all.
+   	 */
+       void mapSegments() {
+         for (int i = 0; i < segments.size(); i++) {
+            Segment segment = (Segment) segments.get(i);
+            if (segment.blockTable == null
+                   || (segment.origin & (PAGE_BYTES - 1)) != ((segment.descending) ? PAGE_BYTES - 4 : 0)) {
+               continue;
+            }
+            long page = (segment.first + PAGE_BYTES - 1) & ~(long) (PAGE_BYTES - 1);
+            for (; page + PAGE_BYTES <= segment.end; page += PAGE_BYTES) {
+               if (!overlapsOtherSegment(page, segment)) {
+                  int block = (segment.descending)
+                     ? (int) ((segment.origin - (page + PAGE_BYTES - 4)) / PAGE_BYTES)
+                     : (int) ((page - segment.origin) / PAGE_BYTES);
+                  if (block >= 0 && block < segment.blockTable.length) {
+                     setPage((int) page, new Page(segment.blockTable, segment.shared, block,
+                                   (segment.descending) ? WORDS_PER_PAGE - 1 : 0, memory));
+                  }
+               }
+            }
+         }
+      }
+
+       private boolean overlapsOtherSegment(long page, Segment segment) {
+         for (int i = 0; i < segments.size(); i++) {
+            Segment other = (Segment) segments.get(i);
+            if (other != segment && other.first < page + PAGE_BYTES && page < other.end) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+       private void setPage(int address, Page page) {
+         Page[] pages = directory[address >>> 22];
+         if (pages == null) {
+            pages = new Page[ENTRIES];
+            directory[address >>> 22] = pages;
+         }
+         pages[(address >>> 12) & (ENTRIES - 1)] = page;
+      }
+
+   	/**
+   	 * Find the page for an access, if it can be made directly.
+   	 * @param address address of the access
+   	 * @param length number of bytes accessed
+   	 * @return the mapped page holding the address, or null if the access is not to a
+   	 * mapped page or is not an aligned access of 1, 2 or 4 bytes.
+   	 */
+       Page getPage(int address, int length) {
+         if (length > 4 || ((length & (length - 1)) | (address & (length - 1))) != 0) {
+            return null;
+         }
+         Page[] pages = directory[address >>> 22];
+         return (pages == null) ? null : pages[(address >>> 12) & (ENTRIES - 1)];
+      }
+
+   	/////////////////////////////////////////////////////////////////////////
+   	// One mapped page: a block of a block table.  Words are stored in the block
+   	// just as the block table code stores them, so values, byte order and the
+   	// placement of stack words (whose block is filled from the top of the page
+   	// downward) all agree with it.  The block is looked up in the block table on
+   	// every access, since Memory may replace it.
+
+       static final class Page {
+         private int[][] blockTable;
+         private boolean[] shared;
+         private int block;
+         private int flip; // XORed with word offset in page to give offset in block
+         private Memory memory;
+
+          private Page(int[][] blockTable, boolean[] shared, int block, int flip, Memory memory) {
+            this.blockTable = blockTable;
+            this.shared = shared;
+            this.block = block;
+            this.flip = flip;
+            this.memory = memory;
+         }
+
+      	/**
+      	 * Read an aligned value of 1, 2 or 4 bytes, as Memory.get() does.
+      	 */
+          int load(int address, int length, boolean littleEndian) {
+            int[] block = blockTable[this.block];
+            return (block == null) ? 0 : extract(block[index(address)], address, length, littleEndian);
+         }
+
+      	/**
+      	 * Write an aligned value of 1, 2 or 4 bytes, as Memory.set() does.
+      	 * @return the value replaced
+      	 */
+          int store(int address, int value, int length, boolean littleEndian) {
+            int[] block = getWritableWords();
+            int index = index(address);
+            int word = block[index];
+            int shift = shift(address, length, littleEndian);
+            int mask = -1 >>> (32 - (length << 3));
+            int lane = (littleEndian) ? value : Integer.reverseBytes(value) >>> (32 - (length << 3));
+            block[index] = (word & ~(mask << shift)) | ((lane & mask) << shift);
+            return extract(word, address, length, littleEndian);
+         }
+
+      	/**
+      	 * Read an aligned word as stored, as Memory.getRawWord() does.
+      	 */
+          int loadRaw(int address) {
+            int[] block = blockTable[this.block];
+            return (block == null) ? 0 : block[index(address)];
+         }
+
+      	/**
+      	 * Write an aligned word as is, as Memory.setRawWord() does.
+      	 * @return the word replaced
+      	 */
+          int storeRaw(int address, int value) {
+            int[] block = getWritableWords();
+            int index = index(address);
+            int oldValue = block[index];
+            block[index] = value;
+            return oldValue;
+         }
+
+          private int index(int address) {
+            return ((address >>> 2) & (WORDS_PER_PAGE - 1)) ^ flip;
+         }
+
+         // Bit position in the stored word of the value's bytes.  The byte at the lowest
+         // address holds the value's low order byte; it is the word's low order byte for
+         // little-endian and its high order byte for big-endian.
+          private static int shift(int address, int length, boolean littleEndian) {
+            return ((littleEndian) ? address & 3 : 4 - length - (address & 3)) << 3;
+         }
+
+          private static int extract(int word, int address, int length, boolean littleEndian) {
+            int lane = (word >>> shift(address, length, littleEndian)) & (-1 >>> (32 - (length << 3)));
+            return (littleEndian) ? lane : Integer.reverseBytes(lane) >>> (32 - (length << 3));
+         }
+
+          private int[] getWritableWords() {
+            int[] words = blockTable[block];
+            return (words == null || shared[block]) ? memory.getWritableBlock(blockTable, block) : words;
+         }
+      }
+
+       private static final class Segment {
+         private long first, end;
+         private int[][] blockTable;
+         private boolean[] shared;
+         private int origin;
+         private boolean descending;
+
+          Segment(long first, long end, int[][] blockTable, boolean[] shared, int origin, boolean descending) {
+            this.first = first;
+            this.end = end;
+            this.blockTable = blockTable;
+            this.shared = shared;
+            this.origin = origin;
+            this.descending = descending;
+         }
+      }
+   }
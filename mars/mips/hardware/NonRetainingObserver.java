@@ -0,0 +1,16 @@
+package mars.mips.hardware;
+import java.util.*;
+
+/**
+ * Marker for Observers of MIPS memory that use the AccessNotice they are given only
+ * during the call to update(), and keep no reference to it afterwards.  Memory can then
+ * hand such observers one notice object that it refills for every access instead of
+ * allocating a new one each time.  Do not implement this if the notice may be stored
+ * or passed to another thread (e.g. queued for later display).
+ *
+ * @see Memory#addObserver(Observer, int, int)
+ * @version October 2026
+ */
+
+public interface NonRetainingObserver extends Observer {
+}
@@ -0,0 +1,265 @@
+   package mars.mips.hardware;
+   import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.*;
+
+/**
+ * Storage for one memory segment outside the Java heap, used for the data segment
+ * (static data and heap) by the "OffHeap" and "MappedFile" memory backends (see
+ * Memory.OFF_HEAP_BACKEND and Memory.MAPPED_FILE_BACKEND).  Because it does not
+ * occupy the Java heap and is not limited to the 4 MB of a block table, the data
+ * segment can extend up to the stack limit.
+ * <p>
+ * The segment is stored in chunks of 1 MB, each allocated the first time it is written.
+ * For OffHeap a chunk is a direct ByteBuffer, unless direct buffer memory has run out, in
+ * which case it spills over to the temporary file.  For MappedFile every chunk is a
+ * region of a temporary file mapped into memory, so that the operating system pages it
+ * in and out as it sees fit.  The file is sparse: only written regions occupy disk space.
+ * <p>
+ * The bytes of the segment are stored in address order, and the buffers' ByteOrder is
+ * kept the same as Memory's byte order, so a word is read or written "raw"
+ * (getRawWord/setRawWord) with a single getInt/putInt.  As with the block tables, a
+ * value of 1, 2 or 4 bytes is stored with its low order byte at the lowest address.
+ *
+ * @version October 2026
+ **/
+
+    class OffHeapStore {
+
+      private static final int CHUNK_BITS = 20; // 1 MB chunks
+      private static final int CHUNK_BYTES = 1 << CHUNK_BITS;
+      private static final int BLOCK_BITS = 12; // 4 KB blocks, as in the block tables
+      private static final int BLOCK_WORDS = 1 << (BLOCK_BITS - 2);
+
+      private ByteBuffer[] chunks;
+      private boolean[] writtenBlocks; // blocks that have been written, see fetchRawOrNull()
+      private boolean mapped;
+      private ByteOrder order;
+      private File file;
+      private RandomAccessFile fileAccess;
+
+   	/**
+   	 * @param capacity size of the segment in bytes
+   	 * @param mapped true to store every chunk in the temporary file, false to use direct buffers
+   	 * @param byteOrder Memory.LITTLE_ENDIAN or Memory.BIG_ENDIAN
+   	 */
+       OffHeapStore(int capacity, boolean mapped, boolean byteOrder) {
+         long size = (long) capacity + 3; // an access starting at the last byte may run past the end
+         chunks = new ByteBuffer[(int) ((size + CHUNK_BYTES - 1) >> CHUNK_BITS)];
+         writtenBlocks = new boolean[(int) ((size + (1 << BLOCK_BITS) - 1) >> BLOCK_BITS)];
+         this.mapped = mapped;
+         setByteOrder(byteOrder);
+      }
+
+   	/**
+   	 * Follow a change to Memory's byte order.
+   	 * @param byteOrder Memory.LITTLE_ENDIAN or Memory.BIG_ENDIAN
+   	 */
+       void setByteOrder(boolean byteOrder) {
+         order = (byteOrder == Memory.LITTLE_ENDIAN) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+         for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null) {
+               chunks[i].order(order);
+            }
+         }
+      }
+
+   	/**
+   	 * Write a value of 1 to 4 bytes, low order byte at the lowest offset.
+   	 * @return the value replaced
+   	 */
+       int store(int offset, int value, int length) {
+         ByteBuffer chunk = getChunk(offset, true);
+         int position = offset & (CHUNK_BYTES - 1);
+         writtenBlocks[offset >>> BLOCK_BITS] = true;
+         if (position + length > CHUNK_BYTES || length == 3) {
+            int oldValue = 0;
+            for (int i = 0; i < length; i++) {
+               oldValue |= (store(offset + i, value >>> (i << 3), 1) & 0xFF) << (i << 3);
+            }
+            return oldValue;
+         }
+         boolean swap = (order == ByteOrder.BIG_ENDIAN);
+         int oldValue;
+         switch (length) {
+            case 1:
+               oldValue = chunk.get(position) & 0xFF;
+               chunk.put(position, (byte) value);
+               return oldValue;
+            case 2:
+               oldValue = chunk.getShort(position);
+               chunk.putShort(position, (swap) ? Short.reverseBytes((short) value) : (short) value);
+               return ((swap) ? Short.reverseBytes((short) oldValue) : oldValue) & 0xFFFF;
+            default:
+               oldValue = chunk.getInt(position);
+               chunk.putInt(position, (swap) ? Integer.reverseBytes(value) : value);
+               return (swap) ? Integer.reverseBytes(oldValue) : oldValue;
+         }
+      }
+
+   	/**
+   	 * Read a value of 1 to 4 bytes, low order byte at the lowest offset.
+   	 */
+       int fetch(int offset, int length) {
+         ByteBuffer chunk = getChunk(offset, false);
+         int position = offset & (CHUNK_BYTES - 1);
+         if (position + length > CHUNK_BYTES || length == 3) {
+            int value = 0;
+            for (int i = 0; i < length; i++) {
+               value |= fetch(offset + i, 1) << (i << 3);
+            }
+            return value;
+         }
+         if (chunk == null) {
+            return 0;
+         }
+         boolean swap = (order == ByteOrder.BIG_ENDIAN);
+         switch (length) {
+            case 1:
+               return chunk.get(position) & 0xFF;
+            case 2:
+               short half = chunk.getShort(position);
+               return ((swap) ? Short.reverseBytes(half) : half) & 0xFFFF;
+            default:
+               int word = chunk.getInt(position);
+               return (swap) ? Integer.reverseBytes(word) : word;
+         }
+      }
+
+   	/**
+   	 * Write a word as is.  Offset must be word aligned.
+   	 * @return the word replaced
+   	 */
+       int storeRaw(int offset, int value) {
+         ByteBuffer chunk = getChunk(offset, true);
+         int position = offset & (CHUNK_BYTES - 1);
+         writtenBlocks[offset >>> BLOCK_BITS] = true;
+         int oldValue = chunk.getInt(position);
+         chunk.putInt(position, value);
+         return oldValue;
+      }
+
+   	/**
+   	 * Read a word as stored.  Offset must be word aligned.
+   	 */
+       int fetchRaw(int offset) {
+         ByteBuffer chunk = getChunk(offset, false);
+         return (chunk == null) ? 0 : chunk.getInt(offset & (CHUNK_BYTES - 1));
+      }
+
+   	/**
+   	 * Read a word as stored, or return null if nothing has been written to its 4 KB block,
+   	 * just as for a block table block that has not been allocated.
+   	 */
+       Integer fetchRawOrNull(int offset) {
+         return (writtenBlocks[offset >>> BLOCK_BITS]) ? Integer.valueOf(fetchRaw(offset)) : null;
+      }
+
+   	/**
+   	 * @return number of 4 KB blocks in the store
+   	 */
+       int getBlockCount() {
+         return writtenBlocks.length;
+      }
+
+   	/**
+   	 * Copy the blocks that have been written, for a Memory.Image.
+   	 * @return raw words of each 4 KB block, null for blocks never written
+   	 */
+       int[][] copyBlocks() {
+         int[][] blocks = new int[writtenBlocks.length][];
+         for (int block = 0; block < blocks.length; block++) {
+            if (writtenBlocks[block]) {
+               blocks[block] = new int[BLOCK_WORDS];
+               getBlockView(block).get(blocks[block]);
+            }
+         }
+         return blocks;
+      }
+
+   	/**
+   	 * Replace the contents of the store with blocks from copyBlocks().  Blocks that are
+   	 * null or beyond the end of the array are cleared.
+   	 */
+       void restoreBlocks(int[][] blocks) {
+         for (int block = 0; block < writtenBlocks.length; block++) {
+            int[] words = (block < blocks.length) ? blocks[block] : null;
+            if (words != null) {
+               getChunk(block << BLOCK_BITS, true);
+               getBlockView(block).put(words);
+               writtenBlocks[block] = true;
+            }
+            else if (writtenBlocks[block]) {
+               getBlockView(block).put(new int[BLOCK_WORDS]);
+               writtenBlocks[block] = false;
+            }
+         }
+      }
+
+      // The words of an allocated block, in the store's byte order.
+       private IntBuffer getBlockView(int block) {
+         ByteBuffer view = chunks[block >>> (CHUNK_BITS - BLOCK_BITS)].duplicate();
+         view.order(order);
+         view.position((block << BLOCK_BITS) & (CHUNK_BYTES - 1));
+         view.limit(view.position() + (BLOCK_WORDS << 2));
+         return view.slice().order(order).asIntBuffer();
+      }
+
+   	/**
+   	 * Release the temporary file, if any.  The store must not be used afterward.
+   	 */
+       synchronized void close() {
+         chunks = new ByteBuffer[0];
+         if (fileAccess != null) {
+            try {
+               fileAccess.close();
+            }
+                catch (IOException e) {
+               }
+            file.delete();
+            fileAccess = null;
+         }
+      }
+
+       private ByteBuffer getChunk(int offset, boolean allocate) {
+         ByteBuffer chunk = chunks[offset >>> CHUNK_BITS];
+         return (chunk == null && allocate) ? allocateChunk(offset >>> CHUNK_BITS) : chunk;
+      }
+
+       private synchronized ByteBuffer allocateChunk(int index) {
+         if (chunks[index] == null) {
+            ByteBuffer chunk = null;
+            if (!mapped) {
+               try {
+                  chunk = ByteBuffer.allocateDirect(CHUNK_BYTES);
+               }
+                   catch (OutOfMemoryError e) {
+                     // Direct buffer memory exhausted: spill this and all later chunks to the
+                     // file rather than pay for another failed attempt each time.
+                     mapped = true;
+                  }
+            }
+            if (chunk == null) {
+               chunk = mapChunk(index);
+            }
+            chunk.order(order);
+            chunks[index] = chunk;
+         }
+         return chunks[index];
+      }
+
+       private ByteBuffer mapChunk(int index) {
+         try {
+            if (fileAccess == null) {
+               file = File.createTempFile("mars", ".mem");
+               file.deleteOnExit();
+               fileAccess = new RandomAccessFile(file, "rw");
+            }
+            return fileAccess.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                                               (long) index << CHUNK_BITS, CHUNK_BYTES);
+         }
+             catch (IOException e) {
+               throw new IllegalStateException("Unable to map memory to temporary file: " + e.getMessage());
+            }
+      }
+   }
@@ -39,11 +39,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class Register extends Observable {
       private String name;
       private int number, resetValue;
-   	// volatile should be enough to allow safe multi-threaded access  
-   	// w/o the use of synchronized methods.  getValue and setValue
-   	// are the only methods here used by the register collection
-   	// (RegisterFile, Coprocessor0, Coprocessor1) methods. 
-      private volatile int value;
+   	// The value lives in element "slot" of the "store" array.  A register created
+   	// on its own gets a private one-element array; RegisterFile instead creates its
+   	// registers as views over one shared int[] that it indexes directly on the
+   	// simulation fast path.  Values are neither volatile nor guarded by monitor
+   	// locks, so they are published to other threads through "publications": the
+   	// simulator calls publishValues() after each instruction (or compiled block) it
+   	// simulates, and every read of a value first reads that volatile field.  A thread
+   	// reading registers while the program runs, such as the GUI or a tool's update
+   	// thread, thus sees every value written before the latest publication.
+      private int[] store;
+      private int slot;
+      private static volatile int publications;
+   	// True while at least one observer is registered.  Checked on every access so
+   	// that unobserved registers never pay for Observable's synchronized bookkeeping.
+      volatile boolean observed;
       
    	 /**
         *  Creates a new register with specified name, number, and value.
@@ -53,9 +63,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
         */
    	  
        public Register(String n, int num, int val){
+         this(n, num, val, new int[1], 0);
+      }
+   
+   	 /**
+        *  Creates a new register with specified name, number, and value, whose value
+        *  is held in the given element of an existing int array.
+        *   @param n The name of the register.
+        *   @param num The number of the register.
+        *   @param val The inital (and reset) value of the register.
+        *   @param store The array holding the register's value.
+        *   @param slot The index of the register's value within that array.
+        */
+   	  
+       public Register(String n, int num, int val, int[] store, int slot){
          name= n;
          number=num;
-         value= val;
+         this.store = store;
+         this.slot = slot;
+         store[slot]= val;
          resetValue = val;
       }
       
@@ -74,9 +100,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return value The value of the Register.
    	  */
    	  
-       public synchronized int getValue(){
-         notifyAnyObservers(AccessNotice.READ);
-         return value;
+       public int getValue(){
+         if (observed) {
+            notifyAnyObservers(AccessNotice.READ);
+         }
+         acquireValues();
+         return store[slot];
       }
 
       
@@ -86,8 +115,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return value The value of the Register.
    	  */
    	  
-       public synchronized int getValueNoNotify(){
-         return value;
+       public int getValueNoNotify(){
+         acquireValues();
+         return store[slot];
       }
 		
    
@@ -115,10 +145,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return previous value of register
    	  */
    	  
-       public synchronized int setValue(int val){
-         int old = value;
-         value = val;
-         notifyAnyObservers(AccessNotice.WRITE);
+       public int setValue(int val){
+         int old = store[slot];
+         store[slot] = val;
+         if (observed) {
+            notifyAnyObservers(AccessNotice.WRITE);
+         }
          return old;
       }
    	
@@ -127,8 +159,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *  Observers are not notified.  
    	  */
    	  
-       public synchronized void resetValue(){
-         value = resetValue;
+       public void resetValue(){
+         store[slot] = resetValue;
       }
    	
    	/**
@@ -136,14 +168,60 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  set when <tt>resetValue()</tt> is called.
    	 */
    	 
-       public synchronized void changeResetValue(int reset) {
+       public void changeResetValue(int reset) {
          resetValue = reset;
       }
    
+   	/**
+   	 *  Make all register values written so far by this thread visible to any thread
+   	 *  that then reads a register.  Called by the simulator after simulating each
+   	 *  instruction or compiled block; only the simulator thread calls it.
+   	 */
+   	 
+       public static void publishValues() {
+         publications++;
+      }
+   
+   	/**
+   	 *  Read the publication field, so that values published before it was last
+   	 *  written are visible to the reads that follow.
+   	 *  @return the number of publications, which callers need not use
+   	 */
+   	 
+       static int acquireValues() {
+         return publications;
+      }
+   
+   	/**
+   	 *  Adds an observer, as in Observable.  Overridden to maintain the flag that
+   	 *  lets unobserved register accesses skip notification entirely.
+   	 */
+       public synchronized void addObserver(Observer o) {
+         super.addObserver(o);
+         observed = countObservers() > 0;
+      }
+   
+   	/**
+   	 *  Deletes an observer, as in Observable.
+   	 */
+       public synchronized void deleteObserver(Observer o) {
+         super.deleteObserver(o);
+         observed = countObservers() > 0;
+      }
+   
+   	/**
+   	 *  Deletes all observers, as in Observable.
+   	 */
+       public synchronized void deleteObservers() {
+         super.deleteObservers();
+         observed = false;
+      }
+   
    //
    // Method to notify any observers of register operation that has just occurred.
+   // Package access so RegisterFile can notify after updating the backing array directly.
    //
-       private void notifyAnyObservers(int type) {
+       void notifyAnyObservers(int type) {
          if (this.countObservers() > 0){// && Globals.program != null) && Globals.program.inSteppedExecution()) {
             this.setChanged();
             this.notifyObservers(new RegisterAccessNotice(type, this.name));
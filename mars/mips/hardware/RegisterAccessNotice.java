@@ -46,6 +46,13 @@ public class RegisterAccessNotice extends AccessNotice {
      super(type);
 	  this.registerName = registerName;
   }
+  /** Constructor for a notice of an access made by the given thread.  Used to deliver
+   *  a copy of a notice later, on another thread.
+	*/
+  public RegisterAccessNotice(int type, String registerName, Thread thread) {
+     super(type, thread);
+	  this.registerName = registerName;
+  }
  /** Fetch the register number of register accessed. */
   public String getRegisterName() {
      return registerName;
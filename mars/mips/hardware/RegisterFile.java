@@ -45,30 +45,90 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
       public static final int GLOBAL_POINTER_REGISTER = 28;
       public static final int STACK_POINTER_REGISTER = 29;
+      private static final int PROGRAM_COUNTER = 32;
+      private static final int HI = 33;
+      private static final int LO = 34;
    
-      private static Register [] regFile = 
-          { new Register("$zero", 0, 0), new Register("$at", 1, 0),
-         	new Register("$v0", 2, 0),new Register("$v1", 3, 0),
-         	new Register("$a0", 4, 0),new Register("$a1", 5, 0),
-         	new Register("$a2", 6, 0),new Register("$a3", 7, 0),
-         	new Register("$t0", 8, 0),new Register("$t1", 9, 0),
-         	new Register("$t2", 10, 0),new Register("$t3", 11, 0), 
-         	new Register("$t4", 12, 0),new Register("$t5", 13, 0),
-         	new Register("$t6", 14, 0),new Register("$t7", 15, 0),
-         	new Register("$s0", 16, 0),new Register("$s1", 17, 0),
-         	new Register("$s2", 18, 0),new Register("$s3", 19, 0),
-         	new Register("$s4", 20, 0),new Register("$s5", 21, 0),
-         	new Register("$s6", 22, 0),new Register("$s7", 23, 0),
-         	new Register("$t8", 24, 0),new Register("$t9", 25, 0),
-         	new Register("$k0", 26, 0),new Register("$k1", 27, 0),
-         	new Register("$gp", GLOBAL_POINTER_REGISTER, Memory.globalPointer),
-         	new Register("$sp", STACK_POINTER_REGISTER, Memory.stackPointer),
-         	new Register("$fp", 30, 0),new Register("$ra", 31, 0)
-           };
-         												  
-      private static Register programCounter= new Register("pc", 32, Memory.textBaseAddress); 
-      private static Register hi= new Register("hi", 33, 0);//this is an internal register with arbitrary number
-      private static Register lo= new Register("lo", 34, 0);// this is an internal register with arbitrary number
+      // Register values are held in one flat array indexed by register number (0-31,
+   	// then pc, hi and lo).  The Register objects below are views over it, used by the
+   	// GUI, tools and anything else that wants an Observable.  The simulation methods of
+   	// this class index the array directly and only go through the Register object when
+   	// it has observers to notify.  All of them belong to the State installed last
+   	// (see mars.SimulationContext).
+      private static State installedState = new State();
+      private static int[] values = installedState.values;
+      private static Register [] regFile = installedState.regFile;
+      private static Register programCounter = installedState.programCounter; 
+      private static Register hi = installedState.hi;
+      private static Register lo = installedState.lo;
+      // Register objects by number, parallel to the values array.
+      private static Register[] registers = installedState.registers;
+   
+   	/**
+   	  *  The registers of one simulation.  A new State holds registers at their
+   	  *  initial values; installing it with restoreState() makes the static methods
+   	  *  of this class operate on it.
+   	  **/
+   	
+       public static final class State {
+         private final int[] values = new int[LO+1];
+      
+         private final Register [] regFile = 
+             { new Register("$zero", 0, 0, values, 0), new Register("$at", 1, 0, values, 1),
+            	new Register("$v0", 2, 0, values, 2),new Register("$v1", 3, 0, values, 3),
+            	new Register("$a0", 4, 0, values, 4),new Register("$a1", 5, 0, values, 5),
+            	new Register("$a2", 6, 0, values, 6),new Register("$a3", 7, 0, values, 7),
+            	new Register("$t0", 8, 0, values, 8),new Register("$t1", 9, 0, values, 9),
+            	new Register("$t2", 10, 0, values, 10),new Register("$t3", 11, 0, values, 11), 
+            	new Register("$t4", 12, 0, values, 12),new Register("$t5", 13, 0, values, 13),
+            	new Register("$t6", 14, 0, values, 14),new Register("$t7", 15, 0, values, 15),
+            	new Register("$s0", 16, 0, values, 16),new Register("$s1", 17, 0, values, 17),
+            	new Register("$s2", 18, 0, values, 18),new Register("$s3", 19, 0, values, 19),
+            	new Register("$s4", 20, 0, values, 20),new Register("$s5", 21, 0, values, 21),
+            	new Register("$s6", 22, 0, values, 22),new Register("$s7", 23, 0, values, 23),
+            	new Register("$t8", 24, 0, values, 24),new Register("$t9", 25, 0, values, 25),
+            	new Register("$k0", 26, 0, values, 26),new Register("$k1", 27, 0, values, 27),
+            	new Register("$gp", GLOBAL_POINTER_REGISTER, Memory.globalPointer, values, GLOBAL_POINTER_REGISTER),
+            	new Register("$sp", STACK_POINTER_REGISTER, Memory.stackPointer, values, STACK_POINTER_REGISTER),
+            	new Register("$fp", 30, 0, values, 30),new Register("$ra", 31, 0, values, 31)
+              };
+      
+         private final Register programCounter= new Register("pc", PROGRAM_COUNTER, Memory.textBaseAddress, values, PROGRAM_COUNTER); 
+         private final Register hi= new Register("hi", HI, 0, values, HI);//this is an internal register with arbitrary number
+         private final Register lo= new Register("lo", LO, 0, values, LO);// this is an internal register with arbitrary number
+         private final Register[] registers = new Register[LO+1];
+      
+          public State() {
+            System.arraycopy(regFile, 0, registers, 0, regFile.length);
+            registers[PROGRAM_COUNTER] = programCounter;
+            registers[HI] = hi;
+            registers[LO] = lo;
+         }
+      }
+   
+   	/**
+   	  *  Returns the registers the static methods of this class currently operate on.
+   	  *  @return the installed register state
+   	  **/
+   	
+       public static State saveState() {
+         return installedState;
+      }
+   
+   	/**
+   	  *  Makes the static methods of this class operate on the given registers.
+   	  *  @param state register state from saveState() or a new State
+   	  **/
+   	
+       public static void restoreState(State state) {
+         installedState = state;
+         values = state.values;
+         regFile = state.regFile;
+         programCounter = state.programCounter;
+         hi = state.hi;
+         lo = state.lo;
+         registers = state.registers;
+      }
    		 
    
    	/**
@@ -93,29 +153,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static int updateRegister(int num, int val){
-         int old = 0;
-         if(num == 0){
+         if (num <= 0 || num > LO || num == PROGRAM_COUNTER) {
             //System.out.println("You can not change the value of the zero register.");
+            return 0;
          }
-         else {
-            for (int i=0; i< regFile.length; i++){
-               if(regFile[i].getNumber()== num) {
-                  old = (Globals.getSettings().getBackSteppingEnabled())
-                        ? Globals.program.getBackStepper().addRegisterFileRestore(num,regFile[i].setValue(val))
-                     	: regFile[i].setValue(val);
-                  break;
-               }
-            }
-         }
-         if(num== 33){//updates the hi register
-            old = (Globals.getSettings().getBackSteppingEnabled())
-               	      ? Globals.program.getBackStepper().addRegisterFileRestore(num,hi.setValue(val))
-               			: hi.setValue(val);
+         int old = values[num];
+         values[num] = val;
+         if (registers[num].observed) {
+            registers[num].notifyAnyObservers(AccessNotice.WRITE);
          }
-         else if(num== 34){// updates the low register
-            old = (Globals.getSettings().getBackSteppingEnabled())
-               	      ? Globals.program.getBackStepper().addRegisterFileRestore(num,lo.setValue(val))
-               			: lo.setValue(val);
+         if (Globals.getSettings().getBackSteppingEnabled()) {
+            Globals.program.getBackStepper().addRegisterFileRestore(num,old);
          }
          return old;
       }
@@ -146,15 +194,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getValue(int num){
-         if(num==33){
-            return hi.getValue();
+         if (registers[num].observed) {
+            registers[num].notifyAnyObservers(AccessNotice.READ);
          }
-         else if(num==34){
-            return lo.getValue();
-         }
-         else  
-            return regFile[num].getValue();
-            
+         Register.acquireValues();
+         return values[num];
       }
       		
       	/**
@@ -193,22 +237,27 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public static Register getUserRegister(String Rname) {
          Register reg = null;
          if (Rname.charAt(0) == '$') {
-            try {
-                   // check for register number 0-31.
-               reg = regFile[Binary.stringToInt(Rname.substring(1))];    // KENV 1/6/05
+            // Only attempt a register number if it could be one; failed attempts are costly.
+            if (Binary.mayBeSignedInteger(Rname, 1)) {
+               try {
+                      // check for register number 0-31.
+                  reg = regFile[Binary.stringToInt(Rname.substring(1))];    // KENV 1/6/05
+               }
+                   catch (Exception e) {
+                      // handles both NumberFormat and ArrayIndexOutOfBounds
+                     reg = null; // just to be sure
+                  }
             }
-                catch (Exception e) {
-                   // handles both NumberFormat and ArrayIndexOutOfBounds
-                   // check for register mnemonic $zero thru $ra
-                  reg = null; // just to be sure
-                   // just do linear search; there aren't that many registers
-                  for (int i=0; i < regFile.length; i++) {
-                     if (Rname.equals(regFile[i].getName())) {
-                        reg = regFile[i];
-                        break;
-                     }
+            if (reg == null) {
+                // check for register mnemonic $zero thru $ra
+                // just do linear search; there aren't that many registers
+               for (int i=0; i < regFile.length; i++) {
+                  if (Rname.equals(regFile[i].getName())) {
+                     reg = regFile[i];
+                     break;
                   }
                }
+            }
          }
          return reg;
       }
@@ -265,7 +314,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	 
        public static int getProgramCounter(){
-         return programCounter.getValue();
+         if (programCounter.observed) {
+            return programCounter.getValue();
+         }
+         Register.acquireValues();
+         return values[PROGRAM_COUNTER];
       }
    
      /**
@@ -285,6 +338,29 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return programCounter.getResetValue();
       }
    	
+   	/**
+   	  *  Returns a copy of the values of all registers, for a snapshot of the machine:
+   	  *  registers 0-31 by number, then the program counter, hi and lo.
+   	  *  Observers are not notified.
+   	  *  @return array of register values
+   	  **/
+   	
+       public static int[] getAllValues(){
+         return values.clone();
+      }
+   	
+   	/**
+   	  *  Sets the values of all registers, program counter, hi and lo from an array
+   	  *  returned by getAllValues().  Observers are notified, but no backstep is recorded.
+   	  *  @param saved array of register values
+   	  **/
+   	
+       public static void setAllValues(int[] saved){
+         for (int i=0; i < registers.length; i++) {
+            registers[i].setValue(saved[i]);
+         }
+      }
+   	
    	/**
    	  *  Method to reinitialize the values of the registers.
    	  *  <b>NOTE:</b> Should <i>not</i> be called from command-mode MARS because this
@@ -308,7 +384,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 **/
    
        public static void incrementPC(){
-         programCounter.setValue(programCounter.getValue() + Instruction.INSTRUCTION_LENGTH);
+         if (programCounter.observed) {
+            programCounter.setValue(programCounter.getValue() + Instruction.INSTRUCTION_LENGTH);
+         } 
+         else {
+            values[PROGRAM_COUNTER] += Instruction.INSTRUCTION_LENGTH;
+         }
       }
    
       /**
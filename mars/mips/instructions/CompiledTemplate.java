@@ -0,0 +1,369 @@
+   package mars.mips.instructions;
+   import mars.*;
+   import mars.util.*;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import java.util.*;
+   import java.util.regex.*;
+
+/**
+ * One basic instruction template of an extended (pseudo) instruction, compiled when the
+ * instruction is created.  The template is split into tokens once, and each of its
+ * markers (see ExtendedInstruction.makeTemplateSubstitutions()) is decoded into the operand
+ * it takes from the source statement and the computation it applies to it.  expand() then
+ * builds the token list of the generated basic statement directly, with the values, types
+ * and positions the Tokenizer would give the String that makeTemplateSubstitutions()
+ * produces, without that String's repeated searching and replacing and without
+ * tokenizing it.
+ * <p>
+ * Templates whose markers makeTemplateSubstitutions() would not substitute one for one,
+ * and statements whose generated text would not tokenize as it was built, are left to
+ * the String path: expand() returns null for them.
+ *
+ * @version October 2026
+ */
+
+    public class CompiledTemplate {
+
+      // What is substituted for a template token.
+      private static final int LITERAL = 0;        // the token itself
+      private static final int OPERAND = 1;        // RGn, OPn: operand as is
+      private static final int NEXT_REGISTER = 2;  // NRn
+      private static final int LOW = 3;            // LLn, VLn, LLnPm, VLnPm, LLP, LLPPm
+      private static final int LOW_UNSIGNED = 4;   // LLnU, VLnU, VLnPmU, LLPU
+      private static final int HIGH = 5;           // VHLn, VHLnPm, LHL, LHPN
+      private static final int HIGH_ADJUSTED = 6;  // LHn, LHnPm, VHn, VHnPm, LHPA, LHPAPm
+      private static final int FROM_32 = 7;        // S32
+      private static final int LABEL = 8;          // LAB
+      private static final int BRANCH_OFFSET = 9;  // BROFFnm
+
+      // Operand positions other than n, for markers that do not give one.
+      private static final int LABEL_PLUS_IMMEDIATE = -1; // sum of operands 2 and 4
+      private static final int LAST_OPERAND = -2;
+
+      private static final Pattern OPERAND_MARKER = Pattern.compile("(RG|OP|NR)([1-9])");
+      private static final Pattern VALUE_MARKER = Pattern.compile("(LL|VL|LH|VH|VHL)([1-9])(P([0-9]))?(U?)");
+      private static final Pattern LABEL_PLUS_IMMEDIATE_MARKER = Pattern.compile("(LLP|LHPA|LHPN)(P([0-9]))?(U?)");
+      private static final Pattern BRANCH_OFFSET_MARKER = Pattern.compile("BROFF([0-9])([0-9])");
+
+      // Characters the Tokenizer treats specially outside a quoted string.
+      private static final String DELIMITERS = " \t,#+-:()\"'";
+      // Upper case letters that begin or continue a marker.
+      private static final String MARKER_LETTERS = "GHLNOPRSUV";
+
+      private String template;
+      private boolean compiled;
+      private boolean delayedBranchNop;
+      private String[] texts;
+      private int[] kinds, operands, addends, offsets;
+      private TokenTypes[] literalTypes;
+
+   	/**
+   	 * Compile a basic instruction template.
+   	 * @param template template String, as in PseudoOps.txt
+   	 */
+       public CompiledTemplate(String template) {
+         this.template = template;
+         if (template.indexOf("DBNOP") >= 0) {
+            delayedBranchNop = compiled = true;
+            return;
+         }
+         ArrayList tokens = new ArrayList();
+         ArrayList starts = new ArrayList();
+         if (!split(template, tokens, starts)) {
+            return;
+         }
+         int count = tokens.size();
+         texts = new String[count];
+         kinds = new int[count];
+         operands = new int[count];
+         addends = new int[count];
+         offsets = new int[count];
+         literalTypes = new TokenTypes[count];
+         HashMap forms = new HashMap();
+         for (int i = 0; i < count; i++) {
+            texts[i] = (String) tokens.get(i);
+            offsets[i] = ((Integer) starts.get(i)).intValue();
+            if (!decode(i, forms)) {
+               return;
+            }
+         }
+         compiled = true;
+      }
+
+   	/**
+   	 * Get the template this was compiled from.
+   	 * @return template String
+   	 */
+       public String getTemplate() {
+         return template;
+      }
+
+   	/**
+   	 * Generate the basic statement for this template from the tokens of an extended
+   	 * instruction statement in basic assembly form, as the Tokenizer would tokenize the
+   	 * result of ExtendedInstruction.makeTemplateSubstitutions().
+   	 * @param program MIPSprogram being assembled, for label lookup
+   	 * @param theTokenList tokens of the extended instruction statement
+   	 * @param sourceLine source line number given to the generated tokens
+   	 * @return token list of the basic statement, empty if the template generates no
+   	 * statement, or null if it must be generated by makeTemplateSubstitutions() instead.
+   	 */
+       public TokenList expand(MIPSprogram program, TokenList theTokenList, int sourceLine) {
+         if (!compiled) {
+            return null;
+         }
+         TokenList result = new TokenList();
+         if (delayedBranchNop) {
+            if (Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED)) {
+               result.add(new Token(TokenTypes.OPERATOR, "nop", null, sourceLine, 1));
+            }
+            return result;
+         }
+         int shift = 0; // difference between positions in generated text and in template
+         TokenTypes previous = null;
+         for (int i = 0; i < texts.length; i++) {
+            String value;
+            TokenTypes type;
+            switch (kinds[i]) {
+               case LITERAL :
+                  value = texts[i];
+                  if (literalTypes[i] == null) {
+                     literalTypes[i] = TokenTypes.matchTokenType(value);
+                  }
+                  type = literalTypes[i];
+                  break;
+               case OPERAND :
+                  if (operands[i] >= theTokenList.size()) {
+                     return null;
+                  }
+                  value = theTokenList.get(operands[i]).getValue();
+                  if (!isSingleToken(value) || containsMarkerLetter(value)) {
+                     return null;
+                  }
+                  type = TokenTypes.matchTokenType(value);
+                  break;
+               case NEXT_REGISTER :
+                  if (operands[i] >= theTokenList.size()) {
+                     return null;
+                  }
+                  value = nextRegister(theTokenList.get(operands[i]).getValue());
+                  if (value == null) {
+                     return null;
+                  }
+                  type = TokenTypes.matchTokenType(value);
+                  break;
+               case LABEL :
+                  String address = theTokenList.get(theTokenList.size() - 1).getValue();
+                  Symbol symbol = program.getLocalSymbolTable().getSymbolGivenAddressLocalOrGlobal(address);
+                  if (symbol == null || !isSingleToken(symbol.getName())) {
+                     return null;
+                  }
+                  value = symbol.getName();
+                  type = TokenTypes.matchTokenType(value);
+                  break;
+               case BRANCH_OFFSET :
+                  // BROFF is followed by the offset without delayed branching, then the one with it
+                  int digit = Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED) ? 6 : 5;
+                  value = texts[i].substring(digit, digit + 1);
+                  type = TokenTypes.matchIntegerTokenType(value.charAt(0) - '0');
+                  break;
+               default :
+                  if (operands[i] >= theTokenList.size()
+                         || (operands[i] == LABEL_PLUS_IMMEDIATE && theTokenList.size() <= 4)) {
+                     return null;
+                  }
+                  int number = compute(kinds[i], getValue(theTokenList, operands[i], addends[i]));
+                  value = Integer.toString(number);
+                  type = TokenTypes.matchIntegerTokenType(number);
+                  break;
+            }
+            // A minus sign is part of the number it precedes unless it follows an identifier.
+            if (value.charAt(0) == '-' && previous == TokenTypes.IDENTIFIER) {
+               return null;
+            }
+            result.add(new Token(type, value, null, sourceLine, offsets[i] + shift + 1));
+            shift += value.length() - texts[i].length();
+            previous = type;
+         }
+         return result;
+      }
+
+      // Value of the operand(s) a marker refers to, plus its addend.  Like
+      // makeTemplateSubstitutions(), treats a value that is not a number as 0.
+       private static int getValue(TokenList theTokenList, int operand, int addend) {
+         try {
+            if (operand == LABEL_PLUS_IMMEDIATE) {
+               return Binary.stringToInt(theTokenList.get(2).getValue())
+                      + Binary.stringToInt(theTokenList.get(4).getValue()) + addend;
+            }
+            int position = (operand == LAST_OPERAND) ? theTokenList.size() - 1 : operand;
+            return Binary.stringToInt(theTokenList.get(position).getValue()) + addend;
+         }
+             catch (NumberFormatException e) {
+               return 0;
+            }
+      }
+
+       private static int compute(int kind, int value) {
+         switch (kind) {
+            case LOW :
+               return value << 16 >> 16;
+            case LOW_UNSIGNED :
+               return value & 0xffff;
+            case HIGH :
+               return value >> 16;
+            case HIGH_ADJUSTED :
+               // If bit 15 is 1, the low order 16 bits will become a negative offset, so
+               // add 1 to the high order 16 bits to compensate.
+               return (value >> 16) + Binary.bitValue(value, 15);
+            default : // FROM_32
+               return 32 - value;
+         }
+      }
+
+      // Next higher register than the one named, or null if it names none.
+       private static String nextRegister(String name) {
+         Register register = RegisterFile.getUserRegister(name);
+         int number;
+         if (register != null) {
+            number = register.getNumber();
+            return (number >= 0) ? "$" + (number + 1) : null;
+         }
+         number = Coprocessor1.getRegisterNumber(name);
+         return (number >= 0) ? "$f" + (number + 1) : null;
+      }
+
+      // True if the Tokenizer would give a substituted value back as one token.
+       private static boolean isSingleToken(String value) {
+         if (value.length() == 0) {
+            return false;
+         }
+         for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (DELIMITERS.indexOf(c) >= 0
+                   && !(i == 0 && c == '-' && value.length() > 1 && Character.isDigit(value.charAt(1)))) {
+               return false;
+            }
+         }
+         return true;
+      }
+   
+      // True if makeTemplateSubstitutions() might substitute into a value again after
+      // substituting it for a marker.
+       private static boolean containsMarkerLetter(String value) {
+         for (int i = 0; i < value.length(); i++) {
+            if (MARKER_LETTERS.indexOf(value.charAt(i)) >= 0) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      // Split the template into tokens as the Tokenizer would, recording where each
+      // starts.  Returns false if it holds anything the Tokenizer treats specially
+      // other than delimiters, parentheses and a minus sign beginning a number.
+       private static boolean split(String template, ArrayList tokens, ArrayList starts) {
+         int start = -1;
+         for (int i = 0; i <= template.length(); i++) {
+            char c = (i < template.length()) ? template.charAt(i) : ' ';
+            if (c == ' ' || c == '\t' || c == ',' || c == '(' || c == ')') {
+               if (start >= 0) {
+                  tokens.add(template.substring(start, i));
+                  starts.add(Integer.valueOf(start));
+                  start = -1;
+               }
+               if (c == '(' || c == ')') {
+                  tokens.add(String.valueOf(c));
+                  starts.add(Integer.valueOf(i));
+               }
+            }
+            else if (c == '-') {
+               if (start >= 0 || i + 1 >= template.length() || !Character.isDigit(template.charAt(i + 1))) {
+                  return false;
+               }
+               start = i;
+            }
+            else if (DELIMITERS.indexOf(c) >= 0) {
+               return false;
+            }
+            else if (start < 0) {
+               start = i;
+            }
+         }
+         return true;
+      }
+
+      // Decode template token i.  Returns false if makeTemplateSubstitutions() would not
+      // substitute for it as a whole, alone: a token with upper case letters that is not
+      // a marker, or a marker whose search string also finds a different marker in the
+      // same template.  forms maps each search string seen so far to its marker.
+       private boolean decode(int i, HashMap forms) {
+         String text = texts[i];
+         Matcher m;
+         String search;
+         if ((m = OPERAND_MARKER.matcher(text)).matches()) {
+            kinds[i] = m.group(1).equals("NR") ? NEXT_REGISTER : OPERAND;
+            operands[i] = Integer.parseInt(m.group(2));
+            search = text;
+         }
+         else if ((m = VALUE_MARKER.matcher(text)).matches()) {
+            String family = m.group(1);
+            boolean unsigned = m.group(5).length() > 0;
+            if (unsigned && !(family.equals("VL") || family.equals("LL") && m.group(3) == null)) {
+               return false;
+            }
+            kinds[i] = (family.equals("VHL")) ? HIGH
+                     : (family.charAt(1) == 'H') ? HIGH_ADJUSTED
+                     : (unsigned) ? LOW_UNSIGNED : LOW;
+            operands[i] = Integer.parseInt(m.group(2));
+            addends[i] = (m.group(3) == null) ? 0 : Integer.parseInt(m.group(4));
+            search = family + m.group(2) + ((m.group(3) == null) ? "" : "P");
+         }
+         else if ((m = LABEL_PLUS_IMMEDIATE_MARKER.matcher(text)).matches()) {
+            String family = m.group(1);
+            boolean unsigned = m.group(4).length() > 0;
+            if (family.equals("LHPN") && m.group(2) != null || unsigned && !(family.equals("LLP") && m.group(2) == null)) {
+               return false;
+            }
+            kinds[i] = (family.equals("LHPN")) ? HIGH
+                     : (family.equals("LHPA")) ? HIGH_ADJUSTED
+                     : (unsigned) ? LOW_UNSIGNED : LOW;
+            operands[i] = LABEL_PLUS_IMMEDIATE;
+            addends[i] = (m.group(2) == null) ? 0 : Integer.parseInt(m.group(3));
+            search = family + ((m.group(2) == null) ? "" : "P");
+         }
+         else if (text.equals("LHL")) {
+            kinds[i] = HIGH;
+            operands[i] = 2;
+            search = text;
+         }
+         else if (text.equals("S32")) {
+            kinds[i] = FROM_32;
+            operands[i] = LAST_OPERAND;
+            search = text;
+         }
+         else if (text.equals("LAB")) {
+            kinds[i] = LABEL;
+            search = text;
+            if (forms.containsKey(search)) {
+               return false; // only the first LAB is substituted
+            }
+         }
+         else if (BRANCH_OFFSET_MARKER.matcher(text).matches()) {
+            kinds[i] = BRANCH_OFFSET;
+            search = "BROFF";
+         }
+         else {
+            kinds[i] = LITERAL;
+            for (int c = 0; c < text.length(); c++) {
+               if (Character.isUpperCase(text.charAt(c))) {
+                  return false;
+               }
+            }
+            return true;
+         }
+         Object previous = forms.put(search, text);
+         return previous == null || previous.equals(text);
+      }
+   }
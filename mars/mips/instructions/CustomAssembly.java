@@ -34,6 +34,19 @@ public abstract class CustomAssembly{
       instrList.addAll(instructionList);
    }
 
+   /**
+    * Whether the simulator may compile this language's instructions into basic blocks when
+    * tiered simulation is enabled. Defaults to false, so custom languages stay interpreted.
+    * Override to return true only if every instruction that changes the program counter uses
+    * I_BRANCH_FORMAT or J_FORMAT (or is named jr or jalr); other instructions are assumed to
+    * fall through to the next one.
+    * @return true if instructions of this language may be block-compiled
+    * @see mars.simulator.BlockCompiler
+    */
+   public boolean allowsBlockCompilation(){
+      return false;
+   }
+
    /**
     * Adds all custom-defined BasicInstructions to the instructionList ArrayList.
     * @see instructionList
@@ -46,6 +46,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class ExtendedInstruction extends Instruction {
    
       private ArrayList translationStrings, compactTranslationStrings;
+      private ArrayList compiledTemplates, compactCompiledTemplates;
     /**
      * Constructor for ExtendedInstruction.
      * 
@@ -67,6 +68,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          this.createExampleTokenList();
          this.translationStrings = buildTranslationList(translation);
          this.compactTranslationStrings = buildTranslationList(compactTranslation);
+         this.compiledTemplates = compileTemplates(translationStrings);
+         this.compactCompiledTemplates = compileTemplates(compactTranslationStrings);
       }
    
     /**
@@ -85,6 +88,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          this.createExampleTokenList();
          this.translationStrings = buildTranslationList(translation);
          this.compactTranslationStrings = null;
+         this.compiledTemplates = compileTemplates(translationStrings);
+         this.compactCompiledTemplates = null;
       }
    
      /**
@@ -160,6 +165,29 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ArrayList getCompactBasicIntructionTemplateList() {
          return compactTranslationStrings;
       }
+
+    /**
+     * Get ArrayList of CompiledTemplates for the basic instruction templates
+     * generated by this extended instruction, in the same order as 
+     * getBasicIntructionTemplateList().
+     * @return ArrayList of CompiledTemplate.
+     */
+    
+       public ArrayList getCompiledTemplateList() {
+         return compiledTemplates;
+      }
+   
+    /**
+     * Get ArrayList of CompiledTemplates for the basic instruction templates
+     * generated by the "compact" or 16-bit version of this extended instruction,
+     * in the same order as getCompactBasicIntructionTemplateList().
+     * @return ArrayList of CompiledTemplate.  Returns null if the instruction does not
+     * have a compact alternative.
+     */
+    
+       public ArrayList getCompactCompiledTemplateList() {
+         return compactCompiledTemplates;
+      }
 		   
       /**
    	 * Given a basic instruction template and the list of tokens from an extended
@@ -611,6 +639,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
    	
    	   
+    // Compiles each of the templates in a list built by buildTranslationList(),
+    // so pass 2 of the assembler can expand them without String substitution.
+    
+       private ArrayList compileTemplates(ArrayList translationList) {
+         if (translationList == null) {
+            return null;
+         }
+         ArrayList compiledList = new ArrayList(translationList.size());
+         for (int i=0; i<translationList.size(); i++) {
+            compiledList.add(new CompiledTemplate((String) translationList.get(i)));
+         }
+         return compiledList;
+      }
+   
+   	   
     /*
      * Get length in bytes that this extended instruction requires in its 
      * binary form. The answer depends on how many basic instructions it 
@@ -46,7 +46,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class InstructionSet
    {
       private ArrayList instructionList;
-	  private ArrayList opcodeMatchMaps;
+	  private DecodeTable decodeTable;
+      private OperatorIndex operatorIndex = new OperatorIndex(new ArrayList());
       private SyscallLoader syscallLoader;
     /**
      * Creates a new InstructionSet object.
@@ -64,6 +65,23 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return instructionList;
       
       }
+    /**
+     * Identifies the current instruction set: the enabled languages and the number of
+     * instructions they provide.  Results that depend on the instruction set (cached
+     * tokens, object files) are only reused if this is unchanged.
+     * @return String that is the same exactly when the instruction set is
+     */
+       public String getSignature()
+      {
+         StringBuffer signature = new StringBuffer();
+         for (int i = 0; i < LanguageLoader.assemblyList.size(); i++) {
+            CustomAssembly language = LanguageLoader.assemblyList.get(i);
+            if (language.enabled) {
+               signature.append(language.getName()).append('\n');
+            }
+         }
+         return signature.append(instructionList.size()).toString();
+      }
       /* // Used for debug output
       private boolean windowInit = false; 
       private JFrame frame;
@@ -100,6 +118,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       // 2025 RESEARCH: INSTRUCTIONS MOVED TO MipsAssembly.java
       // LanguageLoader now handles instructions, both for MIPS and custom-defined languages
       LanguageLoader.mergeCustomInstructions(instructionList);
+         operatorIndex = new OperatorIndex(instructionList);
 
         ////////////// GET AND CREATE LIST OF SYSCALL FUNCTION OBJECTS ////////////////////
          syscallLoader = new SyscallLoader();
@@ -131,17 +150,46 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 			}
 		 }
 		 Collections.sort(matchMaps);
-		 this.opcodeMatchMaps = matchMaps;
+		 this.decodeTable = new DecodeTable(matchMaps);
+		 reportAmbiguousEncodings();
       }
 
+	/**
+	 * Find the basic instruction that a binary instruction encodes.  Where more than one
+	 * matches, the one whose opcode mask has the most 1 bits is chosen.
+	 * @param binaryInstr the binary instruction
+	 * @return the matching BasicInstruction, or null if none matches
+	 */
 	public BasicInstruction findByBinaryCode(int binaryInstr) {
-		ArrayList matchMaps = this.opcodeMatchMaps;
-		for (int i = 0; i < matchMaps.size(); i++) {
-			MatchMap map = (MatchMap) matchMaps.get(i);
-			BasicInstruction ret = map.find(binaryInstr);
-			if (ret != null) return ret;
+		return decodeTable.find(binaryInstr);
+	}
+
+	// Print a warning to standard error for each pair of enabled languages having
+	// instructions whose encodings overlap, so that some binary instruction matches both.
+	// Overlaps within one language are taken to be intended.  Standard output is left
+	// to the program being run.
+	private void reportAmbiguousEncodings() {
+		ArrayList<CustomAssembly> languages = new ArrayList<CustomAssembly>();
+		for (CustomAssembly language : LanguageLoader.assemblyList) {
+			if (language.enabled) languages.add(language);
+		}
+		for (int i = 0; i < languages.size(); i++) {
+			for (int j = i + 1; j < languages.size(); j++) {
+				for (BasicInstruction a : languages.get(i).instructionList) {
+					for (BasicInstruction b : languages.get(j).instructionList) {
+						int mask = a.getOpcodeMask() & b.getOpcodeMask();
+						if (((a.getOpcodeMatch() ^ b.getOpcodeMatch()) & mask) != 0) continue;
+						int binary = a.getOpcodeMatch() | (b.getOpcodeMatch() & ~a.getOpcodeMask());
+						BasicInstruction decoded = findByBinaryCode(binary);
+						System.err.println("Ambiguous encoding: " + a.getName() + " ("
+							+ languages.get(i).getName() + ") and " + b.getName() + " ("
+							+ languages.get(j).getName() + ") both match "
+							+ mars.util.Binary.intToHexString(binary) + ", which decodes as "
+							+ ((decoded == null) ? "neither" : decoded.getName()));
+					}
+				}
+			}
 		}
-		return null;
 	}
    	
     /*  METHOD TO ADD PSEUDO-INSTRUCTIONS
@@ -221,50 +269,48 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
     /**
      *  Given an operator mnemonic, will return the corresponding Instruction object(s)
-     *  from the instruction set.  Uses straight linear search technique.
+     *  from the instruction set.  Case-insensitive.  Looked up in a hash index of the
+     *  mnemonics, which is rebuilt if the instruction list has changed since it was built.
      *  @param name operator mnemonic (e.g. addi, sw,...)
-     *  @return list of corresponding Instruction object(s), or null if not found.
+     *  @return list of corresponding Instruction object(s), in instruction list order, or
+     *  null if not found.  The list is shared and must not be modified.
      */
        public ArrayList matchOperator(String name)
       {
-         ArrayList matchingInstructions = null;
-        // Linear search for now....
-         for (int i = 0; i < instructionList.size(); i++)
-         {
-            if (((Instruction) instructionList.get(i)).getName().equalsIgnoreCase(name))
-            {
-               if (matchingInstructions == null) 
-                  matchingInstructions = new ArrayList();
-               matchingInstructions.add(instructionList.get(i));
-            }
-         }
-         return matchingInstructions;
+         return (ArrayList) getOperatorIndex().operators.get(name.toLowerCase());
       }
    
    
     /**
      *  Given a string, will return the Instruction object(s) from the instruction
      *  set whose operator mnemonic prefix matches it.  Case-insensitive.  For example
-     *  "s" will match "sw", "sh", "sb", etc.  Uses straight linear search technique.
+     *  "s" will match "sw", "sh", "sb", etc.  Looked up in a trie of the mnemonics.
      *  @param name a string
-     *  @return list of matching Instruction object(s), or null if none match.
+     *  @return list of matching Instruction object(s), in instruction list order, or null
+     *  if none match.  The list is shared and must not be modified.
      */
        public ArrayList prefixMatchOperator(String name)
       {
-         ArrayList matchingInstructions = null;
-        // Linear search for now....
-         if (name != null) {
-            for (int i = 0; i < instructionList.size(); i++)
-            {
-               if (((Instruction) instructionList.get(i)).getName().toLowerCase().startsWith(name.toLowerCase()))
-               {
-                  if (matchingInstructions == null) 
-                     matchingInstructions = new ArrayList();
-                  matchingInstructions.add(instructionList.get(i));
-               }
-            }
+         if (name == null) {
+            return null;
          }
-         return matchingInstructions;
+         PrefixNode node = getOperatorIndex().prefixes;
+         String prefix = name.toLowerCase();
+         for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.getChild(prefix.charAt(i));
+         }
+         return (node == null) ? null : node.matches;
+      }
+   
+      // The index, rebuilt first if instructions have been added to or removed from the
+      // list since it was built (e.g. by a tool, through getInstructionList()).
+       private OperatorIndex getOperatorIndex() {
+         OperatorIndex index = operatorIndex;
+         if (index.size != instructionList.size()) {
+            index = new OperatorIndex(instructionList);
+            operatorIndex = index;
+         }
+         return index;
       }
    	
    	/*
@@ -277,7 +323,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                                                         throws ProcessingException {
          Syscall service = syscallLoader.findSyscall(number);
          if (service != null) {
-            service.simulate(statement);
+            ReverseStepper.simulateSyscall(service, statement); // records or replays input
             return;
          }
          throw new ProcessingException(statement,
@@ -351,6 +397,66 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             	  Instruction.INSTRUCTION_LENGTH : 0) );	 
       }
 
+      // Index of the instruction list by mnemonic, built by populate().  Both parts are
+      // read-only once built, so a lookup needs no lock even while populate() replaces them,
+      // and the fields are final so an index built by one thread is complete when another
+      // sees it (files may be tokenized concurrently, see MIPSprogram).
+       private static class OperatorIndex {
+         private final HashMap operators = new HashMap(); // lower case mnemonic -> ArrayList of Instruction
+         private final PrefixNode prefixes = new PrefixNode();
+         private final int size;
+      
+          OperatorIndex(ArrayList instructionList) {
+            size = instructionList.size();
+            for (int i = 0; i < size; i++) {
+               Instruction inst = (Instruction) instructionList.get(i);
+               String name = inst.getName().toLowerCase();
+               ArrayList matches = (ArrayList) operators.get(name);
+               if (matches == null) {
+                  matches = new ArrayList(2);
+                  operators.put(name, matches);
+               }
+               matches.add(inst);
+               PrefixNode node = prefixes;
+               node.add(inst);
+               for (int j = 0; j < name.length(); j++) {
+                  node = node.getOrAddChild(name.charAt(j));
+                  node.add(inst);
+               }
+            }
+         }
+      }
+   
+      // Node of the mnemonic trie.  Holds every instruction whose mnemonic starts with the
+      // node's prefix, so a prefix lookup is just a walk down the trie.
+       private static class PrefixNode {
+         private HashMap children; // Character -> PrefixNode
+         private ArrayList matches;
+      
+          PrefixNode getChild(char c) {
+            return (children == null) ? null : (PrefixNode) children.get(Character.valueOf(c));
+         }
+      
+          PrefixNode getOrAddChild(char c) {
+            PrefixNode child = getChild(c);
+            if (child == null) {
+               if (children == null) {
+                  children = new HashMap(4);
+               }
+               child = new PrefixNode();
+               children.put(Character.valueOf(c), child);
+            }
+            return child;
+         }
+      
+          void add(Instruction inst) {
+            if (matches == null) {
+               matches = new ArrayList(2);
+            }
+            matches.add(inst);
+         }
+      }
+   
 	  private static class MatchMap implements Comparable {
 	  	private int mask;
 		private int maskLength; // number of 1 bits in mask
@@ -385,5 +491,132 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 			return (BasicInstruction) matchMap.get(match);
 		}
 	}
+
+	  // Table for decoding binary instructions in two steps: first by primary opcode
+	  // (bits 31-26), then, if all instructions that could have that opcode test one
+	  // further field (funct, rt or fmt), by that field.  Each slot lists the instructions
+	  // that could match, in the order the MatchMaps would try them, so a slot is the
+	  // MatchMap search narrowed to one opcode and field value.  Encodings that test no
+	  // such field (some custom languages) simply make for longer slots.
+	  private static class DecodeTable {
+		private static final int[] FIELD_SHIFTS = {0, 16, 21}; // funct, rt, fmt
+		private static final int[] FIELD_MASKS = {0x3F, 0x1F, 0x1F};
+		private static final int OPCODE_SHIFT = 26;
+		private static final int OPCODE_MASK = 0xFC000000;
+
+		private final int[] fieldShift = new int[64];  // for each opcode, -1 if no field
+		private final int[] fieldMask = new int[64];
+		private final Slot[][] slots = new Slot[64][];
+
+		public DecodeTable(ArrayList matchMaps) {
+			ArrayList<Slot.Candidate> all = new ArrayList<Slot.Candidate>();
+			for (int i = 0; i < matchMaps.size(); i++) {
+				MatchMap map = (MatchMap) matchMaps.get(i);
+				for (Iterator it = map.matchMap.entrySet().iterator(); it.hasNext();) {
+					Map.Entry entry = (Map.Entry) it.next();
+					all.add(new Slot.Candidate(map.mask, ((Integer) entry.getKey()).intValue(),
+						(BasicInstruction) entry.getValue()));
+				}
+			}
+			for (int opcode = 0; opcode < 64; opcode++) {
+				ArrayList<Slot.Candidate> candidates = select(all, opcode << OPCODE_SHIFT, OPCODE_MASK);
+				int field = chooseField(candidates);
+				if (field < 0) {
+					fieldShift[opcode] = -1;
+					slots[opcode] = new Slot[] {Slot.of(candidates)};
+					continue;
+				}
+				fieldShift[opcode] = FIELD_SHIFTS[field];
+				fieldMask[opcode] = FIELD_MASKS[field];
+				slots[opcode] = new Slot[FIELD_MASKS[field] + 1];
+				for (int value = 0; value <= FIELD_MASKS[field]; value++) {
+					slots[opcode][value] = Slot.of(select(candidates, value << FIELD_SHIFTS[field],
+						FIELD_MASKS[field] << FIELD_SHIFTS[field]));
+				}
+			}
+		}
+
+		// Candidates that could match a binary instruction having the given bits in field.
+		private static ArrayList<Slot.Candidate> select(ArrayList<Slot.Candidate> candidates, int bits, int field) {
+			ArrayList<Slot.Candidate> result = new ArrayList<Slot.Candidate>();
+			for (Slot.Candidate c : candidates) {
+				if (((bits ^ c.match) & c.mask & field) == 0) result.add(c);
+			}
+			return result;
+		}
+
+		// The field that every candidate tests in full and that best separates them,
+		// or -1 if there is none or no need for one.
+		private static int chooseField(ArrayList<Slot.Candidate> candidates) {
+			int best = -1;
+			int bestValues = 1;
+			for (int f = 0; f < FIELD_SHIFTS.length; f++) {
+				int field = FIELD_MASKS[f] << FIELD_SHIFTS[f];
+				HashSet<Integer> values = new HashSet<Integer>();
+				boolean tested = true;
+				for (Slot.Candidate c : candidates) {
+					if ((c.mask & field) != field) {
+						tested = false;
+						break;
+					}
+					values.add(Integer.valueOf(c.match & field));
+				}
+				if (tested && values.size() > bestValues) {
+					best = f;
+					bestValues = values.size();
+				}
+			}
+			return best;
+		}
+
+		public BasicInstruction find(int instr) {
+			int opcode = instr >>> OPCODE_SHIFT;
+			int shift = fieldShift[opcode];
+			Slot slot = (shift < 0) ? slots[opcode][0] : slots[opcode][(instr >>> shift) & fieldMask[opcode]];
+			return (slot == null) ? null : slot.find(instr);
+		}
+	}
+
+	  // Instructions that could match, as parallel arrays, tried in order.
+	  private static class Slot {
+		private final int[] masks;
+		private final int[] matches;
+		private final BasicInstruction[] instructions;
+
+		private Slot(ArrayList<Candidate> candidates) {
+			masks = new int[candidates.size()];
+			matches = new int[candidates.size()];
+			instructions = new BasicInstruction[candidates.size()];
+			for (int i = 0; i < candidates.size(); i++) {
+				masks[i] = candidates.get(i).mask;
+				matches[i] = candidates.get(i).match;
+				instructions[i] = candidates.get(i).instruction;
+			}
+		}
+
+		// null if there are no candidates
+		static Slot of(ArrayList<Candidate> candidates) {
+			return candidates.isEmpty() ? null : new Slot(candidates);
+		}
+
+		BasicInstruction find(int instr) {
+			for (int i = 0; i < masks.length; i++) {
+				if ((instr & masks[i]) == matches[i]) return instructions[i];
+			}
+			return null;
+		}
+
+		static class Candidate {
+			final int mask;
+			final int match;
+			final BasicInstruction instruction;
+
+			Candidate(int mask, int match, BasicInstruction instruction) {
+				this.mask = mask;
+				this.match = match;
+				this.instruction = instruction;
+			}
+		}
+	}
    }
 
@@ -21,6 +21,7 @@ public class LanguageLoader{
     private static final String EXAMPLE_FILE = "ExampleCustomLanguage";
 
     private static ArrayList<BasicInstruction> finalInstructionList = new ArrayList<BasicInstruction>();
+    private static Set<BasicInstruction> blockCompilableInstructions = Collections.newSetFromMap(new IdentityHashMap<BasicInstruction, Boolean>());
     public static ArrayList<CustomAssembly> assemblyList = new ArrayList<CustomAssembly>(){{
         MipsAssembly m = new MipsAssembly();
         add(m);
@@ -42,7 +43,8 @@ public class LanguageLoader{
 
                 // Create a class loader that can load classes from our JAR files
                 URL[] urls = {f.toURI().toURL()};
-                URLClassLoader cl = URLClassLoader.newInstance(urls);
+                // with MARS's own loader as parent, so the language links to the same CustomAssembly
+                URLClassLoader cl = URLClassLoader.newInstance(urls, m.getClass().getClassLoader());
 
                 JarFile jarFile = new JarFile(f);
                 Enumeration<JarEntry> e = jarFile.entries();
@@ -80,9 +82,13 @@ public class LanguageLoader{
     public static void mergeCustomInstructions(ArrayList<BasicInstruction> instrList){
         boolean pseudo = false;
         finalInstructionList.clear();
+        blockCompilableInstructions.clear();
         for (CustomAssembly c : assemblyList){
             if (c.enabled){
                 c.addCustomInstructions(finalInstructionList);
+                if (c.allowsBlockCompilation()){
+                    blockCompilableInstructions.addAll(c.instructionList);
+                }
                 if (c instanceof MipsAssembly){
                     pseudo = true;
                 }
@@ -94,4 +100,14 @@ public class LanguageLoader{
             Globals.instructionSet.addPseudoInstructions();
         }
     }
-}
\ No newline at end of file
+
+    /**
+    * Tells whether the simulator may compile the given instruction into a basic block.
+    * @param instr An instruction from the global instruction list.
+    * @return true if the language that defined instr allows block compilation.
+    * @see CustomAssembly#allowsBlockCompilation
+    */
+    public static boolean allowsBlockCompilation(BasicInstruction instr){
+        return blockCompilableInstructions.contains(instr);
+    }
+}
@@ -20,6 +20,11 @@ public class MipsAssembly extends CustomAssembly{
         return "The basic MIPS instruction set.";
     }
 
+    @Override
+    public boolean allowsBlockCompilation(){
+        return true;
+    }
+
     @Override
     protected void populate(){
         {
@@ -51,20 +51,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void simulate(ProgramStatement statement) throws ProcessingException {
          int byteAddress = RegisterFile.getValue(4);
          char ch = 0;
+         // Printed as one string rather than a character at a time.
+         StringBuilder string = new StringBuilder();
          try
          {
             ch = (char) Globals.memory.getByte(byteAddress);
                               // won't stop until NULL byte reached!
             while (ch != 0)
             {
-               SystemIO.printString(new Character(ch).toString());
+               string.append(ch);
                byteAddress++;
                ch = (char) Globals.memory.getByte(byteAddress);
             }
          } 
              catch (AddressErrorException e)
             {
+               SystemIO.printString(string.toString()); // what was read before the bad address
                throw new ProcessingException(statement, e);
             }
+         SystemIO.printString(string.toString());
       }
    }
\ No newline at end of file
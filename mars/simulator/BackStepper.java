@@ -41,7 +41,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  
     public class BackStepper {
       // The types of "undo" actions.  Under 1.5, these would be enumerated type.
-   	// These fit better in the BackStep class below but inner classes cannot have static members.
       private static final int MEMORY_RESTORE_RAW_WORD = 0;
       private static final int MEMORY_RESTORE_WORD = 1;
       private static final int MEMORY_RESTORE_HALF = 2;
@@ -53,20 +52,29 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final int COPROC1_CONDITION_CLEAR = 8;
       private static final int COPROC1_CONDITION_SET = 9;
       private static final int DO_NOTHING = 10;  // instruction does not write anything.
+      
+      // Bit added to the action of a back step whose instruction executed in the
+      // "delay slot" of a delayed branch.
+      private static final int DELAY_SLOT_FLAG = 0x100;
+      private static final int ACTION_MASK = 0xFF;
    
-      // Flag to mark BackStep object as prepresenting specific situation: user manipulates
+      // Flag to mark back step as prepresenting specific situation: user manipulates
    	// memory/register value via GUI after assembling program but before running it.
       private static final int NOT_PC_VALUE = -1;
    	
       private boolean engaged;
       private BackstepStack backSteps;
    	
-   	// One can argue using java.util.Stack, given its clumsy implementation.
-   	// A homegrown linked implementation will be more streamlined, but
-   	// I anticipate that backstepping will only be used during timed
-   	// (currently max 30 instructions/second) or stepped execution, where
-   	// performance is not an issue.  Its Vector implementation may result
-   	// in quicker garbage collection than a pure linked list implementation.
+   	// The back steps are kept in a circular stack of parallel int arrays (see 
+   	// BackstepStack below) rather than one object per step, so recording a step
+   	// costs four array stores and the stack can hold millions of steps (BackstepLimit
+   	// in Config.properties) without millions of objects.  The arrays grow as steps are
+   	// recorded, so a large limit costs memory only when it is used (16 bytes per step).
+   	//
+   	// The stack is not synchronized itself.  Steps are recorded as memory and registers
+   	// are written, which is done while holding Globals.memoryAndRegistersLock (by the
+   	// simulator for each instruction, and by the GUI when the user edits a value), and
+   	// the public methods used by the GUI to inspect or pop the stack take the same lock.
    
        /**
    	  * Create a fresh BackStepper.  It is enabled, which means all
@@ -99,7 +107,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 * @return true if there are no steps to be undone, false otherwise.
    	 */
        public boolean empty() {
-         return backSteps.empty();
+         synchronized (Globals.memoryAndRegistersLock) {
+            return backSteps.empty();
+         }
       }
    	
    	/**
@@ -110,7 +120,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
    	// Added 25 June 2007
        public boolean inDelaySlot() {
-         return !empty() && backSteps.peek().inDelaySlot;
+         synchronized (Globals.memoryAndRegistersLock) {
+            return !backSteps.empty() && (backSteps.actions[backSteps.top] & DELAY_SLOT_FLAG) != 0;
+         }
       }
    	
       /**
@@ -123,65 +135,66 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 // all store their result in register pairs which results in two store operations.  
    	 // Both must be undone transparently, so we need to detect that multiple steps happen
    	 // together and carry out all of them here.  
-   	 // Use a do-while loop based on the backstep's program statement reference.
+   	 // Use a do-while loop based on the backstep's program counter, which identifies
+   	 // the statement whose action is being undone.
    	 
        public void backStep() {
-         if (engaged && !backSteps.empty()) {
-            ProgramStatement statement = ((BackStep)backSteps.peek()).ps;
-            engaged = false; // GOTTA DO THIS SO METHOD CALL IN SWITCH WILL NOT RESULT IN NEW ACTION ON STACK!
-            do {
-               BackStep step = (BackStep) backSteps.pop();
-            /*
-            	System.out.println("backstep POP: action "+step.action+" pc "+mars.util.Binary.intToHexString(step.pc)+
-            	                   " source "+((step.ps==null)? "none":step.ps.getSource())+
-            							 " parm1 "+step.param1+" parm2 "+step.param2);
-            */
-               if (step.pc != NOT_PC_VALUE) {
-                  RegisterFile.setProgramCounter(step.pc);
-               }
-               try {
-                  switch (step.action) {
-                     case MEMORY_RESTORE_RAW_WORD : 
-                        Globals.memory.setRawWord(step.param1, step.param2);
-                        break;
-                     case MEMORY_RESTORE_WORD : 
-                        Globals.memory.setWord(step.param1, step.param2);
-                        break;
-                     case MEMORY_RESTORE_HALF :
-                        Globals.memory.setHalf(step.param1, step.param2);
-                        break;
-                     case MEMORY_RESTORE_BYTE :
-                        Globals.memory.setByte(step.param1, step.param2);
-                        break;
-                     case REGISTER_RESTORE :
-                        RegisterFile.updateRegister(step.param1, step.param2);
-                        break;
-                     case PC_RESTORE : 
-                        RegisterFile.setProgramCounter(step.param1);
-                        break;
-                     case COPROC0_REGISTER_RESTORE :
-                        Coprocessor0.updateRegister(step.param1, step.param2);
-                        break;
-                     case COPROC1_REGISTER_RESTORE :
-                        Coprocessor1.updateRegister(step.param1, step.param2);
-                        break;
-                     case COPROC1_CONDITION_CLEAR :
-                        Coprocessor1.clearConditionFlag(step.param1);
-                        break;
-                     case COPROC1_CONDITION_SET :
-                        Coprocessor1.setConditionFlag(step.param1);
-                        break;
-                     case DO_NOTHING :
-                        break;
+         synchronized (Globals.memoryAndRegistersLock) {
+            if (engaged && !backSteps.empty()) {
+               int statementPC = backSteps.pcs[backSteps.top];
+               engaged = false; // GOTTA DO THIS SO METHOD CALL IN SWITCH WILL NOT RESULT IN NEW ACTION ON STACK!
+               do {
+                  int step = backSteps.pop();
+                  int pc = backSteps.pcs[step];
+                  int param1 = backSteps.params1[step];
+                  int param2 = backSteps.params2[step];
+                  if (pc != NOT_PC_VALUE) {
+                     RegisterFile.setProgramCounter(pc);
                   }
-               } 
-                   catch (Exception e) { 
-                  // if the original action did not cause an exception this will not either.
-                     System.out.println("Internal MARS error: address exception while back-stepping.");
-                     System.exit(0);
-                  }
-            } while (!backSteps.empty() && statement == ((BackStep)backSteps.peek()).ps);
-            engaged = true;  // RESET IT (was disabled at top of loop -- see comment)
+                  try {
+                     switch (backSteps.actions[step] & ACTION_MASK) {
+                        case MEMORY_RESTORE_RAW_WORD : 
+                           Globals.memory.setRawWord(param1, param2);
+                           break;
+                        case MEMORY_RESTORE_WORD : 
+                           Globals.memory.setWord(param1, param2);
+                           break;
+                        case MEMORY_RESTORE_HALF :
+                           Globals.memory.setHalf(param1, param2);
+                           break;
+                        case MEMORY_RESTORE_BYTE :
+                           Globals.memory.setByte(param1, param2);
+                           break;
+                        case REGISTER_RESTORE :
+                           RegisterFile.updateRegister(param1, param2);
+                           break;
+                        case PC_RESTORE : 
+                           RegisterFile.setProgramCounter(param1);
+                           break;
+                        case COPROC0_REGISTER_RESTORE :
+                           Coprocessor0.updateRegister(param1, param2);
+                           break;
+                        case COPROC1_REGISTER_RESTORE :
+                           Coprocessor1.updateRegister(param1, param2);
+                           break;
+                        case COPROC1_CONDITION_CLEAR :
+                           Coprocessor1.clearConditionFlag(param1);
+                           break;
+                        case COPROC1_CONDITION_SET :
+                           Coprocessor1.setConditionFlag(param1);
+                           break;
+                        case DO_NOTHING :
+                           break;
+                     }
+                  } 
+                      catch (Exception e) { 
+                     // if the original action did not cause an exception this will not either.
+                        System.out.println("Internal MARS error: address exception while back-stepping.");
+                        System.exit(0);
+                     }
+               } while (!backSteps.empty() && statementPC == backSteps.pcs[backSteps.top]);
+               engaged = true;  // RESET IT (was disabled at top of loop -- see comment)
+            }
          }
       }
   
@@ -266,7 +279,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          value -= Instruction.INSTRUCTION_LENGTH; 
          // Use "value" insead of "pc()" for second arg because RegisterFile.getProgramCounter() 
          // returns branch target address at this point.
-         backSteps.push(PC_RESTORE, value, value); 
+         backSteps.push(PC_RESTORE, value, value, 0); 
          return value;
       }		
    
@@ -301,7 +314,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addConditionFlagSet(int flag) {
-         backSteps.push(COPROC1_CONDITION_SET, pc(), flag);
+         backSteps.push(COPROC1_CONDITION_SET, pc(), flag, 0);
          return flag;
       }	
    
@@ -312,7 +325,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addConditionFlagClear(int flag) {
-         backSteps.push(COPROC1_CONDITION_CLEAR, pc(), flag);
+         backSteps.push(COPROC1_CONDITION_CLEAR, pc(), flag, 0);
          return flag;
       }	
    		
@@ -324,137 +337,101 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return 0
    	  */
        public int addDoNothing(int pc) {
-         if (backSteps.empty() || backSteps.peek().pc != pc) { 
-            backSteps.push(DO_NOTHING, pc);
+         if (backSteps.empty() || backSteps.pcs[backSteps.top] != pc) { 
+            backSteps.push(DO_NOTHING, pc, 0, 0);
          }
          return 0;
       }
    	
-   		   	 	
-   	// Represents a "back step" (undo action) on the stack.
-       private class BackStep {
-         private int action;  // what do do MEMORY_RESTORE_WORD, etc
-         private int pc;      // program counter value when original step occurred
-         private ProgramStatement ps;   // statement whose action is being "undone" here
-         private int param1;  // first parameter required by that action
-         private int param2;  // optional second parameter required by that action
-         private boolean inDelaySlot; // true if instruction executed in "delay slot" (delayed branching enabled)
-      
-         // it is critical that BackStep object get its values by calling this method
-      	// rather than assigning to individual members, because of the technique used
-      	// to set its ps member (and possibly pc).
-          private void assign(int act, int programCounter, int parm1, int parm2) {
-            action = act;
-            pc     = programCounter;
-            try {
-            // Client does not have direct access to program statement, and rather than making all
-            // of them go through the methods below to obtain it, we will do it here.  
-            // Want the program statement but do not want observers notified.
-               ps = Globals.memory.getStatementNoNotify(programCounter);
-            } 
-                catch (Exception e) {
-                // The only situation causing this so far: user modifies memory or register
-                // contents through direct manipulation on the GUI, after assembling the program but
-                // before starting to run it (or after backstepping all the way to the start).
-                // The action will not be associated with any instruction, but will be carried out
-                // when popped.
-                  ps = null;
-                  pc = NOT_PC_VALUE; // Backstep method above will see this as flag to not set PC
-               } 
-            param1 = parm1;
-            param2 = parm2;
-            inDelaySlot = Simulator.inDelaySlot(); // ADDED 25 June 2007
-         /*				
-            System.out.println("backstep PUSH: action "+action+" pc "+mars.util.Binary.intToHexString(pc)+
-         		                   " source "+((ps==null)? "none":ps.getSource())+
-         								 " parm1 "+param1+" parm2 "+param2);
-         */
+   	// Determine whether a back step's program counter value is the address of a 
+   	// statement.  It is not when the user modifies memory or register contents through 
+   	// direct manipulation on the GUI, after assembling the program but before starting to
+   	// run it (or after backstepping all the way to the start).  The action will not be
+   	// associated with any instruction, but will be carried out when popped.
+       private static boolean isStatementAddress(int pc) {
+         if (!Memory.wordAligned(pc)) {
+            return false;
+         }
+         if (Memory.inTextSegment(pc) || Memory.inKernelTextSegment(pc)) {
+            return true;
          }
+         return Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED)
+                && (Memory.inDataSegment(pc) || Memory.inKernelDataSegment(pc) || Memory.inMemoryMapSegment(pc)
+                    || (pc >= Memory.stackLimitAddress && pc <= Memory.stackBaseAddress));
       }
    	
    	// *****************************************************************************
    	// special purpose stack class for backstepping.  You've heard of circular queues
    	// implemented with an array, right?  This is a circular stack!  When full, the
    	// newly-pushed item overwrites the oldest item, with circular top!  All operations 
-   	// are constant time.  It's synchronized too, to be safe (is used by both the 
-   	// simulation thread and the GUI thread for the back-step button).
-   	// Upon construction, it is filled with newly-created empty BackStep objects which
-   	// will exist for the life of the stack.  Push does not create a BackStep object 
-   	// but instead overwrites the contents of the existing one.  Thus during MIPS
-   	// program (simulated) execution, BackStep objects are never created or junked
-   	// regardless of how many steps are executed.  This will speed things up a bit
-   	// and make life easier for the garbage collector.
+   	// are constant time.
+   	// Each back step is a slot in four parallel arrays: the action (with the delay slot
+   	// flag), the program counter value when the original step occurred, and the first
+   	// and second parameters required by the action.  Thus during MIPS program (simulated)
+   	// execution, no objects are created or junked regardless of how many steps are
+   	// executed.  The arrays start small and double as needed up to the capacity; until
+   	// they reach it the stack has never wrapped around, so its steps occupy slots 0
+   	// through top and growing is a plain copy.
    	
        private class BackstepStack {
+         private static final int INITIAL_LENGTH = 1024;
          private int capacity;
          private int size;
          private int top;
-         private BackStep[] stack;
+         private int[] actions;
+         private int[] pcs;
+         private int[] params1;
+         private int[] params2;
       
-          // Stack is created upon successful assembly or reset.  The one-time overhead of
-      	 // creating all the BackStep objects will not be noticed by the user, and enhances
-      	 // runtime performance by not having to create or recycle them during MIPS
-      	 // program execution.
+          // Stack is created upon successful assembly or reset. 
           private BackstepStack(int capacity) {
-            this.capacity = capacity;
+            this.capacity = Math.max(capacity, 1);
             this.size = 0;
             this.top = -1;
-            this.stack = new BackStep[capacity];
-            for (int i=0; i<capacity; i++) {
-               this.stack[i] = new BackStep();
-            }
+            allocate(Math.min(this.capacity, INITIAL_LENGTH));
          }
       	
-          private synchronized boolean empty() {
+          private boolean empty() {
             return size==0;
          }
          
-          private synchronized void push(int act, int programCounter, int parm1, int parm2) {
-            if (size==0) {
-               top=0;
-               size++;
-            } 
-            else if (size < capacity) {
-               top = (top + 1) % capacity;
+          private void push(int act, int programCounter, int parm1, int parm2) {
+            if (size == pcs.length && size < capacity) {
+               allocate(Math.min(capacity, 2 * size));
+            }
+            top = (top + 1 == capacity) ? 0 : top + 1;
+            if (size < capacity) {
                size++;
-            } 
-            else { // size == capacity.  The top moves up one, replacing oldest entry (goodbye!)
-               top = (top + 1) % capacity;
+            } // else size == capacity.  The top moves up one, replacing oldest entry (goodbye!)
+            if (!isStatementAddress(programCounter)) {
+               programCounter = NOT_PC_VALUE; // Backstep method above will see this as flag to not set PC
             }
-         	// We'll re-use existing objects rather than create/discard each time.
-         	// Must use assign() method rather than series of assignment statements!
-            stack[top].assign(act, programCounter, parm1, parm2);
-         }
-      	
-          private synchronized void push(int act, int programCounter, int parm1) {
-            push(act, programCounter, parm1, 0);
-         }
-      	
-          private synchronized void push(int act, int programCounter) {
-            push(act, programCounter, 0, 0);
+            actions[top] = (Simulator.inDelaySlot()) ? act | DELAY_SLOT_FLAG : act; // ADDED 25 June 2007
+            pcs[top] = programCounter;
+            params1[top] = parm1;
+            params2[top] = parm2;
          }
          
       	// NO PROTECTION.  This class is used only within this file so there is no excuse
-      	// for trying to pop from empty stack.
-          private synchronized BackStep pop() {
-            BackStep bs;
-            bs = stack[top];
-            if (size==1) {
-               top = -1;
-            } 
-            else {
-               top = (top + capacity - 1) % capacity;
-            }
+      	// for trying to pop from empty stack.  Returns the popped step's slot, whose contents
+      	// remain valid until the next push.
+          private int pop() {
+            int slot = top;
+            top = (top == 0) ? capacity - 1 : top - 1;
             size--;
-            return bs;
+            return slot;
          }
       
-      	// NO PROTECTION.  This class is used only within this file so there is no excuse
-      	// for trying to peek from empty stack.         
-          private synchronized BackStep peek() {
-            return stack[top];
+          private void allocate(int length) {
+            actions = grow(actions, length);
+            pcs = grow(pcs, length);
+            params1 = grow(params1, length);
+            params2 = grow(params2, length);
+         }
+      
+          private int[] grow(int[] column, int length) {
+            return (column == null) ? new int[length] : Arrays.copyOf(column, length);
          }
-      			
       }
    
-   }
\ No newline at end of file
+   }
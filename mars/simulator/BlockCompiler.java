@@ -0,0 +1,349 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import java.io.*;
+
+/**
+ * Tiered execution support for the simulator.  While the interpreter runs, it reports
+ * each control transfer (the address it lands on after a taken branch or jump) here.
+ * Once an address in the user text segment has been entered <tt>THRESHOLD</tt> times,
+ * the basic block starting there is compiled: a small JVM class is generated and defined
+ * through a private class loader.  Its one method calls the SimulationCode of each
+ * instruction in the block in turn, so every instruction gets its own call site and the
+ * JVM is free to inline the simulation code into it.  The interpreter loop in Simulator
+ * then runs the block in one step.
+ *
+ * A block runs from its entry address through the first branch or jump (I_BRANCH and
+ * J formats, plus <tt>jr</tt> and <tt>jalr</tt>), and stops short of any instruction
+ * that must stay in the interpreter: <tt>syscall</tt>, <tt>break</tt>, <tt>eret</tt>,
+ * undefined instructions, and instructions from languages that have not opted in via
+ * CustomAssembly.allowsBlockCompilation().  Deciding when a block may run at all
+ * (breakpoints, backstepping, step limits, ...) is left to the Simulator.
+ *
+ * Compiled blocks are discarded whenever Memory stores a statement into the text segment
+ * or is reinitialized.  Only one program is simulated at a time, so everything here is
+ * done with statics, as in DelayedBranch.  The blocks belong to the memory they were
+ * compiled from, so Memory.State saves and restores them with it (see
+ * mars.SimulationContext).
+ *
+ * @see CompiledBlock
+ * @version October 2026
+ **/
+
+    public class BlockCompiler {
+
+      /** Number of times a block must be entered before it is compiled. */
+      public static final int THRESHOLD = 50;
+      /** Maximum number of instructions in a compiled block. */
+      public static final int MAX_BLOCK_LENGTH = 256;
+
+      private static final int INITIAL_CAPACITY = 1024; // words; grows by doubling
+      private static final int NOT_COMPILABLE = Integer.MIN_VALUE; // counter value for blocks that can't be compiled
+      private static final String CLASS_NAME_PREFIX = "mars/simulator/GeneratedBlock";
+
+      private static int[] counters = new int[0];
+      private static CompiledBlock[] blocks = new CompiledBlock[0];
+      private static BlockClassLoader loader = new BlockClassLoader();
+      private static int classCount = 0;
+
+   	/**
+   	 * The compiled blocks and execution counts of one simulation's memory.  A new State
+   	 * has none.
+   	 */
+       public static final class State {
+         private int[] counters = new int[0];
+         private CompiledBlock[] blocks = new CompiledBlock[0];
+         private BlockClassLoader loader = new BlockClassLoader();
+      }
+   
+   	/**
+   	 * Returns the compiled blocks and execution counts now in use.
+   	 * @return the current compiled blocks
+   	 */
+       public static State saveState() {
+         State state = new State();
+         state.counters = counters;
+         state.blocks = blocks;
+         state.loader = loader;
+         return state;
+      }
+   
+   	/**
+   	 * Makes the compiled blocks and execution counts in the given state the ones in use.
+   	 * @param state compiled blocks from saveState() or a new State
+   	 */
+       public static void restoreState(State state) {
+         counters = state.counters;
+         blocks = state.blocks;
+         loader = state.loader;
+      }
+   
+   	/**
+   	 * Discard all compiled blocks and execution counts.  Called when memory is cleared
+   	 * or the text segment is modified.
+   	 */
+       public static void clear() {
+         if (counters.length > 0) {
+            counters = new int[0];
+            blocks = new CompiledBlock[0];
+            loader = new BlockClassLoader(); // lets the old generated classes be collected
+         }
+      }
+
+   	/**
+   	 * Get the compiled block starting at the given address, if there is one.  If
+   	 * <tt>entered</tt> is true the address was reached by a control transfer; this is
+   	 * counted and the block is compiled once it becomes hot.
+   	 * @param address address of the next instruction to execute
+   	 * @param entered true if execution has just branched or jumped to this address
+   	 * @return the compiled block starting at address, or null if none
+   	 */
+       public static CompiledBlock getBlock(int address, boolean entered) {
+         if (!Memory.wordAligned(address)) {
+            return null;
+         }
+         int index = (address - Memory.textBaseAddress) >> 2;
+         if (index < 0 || index >= counters.length) {
+            if (!entered || !Memory.inTextSegment(address)) {
+               return null;
+            }
+            ensureCapacity(index);
+         }
+         CompiledBlock block = blocks[index];
+         if (block == null && entered && ++counters[index] == THRESHOLD) {
+            block = compile(address);
+            if (block == null) {
+               counters[index] = NOT_COMPILABLE;
+            }
+            blocks[index] = block;
+         }
+         return block;
+      }
+
+      // Collect the instructions of the block starting at address and generate its class.
+      // Returns null if the block would be too short to be worth it.
+       private static CompiledBlock compile(int address) {
+         ProgramStatement[] statements = new ProgramStatement[MAX_BLOCK_LENGTH];
+         SimulationCode[] handlers = new SimulationCode[MAX_BLOCK_LENGTH];
+         int length = 0;
+         try {
+            while (length < MAX_BLOCK_LENGTH && Memory.inTextSegment(address)) {
+               ProgramStatement statement = Globals.memory.getStatementNoNotify(address);
+               if (statement == null || !(statement.getInstruction() instanceof BasicInstruction)) {
+                  break;
+               }
+               BasicInstruction instruction = (BasicInstruction) statement.getInstruction();
+               if (!LanguageLoader.allowsBlockCompilation(instruction) || mustInterpret(instruction)) {
+                  break;
+               }
+               statements[length] = statement;
+               handlers[length] = instruction.getSimulationCode();
+               length++;
+               if (endsBlock(instruction)) {
+                  break;
+               }
+               address += 4;
+            }
+         }
+             catch (AddressErrorException e) { } // end the block at the bad address
+         if (length < 2) {
+            return null;
+         }
+         ProgramStatement[] blockStatements = new ProgramStatement[length];
+         SimulationCode[] blockHandlers = new SimulationCode[length];
+         System.arraycopy(statements, 0, blockStatements, 0, length);
+         System.arraycopy(handlers, 0, blockHandlers, 0, length);
+         try {
+            String className = CLASS_NAME_PREFIX + (classCount++);
+            Class blockClass = loader.define(className.replace('/', '.'), generate(className, length));
+            CompiledBlock block = (CompiledBlock) blockClass.getDeclaredConstructor().newInstance();
+            block.initialize(blockStatements[0].getAddress(), blockHandlers, blockStatements);
+            return block;
+         }
+             catch (IOException e) { // should not occur; leave the block to the interpreter
+               return null;
+            }
+             catch (ReflectiveOperationException e) {
+               return null;
+            }
+             catch (LinkageError e) {
+               return null;
+            }
+      }
+
+      // Branches and jumps end a block: the instruction after them is not necessarily next.
+       private static boolean endsBlock(BasicInstruction instruction) {
+         BasicInstructionFormat format = instruction.getInstructionFormat();
+         String name = instruction.getName();
+         return format == BasicInstructionFormat.I_BRANCH_FORMAT || format == BasicInstructionFormat.J_FORMAT
+                || name.equals("jr") || name.equals("jalr");
+      }
+
+      // Instructions that hand control to the system or the exception handler are always interpreted.
+       private static boolean mustInterpret(BasicInstruction instruction) {
+         String name = instruction.getName();
+         return name.equals("syscall") || name.equals("break") || name.equals("eret");
+      }
+
+       private static void ensureCapacity(int index) {
+         int capacity = Math.max(counters.length, INITIAL_CAPACITY);
+         while (capacity <= index) {
+            capacity *= 2;
+         }
+         int[] newCounters = new int[capacity];
+         CompiledBlock[] newBlocks = new CompiledBlock[capacity];
+         System.arraycopy(counters, 0, newCounters, 0, counters.length);
+         System.arraycopy(blocks, 0, newBlocks, 0, blocks.length);
+         counters = newCounters;
+         blocks = newBlocks;
+      }
+
+      ////////////////////////////////////////////////////////////////////////////
+      //  Class file generation.  The generated class is equivalent to
+      //
+      //    public final class GeneratedBlockN extends CompiledBlock {
+      //       protected void execute(SimulationCode[] h, ProgramStatement[] s) {
+      //          h[0].simulate(s[0]);
+      //          RegisterFile.incrementPC();
+      //          h[1].simulate(s[1]);
+      //          ...
+      //       }
+      //    }
+      //
+      //  Class file version 49 is used so that no stack map frames are needed.
+      ////////////////////////////////////////////////////////////////////////////
+
+      private static final int CP_UTF8 = 1, CP_CLASS = 7, CP_METHODREF = 10,
+                               CP_INTERFACE_METHODREF = 11, CP_NAME_AND_TYPE = 12;
+      // Constant pool indexes; must match the order entries are written in generate().
+      private static final int THIS_CLASS = 2, SUPER_CLASS = 4, INIT_NAME = 5, VOID_DESCRIPTOR = 6,
+                               SUPER_INIT = 8, EXECUTE_NAME = 9, EXECUTE_DESCRIPTOR = 10, CODE = 11,
+                               INCREMENT_PC = 16, SIMULATE = 22, CONSTANT_POOL_COUNT = 23;
+      private static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, AALOAD = 0x32,
+                               ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, RETURN = 0xb1,
+                               INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, INVOKEINTERFACE = 0xb9;
+
+       private static byte[] generate(String className, int length) throws IOException {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + 16 * length);
+         DataOutputStream out = new DataOutputStream(bytes);
+         out.writeInt(0xCAFEBABE);
+         out.writeShort(0);   // minor version
+         out.writeShort(49);  // major version
+         out.writeShort(CONSTANT_POOL_COUNT);
+         writeUtf8(out, className);                                        // 1
+         writeRef(out, CP_CLASS, 1);                                       // 2 THIS_CLASS
+         writeUtf8(out, "mars/simulator/CompiledBlock");                   // 3
+         writeRef(out, CP_CLASS, 3);                                       // 4 SUPER_CLASS
+         writeUtf8(out, "<init>");                                         // 5 INIT_NAME
+         writeUtf8(out, "()V");                                            // 6 VOID_DESCRIPTOR
+         writeRef(out, CP_NAME_AND_TYPE, INIT_NAME, VOID_DESCRIPTOR);      // 7
+         writeRef(out, CP_METHODREF, SUPER_CLASS, 7);                      // 8 SUPER_INIT
+         writeUtf8(out, "execute");                                        // 9 EXECUTE_NAME
+         writeUtf8(out, "([Lmars/mips/instructions/SimulationCode;[Lmars/ProgramStatement;)V"); // 10
+         writeUtf8(out, "Code");                                           // 11 CODE
+         writeUtf8(out, "mars/mips/hardware/RegisterFile");                // 12
+         writeRef(out, CP_CLASS, 12);                                      // 13
+         writeUtf8(out, "incrementPC");                                    // 14
+         writeRef(out, CP_NAME_AND_TYPE, 14, VOID_DESCRIPTOR);             // 15
+         writeRef(out, CP_METHODREF, 13, 15);                              // 16 INCREMENT_PC
+         writeUtf8(out, "mars/mips/instructions/SimulationCode");          // 17
+         writeRef(out, CP_CLASS, 17);                                      // 18
+         writeUtf8(out, "simulate");                                       // 19
+         writeUtf8(out, "(Lmars/ProgramStatement;)V");                     // 20
+         writeRef(out, CP_NAME_AND_TYPE, 19, 20);                          // 21
+         writeRef(out, CP_INTERFACE_METHODREF, 18, 21);                    // 22 SIMULATE
+         out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+         out.writeShort(THIS_CLASS);
+         out.writeShort(SUPER_CLASS);
+         out.writeShort(0); // interfaces
+         out.writeShort(0); // fields
+         out.writeShort(2); // methods
+         // public <init>() { super(); }
+         byte[] code = { (byte) ALOAD_0, (byte) INVOKESPECIAL, 0, (byte) SUPER_INIT, (byte) RETURN };
+         writeMethod(out, 0x0001, INIT_NAME, VOID_DESCRIPTOR, 1, 1, code);
+         // protected void execute(SimulationCode[], ProgramStatement[])
+         ByteArrayOutputStream body = new ByteArrayOutputStream(16 * length);
+         for (int i = 0; i < length; i++) {
+            if (i > 0) {
+               body.write(INVOKESTATIC);
+               body.write(INCREMENT_PC >> 8);
+               body.write(INCREMENT_PC);
+            }
+            body.write(ALOAD_1);
+            writeIndex(body, i);
+            body.write(AALOAD);
+            body.write(ALOAD_2);
+            writeIndex(body, i);
+            body.write(AALOAD);
+            body.write(INVOKEINTERFACE);
+            body.write(SIMULATE >> 8);
+            body.write(SIMULATE);
+            body.write(2); // argument slots, including the receiver
+            body.write(0);
+         }
+         body.write(RETURN);
+         writeMethod(out, 0x0004, EXECUTE_NAME, EXECUTE_DESCRIPTOR, 3, 3, body.toByteArray());
+         out.writeShort(0); // class attributes
+         out.flush();
+         return bytes.toByteArray();
+      }
+
+       private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+         out.writeByte(CP_UTF8);
+         out.writeUTF(value);
+      }
+
+       private static void writeRef(DataOutputStream out, int tag, int index) throws IOException {
+         out.writeByte(tag);
+         out.writeShort(index);
+      }
+
+       private static void writeRef(DataOutputStream out, int tag, int index1, int index2) throws IOException {
+         out.writeByte(tag);
+         out.writeShort(index1);
+         out.writeShort(index2);
+      }
+
+       private static void writeMethod(DataOutputStream out, int access, int name, int descriptor,
+                                       int maxStack, int maxLocals, byte[] code) throws IOException {
+         out.writeShort(access);
+         out.writeShort(name);
+         out.writeShort(descriptor);
+         out.writeShort(1); // attributes: Code
+         out.writeShort(CODE);
+         out.writeInt(12 + code.length);
+         out.writeShort(maxStack);
+         out.writeShort(maxLocals);
+         out.writeInt(code.length);
+         out.write(code);
+         out.writeShort(0); // exception table
+         out.writeShort(0); // code attributes
+      }
+
+       private static void writeIndex(ByteArrayOutputStream body, int index) {
+         if (index <= 5) {
+            body.write(ICONST_0 + index);
+         }
+         else if (index <= Byte.MAX_VALUE) {
+            body.write(BIPUSH);
+            body.write(index);
+         }
+         else {
+            body.write(SIPUSH);
+            body.write(index >> 8);
+            body.write(index);
+         }
+      }
+
+      // Generated classes get their own loader so they can be discarded with the blocks.
+       private static class BlockClassLoader extends ClassLoader {
+          BlockClassLoader() {
+            super(CompiledBlock.class.getClassLoader());
+         }
+
+          Class define(String name, byte[] classBytes) {
+            return defineClass(name, classBytes, 0, classBytes.length);
+         }
+      }
+   }
@@ -0,0 +1,66 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.instructions.*;
+
+/**
+ * A straight-line run of basic instructions (a basic block) from the user text segment
+ * that has been compiled by BlockCompiler.  Subclasses are generated at runtime; their
+ * execute() method performs the instructions of the block one after the other, exactly
+ * as the interpreter in Simulator would, but with one call site per instruction.
+ *
+ * @see BlockCompiler
+ * @version October 2026
+ **/
+
+    public abstract class CompiledBlock {
+
+      private int startAddress;
+      private int endAddress;
+      private SimulationCode[] handlers;
+      private ProgramStatement[] statements;
+
+       void initialize(int startAddress, SimulationCode[] handlers, ProgramStatement[] statements) {
+         this.startAddress = startAddress;
+         this.endAddress = startAddress + 4 * (statements.length - 1);
+         this.handlers = handlers;
+         this.statements = statements;
+      }
+
+   	/**
+   	 * @return text segment address of the first instruction in the block
+   	 */
+       public int getStartAddress() {
+         return startAddress;
+      }
+
+   	/**
+   	 * @return text segment address of the last instruction in the block
+   	 */
+       public int getEndAddress() {
+         return endAddress;
+      }
+
+   	/**
+   	 * @return number of instructions in the block
+   	 */
+       public int getLength() {
+         return statements.length;
+      }
+
+   	/**
+   	 * Simulate the whole block.  On entry the program counter must already have been
+   	 * incremented past the first instruction, as the simulator does before each step.
+   	 * If an instruction throws, the instructions following it are not executed and the
+   	 * program counter is left just past the one that threw.
+   	 * @throws ProcessingException thrown by the simulation code of an instruction
+   	 */
+       public final void run() throws ProcessingException {
+         execute(handlers, statements);
+      }
+
+   	/**
+   	 * Generated: for each instruction i of the block, increment the program counter
+   	 * (except for i == 0) then call <tt>handlers[i].simulate(statements[i])</tt>.
+   	 */
+       protected abstract void execute(SimulationCode[] handlers, ProgramStatement[] statements) throws ProcessingException;
+   }
@@ -0,0 +1,134 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+
+/**
+ * Pre-decoded copy of the user text segment, used by the simulator when the
+ * fast engine setting is enabled.  Each word of the text segment that has been
+ * executed is kept in a dense array indexed by <tt>(pc - textBaseAddress) >> 2</tt>,
+ * together with the SimulationCode that executes it.  This saves the simulator
+ * from going back through Memory and the instruction object for every step.
+ *
+ * The decoded entries are kept coherent with Memory: it calls invalidate() whenever
+ * a statement is stored into the text segment (assembly, self-modifying code, backstep)
+ * and clear() whenever it is reinitialized.  Fetches that fall outside the user text
+ * segment, or that occur while memory observers are registered (they expect to be told
+ * about each instruction fetch), are passed through to Memory unchanged.
+ *
+ * Only one program is simulated at a time, so everything here is done with statics,
+ * as in DelayedBranch.  The decoded statements belong to the memory they were decoded
+ * from, so Memory.State saves and restores them with it (see mars.SimulationContext).
+ *
+ * @version October 2026
+ **/
+
+    public class DecodedTextSegment {
+
+      private static final int INITIAL_CAPACITY = 1024; // words; grows by doubling
+      private static ProgramStatement[] statements = new ProgramStatement[0];
+      private static SimulationCode[] handlers = new SimulationCode[0];
+
+   	/**
+   	 * The decoded statements of one simulation's memory.  A new State has none.
+   	 */
+       public static final class State {
+         private ProgramStatement[] statements = new ProgramStatement[0];
+         private SimulationCode[] handlers = new SimulationCode[0];
+      }
+   
+   	/**
+   	 * Returns the decoded statements now in use.
+   	 * @return the current decoded statements
+   	 */
+       public static State saveState() {
+         State state = new State();
+         state.statements = statements;
+         state.handlers = handlers;
+         return state;
+      }
+   
+   	/**
+   	 * Makes the decoded statements in the given state the ones in use.
+   	 * @param state decoded statements from saveState() or a new State
+   	 */
+       public static void restoreState(State state) {
+         statements = state.statements;
+         handlers = state.handlers;
+      }
+   
+   	/**
+   	 * Discard all decoded statements.  Called when memory is cleared.
+   	 */
+       public static void clear() {
+         statements = new ProgramStatement[0];
+         handlers = new SimulationCode[0];
+      }
+
+   	/**
+   	 * Discard the decoded statement, if any, at the given text segment address.  Called
+   	 * by Memory when a statement is stored there.
+   	 * @param address text segment address whose contents have changed
+   	 */
+       public static void invalidate(int address) {
+         int index = (address - Memory.textBaseAddress) >> 2;
+         if (index >= 0 && index < statements.length) {
+            statements[index] = null;
+            handlers[index] = null;
+         }
+      }
+
+   	/**
+   	 * Fetch the statement at the given address for execution.  Behaves exactly like
+   	 * <tt>Memory.getStatement()</tt> (same return value, same exceptions, same observer
+   	 * notification) but answers from the decoded array whenever it can.
+   	 * @param address address of the instruction to fetch
+   	 * @return the ProgramStatement at that address, or null if none
+   	 * @throws AddressErrorException under the same conditions as Memory.getStatement()
+   	 */
+       public static ProgramStatement getStatement(int address) throws AddressErrorException {
+         if (Globals.memory.countObservers() > 0 || !Memory.inTextSegment(address) || !Memory.wordAligned(address)) {
+            return Globals.memory.getStatement(address);
+         }
+         int index = (address - Memory.textBaseAddress) >> 2;
+         if (index < statements.length && statements[index] != null) {
+            return statements[index];
+         }
+         ProgramStatement statement = Globals.memory.getStatementNoNotify(address);
+         if (statement != null) {
+            ensureCapacity(index);
+            statements[index] = statement;
+            handlers[index] = (statement.getInstruction() instanceof BasicInstruction)
+                  ? ((BasicInstruction) statement.getInstruction()).getSimulationCode()
+                  : null;
+         }
+         return statement;
+      }
+
+   	/**
+   	 * Get the SimulationCode for the decoded statement at the given address.
+   	 * @param address address of an instruction previously fetched with getStatement()
+   	 * @return its SimulationCode, or null if the address has not been decoded (or does
+   	 * not hold a basic instruction).  The caller then resolves it through the statement.
+   	 */
+       public static SimulationCode getSimulationCode(int address) {
+         int index = (address - Memory.textBaseAddress) >> 2;
+         return (index >= 0 && index < handlers.length) ? handlers[index] : null;
+      }
+
+       private static void ensureCapacity(int index) {
+         if (index < statements.length) {
+            return;
+         }
+         int capacity = Math.max(statements.length, INITIAL_CAPACITY);
+         while (capacity <= index) {
+            capacity *= 2;
+         }
+         ProgramStatement[] newStatements = new ProgramStatement[capacity];
+         SimulationCode[] newHandlers = new SimulationCode[capacity];
+         System.arraycopy(statements, 0, newStatements, 0, statements.length);
+         System.arraycopy(handlers, 0, newHandlers, 0, handlers.length);
+         statements = newStatements;
+         handlers = newHandlers;
+      }
+   }
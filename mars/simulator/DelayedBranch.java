@@ -155,5 +155,27 @@ public class DelayedBranch {
 	 static int getBranchTargetAddress() {
 	    return branchTargetAddress;
 	}
+
+  /**
+   *  Return the state of the delayed branch (cleared, registered or triggered), to be
+	*  put back by restore().  This method has package visibility.
+	*
+	*  @return the state
+	*/
+	 static int getState() {
+	    return state;
+	}
+
+  /**
+   *  Put back a state and branch target address saved in a snapshot.  This method
+	*  has package visibility.
+	*
+	*  @param savedState state, as returned by getState()
+	*  @param targetAddress target address, as returned by getBranchTargetAddress()
+	*/
+	 static void restore(int savedState, int targetAddress) {
+	    state = savedState;
+	    branchTargetAddress = targetAddress;
+	}
 	
 }  // DelayedBranch
\ No newline at end of file
@@ -0,0 +1,545 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.syscalls.*;
+   import java.io.*;
+   import java.util.*;
+
+/**
+ * Reverses execution of a MIPS program by re-executing it, so that it can be stepped
+ * backward, or run backward to a breakpoint, over any number of instructions where the
+ * BackStepper can undo only its latest BackstepLimit steps.  Created for a program upon
+ * successful assembly when reverse execution is enabled (see
+ * Settings.REVERSE_EXECUTION_ENABLED); the BackStepper is then disabled.
+ * <p>
+ * While the program runs, a Snapshot of the machine is taken every CHECKPOINT_INTERVAL
+ * instructions.  Snapshots share unchanged memory blocks with memory, so a checkpoint
+ * costs little more than the blocks written since the one before.  At most
+ * MAX_CHECKPOINTS are kept: when there are more, every other one is dropped and the
+ * interval doubles, so memory stays bounded however long the program runs.
+ * <p>
+ * Execution from a checkpoint is repeatable except for the program's input, which is
+ * recorded as it happens: the register and memory changes made by input syscalls
+ * (console and standard input reads, input dialogs, time and random numbers) and, with
+ * the count of instructions executed before them, the values written to memory-mapped
+ * I/O by anything other than the program (e.g. the keyboard of the Keyboard and Display
+ * MMIO Simulator) and external interrupts.  To go back to instruction n, the latest
+ * checkpoint at or before n is restored and the program re-executed up to n, with the
+ * recorded input replayed instead of read; more checkpoints, closer together, are taken
+ * on the way so that stepping back again re-executes little.  Until the program again
+ * reaches the furthest point it has executed to, output syscalls do nothing, whether
+ * re-executing backward or running forward after stepping back.  Files are re-read and
+ * re-written as the snapshots leave them.
+ * <p>
+ * The GUI reverses execution through Simulator.reverse(), in a background thread that
+ * Stop or Pause can end, leaving the program in the state re-execution had reached.
+ * <p>
+ * Device input arriving while the program is back in the past is not recorded; the
+ * recorded input is replayed instead.  Values the user edits in the GUI are not
+ * recorded either.  Self-modifying code is not supported, since snapshots do not hold
+ * the text segment.
+ *
+ * @version October 2026
+ */
+
+    public class ReverseStepper {
+
+      private static final int CHECKPOINT_INTERVAL = 100000; // instructions
+      private static final int MAX_CHECKPOINTS = 64;
+      private static final int MIN_REFINEMENT_INTERVAL = 1000; // instructions
+
+      // Syscalls, by service name, whose effect depends on something other than the
+      // machine state.  Their register and memory changes are recorded and replayed.
+      private static final Set INPUT_SYSCALLS = new HashSet(Arrays.asList(new String[] {
+            "ReadInt", "ReadFloat", "ReadDouble", "ReadString", "ReadChar", "Time",
+            "RandSeed", "RandInt", "RandIntRange", "RandFloat", "RandDouble", "ConfirmDialog",
+            "InputDialogInt", "InputDialogFloat", "InputDialogDouble", "InputDialogString" }));
+      // Syscalls whose only effect is output.  Skipped when re-executing.
+      private static final Set OUTPUT_SYSCALLS = new HashSet(Arrays.asList(new String[] {
+            "PrintInt", "PrintFloat", "PrintDouble", "PrintString", "PrintChar", "PrintIntHex",
+            "PrintIntBinary", "PrintIntUnsigned", "MidiOut", "MidiOutSync", "Sleep", "MessageDialog",
+            "MessageDialogInt", "MessageDialogFloat", "MessageDialogDouble", "MessageDialogString" }));
+
+      private static ReverseStepper executing = null; // that of the program being simulated
+      private static ReverseStepper latest = null; // that of the program assembled last
+
+      private MIPSprogram program;
+      private ArrayList checkpoints = new ArrayList(); // taken while running, in count order
+      private ArrayList refinements = new ArrayList(); // taken while re-executing, in count order
+      private long interval = CHECKPOINT_INTERVAL;
+      private long nextCheckpoint = 0;
+      private long nextRefinement = Long.MAX_VALUE;
+      private long refinementInterval;
+      private long count = 0; // instructions executed
+      private long present = 0; // instructions executed up to the furthest point reached
+      private ArrayList inputs = new ArrayList(); // one Input per input syscall
+      private int inputPosition = 0; // next to replay
+      private ArrayList events = new ArrayList(); // one Event per device input
+      private int eventPosition = 0; // next to replay
+      private long nextEventCount = Long.MAX_VALUE;
+      private int[] scannedBreakPoints = null; // sorted, while searching for a breakpoint
+      private long lastBreakPoint;
+      private Thread simulationThread = null;
+      private DeviceObserver deviceObserver;
+      private boolean stopped; // re-execution was stopped by Simulator.stopExecution()
+
+   	/**
+   	 * Create the ReverseStepper of a program that has just been assembled.  It records
+   	 * device input from now on, until disposed of.  The ReverseStepper of the program
+   	 * assembled before, if any, is disposed of.
+   	 * @param program the assembled program
+   	 */
+       public ReverseStepper(MIPSprogram program) {
+         if (latest != null) {
+            latest.dispose();
+         }
+         latest = this;
+         this.program = program;
+         deviceObserver = new DeviceObserver();
+         try {
+            Globals.memory.addObserver(deviceObserver, Memory.memoryMapBaseAddress, 0xfffffffc);
+         }
+             catch (AddressErrorException e) {
+               deviceObserver = null;
+            }
+      }
+
+      // The ReverseStepper of the program assembled last, which the next one assembled
+   	// disposes of.  Each simulation has its own (see Simulator.State).
+       static ReverseStepper getLatest() {
+         return latest;
+      }
+   
+       static void setLatest(ReverseStepper reverseStepper) {
+         latest = reverseStepper;
+      }
+   
+   	/**
+   	 * Stop recording device input and release the checkpoints.  Called when the program
+   	 * is re-assembled; execution can no longer be reversed.
+   	 */
+       public void dispose() {
+         if (deviceObserver != null) {
+            Globals.memory.deleteObserver(deviceObserver);
+            deviceObserver = null;
+         }
+         checkpoints.clear();
+         refinements.clear();
+         count = present = 0;
+         if (latest == this) {
+            latest = null;
+         }
+      }
+
+   	/**
+   	 * @return number of instructions executed to reach the current state
+   	 */
+       public long getInstructionCount() {
+         return count;
+      }
+
+   	/**
+   	 * @return true if any instruction has been executed, so execution can be reversed
+   	 */
+       public boolean canStepBack() {
+         return count > 0;
+      }
+
+   	/**
+   	 * Return to the state before the latest instruction executed.
+   	 * @return false if stopped first, leaving an earlier state
+   	 * @throws IOException if a file the program had open then cannot be reopened
+   	 */
+       public boolean stepBack() throws IOException {
+         stopped = false;
+         if (count > 0) {
+            restoreTo(count - 1);
+         }
+         return !stopped;
+      }
+
+   	/**
+   	 * Return to the latest state, before the current one, in which the next instruction
+   	 * to execute is at a breakpoint; to the start of the program if there is none.  This
+   	 * is the state in which running forward would have stopped at that breakpoint.
+   	 * @param breakPoints addresses of breakpoints, null or empty if none
+   	 * @return false if stopped first, leaving the state re-execution had reached
+   	 * @throws IOException if a file the program had open then cannot be reopened
+   	 */
+       public boolean runBackward(int[] breakPoints) throws IOException {
+         stopped = false;
+         if (count == 0) {
+            return true;
+         }
+         if (breakPoints != null && breakPoints.length > 0) {
+            int[] sorted = breakPoints.clone();
+            Arrays.sort(sorted);
+            // Search back one interval between checkpoints at a time.
+            long end = count;
+            while (end > 0) {
+               Checkpoint from = findCheckpoint(end - 1);
+               restore(from);
+               scannedBreakPoints = sorted;
+               lastBreakPoint = -1;
+               try {
+                  reExecute(end);
+               }
+               finally {
+                  scannedBreakPoints = null;
+               }
+               if (stopped) {
+                  return false;
+               }
+               if (lastBreakPoint >= 0) {
+                  restoreTo(lastBreakPoint);
+                  return !stopped;
+               }
+               end = from.count;
+            }
+         }
+         restoreTo(0);
+         return !stopped;
+      }
+
+      ///////////////////////////////////////////////////////////////////////////////
+      // Called by the Simulator and syscall instruction as the program executes.
+
+   	// The simulation of the program is starting in the current thread.
+       void started() {
+         executing = this;
+         simulationThread = Thread.currentThread();
+      }
+
+   	// The simulation has stopped.
+       void stopped() {
+         executing = null;
+         simulationThread = null;
+      }
+
+   	// The instruction at the given address is about to be executed.
+       void beforeInstruction(int pc) {
+         if (count < present) {
+            // Re-executing: replay device input rather than accept it.
+            Simulator.externalInterruptingDevice = Simulator.NO_DEVICE;
+            if (scannedBreakPoints != null && Arrays.binarySearch(scannedBreakPoints, pc) >= 0) {
+               lastBreakPoint = count;
+            }
+            if (count >= nextRefinement) {
+               addCheckpoint(refinements);
+               nextRefinement += refinementInterval;
+            }
+         }
+         else if (count >= nextCheckpoint) {
+            addCheckpoint(checkpoints);
+            if (checkpoints.size() > MAX_CHECKPOINTS) {
+               for (int i = checkpoints.size() - 2; i > 0; i -= 2) {
+                  checkpoints.remove(i);
+               }
+               interval *= 2;
+            }
+            nextCheckpoint = count + interval;
+         }
+         if (nextEventCount <= count) {
+            replayEvents();
+         }
+      }
+
+   	// The latest instruction(s) have been executed, normally or with an exception.
+       void instructionsExecuted(int executed) {
+         count += executed;
+         if (count > present) {
+            present = count;
+         }
+      }
+
+   	// An external interrupt is being taken before the next instruction.
+       void interruptTaken(int device) {
+         if (count >= present) {
+            events.add(new Event(count, device));
+            eventPosition = events.size();
+         }
+      }
+
+   	/**
+   	 * Carry out a syscall service for the syscall instruction, recording or replaying its
+   	 * input if reverse execution is enabled for the program being simulated.
+   	 * @param service the syscall service
+   	 * @param statement the syscall statement
+   	 * @throws ProcessingException if the service throws one, or threw one when recorded
+   	 */
+       public static void simulateSyscall(Syscall service, ProgramStatement statement) throws ProcessingException {
+         ReverseStepper reverseStepper = executing;
+         if (reverseStepper == null) {
+            service.simulate(statement);
+         }
+         else {
+            reverseStepper.syscall(service, statement);
+         }
+      }
+
+       private void syscall(Syscall service, ProgramStatement statement) throws ProcessingException {
+         String name = service.getName();
+         int fd = RegisterFile.getValue(4);
+         boolean input = INPUT_SYSCALLS.contains(name)
+               || (name.equals("Read") && fd == 0) || (name.equals("Write") && (fd == 1 || fd == 2));
+         if (count < present) {
+            if (input && inputPosition < inputs.size()
+                   && ((Input) inputs.get(inputPosition)).service.equals(name)) {
+               ((Input) inputs.get(inputPosition++)).replay();
+               return;
+            }
+            if (OUTPUT_SYSCALLS.contains(name)) {
+               return;
+            }
+            if (input) {
+               // The program has taken another path (values edited since stepping back?),
+               // so what was recorded after this point no longer applies.
+               discardFuture();
+            }
+         }
+         if (input) {
+            Input record = new Input(name);
+            inputs.add(record);
+            inputPosition = inputs.size();
+            record.record(service, statement);
+         }
+         else {
+            service.simulate(statement);
+         }
+      }
+
+      ///////////////////////////////////////////////////////////////////////////////
+
+   	// Restore the state after the given number of instructions.
+       private void restoreTo(long target) throws IOException {
+         Checkpoint from = findCheckpoint(target);
+         restore(from);
+         if (target - from.count > MIN_REFINEMENT_INTERVAL) {
+            // Going back again will likely start from the same checkpoint; take more
+            // on the way so that it need not re-execute as far.  Those taken before
+            // beyond this one are replaced, so the list stays in count order.
+            trimCheckpoints(refinements, from.count);
+            if (refinements.size() > 2 * MAX_CHECKPOINTS) {
+               refinements.subList(0, MAX_CHECKPOINTS).clear();
+            }
+            refinementInterval = Math.max(MIN_REFINEMENT_INTERVAL, (target - from.count) / MAX_CHECKPOINTS);
+            nextRefinement = from.count + refinementInterval;
+         }
+         try {
+            reExecute(target);
+         }
+         finally {
+            nextRefinement = Long.MAX_VALUE;
+         }
+      }
+
+   	// Latest checkpoint of either kind at or before the given count, null if none.
+   	// There is one at count 0 once an instruction has executed.
+       private Checkpoint findCheckpoint(long limit) {
+         Checkpoint latest = null;
+         for (int list = 0; list < 2; list++) {
+            ArrayList candidates = (list == 0) ? checkpoints : refinements;
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+               Checkpoint checkpoint = (Checkpoint) candidates.get(i);
+               if (checkpoint.count <= limit) {
+                  if (latest == null || checkpoint.count > latest.count) {
+                     latest = checkpoint;
+                  }
+                  break;
+               }
+            }
+         }
+         return latest;
+      }
+
+       private void restore(Checkpoint checkpoint) throws IOException {
+         if (checkpoint == null) {
+            throw new IOException("no checkpoint to restore"); // one could not be taken
+         }
+         checkpoint.snapshot.restore();
+         count = checkpoint.count;
+         inputPosition = checkpoint.inputPosition;
+         eventPosition = checkpoint.eventPosition;
+         nextEventCount = (eventPosition < events.size()) ? ((Event) events.get(eventPosition)).count : Long.MAX_VALUE;
+      }
+
+   	// Execute instructions from the current state up to the given count, which must not
+   	// be beyond the present, unless stopped first.
+       private void reExecute(long target) {
+         synchronized (Globals.memoryAndRegistersLock) {
+            while (count < target) {
+               long before = count;
+               int reason = Simulator.getInstance().reExecute(program, (int) Math.min(target - count, Integer.MAX_VALUE));
+               if (reason == Simulator.PAUSE_OR_STOP) {
+                  stopped = true;
+                  break;
+               }
+               if (reason != Simulator.MAX_STEPS || count == before) {
+                  break;
+               }
+            }
+         }
+      }
+
+       private void addCheckpoint(ArrayList list) {
+         try {
+            list.add(new Checkpoint(count, Snapshot.take(), inputPosition, eventPosition));
+         }
+             catch (IOException e) {
+               // A file position cannot be read; do without this checkpoint.
+            }
+      }
+
+       private void replayEvents() {
+         synchronized (Globals.memoryAndRegistersLock) {
+            while (eventPosition < events.size() && ((Event) events.get(eventPosition)).count <= count) {
+               ((Event) events.get(eventPosition++)).replay();
+            }
+            nextEventCount = (eventPosition < events.size()) ? ((Event) events.get(eventPosition)).count : Long.MAX_VALUE;
+         }
+      }
+
+   	// Forget all that was recorded after the current state.
+       private void discardFuture() {
+         present = count;
+         trimCheckpoints(checkpoints, count);
+         trimCheckpoints(refinements, count);
+         nextCheckpoint = ((Checkpoint) checkpoints.get(checkpoints.size() - 1)).count + interval;
+         inputs.subList(inputPosition, inputs.size()).clear();
+         events.subList(eventPosition, events.size()).clear();
+         nextEventCount = Long.MAX_VALUE;
+      }
+
+   	// Remove the checkpoints after the given count.
+       private void trimCheckpoints(ArrayList list, long limit) {
+         while (list.size() > 0 && ((Checkpoint) list.get(list.size() - 1)).count > limit) {
+            list.remove(list.size() - 1);
+         }
+      }
+
+      ///////////////////////////////////////////////////////////////////////////////
+
+       private static final class Checkpoint {
+         private long count;
+         private Snapshot snapshot;
+         private int inputPosition, eventPosition;
+
+          Checkpoint(long count, Snapshot snapshot, int inputPosition, int eventPosition) {
+            this.count = count;
+            this.snapshot = snapshot;
+            this.inputPosition = inputPosition;
+            this.eventPosition = eventPosition;
+         }
+      }
+
+   	// The effect of one input syscall: registers afterward and the memory it wrote.
+       private static final class Input implements NonRetainingObserver {
+         private String service;
+         private int[] registers;
+         private int[] fpRegisters;
+         private int[] writes = new int[0]; // address, value, length of each write
+         private int writeCount = 0;
+         private ProcessingException exception;
+
+          Input(String service) {
+            this.service = service;
+         }
+
+          void record(Syscall syscall, ProgramStatement statement) throws ProcessingException {
+            Globals.memory.addObserver(this);
+            try {
+               syscall.simulate(statement);
+            }
+                catch (ProcessingException e) {
+                  exception = e;
+               }
+            finally {
+               Globals.memory.deleteObserver(this);
+               registers = RegisterFile.getAllValues();
+               Register[] fp = Coprocessor1.getRegisters();
+               fpRegisters = new int[fp.length];
+               for (int i = 0; i < fp.length; i++) {
+                  fpRegisters[i] = fp[i].getValueNoNotify();
+               }
+            }
+            if (exception != null) {
+               throw exception;
+            }
+         }
+
+          void replay() throws ProcessingException {
+            RegisterFile.setAllValues(registers);
+            Register[] fp = Coprocessor1.getRegisters();
+            for (int i = 0; i < fp.length; i++) {
+               fp[i].setValue(fpRegisters[i]);
+            }
+            for (int i = 0; i < writeCount; i += 3) {
+               try {
+                  Globals.memory.set(writes[i], writes[i + 1], writes[i + 2]);
+               }
+                   catch (AddressErrorException e) {
+                     // not when it was recorded, so not now
+                  }
+            }
+            if (exception != null) {
+               throw exception;
+            }
+         }
+
+          public void update(Observable memory, Object notice) {
+            MemoryAccessNotice access = (MemoryAccessNotice) notice;
+            if (access.getAccessType() == AccessNotice.WRITE) {
+               if (writeCount + 3 > writes.length) {
+                  writes = Arrays.copyOf(writes, Math.max(24, 2 * writes.length));
+               }
+               writes[writeCount++] = access.getAddress();
+               writes[writeCount++] = access.getValue();
+               writes[writeCount++] = access.getLength();
+            }
+         }
+      }
+
+   	// One device input: a value written to memory-mapped I/O other than by the program,
+   	// or an external interrupt.
+       private static final class Event {
+         private long count;
+         private int address, value, length; // length 0 for an interrupt from device at address
+
+          Event(long count, int address, int value, int length) {
+            this.count = count;
+            this.address = address;
+            this.value = value;
+            this.length = length;
+         }
+
+          Event(long count, int device) {
+            this(count, device, 0, 0);
+         }
+
+          void replay() {
+            if (length == 0) {
+               Simulator.externalInterruptingDevice = address;
+            }
+            else {
+               try {
+                  Globals.memory.set(address, value, length);
+               }
+                   catch (AddressErrorException e) {
+                     // not when it was recorded, so not now
+                  }
+            }
+         }
+      }
+
+   	// Records values written to memory-mapped I/O by other threads than the one simulating.
+       private class DeviceObserver implements NonRetainingObserver {
+          public void update(Observable memory, Object notice) {
+            MemoryAccessNotice access = (MemoryAccessNotice) notice;
+            if (access.getAccessType() == AccessNotice.WRITE && Thread.currentThread() != simulationThread
+                   && count >= present) {
+               events.add(new Event(count, access.getAddress(), access.getValue(), access.getLength()));
+               eventPosition = events.size();
+            }
+         }
+      }
+   }
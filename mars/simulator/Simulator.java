@@ -5,6 +5,7 @@
    import mars.mips.hardware.*;
    import mars.mips.instructions.*;
    import java.util.*;
+   import java.io.*;
    import javax.swing.*;
    import java.awt.event.*;
 	
@@ -46,6 +47,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private SimThread simulatorThread;
       private static Simulator simulator = null;  // Singleton object
       private static Runnable interactiveGUIUpdater = null;
+      // Timed-mode GUI updates are coalesced: one is queued for the event thread only if
+      // none is waiting and none was queued in the last frame (see scheduleGUIUpdate()).
+      private static final long GUI_UPDATE_FRAME_NANOS = 16666667L; // 60 per second
+      private static volatile boolean guiUpdatePending = false;
+      private static long guiUpdateScheduled = 0;
+      private boolean reExecuting = false; // see reExecute()
+      private volatile ReverseThread reverseThread = null; // see reverse()
+      private volatile SimThread reExecution = null; // see reExecute()
       // Others can set this true to indicate external interrupt.  Initially used
    	// to simulate keyboard and display interrupts.  The device is identified
    	// by the address of its MMIO control register.  keyboard 0xFFFF0000 and
@@ -75,6 +84,56 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          return simulator;
       }
+
+   	/**
+   	 * The simulator of one simulation, with its pending delayed branch and external
+   	 * interrupt, and the ReverseStepper of the program it assembled last.  A new State
+   	 * has none of them yet.  See mars.SimulationContext.
+   	 */
+       public static final class State {
+         private Simulator simulator = null;
+         private int externalInterruptingDevice = NO_DEVICE;
+         private ReverseStepper reverseStepper = null;
+         private boolean saved = false; // delayed branch fields below are valid
+         private int delayedBranchState;
+         private int delayedBranchTarget;
+      }
+   
+   	/**
+   	 * Returns the simulator now in use, its pending delayed branch and external
+   	 * interrupt, and the ReverseStepper of the program assembled last.  The simulation
+   	 * must not be running.
+   	 *
+   	 * @return the current simulator state
+   	 */
+       public static State saveState() {
+         State state = new State();
+         state.simulator = simulator;
+         state.externalInterruptingDevice = externalInterruptingDevice;
+         state.reverseStepper = ReverseStepper.getLatest();
+         state.delayedBranchState = DelayedBranch.getState();
+         state.delayedBranchTarget = DelayedBranch.getBranchTargetAddress();
+         state.saved = true;
+         return state;
+      }
+   
+   	/**
+   	 * Puts back a simulator, delayed branch, external interrupt and ReverseStepper returned
+   	 * by saveState(), or starts afresh from a new State.  The simulation must not be running.
+   	 *
+   	 * @param state simulator state to use from now on
+   	 */
+       public static void restoreState(State state) {
+         simulator = state.simulator;
+         externalInterruptingDevice = state.externalInterruptingDevice;
+         ReverseStepper.setLatest(state.reverseStepper);
+         if (state.saved) {
+            DelayedBranch.restore(state.delayedBranchState, state.delayedBranchTarget);
+         } 
+         else {
+            DelayedBranch.clear();
+         }
+      }
    
        private Simulator() {
          simulatorThread = null;
@@ -121,6 +180,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             Object dun = simulatorThread.get(); // this should emulate join()
             ProcessingException pe = simulatorThread.pe;
             boolean done = simulatorThread.done;
+            SystemIO.flushOutput();
             if (done) SystemIO.resetFiles(); // close any files opened in MIPS progra
             this.simulatorThread = null;
             if (pe != null) {
@@ -131,6 +191,52 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return true;
       }
    		
+
+   /**
+    * Execute instructions of the given program from the current machine state, in the
+    * calling thread, without notifying observers or updating the GUI.  Used by
+    * ReverseStepper to recreate a past state; the simulation must not be running.
+    * Ends early, with PAUSE_OR_STOP, if stopExecution() is called while reversing.
+    * @param p The MIPSprogram to be simulated.
+    * @param maxSteps maximum number of steps to perform
+    * @return reason execution ended: MAX_STEPS if it may continue
+    **/
+    
+       int reExecute(MIPSprogram p, int maxSteps) {
+         SimThread thread = new SimThread(p, RegisterFile.getProgramCounter(), maxSteps, null, null);
+         reExecuting = true;
+         reExecution = thread;
+         ReverseThread reversing = reverseThread;
+         if (reversing != null && reversing.stop) {
+            thread.setStop(null); // stopExecution() came before reExecution was set
+         }
+         try {
+            thread.construct(); // SwingWorker's thread is never started
+         }
+         finally {
+            reExecution = null;
+            reExecuting = false;
+         }
+         return thread.constructReturnReason;
+      }
+   
+   /**
+    * Reverse the execution of the given program in a background thread, as simulate()
+    * runs it, so that the GUI stays responsive and stopExecution() can end it: step
+    * back one instruction, or run backward to a breakpoint.  See ReverseStepper.  If
+    * stopped, the program is left in the state re-execution had reached.  When done,
+    * the reversed() method of the starter (RunBackstepAction or RunBackwardAction) is
+    * called on the event thread.
+    * @param p The MIPSprogram, which must have a ReverseStepper.
+    * @param stepBack true to step back one instruction, false to run backward
+    * @param breakPoints array of breakpoint program counter values to run backward to, null if none
+    * @param starter the GUI component responsible for this call
+    **/
+    
+       public void reverse(MIPSprogram p, boolean stepBack, int[] breakPoints, AbstractAction starter) {
+         reverseThread = new ReverseThread(p, stepBack, breakPoints, starter);
+         reverseThread.start();
+      }
    
        /**
    	  *  Set the volatile stop boolean variable checked by the execution
@@ -148,6 +254,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             }
             simulatorThread = null;
          }
+         ReverseThread reversing = reverseThread;
+         if (reversing != null) {
+            reversing.stop = true;
+            SimThread thread = reExecution;
+            if (thread != null) {
+               thread.setStop(actor);
+            }
+         }
       }
    
       /* This interface is required by the Asker class in MassagesPane
@@ -175,12 +289,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 // by Stop button, by Pause button, by Step button, by runtime exception, by
    	 // instruction count limit, by breakpoint, or by end of simulation (truly done).
        private void notifyObserversOfExecutionStart(int maxSteps, int programCounter) {
+         if (reExecuting) {
+            return;
+         }
          this.setChanged();
          this.notifyObservers(new SimulatorNotice(SimulatorNotice.SIMULATOR_START,
             maxSteps, RunSpeedPanel.getInstance().getRunSpeed(), programCounter) );
       }
    
        private void notifyObserversOfExecutionStop(int maxSteps, int programCounter) {
+         if (reExecuting) {
+            return;
+         }
          this.setChanged();
          this.notifyObservers(new SimulatorNotice(SimulatorNotice.SIMULATOR_STOP,
             maxSteps, RunSpeedPanel.getInstance().getRunSpeed(), programCounter) );
@@ -252,12 +372,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	 */
       	
           public Object construct() {
+            ReverseStepper reverseStepper = p.getReverseStepper();
+            if (reverseStepper == null) {
+               return simulateProgram(null);
+            }
+            reverseStepper.started();
+            try {
+               return simulateProgram(reverseStepper);
+            }
+            finally {
+               reverseStepper.stopped();
+            }
+         }
+      
+          private Object simulateProgram(ReverseStepper reverseStepper) {
             // The next two statements are necessary for GUI to be consistently updated
          	// before the simulation gets underway.  Without them, this happens only intermittently,
          	// with a consequence that some simulations are interruptable using PAUSE/STOP and others
          	// are not (because one or the other or both is not yet enabled).
-            Thread.currentThread().setPriority(Thread.NORM_PRIORITY-1);
-            Thread.yield();  // let the main thread run a bit to finish updating the GUI
+            if (!reExecuting) {
+               Thread.currentThread().setPriority(Thread.NORM_PRIORITY-1);
+               Thread.yield();  // let the main thread run a bit to finish updating the GUI
+            }
          	
             if (breakPoints == null || breakPoints.length == 0) {
                breakPoints = null;
@@ -269,9 +405,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             Simulator.getInstance().notifyObserversOfExecutionStart(maxSteps, pc);
          	
             RegisterFile.initializeProgramCounter(pc);
+            // Fast engine: fetch from the pre-decoded text segment (see DecodedTextSegment).
+            boolean fastEngine = Globals.getSettings().getBooleanSetting(Settings.FAST_ENGINE_ENABLED);
+            // Tiered simulation: run hot basic blocks compiled by BlockCompiler.  Never when single
+            // stepping, or when backstepping, reverse execution, delayed branching or self-modifying
+            // code need the interpreter to look at every instruction.
+            boolean blockCompiler = Globals.getSettings().getBooleanSetting(Settings.BLOCK_COMPILER_ENABLED)
+                  && maxSteps != 1
+                  && reverseStepper == null
+                  && !Globals.getSettings().getBackSteppingEnabled()
+                  && !Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED)
+                  && !Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED);
             ProgramStatement statement = null;
             try {
-               statement = Globals.memory.getStatement(RegisterFile.getProgramCounter());
+               statement = fetchStatement(RegisterFile.getProgramCounter(), fastEngine);
             } 
                 catch (AddressErrorException e) {
                   ErrorList el = new ErrorList();
@@ -323,7 +470,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             int pc = 0;  // added: 7/26/06 (explanation above)
          
             while (statement != null) {
-               pc = RegisterFile.getProgramCounter(); // added: 7/26/06 (explanation above)
+               int nextPc = RegisterFile.getProgramCounter();
+               if (reverseStepper != null) {
+                  reverseStepper.beforeInstruction(nextPc); // checkpoint, or replay device input
+               }
+               CompiledBlock block = (blockCompiler) ? getCompiledBlock(nextPc, nextPc != pc + 4, steps) : null;
+               int executed = 1; // number of instructions simulated in this iteration
+               pc = nextPc; // added: 7/26/06 (explanation above)
                RegisterFile.incrementPC();           	
             	// Perform the MIPS instruction in synchronized block.  If external threads agree
             	// to access MIPS memory and registers only through synchronized blocks on same 
@@ -334,24 +487,47 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      if (Simulator.externalInterruptingDevice != NO_DEVICE) {
                         int deviceInterruptCode = externalInterruptingDevice;
                         Simulator.externalInterruptingDevice = NO_DEVICE;
+                        if (reverseStepper != null) {
+                           reverseStepper.interruptTaken(deviceInterruptCode);
+                        }
                         throw new ProcessingException(statement, "External Interrupt", deviceInterruptCode);
                      }
-                     BasicInstruction instruction = (BasicInstruction)statement.getInstruction();
-                     if (instruction == null) {
-                        throw new ProcessingException(statement,
-                            "undefined instruction ("+Binary.intToHexString(statement.getBinaryStatement())+")",
-                            Exceptions.RESERVED_INSTRUCTION_EXCEPTION);
-                     }
-                     // THIS IS WHERE THE INSTRUCTION EXECUTION IS ACTUALLY SIMULATED!
-                     instruction.getSimulationCode().simulate(statement);
-                  	
-                  	// IF statement added 7/26/06 (explanation above)
-                     if (Globals.getSettings().getBackSteppingEnabled()) {
-                        Globals.program.getBackStepper().addDoNothing(pc);
+                     if (block != null) {
+                        block.run();
+                        executed = block.getLength();
+                        pc = block.getEndAddress();
+                     } 
+                     else {
+                        SimulationCode simulationCode = (fastEngine) ? DecodedTextSegment.getSimulationCode(pc) : null;
+                        if (simulationCode == null) {
+                           BasicInstruction instruction = (BasicInstruction)statement.getInstruction();
+                           if (instruction == null) {
+                              throw new ProcessingException(statement,
+                                  "undefined instruction ("+Binary.intToHexString(statement.getBinaryStatement())+")",
+                                  Exceptions.RESERVED_INSTRUCTION_EXCEPTION);
+                           }
+                           simulationCode = instruction.getSimulationCode();
+                        }
+                        // THIS IS WHERE THE INSTRUCTION EXECUTION IS ACTUALLY SIMULATED!
+                        simulationCode.simulate(statement);
+                     
+                     	// IF statement added 7/26/06 (explanation above)
+                        if (Globals.getSettings().getBackSteppingEnabled()) {
+                           Globals.program.getBackStepper().addDoNothing(pc);
+                        }
                      }
                   } 
                       catch (ProcessingException pe) {
+                        if (block != null) {
+                           // The block stopped at the instruction that threw, which left the
+                           // program counter just past itself.
+                           executed = (RegisterFile.getProgramCounter() - pc) >> 2;
+                           pc += (executed - 1) << 2;
+                        }
                         if (pe.errors() == null) {
+                           if (reverseStepper != null) {
+                              reverseStepper.instructionsExecuted(executed);
+                           }
                            this.constructReturnReason = NORMAL_TERMINATION;
                            this.done = true;
                            SystemIO.resetFiles(); // close any files opened in MIPS program
@@ -373,6 +549,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                               RegisterFile.setProgramCounter(Memory.exceptionHandlerAddress);
                            } 
                            else {
+                              if (reverseStepper != null) {
+                                 reverseStepper.instructionsExecuted(executed);
+                              }
                               this.constructReturnReason = EXCEPTION;
                               this.pe = pe;
                               this.done = true;
@@ -383,6 +562,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                         }
                      }
                }// end synchronized block
+               if (reverseStepper != null) {
+                  reverseStepper.instructionsExecuted(executed);
+               }
             	
             	///////// DPS 15 June 2007.  Handle delayed branching if it occurs./////
                if (DelayedBranch.isTriggered()) {
@@ -392,6 +574,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                else if (DelayedBranch.isRegistered()) {
                   DelayedBranch.trigger();
                }//////////////////////////////////////////////////////////////////////
+               // Make this instruction's register updates visible to other threads.
+               Register.publishValues();
             	
             	// Volatile variable initialized false but can be set true by the main thread.
             	// Used to stop or pause a running MIPS program.  See stopSimulation() above.
@@ -411,7 +595,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
             	// Check number of MIPS instructions executed.  Return if at limit (-1 is no limit).
                if (maxSteps > 0) {
-                  steps++;
+                  steps += executed;
                   if (steps >= maxSteps) {
                      this.constructReturnReason = MAX_STEPS;
                      this.done = false;
@@ -424,11 +608,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             	//                              using Run,  not Step (maxSteps > 1) AND
             	//                              running slowly enough for GUI to keep up
                //if (Globals.getGui() != null && maxSteps != 1 &&             
-               if (interactiveGUIUpdater != null && maxSteps != 1 && 
+               if (interactiveGUIUpdater != null && maxSteps != 1 && !reExecuting &&
                           RunSpeedPanel.getInstance().getRunSpeed() < RunSpeedPanel.UNLIMITED_SPEED) {
-                  SwingUtilities.invokeLater(interactiveGUIUpdater);
+                  scheduleGUIUpdate();
                }
-               if (Globals.getGui() != null || Globals.runSpeedPanelExists) { // OR added by DPS 24 July 2008 to enable speed control by stand-alone tool
+               if ((Globals.getGui() != null || Globals.runSpeedPanelExists) && !reExecuting) { // OR added by DPS 24 July 2008 to enable speed control by stand-alone tool
                   if (maxSteps != 1 && 
                           RunSpeedPanel.getInstance().getRunSpeed() < RunSpeedPanel.UNLIMITED_SPEED) {
                      try { Thread.sleep((int)(1000/RunSpeedPanel.getInstance().getRunSpeed())); // make sure it's never zero!
@@ -441,7 +625,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                // Get next instruction in preparation for next iteration.
             
                try {
-                  statement = Globals.memory.getStatement(RegisterFile.getProgramCounter());
+                  statement = fetchStatement(RegisterFile.getProgramCounter(), fastEngine);
                } 
                    catch (AddressErrorException e) {
                      ErrorList el = new ErrorList();
@@ -477,6 +661,41 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          
       	
+         // Get the compiled block starting at address if tiered simulation may run it now, else
+         // null.  It may not if it has a breakpoint after its first instruction, would go past
+         // the step limit, or would hide instruction fetches from memory observers or steps
+         // from a slowed-down run.
+          private CompiledBlock getCompiledBlock(int address, boolean entered, int steps) {
+            CompiledBlock block = BlockCompiler.getBlock(address, entered);
+            if (block == null || Globals.memory.countObservers() > 0) {
+               return null;
+            }
+            if (maxSteps > 0 && steps + block.getLength() > maxSteps) {
+               return null;
+            }
+            if (breakPoints != null) {
+               int i = Arrays.binarySearch(breakPoints, address + 4);
+               if (i < 0) {
+                  i = -i - 1;
+               }
+               if (i < breakPoints.length && breakPoints[i] <= block.getEndAddress()) {
+                  return null;
+               }
+            }
+            if ((Globals.getGui() != null || Globals.runSpeedPanelExists) &&
+                    RunSpeedPanel.getInstance().getRunSpeed() < RunSpeedPanel.UNLIMITED_SPEED) {
+               return null;
+            }
+            return block;
+         }
+         
+         // Fetch the statement to execute next, from the pre-decoded text segment if the
+         // fast engine is in use.  Either way the result and any exception are the same.
+          private ProgramStatement fetchStatement(int address, boolean fastEngine) throws AddressErrorException {
+            return (fastEngine) ? DecodedTextSegment.getStatement(address)
+                                : Globals.memory.getStatement(address);
+         }
+      
       	/**
       	 *   This method is invoked by the SwingWorker when the "construct" method returns.  
       	 *   It will update the GUI appropriately.  According to Sun's documentation, it 
@@ -516,10 +735,69 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             return;
          }
          
+      }
+   
+   	/**
+   	 * SwingWorker subclass to reverse execution in a background thread.  It is stopped
+   	 * by stopExecution(), which sets "stop" and stops the re-execution in progress.
+   	 */
+       private class ReverseThread extends SwingWorker {
+         private MIPSprogram p;
+         private boolean stepBack;
+         private int[] breakPoints;
+         private AbstractAction starter;
+         private volatile boolean stop = false;
+         private boolean completed = false;
+         private IOException error = null;
+      
+          ReverseThread(MIPSprogram p, boolean stepBack, int[] breakPoints, AbstractAction starter) {
+            super(Globals.getGui()!=null);
+            this.p = p;
+            this.stepBack = stepBack;
+            this.breakPoints = breakPoints;
+            this.starter = starter;
+         }
+      
+          public Object construct() {
+            ReverseStepper reverseStepper = p.getReverseStepper();
+            try {
+               completed = (stepBack) ? reverseStepper.stepBack() : reverseStepper.runBackward(breakPoints);
+            }
+                catch (IOException e) {
+                  error = e;
+               }
+            finally {
+               reverseThread = null;
+            }
+            return Boolean.valueOf(completed);
+         }
+      
+          public void finished() {
+            if (starter instanceof RunBackstepAction) {
+               ((RunBackstepAction) starter).reversed(completed, error);
+            }
+            else if (starter instanceof RunBackwardAction) {
+               ((RunBackwardAction) starter).reversed(completed, error);
+            }
+         }
+      }
+   	
+      // Queue interactiveGUIUpdater for the event thread, unless an update is already
+      // waiting or one was queued less than a frame ago.  Either way the display catches
+      // up with the next instruction, and the event queue never holds more than one.
+       private static void scheduleGUIUpdate() {
+         long now = System.nanoTime();
+         if (guiUpdatePending || now - guiUpdateScheduled < GUI_UPDATE_FRAME_NANOS) {
+            return;
+         }
+         guiUpdatePending = true;
+         guiUpdateScheduled = now;
+         SwingUtilities.invokeLater(interactiveGUIUpdater);
       }
    	
        private class UpdateGUI implements Runnable {
           public void run() {
+            guiUpdatePending = false;
             if (Globals.getGui().getRegistersPane().getSelectedComponent() == 
                                                      Globals.getGui().getMainPane().getExecutePane().getRegistersWindow()) {
                Globals.getGui().getMainPane().getExecutePane().getRegistersWindow().updateRegisters();
@@ -527,7 +805,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             else {
                Globals.getGui().getMainPane().getExecutePane().getCoprocessor1Window().updateRegisters();
             }
-            Globals.getGui().getMainPane().getExecutePane().getDataSegmentWindow().updateValues();
+            Globals.getGui().getMainPane().getExecutePane().getDataSegmentWindow().updateChangedValues();
             Globals.getGui().getMainPane().getExecutePane().getTextSegmentWindow().setCodeHighlighting(true);
             Globals.getGui().getMainPane().getExecutePane().getTextSegmentWindow().highlightStepAtPC();   
          }
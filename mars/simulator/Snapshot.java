@@ -0,0 +1,191 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.util.*;
+   import java.io.*;
+   import java.util.zip.*;
+
+/**
+ * Snapshot of the state of the simulated machine, taken between instructions, to resume
+ * the simulation from later: in the same run of MARS, for instance to start many test
+ * runs from one warmed-up state, or in a later run after saving it to a file.
+ * <p>
+ * A snapshot holds memory (see Memory.captureImage()), the registers of the register
+ * file including pc, hi and lo, those of coprocessors 0 and 1 including the condition
+ * flags, the delayed branch state, the heap address and the files the program has open.
+ * It does not hold the program itself: the same program must be assembled, with the same
+ * memory configuration, before a snapshot is restored.
+ * <p>
+ * Memory blocks are shared between the snapshot and memory until memory next writes to
+ * them, so taking a snapshot and restoring one, any number of times, costs little more
+ * than copying the block tables.
+ *
+ * @version October 2026
+ **/
+
+    public class Snapshot {
+
+      private static final int MAGIC = 0x4D534E50; // "MSNP"
+      private static final int VERSION = 1;
+
+      private Memory.Image memory;
+      private int[] registers;
+      private int[] coprocessor0;
+      private int[] coprocessor1;
+      private int conditionFlags;
+      private int delayedBranchState;
+      private int delayedBranchTarget;
+      private String[] fileNames;
+      private int[] fileFlags;
+      private long[] filePositions;
+
+       private Snapshot() {
+      }
+
+   	/**
+   	 * Take a snapshot of the current machine state.  Must not be called while an
+   	 * instruction is executing; the simulator lock is held while it is taken.
+   	 * @return the snapshot
+   	 * @throws IOException if the position in an open file cannot be determined
+   	 */
+       public static Snapshot take() throws IOException {
+         Snapshot snapshot = new Snapshot();
+         synchronized (Globals.memoryAndRegistersLock) {
+            snapshot.memory = Globals.memory.captureImage();
+            snapshot.registers = RegisterFile.getAllValues();
+            snapshot.coprocessor0 = getValues(Coprocessor0.getRegisters());
+            snapshot.coprocessor1 = getValues(Coprocessor1.getRegisters());
+            snapshot.conditionFlags = Coprocessor1.getConditionFlags();
+            snapshot.delayedBranchState = DelayedBranch.getState();
+            snapshot.delayedBranchTarget = DelayedBranch.getBranchTargetAddress();
+            snapshot.fileNames = SystemIO.getOpenFileNames();
+            snapshot.fileFlags = SystemIO.getOpenFileFlags();
+            snapshot.filePositions = SystemIO.getOpenFilePositions();
+         }
+         return snapshot;
+      }
+
+   	/**
+   	 * Restore the machine state from this snapshot.  The snapshot is not changed, so it
+   	 * may be restored again.  Register observers are notified; memory observers are not.
+   	 * @throws IllegalArgumentException if the snapshot does not fit the assembled program
+   	 * or memory configuration.  The machine state is then unchanged.
+   	 * @throws IOException if a file the program had open cannot be reopened
+   	 */
+       public void restore() throws IOException {
+         synchronized (Globals.memoryAndRegistersLock) {
+            Globals.memory.restoreImage(memory);
+            RegisterFile.setAllValues(registers);
+            setValues(Coprocessor0.getRegisters(), coprocessor0);
+            setValues(Coprocessor1.getRegisters(), coprocessor1);
+            Coprocessor1.setConditionFlags(conditionFlags);
+            DelayedBranch.restore(delayedBranchState, delayedBranchTarget);
+            SystemIO.restoreOpenFiles(fileNames, fileFlags, filePositions);
+         }
+      }
+
+   	/**
+   	 * Save the snapshot to a file in a compressed binary format.
+   	 * @param file file to write
+   	 * @throws IOException if the file cannot be written
+   	 */
+       public void save(File file) throws IOException {
+         DeflaterOutputStream compressed = new DeflaterOutputStream(
+                  new BufferedOutputStream(new FileOutputStream(file)), new Deflater(Deflater.BEST_SPEED));
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(compressed, 65536));
+         try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeInts(out, registers);
+            writeInts(out, coprocessor0);
+            writeInts(out, coprocessor1);
+            out.writeInt(conditionFlags);
+            out.writeInt(delayedBranchState);
+            out.writeInt(delayedBranchTarget);
+            out.writeInt(fileNames.length);
+            for (int fd = 0; fd < fileNames.length; fd++) {
+               out.writeBoolean(fileNames[fd] != null);
+               if (fileNames[fd] != null) {
+                  out.writeUTF(fileNames[fd]);
+                  out.writeInt(fileFlags[fd]);
+                  out.writeLong(filePositions[fd]);
+               }
+            }
+            memory.write(out);
+         }
+         finally {
+            out.close();
+         }
+      }
+
+   	/**
+   	 * Load a snapshot saved by save().
+   	 * @param file file to read
+   	 * @return the snapshot
+   	 * @throws IOException if the file cannot be read or does not hold a snapshot
+   	 */
+       public static Snapshot load(File file) throws IOException {
+         DataInputStream in = new DataInputStream(new BufferedInputStream(
+                  new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))), 65536));
+         try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+               throw new IOException(file + " is not a MARS snapshot");
+            }
+            Snapshot snapshot = new Snapshot();
+            snapshot.registers = readInts(in);
+            snapshot.coprocessor0 = readInts(in);
+            snapshot.coprocessor1 = readInts(in);
+            snapshot.conditionFlags = in.readInt();
+            snapshot.delayedBranchState = in.readInt();
+            snapshot.delayedBranchTarget = in.readInt();
+            int files = in.readInt();
+            snapshot.fileNames = new String[files];
+            snapshot.fileFlags = new int[files];
+            snapshot.filePositions = new long[files];
+            for (int fd = 0; fd < files; fd++) {
+               if (in.readBoolean()) {
+                  snapshot.fileNames[fd] = in.readUTF();
+                  snapshot.fileFlags[fd] = in.readInt();
+                  snapshot.filePositions[fd] = in.readLong();
+               }
+            }
+            snapshot.memory = Memory.Image.read(in);
+            return snapshot;
+         }
+             catch (EOFException e) {
+               throw new IOException(file + " is not a complete MARS snapshot");
+            }
+         finally {
+            in.close();
+         }
+      }
+
+       private static int[] getValues(Register[] registers) {
+         int[] values = new int[registers.length];
+         for (int i = 0; i < registers.length; i++) {
+            values[i] = registers[i].getValueNoNotify();
+         }
+         return values;
+      }
+
+       private static void setValues(Register[] registers, int[] values) {
+         for (int i = 0; i < registers.length && i < values.length; i++) {
+            registers[i].setValue(values[i]);
+         }
+      }
+
+       private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+         out.writeInt(values.length);
+         for (int i = 0; i < values.length; i++) {
+            out.writeInt(values[i]);
+         }
+      }
+
+       private static int[] readInts(DataInputStream in) throws IOException {
+         int[] values = new int[in.readInt()];
+         for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+         }
+         return values;
+      }
+   }
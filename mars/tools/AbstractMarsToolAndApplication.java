@@ -5,6 +5,7 @@
    import java.awt.*;
    import java.awt.event.*;
    import java.util.*;
+   import java.util.concurrent.locks.LockSupport;
    import java.io.*;
    import mars.*;
    import mars.util.*;
@@ -78,6 +79,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// Several structures required for stand-alone use only (not MarsTool use)
       private File mostRecentlyOpenedFile = null; 
       private Runnable interactiveGUIUpdater = new GUIUpdater();
+      private volatile UpdateQueue updateQueue = null; // while observing, if isUpdatedAsynchronously()
       private MessageField operationStatusMessages;
       private JButton openFileButton, assembleRunButton, stopButton;
       private boolean multiFileAssemble = false;
@@ -467,11 +469,32 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
        public void update(Observable resource, Object accessNotice) {
          if (((AccessNotice)accessNotice).accessIsFromMIPS()) { 
+            UpdateQueue queue = updateQueue;
+            if (queue != null) {
+               queue.put(resource, (AccessNotice)accessNotice);
+               return;
+            }
             processMIPSUpdate(resource, (AccessNotice)accessNotice);
             updateDisplay();
          }
       }
    	
+   	/**
+   	 * Override this method to return true to have notices of MIPS memory and register
+   	 * accesses delivered asynchronously.  By default (false) processMIPSUpdate() and
+   	 * updateDisplay() are called on the thread running the MIPS program, which waits for
+   	 * them: the tool runs in lock-step with the program.  If true, each notice is copied
+   	 * into a queue and the program carries on; a separate thread calls processMIPSUpdate()
+   	 * for the queued notices, in order, and updateDisplay() at most once per frame
+   	 * (25 per second) and when the queue is empty.  The program waits only if the tool
+   	 * falls more than 65536 notices behind.  Notices delivered this way are copies, and
+   	 * the display may lag the program by up to a frame.
+   	 * @return true to receive notices asynchronously
+   	 */
+       protected boolean isUpdatedAsynchronously() {
+         return false;
+      }
+   	
    	/**
    	 * Override this method to process a received notice from MIPS Observable (memory or register)
    	 * It will only be called if the notice was generated as the result of MIPS instruction execution.
@@ -605,6 +628,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    ////////////////////  PRIVATE HELPER METHODS    //////////////////////////////////
    //////////////////////////////////////////////////////////////////////////////////
    
+      // Start or stop asynchronous delivery of notices, if the tool wants it.  Stopping
+      // lets the notices already queued be delivered.
+       private void startUpdateQueue() {
+         if (isUpdatedAsynchronously() && updateQueue == null) {
+            updateQueue = new UpdateQueue();
+         }
+      }
+   	
+       private void stopUpdateQueue() {
+         if (updateQueue != null) {
+            updateQueue.stop();
+            updateQueue = null;
+         }
+      }
+   
        // Closing duties for MarsTool only.
        private void performToolClosingDuties() {
          performSpecialClosingDuties();
@@ -643,6 +681,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	
           public void connect() {
             observing = true;
+            startUpdateQueue();
             synchronized (Globals.memoryAndRegistersLock) {// DPS 23 July 2008
                addAsObserver();
             }
@@ -653,6 +692,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             synchronized (Globals.memoryAndRegistersLock) {// DPS 23 July 2008
                deleteAsObserver();
             }
+            stopUpdateQueue();
             observing = false;
             setText(connectText);
          }
@@ -739,6 +779,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             Coprocessor1.resetRegisters();
             Coprocessor0.resetRegisters();
          	
+            startUpdateQueue();
             addAsObserver();
             observing = true;
             String terminatingMessage = "Normal termination: ";
@@ -755,6 +796,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
             finally {
                deleteAsObserver();
+               stopUpdateQueue();
                observing = false;
                operationStatusMessages.displayTerminatingMessage(terminatingMessage+fileToAssemble);
             } 
@@ -815,5 +857,106 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             updateDisplay();
          }
       }
+   	
+   	 //////////////////////////////////////////////////////////////////////   	
+       //  Queue of notices for tools that are updated asynchronously (see 
+   	 //  isUpdatedAsynchronously()).  A ring of access records with one producer, the
+   	 //  thread running the MIPS program, and one consumer, the queue's own thread.  
+   	 //  Neither locks: each writes only its own index (tail and head respectively).
+   	 //  Notices are copied since Memory may refill a notice once update() returns.
+       private class UpdateQueue implements Runnable {
+         private static final int CAPACITY = 65536; // records; a power of 2
+         private static final long FRAME_NANOS = 40000000L; // 25 frames per second
+         private static final int MEMORY_ACCESS = 2; // added to the access type of memory records
+         private final int[] types = new int[CAPACITY];
+         private final int[] addresses = new int[CAPACITY];
+         private final int[] lengths = new int[CAPACITY];
+         private final int[] values = new int[CAPACITY];
+         private final String[] registerNames = new String[CAPACITY];
+         private final Observable[] resources = new Observable[CAPACITY];
+         private final Thread[] threads = new Thread[CAPACITY];
+         private volatile long head = 0; // next record to deliver
+         private volatile long tail = 0; // next record to fill
+         private long headSeen = 0;      // producer's last reading of head
+         private volatile boolean running = true;
+         private final Thread thread;
+      
+          UpdateQueue() {
+            thread = new Thread(this, getName() + " updates");
+            thread.setDaemon(true);
+            thread.start();
+         }
+      	
+         // Called by the thread running the MIPS program.
+          void put(Observable resource, AccessNotice notice) {
+            long t = tail;
+            if (t - headSeen == CAPACITY) {
+               while (t - (headSeen = head) == CAPACITY) {
+                  if (!running) {
+                     return;
+                  }
+                  LockSupport.parkNanos(100000); // full: wait for the tool to catch up
+               }
+            }
+            int i = (int) t & (CAPACITY - 1);
+            types[i] = notice.getAccessType();
+            if (notice instanceof MemoryAccessNotice) {
+               MemoryAccessNotice access = (MemoryAccessNotice) notice;
+               types[i] += MEMORY_ACCESS;
+               addresses[i] = access.getAddress();
+               lengths[i] = access.getLength();
+               values[i] = access.getValue();
+            } 
+            else {
+               registerNames[i] = ((RegisterAccessNotice) notice).getRegisterName();
+            }
+            resources[i] = resource;
+            threads[i] = notice.getThread();
+            tail = t + 1; // publishes the record
+         }
+      	
+         // Deliver what has been queued, then finish.
+          void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+         }
+      	
+          public void run() {
+            long displayed = System.nanoTime();
+            boolean undisplayed = false;
+            while (true) {
+               long h = head;
+               long t = tail;
+               if (h == t) {
+                  if (undisplayed) {
+                     updateDisplay();
+                     undisplayed = false;
+                  }
+                  if (!running && h == tail) {
+                     return;
+                  }
+                  LockSupport.parkNanos(FRAME_NANOS);
+                  continue;
+               }
+               for (; h < t; h++) {
+                  int i = (int) h & (CAPACITY - 1);
+                  int type = types[i];
+                  AccessNotice notice = (type >= MEMORY_ACCESS)
+                        ? new MemoryAccessNotice(type - MEMORY_ACCESS, addresses[i], lengths[i], values[i], threads[i])
+                        : new RegisterAccessNotice(type, registerNames[i], threads[i]);
+                  Observable resource = resources[i];
+                  head = h + 1;
+                  processMIPSUpdate(resource, notice);
+                  undisplayed = true;
+                  long now = System.nanoTime();
+                  if (now - displayed >= FRAME_NANOS) {
+                     updateDisplay();
+                     displayed = now;
+                     undisplayed = false;
+                  }
+               }
+            }
+         }
+      }
                
    }
\ No newline at end of file
@@ -4,6 +4,7 @@
    import javax.swing.event.*;
    import java.awt.*;
    import java.awt.event.*;
+   import java.awt.image.*;
    import java.util.*;
    import mars.tools.*;
    import mars.mips.hardware.*;
@@ -50,6 +51,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// Major GUI components
       private JComboBox visualizationUnitPixelWidthSelector, visualizationUnitPixelHeightSelector,
                         visualizationPixelWidthSelector, visualizationPixelHeightSelector, displayBaseAddressSelector;
+      private JCheckBox pageFlippingSelector;
       private Graphics drawingArea;
       private JPanel canvas;
       private JPanel results;
@@ -76,6 +78,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private int unitPixelHeight = Integer.parseInt(visualizationUnitPixelHeightChoices[defaultVisualizationUnitPixelHeightIndex]);
       private int displayAreaWidthInPixels = Integer.parseInt(displayAreaPixelWidthChoices[defaultDisplayWidthIndex]);
       private int displayAreaHeightInPixels = Integer.parseInt(displayAreaPixelHeightChoices[defaultDisplayHeightIndex]);
+      private boolean pageFlipping = false;
    	
       	   
    	// The next four are initialized dynamically in initializeDisplayBaseChoices()
@@ -127,14 +130,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  Override the inherited method, which registers us as an Observer over the static data segment 
    	 *  (starting address 0x10010000) only.  This version will register us as observer over the 
    	 *  the memory range as selected by the base address combo box and capacity of the visualization display 
-   	 *  (number of visualization elements times the number of memory words each one represents). 
+   	 *  (number of visualization elements times the number of memory words each one represents),
+   	 *  or with page flipping both pages and the control word that follows them.
    	 *  It does so by calling the inherited 2-parameter overload of this method. 
    	 *  If you use the inherited GUI buttons, this 
    	 *  method is invoked when you click "Connect" button on MarsTool or the 
    	 *  "Assemble and Run" button on a Mars-based app.
    	 */
        protected void addAsObserver() {
-         int highAddress = baseAddress+theGrid.getRows()*theGrid.getColumns()*Memory.WORD_LENGTH_BYTES;
+         int highAddress = baseAddress+theGrid.getPageCount()*theGrid.getRows()*theGrid.getColumns()*Memory.WORD_LENGTH_BYTES;
       	// Special case: baseAddress<0 means we're in kernel memory (0x80000000 and up) and most likely
       	// in memory map address space (0xffff0000 and up).  In this case, we need to make sure the high address
       	// does not drop off the high end of 32 bit address space.  Highest allowable word address is 0xfffffffc,
@@ -188,7 +192,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	//       several combo boxes that have not been created yet.  But a default grid
       	//       needs to be allocated for initial canvas display.
          theGrid = new Grid(displayAreaHeightInPixels/unitPixelHeight,
-                            displayAreaWidthInPixels/unitPixelWidth);
+                            displayAreaWidthInPixels/unitPixelWidth, 1);
       }
    
    
@@ -215,10 +219,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	/**
    	 *  Updates display immediately after each update (AccessNotice) is processed, after
    	 *  display configuration changes as needed, and after each execution step when Mars
-   	 *  is running in timed mode.  Overrides inherited method that does nothing.
+   	 *  is running in timed mode.  Only the part of the display changed since the last
+   	 *  update is repainted.  Overrides inherited method that does nothing.
    	 */
        protected void updateDisplay() {
-         canvas.repaint();
+         Rectangle changed = theGrid.takeChangedArea();
+         if (changed != null) {
+            canvas.repaint(changed.x*unitPixelWidth, changed.y*unitPixelHeight,
+                           changed.width*unitPixelWidth, changed.height*unitPixelHeight);
+         }
+      }
+   
+   	/**
+   	 *  Stores are applied to the grid on a separate thread and the canvas repainted at
+   	 *  most once per frame, rather than once per store while the MIPS program waits.
+   	 *  Overrides inherited method that returns false.
+   	 */
+       protected boolean isUpdatedAsynchronously() {
+         return true;
       }
    
        
@@ -243,6 +261,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             						"by the MIPS program, its position in the display will be rendered\n"+
             						"in the color that its value represents.\n"+
             						"\n"+
+            						"Select Page Flipping for double buffering.  The display then has\n"+
+            						"two pages, the second immediately following the first in memory,\n"+
+            						"and the word following the second page is a control word: storing\n"+
+            						"0 or 1 there shows that page (only bit 0 is used).  Draw the next\n"+
+            						"frame in the page not shown then store its number to show it whole.\n"+
+            						"\n"+
             						"Version 1.0 is very basic and was constructed from the Memory\n"+
             						"Reference Visualization tool's code.  Feel free to improve it and\n"+
             						"send me your code for consideration in the next MARS release.\n"+
@@ -348,6 +372,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      updateDisplay();
                   }
                });	      	
+         pageFlippingSelector = new JCheckBox("", pageFlipping);
+         pageFlippingSelector.setToolTipText("Two display pages, selected by storing 0 or 1 to the word following them");
+         pageFlippingSelector.addActionListener(
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                     pageFlipping = pageFlippingSelector.isSelected();
+                     theGrid = createNewGrid();
+                  	// The observed address range covers the second page and control word only
+                  	// when page flipping, so re-register as for a base address change.
+                     if (connectButton != null && connectButton.isConnected()) {
+                        deleteAsObserver();
+                        addAsObserver();
+                     }
+                     updateDisplay();
+                  }
+               });
       
          // ALL COMPONENTS FOR "ORGANIZATION" SECTION
       
@@ -376,6 +416,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          baseAddressRow.add(new JLabel("Base address for display "),BorderLayout.WEST);
          baseAddressRow.add(displayBaseAddressSelector,BorderLayout.EAST);      				
       
+         JPanel pageFlippingRow = getPanelWithBorderLayout();
+         pageFlippingRow.setBorder(emptyBorder);
+         pageFlippingRow.add(new JLabel("Page Flipping "),BorderLayout.WEST);
+         pageFlippingRow.add(pageFlippingSelector,BorderLayout.EAST);
+      
       
       	// Lay 'em out in the grid...
          organization.add(unitWidthInPixelsRow);
@@ -383,6 +428,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          organization.add(widthInPixelsRow);
          organization.add(heightInPixelsRow);  
          organization.add(baseAddressRow); 
+         organization.add(pageFlippingRow);
          return organization;
       }
    	
@@ -459,20 +505,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        private Grid createNewGrid() {
          int rows = displayAreaHeightInPixels/unitPixelHeight;
          int columns = displayAreaWidthInPixels/unitPixelWidth;
-         return new Grid(rows,columns);
+         return new Grid(rows,columns,pageFlipping ? 2 : 1);
       }
    	
-   	 // Given memory address, update color for the corresponding grid element.
+   	 // Given memory address, update color for the corresponding grid element,
+   	 // or with page flipping select the page shown if it is the control word.
        private void updateColorForAddress(MemoryAccessNotice notice) {
          int address = notice.getAddress();
          int value   = notice.getValue();
-         int offset = (address - baseAddress)/Memory.WORD_LENGTH_BYTES;
-         try {
-            theGrid.setElement(offset / theGrid.getColumns(), offset % theGrid.getColumns(), value);
-         } 
-             catch (IndexOutOfBoundsException e) {
-                 // If address is out of range for display, do nothing.  
-            }
+         theGrid.setElement((address - baseAddress)/Memory.WORD_LENGTH_BYTES, value);
       }
    	  
    	  
@@ -489,37 +530,34 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           // override default paint method to assure display updated correctly every time
       	 // the panel is repainted.
           public void paint(Graphics g) {
-               paintGrid(g, theGrid);
-         }
-      
-      	// Paint the color codes.
-          private void paintGrid(Graphics g, Grid grid) {
-            int upperLeftX = 0, upperLeftY = 0;
-            for (int i=0; i<grid.getRows(); i++) {
-               for (int j=0; j<grid.getColumns(); j++) {
-                  g.setColor(grid.getElementFast(i,j));
-                  g.fillRect(upperLeftX, upperLeftY, unitPixelWidth, unitPixelHeight); 
-                  upperLeftX += unitPixelWidth;   // faster than multiplying
-               }
-            	// get ready for next row...
-               upperLeftX = 0;
-               upperLeftY += unitPixelHeight;     // faster than multiplying
-            }
+            theGrid.paint(g, unitPixelWidth, unitPixelHeight);
          }
       }
    
    	
       ////////////////////////////////////////////////////////////////////////
-   	// Represents grid of colors
+   	// Represents grid of colors, one image per page.  Each image is backed by an int
+   	// array of RGB values written directly as memory is stored to, and is drawn
+   	// scaled to unit size: no Color objects and one drawImage per repaint.
        private class Grid {
       
-         Color[][] grid;
+         BufferedImage[] pages;
+         int[][] pixels;             // RGB value of each element, row-major, per page
          int rows, columns;
+         int visiblePage;
+         // Bounds of elements changed in the visible page since takeChangedArea();
+         // none if changedRight < changedLeft.
+         int changedTop, changedLeft, changedBottom, changedRight;
       	 		  
-          private Grid(int rows, int columns) {
-            grid = new Color[rows][columns];
+          private Grid(int rows, int columns, int pageCount) {
             this.rows = rows;
             this.columns = columns;
+            pages = new BufferedImage[pageCount];
+            pixels = new int[pageCount][];
+            for (int i=0; i<pageCount; i++) {
+               pages[i] = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_RGB);
+               pixels[i] = ((DataBufferInt) pages[i].getRaster().getDataBuffer()).getData();
+            }
             reset();
          }
        
@@ -531,35 +569,91 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             return columns;
          }
       
-      	// Returns value in given grid element; null if row or column is out of range.			
-          private Color getElement(int row, int column) {
-            return (row>=0 && row<=rows && column>=0 && column<=columns) ? grid[row][column] : null;			
+          private int getPageCount() {
+            return pages.length;
          }
       
-      	// Returns value in given grid element without doing any row/column index checking.
-      	// Is faster than getElement but will throw array index out of bounds exception if
-      	// parameter values are outside the bounds of the grid.			
-          private Color getElementFast(int row, int column) {
-            return grid[row][column];			
+      	// Set the element at the given word offset from the base address, counting through
+      	// each page in turn.  With more than one page, the word following the last page
+      	// selects the page shown.  Any other offset is out of range and ignored.
+          private void setElement(int offset, int color) {
+            int pageSize = rows*columns;
+            if (offset < 0) {
+               return;
+            }
+            int page = offset / pageSize;
+            int index = offset - page*pageSize;
+            if (page < pages.length) {
+               pixels[page][index] = color;
+               if (page == visiblePage) {
+                  elementChanged(index / columns, index - (index / columns)*columns);
+               }
+            }
+            else if (page == pages.length && index == 0 && pages.length > 1) {
+               showPage(color & 1);
+            }
          }
-      	      	
-      	// Set the grid element.
-          private void setElement(int row, int column, int color) {
-            grid[row][column] = new Color(color);
+      
+          private synchronized void elementChanged(int row, int column) {
+            if (changedRight < changedLeft) {
+               changedTop = changedBottom = row;
+               changedLeft = changedRight = column;
+               return;
+            }
+            if (row < changedTop) changedTop = row;
+            if (row > changedBottom) changedBottom = row;
+            if (column < changedLeft) changedLeft = column;
+            if (column > changedRight) changedRight = column;
          }
-      	
-      	// Set the grid element.
-          private void setElement(int row, int column, Color color) {
-            grid[row][column] = color;
+      
+          private synchronized void showPage(int page) {
+            if (page != visiblePage) {
+               visiblePage = page;
+               allChanged();
+            }
          }
       
-      	// Just set all grid elements to black.
-          private void reset() {
-            for (int i=0; i<rows; i++) {
-               for (int j=0; j<columns; j++) {
-                  grid[i][j] = Color.BLACK;
-               }
+          private synchronized void allChanged() {
+            changedTop = changedLeft = 0;
+            changedBottom = rows-1;
+            changedRight = columns-1;
+         }
+      
+      	// Returns the area, in elements, changed since last called; null if none.
+          private synchronized Rectangle takeChangedArea() {
+            if (changedRight < changedLeft) {
+               return null;
+            }
+            Rectangle changed = new Rectangle(changedLeft, changedTop,
+                                    changedRight-changedLeft+1, changedBottom-changedTop+1);
+            changedLeft = 0;
+            changedRight = -1;
+            return changed;
+         }
+      
+      	// Draw the visible page, only as much of it as lies within the clip.
+          private void paint(Graphics g, int unitWidth, int unitHeight) {
+            int left = 0, top = 0, right = columns, bottom = rows;
+            Rectangle clip = g.getClipBounds();
+            if (clip != null) {
+               left = Math.max(0, clip.x/unitWidth);
+               top = Math.max(0, clip.y/unitHeight);
+               right = Math.min(columns, (clip.x+clip.width+unitWidth-1)/unitWidth);
+               bottom = Math.min(rows, (clip.y+clip.height+unitHeight-1)/unitHeight);
+            }
+            if (left < right && top < bottom) {
+               g.drawImage(pages[visiblePage], left*unitWidth, top*unitHeight, right*unitWidth, bottom*unitHeight,
+                           left, top, right, bottom, null);
+            }
+         }
+      
+      	// Just set all grid elements to black, and show the first page.
+          private synchronized void reset() {
+            for (int i=0; i<pixels.length; i++) {
+               Arrays.fill(pixels[i], 0);
             }
+            visiblePage = 0;
+            allChanged();
          }
       }  	
    
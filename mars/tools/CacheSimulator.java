@@ -493,6 +493,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          updateCacheHitRateDisplay();
       }
    
+   	/**
+   	 *  Memory accesses are simulated and animated on a separate thread, and the counts
+   	 *  redisplayed at most once per frame, so the MIPS program need not wait for them.
+   	 *  Every access is still simulated, in order.  Overrides inherited method that returns false.
+   	 */
+       protected boolean isUpdatedAsynchronously() {
+         return true;
+      }
+   
    	
       //////////////////////////////////////////////////////////////////////////////////////
       //  Private methods defined to support the above.
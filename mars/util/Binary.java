@@ -342,6 +342,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return result.toString();
       }
    	    
+    /**
+     * Quick test of whether stringToInt() could accept the given string, starting at the
+     * given position.  False means it certainly would not, so callers can avoid the
+     * cost of a NumberFormatException; true means it might.
+     *
+     * @param s candidate string
+     * @param start position in s at which the candidate integer starts
+     * @return false if the characters from start cannot be an integer, true otherwise
+     */
+     
+       public static boolean mayBeSignedInteger(String s, int start) {
+         if (start >= s.length()) {
+            return true; // stringToInt("") is 0
+         }
+         if (s.charAt(start) == '-' || s.charAt(start) == '+') {
+            start++;
+         }
+         if (start >= s.length()) {
+            return false;
+         }
+         char c = s.charAt(start);
+         return Character.isDigit(c) || c == '#';
+      }
+   
     /**
      * Attempt to validate given string whose characters represent a 32 bit integer.
      * Integer.decode() is insufficient because it will not allow incorporation of
@@ -68,6 +68,109 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// Added by DPS 28 Feb 2008.  See getInputReader() below.
       private static BufferedReader inputReader = null;
    
+      // Streams used for program I/O when running from the command line.  The process's
+      // own unless replaced through setStandardStreams().
+      private static InputStream standardInput = System.in;
+      private static PrintStream standardOutput = System.out;
+      private static PrintStream standardError = System.err;
+
+      // Program output when running from the command line is collected here and written to
+      // standardOutput a block at a time rather than a print at a time.  Written out when it
+      // fills, before the program reads input or writes to a standard file descriptor, and
+      // when simulation stops (see flushOutput()).
+      private static final int OUTPUT_BUFFER_CHARACTERS = 8192;
+      private static StringBuilder outputBuffer = new StringBuilder(OUTPUT_BUFFER_CHARACTERS);
+   
+    /**
+     * Replace the streams used for standard input, output and error when running from
+     * the command line (System.in, System.out and System.err by default).  Used by the
+     * batch runner to give each program its own input fixture and output capture.
+     * Any input buffered from the previous standard input is discarded.
+     * @param in stream to read program input from
+     * @param out stream for program output
+     * @param err stream for program output to the STDERR file descriptor
+     */
+       public static void setStandardStreams(InputStream in, PrintStream out, PrintStream err)
+      {
+         flushOutput();
+         standardInput = in;
+         standardOutput = out;
+         standardError = err;
+         inputReader = null;
+         FileIOData.setupStdio();
+      }
+
+    /**
+     * Returns the stream used for standard error when running from the command line:
+     * System.err unless replaced through setStandardStreams().
+     * @return the standard error stream
+     */
+       public static PrintStream getStandardError()
+      {
+         return standardError;
+      }
+
+    /**
+     * The standard streams, open files and buffered input and output of one simulation.
+     * A new State uses System.in, System.out and System.err and has no files open.
+     * See mars.SimulationContext.
+     */
+       public static final class State
+      {
+         private String fileErrorString = "File operation OK";
+         private BufferedReader inputReader = null;
+         private InputStream standardInput = System.in;
+         private PrintStream standardOutput = System.out;
+         private PrintStream standardError = System.err;
+         private StringBuilder outputBuffer = new StringBuilder(OUTPUT_BUFFER_CHARACTERS);
+         private String[] fileNames = new String[ SYSCALL_MAXFILES ];
+         private int[] fileFlags = new int[ SYSCALL_MAXFILES ];
+         private Object[] streams = new Object[ SYSCALL_MAXFILES ];
+      }
+   
+    /**
+     * Returns the streams, files and buffers now in use.  Buffered program output is
+     * written out first.  The simulation must not be running.
+     * @return the current I/O state
+     */
+       public static State saveState()
+      {
+         flushOutput();
+         State state = new State();
+         state.fileErrorString = fileErrorString;
+         state.inputReader = inputReader;
+         state.standardInput = standardInput;
+         state.standardOutput = standardOutput;
+         state.standardError = standardError;
+         state.outputBuffer = outputBuffer;
+         state.fileNames = FileIOData.fileNames;
+         state.fileFlags = FileIOData.fileFlags;
+         state.streams = FileIOData.streams;
+         return state;
+      }
+   
+    /**
+     * Puts back streams, files and buffers returned by saveState(), or starts afresh
+     * from a new State.  The simulation must not be running.
+     * @param state I/O state to use from now on
+     */
+       public static void restoreState(State state)
+      {
+         flushOutput();
+         fileErrorString = state.fileErrorString;
+         inputReader = state.inputReader;
+         standardInput = state.standardInput;
+         standardOutput = state.standardOutput;
+         standardError = state.standardError;
+         outputBuffer = state.outputBuffer;
+         FileIOData.fileNames = state.fileNames;
+         FileIOData.fileFlags = state.fileFlags;
+         FileIOData.streams = state.streams;
+         if (state.fileNames[STDIN] == null) {
+            FileIOData.setupStdio();
+         }
+      }
+   
     /**
      * Implements syscall to read an integer value.  
      * Client is responsible for catching NumberFormatException.
@@ -178,7 +281,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       {
          if (Globals.getGui() == null)
          {
-            System.out.print(string);
+            synchronized (outputBuffer) {
+               outputBuffer.append(string);
+               if (outputBuffer.length() >= OUTPUT_BUFFER_CHARACTERS) {
+                  flushOutput();
+               }
+            }
          } 
          else
          {
@@ -186,6 +294,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       
       }
+   
+    /**
+     * Write out any program output printed when running from the command line that is
+     * still held by printString().  Called when simulation stops.
+     */
+       public static void flushOutput()
+      {
+         synchronized (outputBuffer) {
+            if (outputBuffer.length() > 0) {
+               standardOutput.append(outputBuffer);
+               outputBuffer.setLength(0);
+            }
+         }
+      }
    	
    	
     /**
@@ -295,6 +417,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
        ///////////////////////////////////////////////////////////////////////////////////
        //// When running in command mode, code below works for either regular file or STDOUT/STDERR
+         if (fd==STDOUT || fd==STDERR) {
+            flushOutput();
+         }
       
          if (!FileIOData.fdInUse(fd, 1)) // Check the existence of the "write" fd
          {
@@ -364,6 +489,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
        ////////////////////////////////////////////////////////////////////////////////////
        //// When running in command mode, code below works for either regular file or STDIN
+         if (fd==STDIN) {
+            flushOutput(); // so any prompt is seen
+         }
        
          if (!FileIOData.fdInUse(fd, 0)) // Check the existence of the "read" fd
          {
@@ -481,6 +609,88 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          FileIOData.resetFiles();
       }
    
+    /**
+     * Names of the files open for the MIPS program, for a snapshot of the machine.
+     * Standard input, output and error are not included.
+     *
+     * @return array indexed by file descriptor, holding the file's name or null if not open
+     */
+       public static String[] getOpenFileNames()
+      {
+         String[] names = new String[SYSCALL_MAXFILES];
+         for (int fd = STDERR + 1; fd < SYSCALL_MAXFILES; fd++)
+         {
+            names[fd] = (FileIOData.streams[fd] == null) ? null : FileIOData.fileNames[fd];
+         }
+         return names;
+      }
+   
+    /**
+     * Flags the open files were opened with, parallel to getOpenFileNames().
+     *
+     * @return array indexed by file descriptor
+     */
+       public static int[] getOpenFileFlags()
+      {
+         return FileIOData.fileFlags.clone();
+      }
+   
+    /**
+     * Current positions in the open files, parallel to getOpenFileNames().
+     *
+     * @return array indexed by file descriptor, 0 if not open
+     * @throws IOException if a position cannot be determined
+     */
+       public static long[] getOpenFilePositions() throws IOException
+      {
+         long[] positions = new long[SYSCALL_MAXFILES];
+         for (int fd = STDERR + 1; fd < SYSCALL_MAXFILES; fd++)
+         {
+            Object stream = FileIOData.streams[fd];
+            if (stream instanceof FileInputStream)
+               positions[fd] = ((FileInputStream) stream).getChannel().position();
+            else if (stream instanceof FileOutputStream)
+               positions[fd] = ((FileOutputStream) stream).getChannel().position();
+         }
+         return positions;
+      }
+   
+    /**
+     * Close all files then reopen those described by getOpenFileNames(), getOpenFileFlags()
+     * and getOpenFilePositions(), with the same file descriptors.  A file open for reading
+     * is positioned as it was.  A file open for writing is truncated to its length at the
+     * time, so that writing continues from there.
+     *
+     * @param names file names, null where not open
+     * @param flags flags the files were opened with
+     * @param positions positions in the files
+     * @throws IOException if a file cannot be reopened
+     */
+       public static void restoreOpenFiles(String[] names, int[] flags, long[] positions) throws IOException
+      {
+         FileIOData.resetFiles();
+         for (int fd = STDERR + 1; fd < SYSCALL_MAXFILES && fd < names.length; fd++)
+         {
+            if (names[fd] == null)
+               continue;
+            if (flags[fd] == O_RDONLY)
+            {
+               FileInputStream inputStream = new FileInputStream(names[fd]);
+               inputStream.getChannel().position(positions[fd]);
+               FileIOData.setStreamInUse(fd, inputStream);
+            }
+            else
+            {
+               FileOutputStream outputStream = new FileOutputStream(names[fd], true);
+               if ((flags[fd] & O_APPEND) == 0)
+                  outputStream.getChannel().truncate(positions[fd]);
+               FileIOData.setStreamInUse(fd, outputStream);
+            }
+            FileIOData.fileNames[fd] = names[fd];
+            FileIOData.fileFlags[fd] = flags[fd];
+         }
+      }
+   
      /**
       *  Retrieve file operation or error message
    	*
@@ -498,8 +708,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// transparent to it.  Lazy instantiation.  DPS.  28 Feb 2008
    	
        private static BufferedReader getInputReader() {
+         flushOutput(); // so any prompt is seen
          if (inputReader == null) {
-            inputReader = new BufferedReader(new InputStreamReader(System.in));  
+            inputReader = new BufferedReader(new InputStreamReader(standardInput));  
          }
          return inputReader;
       }
@@ -532,11 +743,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             fileFlags[STDIN]  = SystemIO.O_RDONLY;
             fileFlags[STDOUT] = SystemIO.O_WRONLY;
             fileFlags[STDERR] = SystemIO.O_WRONLY;
-            streams[STDIN]  = System.in;
-            streams[STDOUT] = System.out;
-            streams[STDERR] = System.err;
-            System.out.flush();
-            System.err.flush();
+            streams[STDIN]  = standardInput;
+            streams[STDOUT] = standardOutput;
+            streams[STDERR] = standardError;
+            flushOutput();
+            standardOutput.flush();
+            standardError.flush();
          }
       
         // Preserve a stream that is in use
@@ -204,8 +204,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          int registerRow    = Coprocessor0.getRegisterPosition(register);
          if (registerRow < 0) 
             return; // not valid coprocessor0 register
+         int previousRow = this.highlightRow;
          this.highlightRow = registerRow;
-         table.tableChanged(new TableModelEvent(table.getModel()));
+         repaintRow(previousRow); // to remove its highlight
+         repaintRow(this.highlightRow);
+      }
+   	
+       private void repaintRow(int row) {
+         if (row >= 0 && row < table.getRowCount()) {
+            table.tableChanged(new TableModelEvent(table.getModel(), row, row));
+         }
       }
    
    /*
@@ -328,6 +336,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          * Update cell contents in table model.  Does not affect MIPS register.
          */
           private void setDisplayAndModelValueAt(Object value, int row, int col) {
+            if (value != null && value.equals(data[row][col])) {
+               return; // unchanged, so the cell need not be redrawn
+            }
             data[row][col] = value;
             fireTableCellUpdated(row, col);
          }
@@ -279,8 +279,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*  @param register Register object corresponding to row to be selected.
    	*/
        void highlightCellForRegister(Register register) {
+         int previousRow = this.highlightRow;
          this.highlightRow = register.getNumber();
-         table.tableChanged(new TableModelEvent(table.getModel()));
+         repaintRow(previousRow); // to remove its highlight
+         repaintRow(this.highlightRow);
       	/*
          int registerColumn = FLOAT_COLUMN;
          registerColumn = table.convertColumnIndexToView(registerColumn); 
@@ -297,6 +299,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       	*/
       }
+   	
+       private void repaintRow(int row) {
+         if (row >= 0 && row < table.getRowCount()) {
+            table.tableChanged(new TableModelEvent(table.getModel(), row, row));
+         }
+      }
    
    /*
    * Cell renderer for displaying register entries.  This does highlighting, so if you
@@ -470,6 +478,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          * Update cell contents in table model.  Does not affect MIPS register.
          */
           private void setDisplayAndModelValueAt(Object value, int row, int col) {
+            if (value != null && value.equals(data[row][col])) {
+               return; // unchanged, so the cell need not be redrawn
+            }
             data[row][col] = value;
             fireTableCellUpdated(row, col);
          }
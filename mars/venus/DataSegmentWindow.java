@@ -47,21 +47,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    public class DataSegmentWindow extends JInternalFrame implements Observer {
    
       private static final String [] dataSegmentNames={"Data", "Stack", "Kernel"};
-      private static  Object[][] dataData;
    
       private static JTable dataTable;
       private JScrollPane dataTableScroller;
+      private JScrollBar rowScrollBar;
       private Container contentPane;
       private JPanel tablePanel;
       private JButton dataButton, nextButton, prevButton, stakButton, globButton, heapButton, kernButton, extnButton, mmioButton, textButton;
       private JCheckBox asciiDisplayCheckBox;
    	
       static final int VALUES_PER_ROW = 8;
-      static final int NUMBER_OF_ROWS = 16;  // with 8 value columns, this shows 512 bytes;  
+      static final int NUMBER_OF_ROWS = 16;  // rows in a memory "chunk"; with 8 value columns, 512 bytes  
       static final int NUMBER_OF_COLUMNS = VALUES_PER_ROW + 1;// 1 for address and 8 for values
       static final int BYTES_PER_VALUE = 4;
       static final int BYTES_PER_ROW = VALUES_PER_ROW * BYTES_PER_VALUE;
       static final int MEMORY_CHUNK_SIZE = NUMBER_OF_ROWS * BYTES_PER_ROW;
+   	// The table shows the rows that fit in its window, each of 32 bytes, from the address
+   	// range of the current mode.  Its scroll bar and the Prev and Next buttons choose the
+   	// first row shown.  NUMBER_OF_ROWS is the number shown until the window is laid out.
    	// PREV_NEXT_CHUNK_SIZE determines how many rows will be scrolled when Prev or Next buttons fire.
    	// MEMORY_CHUNK_SIZE/2 means scroll half a table up or down.  Easier to view series that flows off the edge.
    	// MEMORY_CHUNK_SIZE means scroll a full table's worth.  Scrolls through memory faster.  DPS 26-Jan-09
@@ -71,8 +74,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       static final boolean KERNEL_MODE = true;
    
       private boolean addressHighlighting = false;
+      private boolean unobservedRun = false; // memory is changing without notices
       private boolean asciiDisplay = false;
       private int addressRow, addressColumn, addressRowFirstAddress;
+      private int rowsInView = NUMBER_OF_ROWS; // rows fully in view
       private Settings settings;
    	
       int firstAddress;
@@ -220,16 +225,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (rowColumn==null || rowColumn.x < 0 || rowColumn.y < 0) {
             return;
          }
+         DataTableModel dataModel = (DataTableModel) dataTable.getModel();
+         int previousRow = this.addressRow;
+         int previousColumn = this.addressColumn;
          this.addressRow = rowColumn.x;
          this.addressColumn = rowColumn.y; 
-         this.addressRowFirstAddress = Binary.stringToInt(dataTable.getValueAt(this.addressRow,ADDRESS_COLUMN).toString());
-      //System.out.println("Address "+Binary.intToHexString(address)+" becomes row "+ addressRow + " column "+addressColumn+
-      //" starting addr "+dataTable.getValueAt(this.addressRow,ADDRESS_COLUMN));
-         // Tell the system that table contents have changed.  This will trigger re-rendering 
-      	// during which cell renderers are obtained.  The cell of interest (identified by 
-      	// instance variables this.addressRow and this.addressColumn) will get a renderer
-      	// with highlight background color and all others get renderer with default background. 
-         dataTable.tableChanged(new TableModelEvent(dataTable.getModel(),0,dataData.length-1));
+         this.addressRowFirstAddress = dataModel.getRowAddress(this.addressRow);
+         // Tell the system that the previously highlighted cell and this one have changed.
+      	// This will trigger re-rendering during which cell renderers are obtained.  The cell
+      	// of interest (identified by instance variables this.addressRow and this.addressColumn)
+      	// will get a renderer with highlight background color and all others get renderer
+      	// with default background. 
+         if (previousRow >= 0 && previousRow < dataModel.getRowCount() && previousColumn > ADDRESS_COLUMN) {
+            dataModel.fireTableCellUpdated(previousRow, previousColumn);
+         }
+         dataModel.fireTableCellUpdated(this.addressRow, this.addressColumn);
       }
    	 
    	 // Given address, will compute table cell location, adjusting table if necessary to
@@ -243,7 +253,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 // kernel instead of user data segment).
       private Point displayCellForAddress(int address) {
          //////////////////////////////////////////////////////////
-      	// This requires a 5-step process.  Each step is described
+      	// This requires a 4-step process.  Each step is described
       	// just above the statements that implement it.
       	//////////////////////////////////////////////////////////
       	
@@ -253,50 +263,31 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             // It is not a data segment address so good bye!
             return null;
          }
-         // STEP 2:  Set the combo box appropriately.  This will also display the 
-      	// first chunk of addresses from that segment.
-         baseAddressSelector.setSelectedIndex(desiredComboBoxIndex);
-         ((CustomComboBoxModel) baseAddressSelector.getModel()).forceComboBoxUpdate(desiredComboBoxIndex);
-         baseAddressButtons[desiredComboBoxIndex].getActionListeners()[0].actionPerformed(null);
-      	// STEP 3:  Display memory chunk containing this address, which may be 
-      	// different than the one just displayed.
-         int baseAddress = displayBaseAddressArray[desiredComboBoxIndex];
-         if (baseAddress == -1) {
-            if (desiredComboBoxIndex == GLOBAL_POINTER_ADDRESS_INDEX) {
-               baseAddress = RegisterFile.getValue(RegisterFile.GLOBAL_POINTER_REGISTER) 
-                             - (RegisterFile.getValue(RegisterFile.GLOBAL_POINTER_REGISTER) % BYTES_PER_ROW);
-            } 
-            else if (desiredComboBoxIndex == STACK_POINTER_BASE_ADDRESS_INDEX) {
-               baseAddress = RegisterFile.getValue(RegisterFile.STACK_POINTER_REGISTER) 
-                             - (RegisterFile.getValue(RegisterFile.STACK_POINTER_REGISTER) % BYTES_PER_ROW);            } 
-            else {
-               return null;// shouldn't happen since these are the only two
+         DataTableModel dataModel = (DataTableModel) dataTable.getModel();
+      	// STEP 2:  If the table covers this address and its row is fully in view, as it
+      	// usually is for successive stores while stepping, leave the table as it is.
+         if (!dataModel.containsAddress(address) || dataModel.getRowForAddress(address) < 0 
+             || dataModel.getRowForAddress(address) >= rowsInView) {
+            // STEP 3:  Set the combo box appropriately.  This will also switch the table
+         	// to the kernel or user address range if necessary.
+            if (desiredComboBoxIndex != baseAddressSelector.getSelectedIndex() || !dataModel.containsAddress(address)) {
+               baseAddressSelector.setSelectedIndex(desiredComboBoxIndex);
+               ((CustomComboBoxModel) baseAddressSelector.getModel()).forceComboBoxUpdate(desiredComboBoxIndex);
+               baseAddressButtons[desiredComboBoxIndex].getActionListeners()[0].actionPerformed(null);
             }
+            if (!dataModel.containsAddress(address)) {
+               return null; // outside the range of either mode
+            }
+         	// STEP 4:  Center the row containing the cell of interest, to the extent possible.
+            scrollToRow(dataModel.getRangeRowForAddress(address) - rowsInView/2);
          }
-         int byteOffset  = address - baseAddress;
-         int chunkOffset = byteOffset / MEMORY_CHUNK_SIZE; 
-         int byteOffsetIntoChunk = byteOffset % MEMORY_CHUNK_SIZE;
-      	// Subtract 1 from chunkOffset because we're gonna call the "next" action
-      	// listener to get the correct chunk loaded and displayed, and the first
-      	// thing it does is increment firstAddress by MEMORY_CHUNK_SIZE.  Here
-      	// we do an offsetting decrement in advance because we don't want the
-      	// increment but we want the other actions that method provides.
-         firstAddress = firstAddress + chunkOffset * MEMORY_CHUNK_SIZE - PREV_NEXT_CHUNK_SIZE;
-         nextButton.getActionListeners()[0].actionPerformed(null);
-      	// STEP 4:  Find cell containing this address.  Add 1 to column calculation
-      	// because table column 0 displays address, not memory contents.  The 
-      	// "convertColumnIndexToView()" is not necessary because the columns cannot be
-      	// reordered, but I included it as a precautionary measure in case that changes.
-         int addrRow    = byteOffsetIntoChunk / BYTES_PER_ROW;
-         int addrColumn = byteOffsetIntoChunk % BYTES_PER_ROW / BYTES_PER_VALUE + 1;
+      	// Find cell containing this address.  Add 1 to column calculation because table
+      	// column 0 displays address, not memory contents.  The "convertColumnIndexToView()"
+      	// is not necessary because the columns cannot be reordered, but I included it as a
+      	// precautionary measure in case that changes.
+         int addrRow = dataModel.getRowForAddress(address);
+         int addrColumn = (address - dataModel.getRowAddress(addrRow)) / BYTES_PER_VALUE + 1;
          addrColumn = dataTable.convertColumnIndexToView(addrColumn); 
-         Rectangle addressCell = dataTable.getCellRect(addrRow, addrColumn, true);
-      	// STEP 5:  Center the row containing the cell of interest, to the extent possible.
-         double cellHeight = addressCell.getHeight();
-         double viewHeight = dataTableScroller.getViewport().getExtentSize().getHeight();
-         int numberOfVisibleRows = (int) (viewHeight / cellHeight);
-         int newViewPositionY = Math.max((int)((addrRow-(numberOfVisibleRows/2))*cellHeight), 0);
-         dataTableScroller.getViewport().setViewPosition(new Point(0, newViewPositionY));
          return new Point(addrRow, addrColumn); 
       }
    
@@ -405,29 +396,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
    	////////////////////////////////////////////////////////////////////////////////
    	//  Generates the Address/Data part of the Data Segment window.
-   	//   Returns the JScrollPane for the Address/Data part of the Data Segment window.
-      private JScrollPane generateDataPanel(){
-         dataData = new Object[NUMBER_OF_ROWS][NUMBER_OF_COLUMNS];
-         int valueBase = Globals.getGui().getMainPane().getExecutePane().getValueDisplayBase();
+   	//   Returns the JPanel for the Address/Data part of the Data Segment window.
+      private JPanel generateDataPanel(){
          int addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
-         int address = this.homeAddress;
-         for(int row=0; row<NUMBER_OF_ROWS; row++){
-            dataData[row][ADDRESS_COLUMN] = NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase);
-            for (int column=1; column<NUMBER_OF_COLUMNS; column++) {
-               try {
-                  dataData[row][column] = NumberDisplayBaseChooser.formatNumber(Globals.memory.getRawWord(address), valueBase);
-               } 
-                  catch (AddressErrorException aee) {
-                     dataData[row][column] = NumberDisplayBaseChooser.formatNumber(0, valueBase);
-                  }
-               address += BYTES_PER_VALUE;
-            }
-         }
          String [] names = new String[NUMBER_OF_COLUMNS];
          for (int i=0; i<NUMBER_OF_COLUMNS; i++) {
             names[i] = getHeaderStringForColumn(i, addressBase);
          }
-         dataTable= new MyTippedJTable(new DataTableModel(dataData, names));
+         DataTableModel dataModel = new DataTableModel(names);
+         dataTable= new MyTippedJTable(dataModel);
       	// Do not allow user to re-order columns; column order corresponds to MIPS memory order
          dataTable.getTableHeader().setReorderingAllowed(false);
          dataTable.setRowSelectionAllowed(false);
@@ -441,9 +418,37 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             dataTable.getColumnModel().getColumn(i).setPreferredWidth(60);
             dataTable.getColumnModel().getColumn(i).setCellRenderer( addressCellRenderer );
          }
-         dataTableScroller = new JScrollPane(dataTable,ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS, 
+         dataTable.setAutoscrolls(false);
+         dataTableScroller = new JScrollPane(dataTable,ScrollPaneConstants.VERTICAL_SCROLLBAR_NEVER, 
                                 ScrollPaneConstants.HORIZONTAL_SCROLLBAR_ALWAYS);
-         return dataTableScroller;
+         dataTableScroller.getViewport().addComponentListener(
+               new ComponentAdapter() {
+                  public void componentResized(ComponentEvent e) {
+                     DataSegmentWindow.this.viewChanged();
+                  }
+               });
+         // The vertical scroll bar counts rows rather than pixels, so it reaches every row
+      	// of the address range however tall the rows are.
+         rowScrollBar = new JScrollBar(JScrollBar.VERTICAL);
+         rowScrollBar.addAdjustmentListener(
+               new AdjustmentListener() {
+                  public void adjustmentValueChanged(AdjustmentEvent e) {
+                     DataSegmentWindow.this.viewChanged();
+                  }
+               });
+         MouseWheelListener wheelListener = 
+               new MouseWheelListener() {
+                  public void mouseWheelMoved(MouseWheelEvent e) {
+                     rowScrollBar.setValue(rowScrollBar.getValue() + e.getUnitsToScroll());
+                  }
+               };
+         dataTable.addMouseWheelListener(wheelListener);
+         rowScrollBar.addMouseWheelListener(wheelListener);
+         JPanel dataPanel = new JPanel(new BorderLayout());
+         dataPanel.add(dataTableScroller, BorderLayout.CENTER);
+         dataPanel.add(rowScrollBar, BorderLayout.EAST);
+         showMemoryFrom(this.homeAddress);
+         return dataPanel;
       }
       
    	// Little helper.  Is called when headers set up and each time number base changes.
@@ -475,7 +480,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
       public void clearHighlighting() {
          addressHighlighting=false;
-         dataTable.tableChanged(new TableModelEvent(dataTable.getModel(),0,dataData.length-1));
+         dataTable.tableChanged(new TableModelEvent(dataTable.getModel(),0,dataTable.getRowCount()-1));
       	// The below addresses situation in which addressRow and addressColum hold their
       	// values across assemble operations.  Whereupon at the first step of the next
       	// run the last cells from the previous run are highlighted!  This method is called
@@ -492,55 +497,88 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    	
    	/**
-   	 * Update table model with contents of new memory "chunk".  Mars supports megabytes of
-   	 * data segment space so we only plug a "chunk" at a time into the table.
-   	 * @param firstAddr the first address in the memory range to be placed in the model.
+   	 * Scroll the table to show the given address in its top row, switching it to the
+   	 * address range of the current (user or kernel) mode if necessary.  Mars supports
+   	 * megabytes of data segment space, so the table reads memory only for the rows in view.
+   	 * @param firstAddr the address to be placed in the top row.
    	 */
    	 
       public void updateModelForMemoryRange(int firstAddr) {
          if (tablePanel.getComponentCount() == 0) 
             return; // ignore if no content to change
-         int valueBase = getValueDisplayFormat();
-         int addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
-         int address = firstAddr;
-         TableModel dataModel = dataTable.getModel();
-         for (int row=0; row<NUMBER_OF_ROWS; row++) {
-            ((DataTableModel)dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase),row,ADDRESS_COLUMN);
-            for (int column=1; column<NUMBER_OF_COLUMNS; column++) {
-               try {
-                  ((DataTableModel)dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(Globals.memory.getWordNoNotify(address), valueBase),row,column);
-               } 
-                  catch (AddressErrorException aee) {
-                     // Bit of a hack here.  Memory will throw an exception if you try to read directly from text segment when the
-                  	// self-modifying code setting is disabled.  This is a good thing if it is the executing MIPS program trying to
-                  	// read.  But not a good thing if it is the DataSegmentDisplay trying to read.  I'll trick Memory by 
-                  	// temporarily enabling the setting as "non persistent" so it won't write through to the registry.
-                     if (Memory.inTextSegment(address)) {
-                        int displayValue = 0;
-                        if (!Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED)) {
-                           Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, true);
-                           try {
-                              displayValue = Globals.memory.getWordNoNotify(address);
-                           } 
-                              catch (AddressErrorException e) { 
-                              // Still got an exception?  Doesn't seem possible but if we drop through it will write default value 0.
-                              }
-                           Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, false);
-                        }
-                        ((DataTableModel)dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(displayValue, valueBase),row,column);
+         showMemoryFrom(firstAddr);
+      }
+   
+      private void showMemoryFrom(int firstAddr) {
+         DataTableModel dataModel = (DataTableModel) dataTable.getModel();
+         setTableRangeForMode(dataModel);
+         scrollToRow(dataModel.getRangeRowForAddress(firstAddr));
+         updateRowsInView();
+      }
+   
+      // Scroll the table so the given row of its address range is at the top, as far as
+   	// the range allows.
+      private void scrollToRow(int row) {
+         rowScrollBar.setValue(row);
+         viewChanged();
+      }
+   
+      // Called when the table is scrolled or resized: show the rows that fit from the one
+   	// chosen by the scroll bar, track the first address in view and enable Prev and Next
+   	// while there is more to see in their direction.
+      private void viewChanged() {
+         DataTableModel dataModel = (DataTableModel) dataTable.getModel();
+         int rowHeight = dataTable.getRowHeight();
+         int viewHeight = dataTableScroller.getViewport().getExtentSize().height;
+         rowsInView = (viewHeight < rowHeight) ? NUMBER_OF_ROWS : viewHeight / rowHeight;
+         rowsInView = Math.min(rowsInView, DataTableModel.CACHE_ROWS - 1);
+         int lastRows = rowScrollBar.getMaximum();
+         if (rowScrollBar.getVisibleAmount() != Math.min(rowsInView, lastRows)) {
+            // This calls viewChanged() again.  A taller window keeps the last row at the bottom.
+            rowScrollBar.setValues(Math.max(0, Math.min(rowScrollBar.getValue(), lastRows - rowsInView)),
+                                   rowsInView, 0, lastRows);
+            rowScrollBar.setBlockIncrement(Math.max(1, rowsInView - 1));
+         }
+         // One more row shows the partly visible one at the bottom.
+         dataModel.setView(rowScrollBar.getValue(), rowsInView + 1);
+         firstAddress = dataModel.getRowAddress(0);
+         if (baseAddressSelector.isEnabled()) {
+            prevButton.setEnabled(rowScrollBar.getValue() > 0);
+            nextButton.setEnabled(rowScrollBar.getValue() + rowsInView < lastRows);
+         }
+      }
+   
+     /**
+      *  Read the memory word at the given address for display, without notifying observers.
+   	*  @param address address of word
+   	*  @return the word, or 0 if the address is outside the simulated address space.
+   	*/
+      private static int readWordForDisplay(int address) {
+         try {
+            return Globals.memory.getWordNoNotify(address);
+         } 
+            catch (AddressErrorException aee) {
+               // Bit of a hack here.  Memory will throw an exception if you try to read directly from text segment when the
+            	// self-modifying code setting is disabled.  This is a good thing if it is the executing MIPS program trying to
+            	// read.  But not a good thing if it is the DataSegmentDisplay trying to read.  I'll trick Memory by 
+            	// temporarily enabling the setting as "non persistent" so it won't write through to the registry.
+               int displayValue = 0;
+               if (Memory.inTextSegment(address)) {
+                  if (!Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED)) {
+                     Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, true);
+                     try {
+                        displayValue = Globals.memory.getWordNoNotify(address);
                      } 
-							// Bug Fix: the following line of code disappeared during the release 4.4 mods, but is essential to
-							// display values of 0 for valid MIPS addresses that are outside the MARS simulated address space.  Such
-							// addresses cause an AddressErrorException.  Prior to 4.4, they performed this line of code unconditionally.  
-							// With 4.4, I added the above IF statement to work with the text segment but inadvertently removed this line!
-							// Now it becomes the "else" part, executed when not in text segment.  DPS 8-July-2014.
-                     else {
-                        ((DataTableModel)dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(0, valueBase),row,column);
-                     }
+                        catch (AddressErrorException e) { 
+                        // Still got an exception?  Doesn't seem possible but if we drop through it will return default value 0.
+                        }
+                     Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, false);
                   }
-               address += BYTES_PER_VALUE;
+               } 
+               // Valid MIPS addresses that are outside the MARS simulated address space, and are not
+            	// in the text segment, are displayed as 0.
+               return displayValue;
             }
-         }
       }
    	 
    	/**
@@ -548,15 +586,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
    	
       public void updateCell(int address, int value) {
-         int offset = address-this.firstAddress;
-         if (offset<0 || offset>=MEMORY_CHUNK_SIZE) { // out of range
-            return;
-         }
-         int row = offset/BYTES_PER_ROW;
-         int column = (offset % BYTES_PER_ROW)/BYTES_PER_VALUE + 1; // column 0 reserved for address
-         int valueBase = Globals.getGui().getMainPane().getExecutePane().getValueDisplayBase();
-         ((DataTableModel)dataTable.getModel()).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(value, valueBase),
-                    row,column);
+         ((DataTableModel)dataTable.getModel()).setWord(address, value);
       }
    	
    	/**
@@ -567,13 +597,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (tablePanel.getComponentCount() == 0) 
             return; // ignore if no content to change
          int addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
-         int address = this.firstAddress;
-         String formattedAddress;
-         for(int i=0; i<NUMBER_OF_ROWS; i++) {
-            formattedAddress = NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase);
-            ((DataTableModel)dataTable.getModel()).setDisplayAndModelValueAt(formattedAddress, i, 0);
-            address += BYTES_PER_ROW;
-         }
+         updateValues();
       	// column headers include address offsets, so translate them too
          for (int i=1; i<NUMBER_OF_COLUMNS; i++) {
             dataTable.getColumnModel().getColumn(i).setHeaderValue(getHeaderStringForColumn(i, addressBase));
@@ -586,7 +610,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
    	 
       public void updateValues(){
-         updateModelForMemoryRange(this.firstAddress);
+         if (tablePanel.getComponentCount() == 0) 
+            return; // ignore if no content to change
+         ((DataTableModel)dataTable.getModel()).invalidateWords();
+         updateRowsInView();
+      }
+   
+      /**
+   	 * Update data display to show the values written since it was last updated.  Writes
+   	 * are observed while stepping or running at a limited speed, so only their words are
+   	 * read again.  Otherwise this is the same as updateValues().
+   	 */
+   	 
+      public void updateChangedValues(){
+         if (tablePanel.getComponentCount() == 0) 
+            return; // ignore if no content to change
+         if (unobservedRun) {
+            ((DataTableModel)dataTable.getModel()).invalidateWords();
+         }
+         updateRowsInView();
+      }
+   
+      private void updateRowsInView() {
+         int addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
+         ((DataTableModel)dataTable.getModel()).updateRows(getValueDisplayFormat(), addressBase);
       }
    
       /**
@@ -602,13 +649,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */   
    	
       public void resetValues(){
-         int valueBase = Globals.getGui().getMainPane().getExecutePane().getValueDisplayBase();
-         TableModel dataModel = dataTable.getModel();
-         for (int row=0; row<NUMBER_OF_ROWS; row++) {
-            for (int column=1; column<NUMBER_OF_COLUMNS; column++) {
-               ((DataTableModel)dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(0, valueBase),row,column);
-            }
-         }
+         ((DataTableModel)dataTable.getModel()).clearWords();
          disableAllButtons();
       }
    
@@ -686,7 +727,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   	// This makes it easier to mentally calculate address from row address + column offset.
                      firstAddress = firstAddress - (firstAddress % BYTES_PER_ROW);
                      homeAddress = firstAddress; 
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
                      updateModelForMemoryRange(firstAddress);
                   }
                });
@@ -700,7 +740,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      // See comment above for gloButton...
                      firstAddress = firstAddress - (firstAddress % BYTES_PER_ROW);
                      homeAddress = Globals.memory.stackBaseAddress;
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
                      updateModelForMemoryRange(firstAddress);
                   }
                });
@@ -710,8 +749,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   public void actionPerformed(ActionEvent ae) {
                      userOrKernelMode = USER_MODE;
                      homeAddress = Globals.memory.heapBaseAddress;
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(homeAddress);
-                     updateModelForMemoryRange(firstAddress);
+                     updateModelForMemoryRange(homeAddress);
                   }
                });
       
@@ -720,8 +758,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   public void actionPerformed(ActionEvent ae) {
                      userOrKernelMode = USER_MODE;
                      homeAddress = Globals.memory.externBaseAddress;
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(homeAddress);
-                     updateModelForMemoryRange(firstAddress);
+                     updateModelForMemoryRange(homeAddress);
                   }
                }); 
       			     			
@@ -731,7 +768,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      userOrKernelMode = KERNEL_MODE;
                      homeAddress = Globals.memory.kernelDataBaseAddress;
                      firstAddress = homeAddress;
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
                      updateModelForMemoryRange(firstAddress);
                   }
                });
@@ -742,7 +778,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      userOrKernelMode = KERNEL_MODE;
                      homeAddress = Globals.memory.memoryMapBaseAddress;
                      firstAddress = homeAddress;
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
                      updateModelForMemoryRange(firstAddress);
                   }
                });      
@@ -753,7 +788,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      userOrKernelMode = USER_MODE;
                      homeAddress = Globals.memory.textBaseAddress;
                      firstAddress = homeAddress;
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
                      updateModelForMemoryRange(firstAddress);
                   }
                });      
@@ -764,7 +798,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      userOrKernelMode = USER_MODE;
                      homeAddress = Globals.memory.dataBaseAddress;
                      firstAddress = homeAddress;
-                     firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
                      updateModelForMemoryRange(firstAddress);
                   }
                });    
@@ -778,36 +811,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// This will assure that user cannot view memory locations outside the data segment
    	// for selected mode.  For user mode, this means no lower than data segment base,
    	// or higher than user memory boundary.  For kernel mode, this means no lower than
-   	// kernel data segment base or higher than kernel memory.  It is called by the
-   	// above action listeners.
-   	//
-   	// lowAddress is lowest desired address to view, it is adjusted if necessary
-   	// and returned.
+   	// kernel data segment base or higher than kernel memory.  The scroll bar has a row
+   	// for every 32 bytes of that range, so it can be scrolled from one end to the other.
    	//
-   	// PrevButton and NextButton are enabled/disabled appropriately.
-   	//
-      private int setFirstAddressAndPrevNextButtonEnableStatus(int lowAddress) {
+      private void setTableRangeForMode(DataTableModel dataModel) {
          int lowLimit = (userOrKernelMode==USER_MODE) ? Math.min(Math.min(Globals.memory.textBaseAddress,
             													 Globals.memory.dataSegmentBaseAddress),
             																		Globals.memory.dataBaseAddress)
                                                       : Globals.memory.kernelDataBaseAddress;
          int highLimit= (userOrKernelMode==USER_MODE) ? Globals.memory.userHighAddress
                                                       : Globals.memory.kernelHighAddress;
-         if (lowAddress <= lowLimit) {
-            lowAddress = lowLimit;
-            prevButton.setEnabled(false);
-         } 
-         else {
-            prevButton.setEnabled(true);
+         int rows = (int) ((((highLimit - lowLimit) & 0xffffffffL) + 1) / BYTES_PER_ROW);
+         if (dataModel.setRange(lowLimit, rows)) {
+            rowScrollBar.setValues(0, Math.min(rowsInView, rows), 0, rows);
          }
-         if (lowAddress >= highLimit - MEMORY_CHUNK_SIZE) {
-            lowAddress = highLimit - MEMORY_CHUNK_SIZE + 1;
-            nextButton.setEnabled(false);
-         } 
-         else {
-            nextButton.setEnabled(true);
-         }
-         return lowAddress;
       }
    
    	
@@ -831,6 +848,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                if (notice.getRunSpeed() != RunSpeedPanel.UNLIMITED_SPEED || notice.getMaxSteps()==1) {
                   Memory.getInstance().addObserver(this);
                   addressHighlighting = true;
+                  unobservedRun = false;
+               } 
+               else {
+                  unobservedRun = true;
                }
             } 
             else {
@@ -847,6 +868,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             MemoryAccessNotice access = (MemoryAccessNotice) obj;
             if (access.getAccessType()==AccessNotice.WRITE) {
                int address = access.getAddress();
+               // Have the written words read again at the next update.
+               ((DataTableModel)dataTable.getModel()).wordsWritten(address, access.getLength());
             	// Use the same highlighting technique as for Text Segment -- see
             	// AddressCellRenderer class below.
                this.highlightCellForAddress(address);
@@ -877,15 +900,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
    	
    	////////////////////////////////////////////////////////////////////////
-   	// Class representing memory data table data
+   	// Class representing memory data table data.  Covers an address range with a row for
+   	// every 32 bytes, but has as table rows only those in view, from firstRow of the range.
+   	// A row is read from memory when first displayed and its cells formatted only when the
+   	// table asks for them, keeping the strings until their word or the number format
+   	// changes.  Words are read again only when marked stale by a write or invalidateWords(),
+   	// and the table is told only of the cells whose word changed.
    	
       class DataTableModel extends AbstractTableModel {
+         private static final String INVALID = "INVALID";
+         static final int CACHE_ROWS = 256; // power of 2, more rows than are ever in view
          String[] columnNames;
-         Object[][] data;         
+         int lowAddress, rangeRows;     // address range covered
+         int firstRow, rowCount;        // rows of the range in the table
+         int valueBase = -1, addressBase = -1;  // formats of the cached strings; -1 before first use
+         // Row i of the range is held in slot i % CACHE_ROWS.
+         int[] cachedRows = new int[CACHE_ROWS];           // row held in each slot, -1 if none
+         boolean[] stale = new boolean[CACHE_ROWS];        // slot's words must be re-read before display
+         int[] words = new int[CACHE_ROWS * VALUES_PER_ROW];
+         String[] values = new String[CACHE_ROWS * VALUES_PER_ROW]; // formatted words, null until needed
+         String[] addresses = new String[CACHE_ROWS];                // formatted row addresses, null until needed
       	
-         public DataTableModel(Object[][] d, String [] n){
-            data=d;
+         public DataTableModel(String [] n){
             columnNames= n;
+            Arrays.fill(cachedRows, -1);
          }
       
          public int getColumnCount() {
@@ -893,7 +931,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
         
          public int getRowCount() {
-            return data.length;
+            return rowCount;
          }
       
          public String getColumnName(int col) {
@@ -901,7 +939,215 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       
          public Object getValueAt(int row, int col) {
-            return data[row][col];
+            int slot = loadRow(firstRow + row);
+            if (col == ADDRESS_COLUMN) {
+               if (addresses[slot] == null) {
+                  addresses[slot] = NumberDisplayBaseChooser.formatUnsignedInteger(getRowAddress(row), addressBase);
+               }
+               return addresses[slot];
+            }
+            int index = slot * VALUES_PER_ROW + col - 1;
+            String value = values[index];
+            if (value == null) {
+               value = NumberDisplayBaseChooser.formatNumber(words[index], valueBase);
+               values[index] = value;
+            }
+            return value;
+         }
+      
+         /*
+          * Address of the first word displayed in the given table row.
+          */
+         int getRowAddress(int row) {
+            return lowAddress + (firstRow + row) * BYTES_PER_ROW;
+         }
+      
+         /*
+          * Table row that does or would display the given address, which the range must
+      	 * contain.  It is outside the table if its row of the range is not in view.
+          */
+         int getRowForAddress(int address) {
+            return getRangeRowForAddress(address) - firstRow;
+         }
+      
+         /*
+          * Row of the range containing the given address, or its first or last row if the
+      	 * address is below or above the range.
+          */
+         int getRangeRowForAddress(int address) {
+            long offset = (address & 0xffffffffL) - (lowAddress & 0xffffffffL);
+            return (int) Math.max(0, Math.min(rangeRows - 1, offset / BYTES_PER_ROW));
+         }
+      
+         /*
+          * Whether the range contains the given address.
+          */
+         boolean containsAddress(int address) {
+            return ((address - lowAddress) & 0xffffffffL) < (long) rangeRows * BYTES_PER_ROW;
+         }
+      
+        /*
+         * Cover the given number of rows of memory words starting at the given address.
+      	* Returns false if that is the range already covered.
+         */
+         private boolean setRange(int low, int rows) {
+            if (low == lowAddress && rows == rangeRows) {
+               return false;
+            }
+            lowAddress = low;
+            rangeRows = rows;
+            firstRow = 0;
+            rowCount = 0;
+            Arrays.fill(cachedRows, -1);
+            fireTableDataChanged();
+            return true;
+         }
+      
+        /*
+         * Have the table display the given number of rows of the range from the given one,
+      	* or as many as the range has.
+         */
+         private void setView(int first, int rows) {
+            first = Math.max(0, Math.min(first, rangeRows - 1));
+            rows = Math.max(0, Math.min(rows, rangeRows - first));
+            if (first == firstRow && rows == rowCount) {
+               return;
+            }
+            firstRow = first;
+            rowCount = rows;
+            fireTableDataChanged();
+         }
+      
+        /*
+         * Slot holding the given row of the range, after reading the row from memory if
+      	* it is not held yet or is stale.  The stale mark is cleared before the words are
+      	* read, so a write while they are read marks them stale again.
+         */
+         private int loadRow(int rangeRow) {
+            int slot = rangeRow & (CACHE_ROWS - 1);
+            boolean newRow = (cachedRows[slot] != rangeRow);
+            if (newRow) {
+               cachedRows[slot] = rangeRow;
+               addresses[slot] = null;
+            }
+            if (newRow || stale[slot]) {
+               stale[slot] = false;
+               int address = lowAddress + rangeRow * BYTES_PER_ROW;
+               int index = slot * VALUES_PER_ROW;
+               for (int i=0; i<VALUES_PER_ROW; i++) {
+                  int word = readWordForDisplay(address);
+                  if (newRow || word != words[index + i] || values[index + i] == INVALID) {
+                     words[index + i] = word;
+                     values[index + i] = null;
+                  }
+                  address += BYTES_PER_VALUE;
+               }
+            }
+            return slot;
+         }
+      
+        /*
+         * Display the table rows in the given formats, re-reading those that are stale.
+      	* If the formats did not change, only the cells whose word changed are updated.
+         */
+         private void updateRows(int valueFormat, int addressFormat) {
+            boolean allChanged = false;
+            if (addressFormat != addressBase) {
+               Arrays.fill(addresses, null);
+               allChanged = true;
+            }
+            if (valueFormat != valueBase) {
+               Arrays.fill(values, null);
+               allChanged = true;
+            }
+            valueBase = valueFormat;
+            addressBase = addressFormat;
+            for (int row = 0; row < rowCount; row++) {
+               int slot = (firstRow + row) & (CACHE_ROWS - 1);
+               if (cachedRows[slot] != firstRow + row || !stale[slot]) {
+                  continue; // read when displayed, or unchanged
+               }
+               stale[slot] = false;
+               int address = getRowAddress(row);
+               int index = slot * VALUES_PER_ROW;
+               for (int i=0; i<VALUES_PER_ROW; i++) {
+                  int word = readWordForDisplay(address);
+                  if (word != words[index + i] || values[index + i] == INVALID) {
+                     words[index + i] = word;
+                     values[index + i] = null;
+                     if (!allChanged) {
+                        fireTableCellUpdated(row, i + 1);
+                     }
+                  }
+                  address += BYTES_PER_VALUE;
+               }
+            }
+            if (allChanged && rowCount > 0) {
+               fireTableRowsUpdated(0, rowCount-1);
+            }
+         }
+      
+        /*
+         * Mark the words of the given length from the given address to be read again,
+      	* if their rows are held.  Called for memory write notices, so it does not read
+      	* memory or change the table itself.
+         */
+         private void wordsWritten(int address, int length) {
+            int[] ends = { address, address + length - 1 };
+            for (int i=0; i<ends.length; i++) {
+               if (containsAddress(ends[i])) {
+                  int rangeRow = getRangeRowForAddress(ends[i]);
+                  int slot = rangeRow & (CACHE_ROWS - 1);
+                  if (cachedRows[slot] == rangeRow) {
+                     stale[slot] = true;
+                  }
+               }
+            }
+         }
+      
+        /*
+         * Mark every word held to be read again, after memory changed without notices.
+         */
+         private void invalidateWords() {
+            Arrays.fill(stale, true);
+         }
+      
+        /*
+         * Update the word displayed for the given address to this value, if its row is
+         * held.  Does not affect MIPS memory.
+         */
+         private void setWord(int address, int value) {
+            if (!containsAddress(address)) {
+               return;
+            }
+            int rangeRow = getRangeRowForAddress(address);
+            int slot = rangeRow & (CACHE_ROWS - 1);
+            if (cachedRows[slot] != rangeRow) {
+               return; // read from memory when displayed
+            }
+            int row = rangeRow - firstRow;
+            int column = (address - getRowAddress(row)) / BYTES_PER_VALUE;
+            int index = slot * VALUES_PER_ROW + column;
+            if (value == words[index] && values[index] != INVALID) {
+               return; // unchanged, so the cell need not be redrawn
+            }
+            words[index] = value;
+            values[index] = null;
+            if (row >= 0 && row < rowCount) {
+               fireTableCellUpdated(row, column + 1);
+            }
+         }
+      
+        /*
+         * Display 0 for every word held.  Does not affect MIPS memory.
+         */
+         private void clearWords() {
+            Arrays.fill(words, 0);
+            Arrays.fill(values, null);
+            Arrays.fill(stale, false);
+            if (rowCount > 0) {
+               fireTableRowsUpdated(0, rowCount-1);
+            }
          }
       
         /*
@@ -930,7 +1176,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          * editor for each cell.  
          */
          public Class getColumnClass(int c) {
-            return getValueAt(0, c).getClass();
+            return String.class;
          }
       
       
@@ -946,19 +1192,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                val = Binary.stringToInt((String) value);
             }
                catch (NumberFormatException nfe) {
-                  data[row][col] = "INVALID";
+                  values[loadRow(firstRow + row) * VALUES_PER_ROW + col - 1] = INVALID;
                   fireTableCellUpdated(row, col);
                   return;
                }
          
                // calculate address from row and column
-            try {
-               address = Binary.stringToInt((String)data[row][ADDRESS_COLUMN]) + (col-1)*BYTES_PER_VALUE;  // KENV 1/6/05
-            }
-               catch (NumberFormatException nfe) {
-                  //  can't really happen since memory addresses are completely under
-                  // the control of my software.
-               }
+            address = getRowAddress(row) + (col-1)*BYTES_PER_VALUE;  // KENV 1/6/05
          	//  Assures that if changed during MIPS program execution, the update will
          	//  occur only between MIPS instructions.
             synchronized (Globals.memoryAndRegistersLock) {
@@ -971,21 +1211,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      return;
                   }
             }// end synchronized block
-            int valueBase = Globals.getGui().getMainPane().getExecutePane().getValueDisplayBase();
-            data[row][col] = NumberDisplayBaseChooser.formatNumber(val, valueBase); 
-            fireTableCellUpdated(row, col);
+            setWord(address, val);
             return;
          }
       
-      
-        /*
-         * Update cell contents in table model.  Does not affect MIPS memory.
-         */
-         private void setDisplayAndModelValueAt(Object value, int row, int col) {
-            data[row][col] = value;
-            fireTableCellUpdated(row, col);
-         }
-      
          private void printDebugData() {
             int numRows = getRowCount();
             int numCols = getColumnCount();
@@ -993,7 +1222,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             for (int i=0; i < numRows; i++) {
                System.out.print("    row " + i + ":");
                for (int j=0; j < numCols; j++) {
-                  System.out.print("  " + data[i][j]);
+                  System.out.print("  " + getValueAt(i,j));
                }
                System.out.println();
             }
@@ -1013,13 +1242,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                                     isSelected, hasFocus, row, column);
          	
             cell.setHorizontalAlignment(SwingConstants.RIGHT);
-            int rowFirstAddress = Binary.stringToInt(table.getValueAt(row,ADDRESS_COLUMN).toString());
+            int rowFirstAddress = ((DataTableModel) table.getModel()).getRowAddress(row);
             if (settings.getDataSegmentHighlighting() && addressHighlighting  && rowFirstAddress==addressRowFirstAddress && column==addressColumn) {
                cell.setBackground( settings.getColorSettingByPosition(Settings.DATASEGMENT_HIGHLIGHT_BACKGROUND) );
                cell.setForeground( settings.getColorSettingByPosition(Settings.DATASEGMENT_HIGHLIGHT_FOREGROUND) );
                cell.setFont( settings.getFontByPosition(Settings.DATASEGMENT_HIGHLIGHT_FONT) );
             } 
-            else if (row%2==0) {
+            else if ((((DataTableModel) table.getModel()).firstRow + row)%2==0) {
                cell.setBackground( settings.getColorSettingByPosition(Settings.EVEN_ROW_BACKGROUND) );
                cell.setForeground( settings.getColorSettingByPosition(Settings.EVEN_ROW_FOREGROUND) );
                cell.setFont( settings.getFontByPosition(Settings.EVEN_ROW_FONT) );
@@ -1084,7 +1313,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	// This one will respond when either timer goes off or button lifted.
          public void actionPerformed(ActionEvent ae) {
             firstAddress -= PREV_NEXT_CHUNK_SIZE;
-            firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
             updateModelForMemoryRange(firstAddress);
          }
       }//////////////////////////////////////////////////////////////////////
@@ -1106,7 +1334,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	// This one will respond when either timer goes off or button lifted.
          public void actionPerformed(ActionEvent ae) {
             firstAddress += PREV_NEXT_CHUNK_SIZE;
-            firstAddress = setFirstAddressAndPrevNextButtonEnableStatus(firstAddress);
             updateModelForMemoryRange(firstAddress);
          }
       }//////////////////////////////////////////////////////////////////////
@@ -55,6 +55,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// must obviously be smaller than the former.
       public static final int MAXIMUM_SCROLLED_CHARACTERS = Globals.maximumMessageCharacters;
       public static final int NUMBER_OF_CHARACTERS_TO_CUT = Globals.maximumMessageCharacters/10 ; // 10%
+   	// Text posted to the runtime display is held in a bounded buffer and appended
+   	// once per frame, rather than one append (and one invokeLater) per print syscall.
+   	// A thread other than the event thread that finds the buffer full waits for it to
+   	// be emptied, so a program printing in a loop runs at the speed of the display.
+      private static final int RUN_OUTPUT_CAPACITY = 65536; // characters
+      private static final int RUN_OUTPUT_FRAME_MILLIS = 40; // 25 frames per second
+      private final char[] runOutput = new char[RUN_OUTPUT_CAPACITY];
+      private int runOutputLength = 0;
+      private boolean runOutputScheduled = false;
+      private final javax.swing.Timer runOutputTimer;
    
    /**
      *  Constructor for the class, sets up two fresh tabbed text areas for program feedback.
@@ -158,6 +168,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runTabClearButton.addActionListener(
                 new ActionListener() {
                    public void actionPerformed(ActionEvent e){ 
+                     clearRunOutput();
                      run.setText("");
                   }
                });
@@ -169,6 +180,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          this.addTab("Run I/O", runTab);
          this.setToolTipTextAt(0,"Messages produced by Run menu. Click on assemble error message to select erroneous line");
          this.setToolTipTextAt(1,"Simulated MIPS console input and output");
+         runOutputTimer = new javax.swing.Timer(RUN_OUTPUT_FRAME_MILLIS,
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                     showRunOutput();
+                  }
+               });
       }
    	
       // Center given button in a box, centered vertically and 6 pixels on left and right
@@ -292,32 +309,80 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *
    	 *  @param message String to append to runtime display text
    	 */
-   	// The work of this method is done by "invokeLater" because
-   	// its JTextArea is maintained by the main event thread
-   	// but also used, via this method, by the execution thread for 
-   	// "print" syscalls. "invokeLater" schedules the code to be
-   	// run under the event-processing thread no matter what.
-   	// DPS, 23 Aug 2005.
+   	// The text waits in the runOutput buffer to be appended by the event thread,
+   	// because its JTextArea is maintained by the main event thread but is also
+   	// used, via this method, by the execution thread for "print" syscalls.
        public void postRunMessage(String message) {
-         final String mess = message;
-         SwingUtilities.invokeLater(
-                new Runnable() { 
-                   public void run() { 
-                     setSelectedComponent(runTab);
-                     run.append(mess);
-                  // can do some crude cutting here.  If the document gets "very large", 
-                  // let's cut off the oldest text. This will limit scrolling but the limit 
-                  // can be set reasonably high.
-                     if (run.getDocument().getLength() > MAXIMUM_SCROLLED_CHARACTERS) {
-                        try {
-                           run.getDocument().remove(0, NUMBER_OF_CHARACTERS_TO_CUT);
-                        } 
-                            catch (BadLocationException ble) { 
-                           // only if NUMBER_OF_CHARACTERS_TO_CUT > MAXIMUM_SCROLLED_CHARACTERS
-                           }
-                     }
+         boolean eventThread = SwingUtilities.isEventDispatchThread();
+         int posted = 0;
+         while (true) {
+            synchronized (runOutput) {
+               int count = Math.min(message.length() - posted, RUN_OUTPUT_CAPACITY - runOutputLength);
+               message.getChars(posted, posted + count, runOutput, runOutputLength);
+               runOutputLength += count;
+               posted += count;
+               if (!runOutputScheduled) {
+                  runOutputScheduled = true;
+                  runOutputTimer.start();
+               }
+               if (posted == message.length()) {
+                  return;
+               }
+               if (!eventThread) {
+                  try {
+                     runOutput.wait();
                   } 
-               });
+                      catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return; // the rest of the message is lost
+                     }
+                  continue;
+               }
+            }
+            showRunOutput(); // full, and the event thread cannot wait for itself
+         }
+      }
+   
+      // Append any text waiting in the runOutput buffer to the runtime display.  Must be
+      // called from the event thread.  runOutputTimer calls it every frame until it finds
+      // nothing waiting.
+       private void showRunOutput() {
+         String text;
+         synchronized (runOutput) {
+            if (runOutputLength == 0) {
+               runOutputScheduled = false;
+               runOutputTimer.stop();
+               return;
+            }
+            text = new String(runOutput, 0, runOutputLength);
+            runOutputLength = 0;
+            runOutput.notifyAll();
+         }
+         setSelectedComponent(runTab);
+         run.append(text);
+      // can do some crude cutting here.  If the document gets "very large", 
+      // let's cut off the oldest text. This will limit scrolling but the limit 
+      // can be set reasonably high.
+         int length = run.getDocument().getLength();
+         if (length > MAXIMUM_SCROLLED_CHARACTERS) {
+            try {
+               run.getDocument().remove(0,
+                     Math.min(length, length - MAXIMUM_SCROLLED_CHARACTERS + NUMBER_OF_CHARACTERS_TO_CUT));
+            } 
+                catch (BadLocationException ble) { 
+               // cannot happen
+               }
+         }
+      }
+   	
+      // Drop any text waiting in the runOutput buffer, so that text posted before the
+      // Run I/O area is cleared does not reappear after it.  Must be called from the
+      // event thread.
+       private void clearRunOutput() {
+         synchronized (runOutput) {
+            runOutputLength = 0;
+            runOutput.notifyAll();
+         }
       }
    	
    	/**
@@ -452,6 +517,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
             };
           public void run() { // must be invoked from the GUI thread
+            showRunOutput(); // so input starts after any prompt
             setSelectedComponent(runTab);
             run.setEditable(true);
             run.requestFocusInWindow();
@@ -212,12 +212,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*  @param register Register object corresponding to row to be selected.
    	*/
        void highlightCellForRegister(Register register) {
+         int previousRow = this.highlightRow;
          this.highlightRow = register.getNumber();
-         // Tell the system that table contents have changed.  This will trigger re-rendering 
-      	// during which cell renderers are obtained.  The row of interest (identified by 
-      	// instance variabls this.registerRow) will get a renderer
-      	// with highlight background color and all others get renderer with default background. 
-         table.tableChanged(new TableModelEvent(table.getModel()));
+         // Tell the system that the previously highlighted row and this one have changed.
+      	// This will trigger re-rendering of those rows, during which cell renderers are
+      	// obtained.  The row of interest (identified by instance variable this.highlightRow)
+      	// will get a renderer with highlight background color and the other one a renderer
+      	// with default background. 
+         repaintRow(previousRow);
+         repaintRow(this.highlightRow);
+      }
+   	
+       private void repaintRow(int row) {
+         if (row >= 0 && row < table.getRowCount()) {
+            table.tableChanged(new TableModelEvent(table.getModel(), row, row));
+         }
       }
    	
    /*
@@ -343,6 +352,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          * Update cell contents in table model.  Does not affect MIPS register.
          */
           private void setDisplayAndModelValueAt(Object value, int row, int col) {
+            if (value != null && value.equals(data[row][col])) {
+               return; // unchanged, so the cell need not be redrawn
+            }
             data[row][col] = value;
             fireTableCellUpdated(row, col);
          }
@@ -1,6 +1,8 @@
    package mars.venus;
    import mars.*;
    import mars.mips.hardware.*;
+   import mars.simulator.*;
+   import java.io.*;
    import java.awt.*;
    import java.awt.event.*;
    import javax.swing.*;
@@ -60,7 +62,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          mainUI.messagesPane.setSelectedComponent(mainUI.messagesPane.runTab);
          executePane.getTextSegmentWindow().setCodeHighlighting(true);
       		
-         if (Globals.getSettings().getBackSteppingEnabled()) {
+         if (Globals.program.getReverseStepper() != null) {
+            // May re-execute many instructions, so done in the background as Go does
+            mainUI.setMenuState(FileStatus.RUNNING);
+            Simulator.getInstance().reverse(Globals.program, true, null, this);
+         }
+         else if (Globals.getSettings().getBackSteppingEnabled()) {
             boolean inDelaySlot = Globals.program.getBackStepper().inDelaySlot(); // Added 25 June 2007
 				Memory.getInstance().addObserver(executePane.getDataSegmentWindow());
 				RegisterFile.addRegistersObserver(executePane.getRegistersWindow());
@@ -96,4 +103,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             mainUI.setReset(false);   
          }
       }
+   
+   	/**
+   	 * Called by the Simulator on the event thread when it has finished stepping back
+   	 * with reverse execution, or was stopped.  Shows the state reached.
+   	 * @param completed false if stopped before getting back one step
+   	 * @param error why execution could not be reversed, or null
+   	 */
+       public void reversed(boolean completed, IOException error) {
+         if (error != null) {
+            mainUI.getMessagesPane().postMarsMessage(
+                          "\n"+name+": unable to step back: "+error.getMessage()+"\n\n");
+         }
+         else if (!completed) {
+            mainUI.getMessagesPane().postMarsMessage(
+                          "\n"+name+": stopped by user.\n\n");
+         }
+         executePane.getRegistersWindow().updateRegisters();
+         executePane.getCoprocessor1Window().updateRegisters();
+         executePane.getCoprocessor0Window().updateRegisters();
+         executePane.getDataSegmentWindow().updateValues();
+         executePane.getTextSegmentWindow().highlightStepAtPC(Simulator.inDelaySlot());
+         FileStatus.set(FileStatus.RUNNABLE);
+         VenusUI.setReset(false);
+      }
    }
\ No newline at end of file
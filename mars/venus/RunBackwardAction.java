@@ -0,0 +1,65 @@
+   package mars.venus;
+   import mars.*;
+   import mars.simulator.*;
+   import java.awt.event.*;
+   import javax.swing.*;
+   import java.io.*;
+
+    /**
+    * Action for the Run -> Run backward menu item.  Reverses execution to the latest
+    * point at which the program was about to execute an instruction at a breakpoint,
+    * or to its start if there is none.  Requires reverse execution, see ReverseStepper.
+    * Runs in the background, as Go does, so Stop or Pause can end it.
+    *
+    * @version October 2026
+    */
+    public class RunBackwardAction extends GuiAction {
+   
+      private String name;
+      private ExecutePane executePane;
+
+       public RunBackwardAction(String name, Icon icon, String descrip,
+                             Integer mnemonic, KeyStroke accel, VenusUI gui) {
+         super(name, icon, descrip, mnemonic, accel, gui);
+      }
+
+       public void actionPerformed(ActionEvent e) {
+         name = this.getValue(Action.NAME).toString();
+         executePane = mainUI.getMainPane().getExecutePane();
+         if (!FileStatus.isAssembled() || Globals.program.getReverseStepper() == null) {
+            return;
+         }
+         VenusUI.setStarted(true);
+         mainUI.messagesPane.setSelectedComponent(mainUI.messagesPane.runTab);
+         executePane.getTextSegmentWindow().setCodeHighlighting(false);
+         executePane.getTextSegmentWindow().unhighlightAllSteps();
+         mainUI.setMenuState(FileStatus.RUNNING);
+         Simulator.getInstance().reverse(Globals.program, false,
+               executePane.getTextSegmentWindow().getSortedBreakPointsArray(), this);
+      }
+   
+   	/**
+   	 * Called by the Simulator on the event thread when it has finished running backward,
+   	 * or was stopped.  Shows the state reached.
+   	 * @param completed false if stopped before reaching the breakpoint or start
+   	 * @param error why execution could not be reversed, or null
+   	 */
+       public void reversed(boolean completed, IOException error) {
+         if (error != null) {
+            mainUI.getMessagesPane().postMarsMessage(
+                          "\n" + name + ": unable to run backward: " + error.getMessage() + "\n\n");
+         }
+         else if (!completed) {
+            mainUI.getMessagesPane().postMarsMessage(
+                          "\n" + name + ": stopped by user.\n\n");
+         }
+         executePane.getRegistersWindow().updateRegisters();
+         executePane.getCoprocessor1Window().updateRegisters();
+         executePane.getCoprocessor0Window().updateRegisters();
+         executePane.getDataSegmentWindow().updateValues();
+         executePane.getTextSegmentWindow().setCodeHighlighting(true);
+         executePane.getTextSegmentWindow().highlightStepAtPC(Simulator.inDelaySlot());
+         FileStatus.set(FileStatus.RUNNABLE);
+         VenusUI.setReset(false);
+      }
+   }
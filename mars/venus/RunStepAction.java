@@ -76,7 +76,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          executePane.getRegistersWindow().updateRegisters();
          executePane.getCoprocessor1Window().updateRegisters();
          executePane.getCoprocessor0Window().updateRegisters();
-         executePane.getDataSegmentWindow().updateValues();
+         executePane.getDataSegmentWindow().updateChangedValues();
          if (!done) {
             executePane.getTextSegmentWindow().highlightStepAtPC();
             FileStatus.set(FileStatus.RUNNABLE);
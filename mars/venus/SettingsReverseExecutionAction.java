@@ -0,0 +1,29 @@
+   package mars.venus;
+   import mars.*;
+   import java.awt.event.*;
+   import javax.swing.*;
+
+   /**
+    * Action class for the Settings menu item to control whether the simulator
+    * takes checkpoints and records program input so that execution can be reversed
+    * any number of steps (see mars.simulator.ReverseStepper).  Enabling it takes effect
+    * when the program is next assembled; disabling it takes effect at once.
+    *
+    * @version October 2026
+    */
+    public class SettingsReverseExecutionAction extends GuiAction  {
+   
+       public SettingsReverseExecutionAction(String name, Icon icon, String descrip,
+                             Integer mnemonic, KeyStroke accel, VenusUI gui) {
+         super(name, icon, descrip, mnemonic, accel, gui);
+      }
+   		 
+       public void actionPerformed(ActionEvent e) {
+         Globals.getSettings().setBooleanSetting(Settings.REVERSE_EXECUTION_ENABLED,
+               ((JCheckBoxMenuItem) e.getSource()).isSelected());
+         if (!((JCheckBoxMenuItem) e.getSource()).isSelected() && Globals.program != null) {
+            Globals.program.discardReverseStepper();
+            mainUI.setMenuState(FileStatus.get());
+         }
+      }
+   }
@@ -67,6 +67,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private  boolean codeHighlighting;
       private boolean breakpointsEnabled;  // Added 31 Dec 2009
       private int highlightAddress;
+      private int highlightRow = -1; // row of highlightAddress when last highlighted
       private TableModelListener tableModelListener;
       private boolean inDelaySlot; // Added 25 June 2007
    	
@@ -534,11 +535,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          table.scrollRectToVisible(table.getCellRect(row, 0, true));
          this.inDelaySlot = inDelaySlot;// Added 25 June 2007
          // Trigger highlighting, which is done by the column's cell renderer.
-         // IMPLEMENTATION NOTE: Pretty crude implementation; mark all rows 
-         // as changed so assure that the previously highlighted row is 
-         // unhighlighted.  Would be better to keep track of previous row
-         // then fire two events: one for it and one for the new row.
-         table.tableChanged(new TableModelEvent(tableModel));
+         // Fire two events: one for the previously highlighted row, so it is 
+         // unhighlighted, and one for the new row.
+         if (highlightRow >= 0 && highlightRow < tableModel.getRowCount() && highlightRow != row) {
+            table.tableChanged(new TableModelEvent(tableModel, highlightRow, highlightRow));
+         }
+         highlightRow = row;
+         table.tableChanged(new TableModelEvent(tableModel, row, row));
          //this.inDelaySlot = false;// Added 25 June 2007
       }
    
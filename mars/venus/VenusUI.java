@@ -74,10 +74,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private JMenu file, run, window, help, edit, settings; // , language;
       private JMenuItem fileNew, fileOpen, fileClose, fileCloseAll, fileSave, fileSaveAs, fileSaveAll, fileDumpMemory, filePrint, fileExit;
       private JMenuItem editUndo, editRedo, editCut, editCopy, editPaste, editFindReplace, editSelectAll;
-      private JMenuItem runGo, runStep, runBackstep, runReset, runAssemble, runStop, runPause, runClearBreakpoints, runToggleBreakpoints;
+      private JMenuItem runGo, runStep, runBackstep, runBackward, runReset, runAssemble, runStop, runPause, runClearBreakpoints, runToggleBreakpoints;
       private JCheckBoxMenuItem settingsLabel, settingsPopupInput, settingsValueDisplayBase, settingsAddressDisplayBase,
               settingsExtended, settingsAssembleOnOpen, settingsAssembleAll, settingsWarningsAreErrors, settingsStartAtMain,
-      		  settingsDelayedBranching, settingsProgramArguments, settingsSelfModifyingCode;
+      		  settingsDelayedBranching, settingsProgramArguments, settingsSelfModifyingCode, settingsReverseExecution;
       private JMenuItem settingsExceptionHandler, settingsEditor, settingsHighlighting, settingsMemoryConfiguration;
       private JMenuItem helpHelp, helpAbout;
          
@@ -96,13 +96,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       EditUndoAction editUndoAction;
       EditRedoAction editRedoAction;
       private Action editCutAction, editCopyAction, editPasteAction, editFindReplaceAction, editSelectAllAction;
-      private Action runAssembleAction, runGoAction, runStepAction, runBackstepAction, runResetAction, 
+      private Action runAssembleAction, runGoAction, runStepAction, runBackstepAction, runBackwardAction, runResetAction, 
                      runStopAction, runPauseAction, runClearBreakpointsAction, runToggleBreakpointsAction;
       private Action settingsLabelAction, settingsPopupInputAction, settingsValueDisplayBaseAction, settingsAddressDisplayBaseAction,
                      settingsExtendedAction, settingsAssembleOnOpenAction, settingsAssembleAllAction,
       					settingsWarningsAreErrorsAction, settingsStartAtMainAction, settingsProgramArgumentsAction,
       					settingsDelayedBranchingAction, settingsExceptionHandlerAction, settingsEditorAction,
-      					settingsHighlightingAction, settingsMemoryConfigurationAction, settingsSelfModifyingCodeAction;    
+      					settingsHighlightingAction, settingsMemoryConfigurationAction, settingsSelfModifyingCodeAction,
+      					settingsReverseExecutionAction;    
       private Action helpHelpAction, helpAboutAction;
    
    
@@ -337,6 +338,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                									  "Undo the last step", new Integer(KeyEvent.VK_B),
                									  KeyStroke.getKeyStroke( KeyEvent.VK_F8, 0), 
                									  mainUI);	
+            runBackwardAction = new RunBackwardAction("Run backward", 
+                                            new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"StepBack22.png"))),
+               									  "Run backward to the previous breakpoint (requires reverse execution)", Integer.valueOf(KeyEvent.VK_W),
+               									  KeyStroke.getKeyStroke( KeyEvent.VK_F8, InputEvent.SHIFT_DOWN_MASK), 
+               									  mainUI);	
             runPauseAction = new RunPauseAction("Pause", 
                                             new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"Pause22.png"))),
                									  "Pause the currently running program", new Integer(KeyEvent.VK_P),
@@ -425,6 +431,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                									  "If set, the MIPS program can write and branch to both text and data segments.",
                									  null,null,
                									  mainUI);
+            settingsReverseExecutionAction  = new SettingsReverseExecutionAction("Reverse execution",
+                                            null,
+               									  "If set, Backstep and Run backward can reverse any number of steps.  Turning it on takes effect on next assembly.  Not with self-modifying code.",
+               									  null,null,
+               									  mainUI);
             settingsEditorAction          = new SettingsEditorAction("Editor...",
                                             null,
                									  "View and modify text editor settings.",
@@ -554,6 +565,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runStep.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"StepForward16.png"))));//"MyStepForward16.gif"))));
          runBackstep = new JMenuItem(runBackstepAction);
          runBackstep.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"StepBack16.png"))));//"MyStepBack16.gif"))));
+         runBackward = new JMenuItem(runBackwardAction);
+         runBackward.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"MyBlank16.gif"))));
          runReset = new JMenuItem(runResetAction);
          runReset.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"Reset16.png"))));//"MyReset16.gif"))));
          runStop = new JMenuItem(runStopAction);
@@ -569,6 +582,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          run.add(runGo);
          run.add(runStep);
          run.add(runBackstep);
+         run.add(runBackward);
          run.add(runPause);
          run.add(runStop);
          run.add(runReset);
@@ -594,6 +608,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          settingsDelayedBranching.setSelected(Globals.getSettings().getDelayedBranchingEnabled());
          settingsSelfModifyingCode = new JCheckBoxMenuItem(settingsSelfModifyingCodeAction);
          settingsSelfModifyingCode.setSelected(Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED));
+         settingsReverseExecution = new JCheckBoxMenuItem(settingsReverseExecutionAction);
+         settingsReverseExecution.setSelected(Globals.getSettings().getBooleanSetting(Settings.REVERSE_EXECUTION_ENABLED));
          settingsAssembleOnOpen = new JCheckBoxMenuItem(settingsAssembleOnOpenAction);
          settingsAssembleOnOpen.setSelected(Globals.getSettings().getAssembleOnOpenEnabled());
          settingsAssembleAll = new JCheckBoxMenuItem(settingsAssembleAllAction);
@@ -623,6 +639,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          settings.add(settingsExtended);
          settings.add(settingsDelayedBranching);
          settings.add(settingsSelfModifyingCode);
+         settings.add(settingsReverseExecution);
          settings.addSeparator();
          settings.add(settingsEditor);
          settings.add(settingsHighlighting);
@@ -812,11 +829,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editFindReplaceAction.setEnabled(false);
          editSelectAllAction.setEnabled(false);
          settingsDelayedBranchingAction.setEnabled(true); // added 25 June 2007
+         settingsReverseExecutionAction.setEnabled(true);
          settingsMemoryConfigurationAction.setEnabled(true); // added 21 July 2009
          runAssembleAction.setEnabled(false);
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runBackwardAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -849,6 +868,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editFindReplaceAction.setEnabled(true);
          editSelectAllAction.setEnabled(true);
          settingsDelayedBranchingAction.setEnabled(true); 
+         settingsReverseExecutionAction.setEnabled(true);
          settingsMemoryConfigurationAction.setEnabled(true);
          runAssembleAction.setEnabled(true);
 			// If assemble-all, allow previous Run menu settings to remain.
@@ -857,6 +877,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             runGoAction.setEnabled(false);
             runStepAction.setEnabled(false);
             runBackstepAction.setEnabled(false);
+            runBackwardAction.setEnabled(false);
             runResetAction.setEnabled(false);
             runStopAction.setEnabled(false);
             runPauseAction.setEnabled(false);
@@ -890,11 +911,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editFindReplaceAction.setEnabled(true);
          editSelectAllAction.setEnabled(true);
          settingsDelayedBranchingAction.setEnabled(true); // added 25 June 2007
+         settingsReverseExecutionAction.setEnabled(true);
          settingsMemoryConfigurationAction.setEnabled(true); // added 21 July 2009
          runAssembleAction.setEnabled(true);
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runBackwardAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -926,11 +949,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editFindReplaceAction.setEnabled(true);
          editSelectAllAction.setEnabled(true);
          settingsDelayedBranchingAction.setEnabled(true); // added 25 June 2007
+         settingsReverseExecutionAction.setEnabled(true);
          settingsMemoryConfigurationAction.setEnabled(true); // added 21 July 2009
          runAssembleAction.setEnabled(false);
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runBackwardAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -962,13 +987,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editFindReplaceAction.setEnabled(true);
          editSelectAllAction.setEnabled(true);
          settingsDelayedBranchingAction.setEnabled(true); // added 25 June 2007
+         settingsReverseExecutionAction.setEnabled(true);
          settingsMemoryConfigurationAction.setEnabled(true); // added 21 July 2009
          runAssembleAction.setEnabled(true);
          runGoAction.setEnabled(true);
          runStepAction.setEnabled(true);
          runBackstepAction.setEnabled(
             (Globals.getSettings().getBackSteppingEnabled()&& !Globals.program.getBackStepper().empty())
-             ? true : false);
+             || canReverse());
+         runBackwardAction.setEnabled(canReverse());
          runResetAction.setEnabled(true);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -999,11 +1026,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editFindReplaceAction.setEnabled(false);
          editSelectAllAction.setEnabled(false);
          settingsDelayedBranchingAction.setEnabled(false); // added 25 June 2007
+         settingsReverseExecutionAction.setEnabled(false);
          settingsMemoryConfigurationAction.setEnabled(false); // added 21 July 2009
          runAssembleAction.setEnabled(false);
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runBackwardAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(true);
          runPauseAction.setEnabled(true);
@@ -1033,13 +1062,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editFindReplaceAction.setEnabled(true);
          editSelectAllAction.setEnabled(true);
          settingsDelayedBranchingAction.setEnabled(true); // added 25 June 2007
+         settingsReverseExecutionAction.setEnabled(true);
          settingsMemoryConfigurationAction.setEnabled(true); // added 21 July 2009
          runAssembleAction.setEnabled(true);
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(
             (Globals.getSettings().getBackSteppingEnabled()&& !Globals.program.getBackStepper().empty())
-             ? true : false);
+             || canReverse());
+         runBackwardAction.setEnabled(canReverse());
          runResetAction.setEnabled(true);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -1050,6 +1081,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          editRedoAction.updateRedoState();
       }
    
+     // True if the program can be run backward, which requires a ReverseStepper.
+       private boolean canReverse() {
+         return Globals.program != null && Globals.program.getReverseStepper() != null
+                && Globals.program.getReverseStepper().canStepBack();
+      }
+   
     
     /**
      * Get current menu state.  State values are constants in FileStatus class.  DPS 23 July 2008